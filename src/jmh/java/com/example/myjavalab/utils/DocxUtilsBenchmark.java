@@ -0,0 +1,105 @@
+package com.example.myjavalab.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * DocxUtils公开操作的基准测试
+ *
+ * 运行方式（默认附带gc profiler，输出吞吐量和gc.alloc.rate.norm）：
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="-p paragraphs=10,1000 DocxUtilsBenchmark.copyBookmarkContent"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DocxUtilsBenchmark {
+
+    private static final long SEED = 20240501L;
+    private static final String BOOKMARK_A = DocxTestDocumentCreator.FIRST_BOOKMARK_NAME;
+    private static final String BOOKMARK_B = "labelB";
+    // 多段落书签包含的段落数
+    private static final int MULTI_PARAGRAPH_BOOKMARK_SIZE = 5;
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int paragraphs;
+
+    @Param({"SINGLE", "MULTI"})
+    public String bookmark;
+
+    private Path workDir;
+    // 只包含labelA的文档
+    private String sourcePath;
+    // 在labelA之前插入了labelB的文档
+    private String insertedPath;
+    private String outputPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = Files.createTempDirectory("docx-benchmark");
+        int bookmarkParagraphs = "MULTI".equals(bookmark) ? Math.min(MULTI_PARAGRAPH_BOOKMARK_SIZE, paragraphs) : 1;
+        sourcePath = new DocxTestDocumentCreator(SEED)
+            .paragraphs(paragraphs)
+            .bookmarkParagraphs(bookmarkParagraphs, bookmarkParagraphs)
+            .create(workDir.resolve("source.docx"))
+            .toString();
+        insertedPath = workDir.resolve("inserted.docx").toString();
+        outputPath = workDir.resolve("output.docx").toString();
+        DocxUtils.insertBookmarkBefore(sourcePath, insertedPath, BOOKMARK_A, BOOKMARK_B);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void insertBookmarkBefore() throws Exception {
+        DocxUtils.insertBookmarkBefore(sourcePath, outputPath, BOOKMARK_A, BOOKMARK_B);
+    }
+
+    @Benchmark
+    public void copyBookmarkContent() throws Exception {
+        DocxUtils.copyBookmarkContent(insertedPath, outputPath, BOOKMARK_A, BOOKMARK_B);
+    }
+
+    @Benchmark
+    public String getBookmarkContentFromFile() throws Exception {
+        return DocxUtils.getBookmarkContentFromFile(sourcePath, BOOKMARK_A);
+    }
+
+    @Benchmark
+    public boolean compareBookmarkParagraphStyles() throws Exception {
+        return DocxUtils.compareBookmarkParagraphStyles(insertedPath, BOOKMARK_A, BOOKMARK_B);
+    }
+
+    @Benchmark
+    public boolean isBookmarkUsingNumberingStyle() throws Exception {
+        return DocxUtils.isBookmarkUsingNumberingStyle(sourcePath, BOOKMARK_A);
+    }
+}
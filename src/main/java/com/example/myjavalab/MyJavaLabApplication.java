@@ -1,7 +1,9 @@
 package com.example.myjavalab;
 
+import com.example.myjavalab.utils.DocxMetrics;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class MyJavaLabApplication {
@@ -10,4 +12,9 @@ public class MyJavaLabApplication {
 		SpringApplication.run(MyJavaLabApplication.class, args);
 	}
 
+	@Bean
+	public DocxMetrics docxMetrics() {
+		return new DocxMetrics();
+	}
+
 }
@@ -0,0 +1,299 @@
+package com.example.myjavalab.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 两个文档之间的书签差异
+ *
+ * <pre>
+ * BookmarkDiff diff = DocxUtils.diffBookmarks("expected.docx", "generated.docx");
+ * if (!diff.isEmpty()) {
+ *     System.out.println(diff);
+ * }
+ * </pre>
+ *
+ * 每个文档只解析一次，从书签索引中为每个书签生成快照（书签范围、内容哈希、段落样式指纹），
+ * 再按书签名称比较两组快照。差异类型：
+ * <ul>
+ *     <li>ADDED / REMOVED：书签只存在于新文档 / 旧文档中</li>
+ *     <li>MOVED：书签换了所在的部件或容器，或者与其他共有书签的先后顺序发生了变化；
+ *         只因前面插入或删除了段落导致段落索引整体偏移不算移动</li>
+ *     <li>CONTENT_CHANGED：书签内容（与 getBookmarkContent 相同，去除首尾空白）不同</li>
+ *     <li>STYLE_CHANGED：书签的段落数量或任一对应段落的样式不同，规则与 compareBookmarkParagraphStyles 相同</li>
+ * </ul>
+ * 内容和样式都按64位哈希比较
+ */
+public class BookmarkDiff {
+
+    /**
+     * 差异类型
+     */
+    public enum ChangeType {
+        ADDED,
+        REMOVED,
+        MOVED,
+        CONTENT_CHANGED,
+        STYLE_CHANGED
+    }
+
+    /**
+     * 单个书签的快照
+     */
+    static class Snapshot {
+        final String name;
+        final BookmarkRange range;
+        final long contentHash;
+        final long styleFingerprint;
+
+        Snapshot(String name, BookmarkRange range, long contentHash, long styleFingerprint) {
+            this.name = name;
+            this.range = range;
+            this.contentHash = contentHash;
+            this.styleFingerprint = styleFingerprint;
+        }
+    }
+
+    /**
+     * 单个书签的差异，一个书签可以同时有多种差异（例如移动并修改了内容）
+     */
+    public static class Change {
+        private final String bookmarkName;
+        private final Set<ChangeType> types;
+        private final BookmarkRange oldRange;
+        private final BookmarkRange newRange;
+
+        Change(String bookmarkName, Set<ChangeType> types, BookmarkRange oldRange, BookmarkRange newRange) {
+            this.bookmarkName = bookmarkName;
+            this.types = Collections.unmodifiableSet(types);
+            this.oldRange = oldRange;
+            this.newRange = newRange;
+        }
+
+        public String getBookmarkName() { return bookmarkName; }
+        public Set<ChangeType> getTypes() { return types; }
+
+        /**
+         * 获取书签在旧文档中的范围，新增的书签返回null
+         */
+        public BookmarkRange getOldRange() { return oldRange; }
+
+        /**
+         * 获取书签在新文档中的范围，删除的书签返回null
+         */
+        public BookmarkRange getNewRange() { return newRange; }
+
+        public boolean is(ChangeType type) {
+            return types.contains(type);
+        }
+
+        @Override
+        public String toString() {
+            return bookmarkName + " " + types + " " + oldRange + " -> " + newRange;
+        }
+    }
+
+    private final List<Change> changes;
+    private final int comparedCount;
+
+    private BookmarkDiff(List<Change> changes, int comparedCount) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.comparedCount = comparedCount;
+    }
+
+    /**
+     * 比较两组书签快照
+     * @param oldSnapshots 旧文档的书签快照（书签名称 -&gt; 快照），按书签在文档中出现的顺序排列
+     * @param newSnapshots 新文档的书签快照，按书签在文档中出现的顺序排列
+     * @return 书签差异
+     */
+    static BookmarkDiff compare(Map<String, Snapshot> oldSnapshots, Map<String, Snapshot> newSnapshots) {
+        // 两个文档共有的书签按新文档中的顺序排列，记录每个书签在旧文档中的序号
+        List<Snapshot> common = new ArrayList<>();
+        int[] oldOrder = new int[Math.min(oldSnapshots.size(), newSnapshots.size())];
+        Map<String, Integer> oldOrdinals = ordinals(oldSnapshots);
+        for (Snapshot snapshot : newSnapshots.values()) {
+            Integer oldOrdinal = oldOrdinals.get(snapshot.name);
+            if (oldOrdinal != null) {
+                oldOrder[common.size()] = oldOrdinal;
+                common.add(snapshot);
+            }
+        }
+        boolean[] inOrder = longestIncreasingSubsequence(oldOrder, common.size());
+
+        List<Change> changes = new ArrayList<>();
+        for (Snapshot oldSnapshot : oldSnapshots.values()) {
+            if (!newSnapshots.containsKey(oldSnapshot.name)) {
+                changes.add(new Change(oldSnapshot.name, EnumSet.of(ChangeType.REMOVED), oldSnapshot.range, null));
+            }
+        }
+        for (int i = 0; i < common.size(); i++) {
+            Snapshot newSnapshot = common.get(i);
+            Snapshot oldSnapshot = oldSnapshots.get(newSnapshot.name);
+            Set<ChangeType> types = EnumSet.noneOf(ChangeType.class);
+            if (!inOrder[i] || !newSnapshot.range.isSameContainer(oldSnapshot.range)) {
+                types.add(ChangeType.MOVED);
+            }
+            if (newSnapshot.contentHash != oldSnapshot.contentHash) {
+                types.add(ChangeType.CONTENT_CHANGED);
+            }
+            if (newSnapshot.styleFingerprint != oldSnapshot.styleFingerprint) {
+                types.add(ChangeType.STYLE_CHANGED);
+            }
+            if (!types.isEmpty()) {
+                changes.add(new Change(newSnapshot.name, types, oldSnapshot.range, newSnapshot.range));
+            }
+        }
+        for (Snapshot newSnapshot : newSnapshots.values()) {
+            if (!oldSnapshots.containsKey(newSnapshot.name)) {
+                changes.add(new Change(newSnapshot.name, EnumSet.of(ChangeType.ADDED), null, newSnapshot.range));
+            }
+        }
+        return new BookmarkDiff(changes, common.size());
+    }
+
+    private static Map<String, Integer> ordinals(Map<String, Snapshot> snapshots) {
+        Map<String, Integer> ordinals = new HashMap<>(snapshots.size() * 2);
+        for (String name : snapshots.keySet()) {
+            ordinals.put(name, ordinals.size());
+        }
+        return ordinals;
+    }
+
+    /**
+     * 标记最长递增子序列中的元素（O(n log n)），不在其中的书签即为相对顺序发生变化的书签
+     */
+    private static boolean[] longestIncreasingSubsequence(int[] values, int length) {
+        // tails[k]：长度为k+1的递增子序列的最小结尾元素的下标
+        int[] tails = new int[length];
+        int[] previous = new int[length];
+        int size = 0;
+        for (int i = 0; i < length; i++) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[tails[middle]] < values[i]) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == size) {
+                size++;
+            }
+        }
+        boolean[] inSequence = new boolean[length];
+        for (int i = size > 0 ? tails[size - 1] : -1; i != -1; i = previous[i]) {
+            inSequence[i] = true;
+        }
+        return inSequence;
+    }
+
+    /**
+     * 两个文档是否没有书签差异
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * 获取全部差异：先是删除的书签（按旧文档顺序），然后是共有书签的变化和新增的书签（按新文档顺序）
+     */
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * 获取两个文档共有的书签数量
+     */
+    public int getComparedCount() {
+        return comparedCount;
+    }
+
+    /**
+     * 获取有指定差异的书签名称
+     */
+    public List<String> getBookmarks(ChangeType type) {
+        List<String> names = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.is(type)) {
+                names.add(change.getBookmarkName());
+            }
+        }
+        return names;
+    }
+
+    public List<String> getAdded() {
+        return getBookmarks(ChangeType.ADDED);
+    }
+
+    public List<String> getRemoved() {
+        return getBookmarks(ChangeType.REMOVED);
+    }
+
+    public List<String> getMoved() {
+        return getBookmarks(ChangeType.MOVED);
+    }
+
+    public List<String> getContentChanged() {
+        return getBookmarks(ChangeType.CONTENT_CHANGED);
+    }
+
+    public List<String> getStyleChanged() {
+        return getBookmarks(ChangeType.STYLE_CHANGED);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("BookmarkDiff{共有书签 " + comparedCount + " 个");
+        for (ChangeType type : ChangeType.values()) {
+            List<String> names = getBookmarks(type);
+            if (!names.isEmpty()) {
+                result.append(", ").append(type).append('=').append(names);
+            }
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * 计算文本的64位哈希（FNV-1a），书签内容直接写入，不生成字符串
+     */
+    static class ContentHasher implements Appendable {
+        private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+        private static final long PRIME = 0x100000001b3L;
+
+        private long hash = OFFSET_BASIS;
+
+        @Override
+        public Appendable append(CharSequence text) {
+            return append(text, 0, text.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence text, int start, int end) {
+            for (int i = start; i < end; i++) {
+                append(text.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+            return this;
+        }
+
+        long getHash() {
+            return hash;
+        }
+    }
+}
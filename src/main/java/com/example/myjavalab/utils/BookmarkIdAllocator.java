@@ -0,0 +1,46 @@
+package com.example.myjavalab.utils;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 书签ID分配器，每个文档一个
+ *
+ * 从文档中已有的最大书签ID之后开始分配，保证不与文件中已有的ID冲突；
+ * 分配使用原子计数器，不需要加锁，多个线程可以同时为同一文档或不同文档分配ID
+ */
+final class BookmarkIdAllocator {
+
+    private final AtomicLong nextId;
+
+    /**
+     * @param maxExistingId 文档中已有的最大书签ID，没有书签时为null
+     */
+    BookmarkIdAllocator(BigInteger maxExistingId) {
+        this.nextId = new AtomicLong(following(maxExistingId));
+    }
+
+    /**
+     * 分配下一个书签ID
+     */
+    BigInteger next() {
+        return BigInteger.valueOf(nextId.getAndIncrement());
+    }
+
+    /**
+     * 登记文档中已存在的书签ID，之后分配的ID都大于该ID
+     * @param existingId 已存在的书签ID，可以为null
+     */
+    void observe(BigInteger existingId) {
+        if (existingId != null) {
+            nextId.accumulateAndGet(following(existingId), Math::max);
+        }
+    }
+
+    private static long following(BigInteger id) {
+        if (id == null || id.signum() < 0) {
+            return 0;
+        }
+        return id.bitLength() < Long.SIZE - 1 ? id.longValue() + 1 : Long.MAX_VALUE;
+    }
+}
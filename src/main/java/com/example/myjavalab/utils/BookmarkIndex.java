@@ -0,0 +1,962 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.IBody;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractFootnoteEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFFooter;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.apache.poi.xwpf.usermodel.XWPFTableRow;
+import org.apache.xmlbeans.XmlBeans;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.impl.values.XmlValueDisconnectedException;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 书签索引，一次遍历文档的全部内容部件即可建立书签名称/ID到书签位置的映射
+ *
+ * 遍历范围包括文档主体（含表格单元格和内容控件）、页眉、页脚、脚注和尾注，
+ * 每个可以直接包含段落的位置作为一个 {@link Container}，书签的段落索引是其在所在容器中的段落序号。
+ * 段落索引按DOM顺序计算，文档主体的段落索引与新打开文档的 document.getParagraphs() 一致，
+ * 并且在DOM插入段落后仍能保持正确的顺序
+ */
+public class BookmarkIndex {
+
+    /**
+     * WordprocessingML 命名空间
+     */
+    static final String WORDML_NS = "http://schemas.openxmlformats.org/wordprocessingml/2006/main";
+
+    /**
+     * 书签索引项，记录书签的起止节点和所在段落
+     */
+    public static class Entry {
+        private final String name;
+        private final BigInteger id;
+        private final Node startNode;
+        private final Container container;
+        private int startParagraphIndex;
+        private Node endNode;
+        private int endParagraphIndex = -1;
+
+        Entry(String name, BigInteger id, Node startNode, Container container, int startParagraphIndex) {
+            this.name = name;
+            this.id = id;
+            this.startNode = startNode;
+            this.container = container;
+            this.startParagraphIndex = startParagraphIndex;
+        }
+
+        public String getName() { return name; }
+        public BigInteger getId() { return id; }
+        public Node getStartNode() { return startNode; }
+        public Node getEndNode() { return endNode; }
+
+        /**
+         * 获取书签起始标记所在的容器，段落索引都相对于该容器
+         */
+        public Container getContainer() { return container; }
+        public int getStartParagraphIndex() { return startParagraphIndex; }
+
+        /**
+         * 获取bookmarkEnd所在段落的索引，bookmarkEnd不在段落中或不在起始标记所在的容器中时返回-1
+         */
+        public int getEndParagraphIndex() { return endParagraphIndex; }
+
+        /**
+         * 获取书签起始标记所在的段落
+         */
+        public XWPFParagraph getStartParagraph() {
+            return container.getParagraph(startParagraphIndex);
+        }
+
+        /**
+         * 获取书签范围
+         * bookmarkEnd不在任何段落中（或未找到）时按单段落书签处理
+         */
+        public BookmarkRange getRange() {
+            if (id == null) {
+                return new BookmarkRange(-1, -1);
+            }
+            if (endNode == null || endParagraphIndex == -1) {
+                return container.range(startParagraphIndex, startParagraphIndex);
+            }
+            if (startParagraphIndex <= endParagraphIndex) {
+                return container.range(startParagraphIndex, endParagraphIndex);
+            }
+            return container.range(endParagraphIndex, startParagraphIndex);
+        }
+
+        /**
+         * 检查书签标记是否仍挂在文档树上（内容替换可能删除嵌套在其中的其他书签）
+         */
+        public boolean isAttached() {
+            return isAttached(startNode) && (endNode == null || isAttached(endNode));
+        }
+
+        private static boolean isAttached(Node node) {
+            Node parent = node.getParentNode();
+            return parent != null && parent.getParentNode() != null;
+        }
+    }
+
+    /**
+     * 可以直接包含段落的位置：文档主体、表格单元格、内容控件、页眉、页脚、脚注或尾注
+     * 由部件名称和部件内的路径确定，例如 /word/document.xml 中的 body/tbl[0]/tr[1]/tc[2]
+     */
+    public static class Container {
+        private final String partName;
+        private final String path;
+        private final IBody body;
+        private final Node node;
+        private final List<XWPFParagraph> paragraphs = new ArrayList<>();
+        // 与paragraphs一一对应的段落DOM节点，以及DOM节点到段落索引的反向映射
+        private final List<Node> paragraphNodes = new ArrayList<>();
+        private final Map<Node, Integer> paragraphIndexesByNode = new IdentityHashMap<>();
+
+        Container(String partName, String path, IBody body, Node node) {
+            this.partName = partName;
+            this.path = path;
+            this.body = body;
+            this.node = node;
+        }
+
+        /**
+         * 获取所在部件的名称，例如 /word/document.xml、/word/header1.xml
+         */
+        public String getPartName() { return partName; }
+
+        /**
+         * 获取在部件中的路径，例如 body、body/tbl[0]/tr[1]/tc[2]、hdr、footnote[1]
+         */
+        public String getPath() { return path; }
+
+        /**
+         * 获取容器对应的POI正文对象（文档、表格单元格、页眉页脚或脚注）
+         */
+        public IBody getBody() { return body; }
+
+        /**
+         * 获取容器的DOM节点，容器中的段落是它的直接子节点
+         */
+        public Node getNode() { return node; }
+
+        /**
+         * 是否为文档主体（不包括表格单元格和内容控件）
+         */
+        public boolean isMainBody() {
+            return BookmarkRange.BODY.equals(path);
+        }
+
+        /**
+         * 按DOM顺序获取段落
+         * @param paragraphIndex 段落索引
+         * @return 段落对象，索引越界返回null
+         */
+        public XWPFParagraph getParagraph(int paragraphIndex) {
+            if (paragraphIndex < 0 || paragraphIndex >= paragraphs.size()) {
+                return null;
+            }
+            return paragraphs.get(paragraphIndex);
+        }
+
+        /**
+         * 获取按DOM顺序排列的段落列表（只读）
+         */
+        public List<XWPFParagraph> getParagraphs() {
+            return Collections.unmodifiableList(paragraphs);
+        }
+
+        /**
+         * 查找包含指定DOM节点的段落索引，沿父节点向上查找
+         * @param node DOM节点（段落节点本身或段落中的任意后代节点）
+         * @return 段落索引，节点不在本容器的段落中时返回-1
+         */
+        public int findParagraphIndex(Node node) {
+            for (Node current = node; current != null; current = current.getParentNode()) {
+                Integer paragraphIndex = paragraphIndexesByNode.get(current);
+                if (paragraphIndex != null) {
+                    return paragraphIndex;
+                }
+            }
+            return -1;
+        }
+
+        BookmarkRange range(int start, int end) {
+            return new BookmarkRange(start, end, partName, path);
+        }
+
+        private void add(XWPFParagraph paragraph, Node paragraphNode) {
+            paragraphIndexesByNode.put(paragraphNode, paragraphs.size());
+            paragraphs.add(paragraph);
+            paragraphNodes.add(paragraphNode);
+        }
+
+        /**
+         * 更新从指定位置开始的段落节点的索引
+         */
+        private void reindexParagraphNodes(int from) {
+            for (int i = from; i < paragraphNodes.size(); i++) {
+                paragraphIndexesByNode.put(paragraphNodes.get(i), i);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return partName + "#" + path;
+        }
+    }
+
+    /**
+     * 书签标记及其所在位置，用于暂存结束标记在起始标记之前的bookmarkEnd
+     */
+    private static class Marker {
+        final Node node;
+        final Container container;
+        final int paragraphIndex;
+
+        Marker(Node node, Container container, int paragraphIndex) {
+            this.node = node;
+            this.container = container;
+            this.paragraphIndex = paragraphIndex;
+        }
+    }
+
+    /**
+     * 书签标记在文档中的位置：所在容器、段落序号（-1表示容器的直接子节点）和在父节点中的子节点序号
+     */
+    private static class Position {
+        final String containerKey;
+        final int paragraphIndex;
+        final int childOffset;
+
+        Position(String containerKey, int paragraphIndex, int childOffset) {
+            this.containerKey = containerKey;
+            this.paragraphIndex = paragraphIndex;
+            this.childOffset = childOffset;
+        }
+    }
+
+    /**
+     * 一个书签在 {@link Layout} 中的记录
+     */
+    private static class EntryLayout {
+        final String name;
+        final BigInteger id;
+        final Position start;
+        // 没有结束标记时为null
+        final Position end;
+        final int endParagraphIndex;
+
+        EntryLayout(String name, BigInteger id, Position start, Position end, int endParagraphIndex) {
+            this.name = name;
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.endParagraphIndex = endParagraphIndex;
+        }
+    }
+
+    /**
+     * 与文档对象无关的书签位置，不持有DOM节点
+     *
+     * 由 {@link #layout()} 从已建立的索引生成，内容与之相同的文档（例如从同一个模板复制正文的文档）
+     * 可以用 {@link #bind(XWPFDocument, Layout)} 按位置直接取得书签标记，不需要扫描段落内容
+     */
+    static final class Layout {
+        private final List<EntryLayout> entries;
+        private final BigInteger maxBookmarkId;
+
+        private Layout(List<EntryLayout> entries, BigInteger maxBookmarkId) {
+            this.entries = entries;
+            this.maxBookmarkId = maxBookmarkId;
+        }
+    }
+
+    private final XWPFDocument document;
+    private Container body;
+    // 部件名称#路径 -> 容器，按遍历顺序排列
+    private final Map<String, Container> containers = new LinkedHashMap<>();
+    // 各容器段落DOM节点到所在容器的映射
+    private final Map<Node, Container> containersByParagraphNode = new IdentityHashMap<>();
+    private final Map<String, Entry> entriesByName = new LinkedHashMap<>();
+    private final Map<BigInteger, Entry> entriesById = new HashMap<>();
+    // 段落节点到样式指纹的缓存，按需计算
+    private final Map<Node, Long> styleFingerprints = new IdentityHashMap<>();
+    // 尚未遇到bookmarkStart的bookmarkEnd（结束标记在起始标记之前的异常情况），只在建立索引期间使用
+    private Map<BigInteger, Marker> orphanEnds = new HashMap<>();
+    private BigInteger maxBookmarkId;
+    // 建立索引时扫描的段落数（所有容器）和访问的容器和段落子节点数
+    private int scannedParagraphCount;
+    private int visitedNodeCount;
+    private boolean stale;
+    // 为false时只建立容器和段落列表，不扫描书签标记（按 Layout 绑定时使用）
+    private boolean scanMarkers = true;
+
+    private BookmarkIndex(XWPFDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * 一次遍历文档的全部内容部件，建立书签索引
+     * 遍历顺序：文档主体（表格和内容控件按出现位置展开）、页眉、页脚、脚注、尾注
+     * @param document 文档对象
+     * @return 书签索引
+     */
+    static BookmarkIndex build(XWPFDocument document) {
+        BookmarkIndex index = new BookmarkIndex(document);
+        index.scanDocument();
+        return index;
+    }
+
+    /**
+     * 按书签位置为内容相同的文档建立索引：只建立容器和段落列表，书签标记按位置直接取得
+     * @param document 文档对象，内容须与生成 layout 的文档相同
+     * @param layout 书签位置
+     * @return 书签索引；某个位置上不是对应的书签标记（文档内容不同）时返回null，由调用方改用 {@link #build(XWPFDocument)}
+     */
+    static BookmarkIndex bind(XWPFDocument document, Layout layout) {
+        BookmarkIndex index = new BookmarkIndex(document);
+        index.scanMarkers = false;
+        index.scanDocument();
+        for (EntryLayout entryLayout : layout.entries) {
+            Node startNode = index.resolve(entryLayout.start, "bookmarkStart");
+            if (startNode == null || !entryLayout.name.equals(attribute(startNode, "name"))) {
+                return null;
+            }
+            Entry entry = new Entry(entryLayout.name, entryLayout.id, startNode,
+                                    index.containers.get(entryLayout.start.containerKey), entryLayout.start.paragraphIndex);
+            if (entryLayout.end != null) {
+                Node endNode = index.resolve(entryLayout.end, "bookmarkEnd");
+                if (endNode == null || !entryLayout.id.equals(parseId(attribute(endNode, "id")))) {
+                    return null;
+                }
+                entry.endNode = endNode;
+                entry.endParagraphIndex = entryLayout.endParagraphIndex;
+            }
+            index.entriesByName.put(entry.name, entry);
+            if (entry.id != null && !index.entriesById.containsKey(entry.id)) {
+                index.entriesById.put(entry.id, entry);
+            }
+        }
+        index.maxBookmarkId = layout.maxBookmarkId;
+        index.scanMarkers = true;
+        return index;
+    }
+
+    /**
+     * 遍历文档的全部内容部件，建立容器和段落列表，scanMarkers 为true时同时登记书签标记
+     */
+    private void scanDocument() {
+        // DOM节点到段落对象、正文对象的映射，复用POI已创建的对象
+        Map<Node, XWPFParagraph> paragraphsByNode = new IdentityHashMap<>();
+        Map<Node, IBody> bodiesByNode = new IdentityHashMap<>();
+        Node bodyNode = document.getDocument().getBody().getDomNode();
+        collectBodies(document, bodyNode, paragraphsByNode, bodiesByNode);
+        for (XWPFHeader header : document.getHeaderList()) {
+            collectBodies(header, header._getHdrFtr().getDomNode(), paragraphsByNode, bodiesByNode);
+        }
+        for (XWPFFooter footer : document.getFooterList()) {
+            collectBodies(footer, footer._getHdrFtr().getDomNode(), paragraphsByNode, bodiesByNode);
+        }
+        for (XWPFAbstractFootnoteEndnote note : notes(document)) {
+            collectBodies(note, note.getCTFtnEdn().getDomNode(), paragraphsByNode, bodiesByNode);
+        }
+
+        body = scanContainer(partName(document), BookmarkRange.BODY, document, bodyNode,
+                             paragraphsByNode, bodiesByNode);
+        for (XWPFHeader header : document.getHeaderList()) {
+            scanContainer(partName(header), "hdr", header, header._getHdrFtr().getDomNode(),
+                          paragraphsByNode, bodiesByNode);
+        }
+        for (XWPFFooter footer : document.getFooterList()) {
+            scanContainer(partName(footer), "ftr", footer, footer._getHdrFtr().getDomNode(),
+                          paragraphsByNode, bodiesByNode);
+        }
+        for (XWPFAbstractFootnoteEndnote note : notes(document)) {
+            String path = (note instanceof XWPFEndnote ? "endnote[" : "footnote[") + note.getId() + "]";
+            scanContainer(partName(note), path, note, note.getCTFtnEdn().getDomNode(),
+                          paragraphsByNode, bodiesByNode);
+        }
+        orphanEnds = null;
+    }
+
+    private static List<XWPFAbstractFootnoteEndnote> notes(XWPFDocument document) {
+        List<XWPFAbstractFootnoteEndnote> notes = new ArrayList<>(document.getFootnotes());
+        notes.addAll(document.getEndnotes());
+        return notes;
+    }
+
+    private static String partName(IBody body) {
+        return body.getPart().getPackagePart().getPartName().getName();
+    }
+
+    /**
+     * 登记POI已创建的段落对象和表格单元格对象（递归处理嵌套表格）
+     */
+    private static void collectBodies(IBody body, Node bodyNode,
+                                      Map<Node, XWPFParagraph> paragraphsByNode, Map<Node, IBody> bodiesByNode) {
+        bodiesByNode.put(bodyNode, body);
+        for (XWPFParagraph paragraph : body.getParagraphs()) {
+            try {
+                paragraphsByNode.put(paragraph.getCTP().getDomNode(), paragraph);
+            } catch (XmlValueDisconnectedException e) {
+                // 通过DOM移动过的段落，其原有XmlObject已断开，稍后按DOM节点重新包装
+            }
+        }
+        for (XWPFTable table : body.getTables()) {
+            for (XWPFTableRow row : table.getRows()) {
+                for (XWPFTableCell cell : row.getTableCells()) {
+                    try {
+                        collectBodies(cell, cell.getCTTc().getDomNode(), paragraphsByNode, bodiesByNode);
+                    } catch (XmlValueDisconnectedException e) {
+                        // 已被DOM操作移除的单元格
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 扫描容器的直接子节点，登记段落和书签标记，表格单元格和内容控件作为新的容器递归扫描
+     */
+    private Container scanContainer(String partName, String path, IBody owner, Node containerNode,
+                                    Map<Node, XWPFParagraph> paragraphsByNode, Map<Node, IBody> bodiesByNode) {
+        Container container = new Container(partName, path, owner, containerNode);
+        containers.put(containerKey(partName, path), container);
+        int tables = 0;
+        int contentControls = 0;
+        for (Node child = containerNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+            visitedNodeCount++;
+            if (child.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            String localName = child.getLocalName();
+            if ("p".equals(localName)) {
+                XWPFParagraph paragraph = paragraphsByNode.get(child);
+                if (paragraph == null) {
+                    paragraph = wrapParagraph(owner, child);
+                    if (paragraph == null) {
+                        continue;
+                    }
+                }
+                int paragraphIndex = container.paragraphs.size();
+                container.add(paragraph, child);
+                scannedParagraphCount++;
+                containersByParagraphNode.put(child, container);
+                if (scanMarkers) {
+                    scanParagraph(child, container, paragraphIndex);
+                }
+            } else if ("bookmarkEnd".equals(localName)) {
+                // 容器中的bookmarkEnd，不属于任何段落
+                if (scanMarkers) {
+                    addEnd(child, container, -1);
+                }
+            } else if ("tbl".equals(localName)) {
+                scanTable(child, partName, path + "/tbl[" + tables++ + "]", owner, paragraphsByNode, bodiesByNode);
+            } else if ("sdt".equals(localName)) {
+                String sdtPath = path + "/sdt[" + contentControls++ + "]";
+                for (Node sdtChild = child.getFirstChild(); sdtChild != null; sdtChild = sdtChild.getNextSibling()) {
+                    if ("sdtContent".equals(sdtChild.getLocalName())) {
+                        scanContainer(partName, sdtPath, owner, sdtChild, paragraphsByNode, bodiesByNode);
+                    } else {
+                        observeNestedIds(sdtChild);
+                    }
+                }
+            } else {
+                // 其他内容中的书签不进入索引，但其ID仍需计入最大ID，避免新书签ID冲突
+                observeNestedIds(child);
+            }
+        }
+        return container;
+    }
+
+    /**
+     * 扫描表格，每个单元格作为一个容器
+     */
+    private void scanTable(Node tableNode, String partName, String path, IBody owner,
+                           Map<Node, XWPFParagraph> paragraphsByNode, Map<Node, IBody> bodiesByNode) {
+        int rows = 0;
+        for (Node row = tableNode.getFirstChild(); row != null; row = row.getNextSibling()) {
+            if (!"tr".equals(row.getLocalName())) {
+                observeNestedIds(row);
+                continue;
+            }
+            String rowPath = path + "/tr[" + rows++ + "]";
+            int cells = 0;
+            for (Node cell = row.getFirstChild(); cell != null; cell = cell.getNextSibling()) {
+                if (!"tc".equals(cell.getLocalName())) {
+                    observeNestedIds(cell);
+                    continue;
+                }
+                IBody cellBody = bodiesByNode.get(cell);
+                scanContainer(partName, rowPath + "/tc[" + cells++ + "]", cellBody != null ? cellBody : owner, cell,
+                              paragraphsByNode, bodiesByNode);
+            }
+        }
+    }
+
+    private static String containerKey(String partName, String path) {
+        return partName + "#" + path;
+    }
+
+    /**
+     * 记录书签ID，用于计算文档中已有的最大书签ID
+     */
+    private void observeId(BigInteger id) {
+        if (id != null && (maxBookmarkId == null || id.compareTo(maxBookmarkId) > 0)) {
+            maxBookmarkId = id;
+        }
+    }
+
+    private void observeNestedIds(Node node) {
+        if (!scanMarkers || !(node instanceof Element)) {
+            return;
+        }
+        NodeList starts = ((Element) node).getElementsByTagNameNS(WORDML_NS, "bookmarkStart");
+        for (int i = 0; i < starts.getLength(); i++) {
+            observeId(parseId(attribute(starts.item(i), "id")));
+        }
+    }
+
+    /**
+     * 扫描段落的直接子节点，登记书签标记
+     */
+    private void scanParagraph(Node paragraphNode, Container container, int paragraphIndex) {
+        for (Node node = paragraphNode.getFirstChild(); node != null; node = node.getNextSibling()) {
+            visitedNodeCount++;
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            if ("bookmarkStart".equals(node.getLocalName())) {
+                addStart(node, container, paragraphIndex);
+            } else if ("bookmarkEnd".equals(node.getLocalName())) {
+                addEnd(node, container, paragraphIndex);
+            }
+        }
+    }
+
+    /**
+     * 为没有对应段落对象的DOM段落节点创建段落对象
+     */
+    static XWPFParagraph wrapParagraph(IBody body, Node paragraphNode) {
+        try (XmlCursor cursor = XmlBeans.nodeToCursor(paragraphNode)) {
+            XmlObject object = cursor.getObject();
+            return object instanceof CTP ? new XWPFParagraph((CTP) object, body) : null;
+        }
+    }
+
+    private void addStart(Node node, Container container, int paragraphIndex) {
+        BigInteger id = parseId(attribute(node, "id"));
+        observeId(id);
+        String name = attribute(node, "name");
+        if (name == null || entriesByName.containsKey(name)) {
+            // 同名书签只取第一个
+            return;
+        }
+        Entry entry = new Entry(name, id, node, container, paragraphIndex);
+        entriesByName.put(name, entry);
+        if (id != null && !entriesById.containsKey(id)) {
+            entriesById.put(id, entry);
+            Marker orphanEnd = orphanEnds != null ? orphanEnds.remove(id) : null;
+            if (orphanEnd != null) {
+                entry.endNode = orphanEnd.node;
+                entry.endParagraphIndex = orphanEnd.container == container ? orphanEnd.paragraphIndex : -1;
+            }
+        }
+    }
+
+    private void addEnd(Node node, Container container, int paragraphIndex) {
+        BigInteger id = parseId(attribute(node, "id"));
+        if (id == null) {
+            return;
+        }
+        observeId(id);
+        Entry entry = entriesById.get(id);
+        if (entry == null) {
+            if (orphanEnds != null && !orphanEnds.containsKey(id)) {
+                orphanEnds.put(id, new Marker(node, container, paragraphIndex));
+            }
+            return;
+        }
+        // 段落索引只在起始标记所在的容器中有意义，其他容器中的bookmarkEnd按不在段落中处理
+        int endParagraphIndex = container == entry.container ? paragraphIndex : -1;
+        // 优先使用段落中的bookmarkEnd，容器中的仅作为后备
+        if (entry.endNode == null || (entry.endParagraphIndex == -1 && endParagraphIndex != -1)) {
+            entry.endNode = node;
+            entry.endParagraphIndex = endParagraphIndex;
+        }
+    }
+
+    /**
+     * 读取WordprocessingML属性值
+     */
+    static String attribute(Node node, String localName) {
+        if (!(node instanceof Element)) {
+            return null;
+        }
+        Element element = (Element) node;
+        String value = element.getAttributeNS(WORDML_NS, localName);
+        if (value == null || value.isEmpty()) {
+            value = element.getAttribute("w:" + localName);
+        }
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static BigInteger parseId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigInteger(value.trim());
+        } catch (NumberFormatException e) {
+            // 忽略格式错误的ID
+            return null;
+        }
+    }
+
+    /**
+     * 生成与文档对象无关的书签位置，用于为内容相同的其他文档快速建立索引
+     * @return 书签位置；有无法按位置描述的书签标记时返回null
+     */
+    Layout layout() {
+        List<EntryLayout> entryLayouts = new ArrayList<>(entriesByName.size());
+        for (Entry entry : entriesByName.values()) {
+            Position start = position(entry.startNode);
+            Position end = entry.endNode != null ? position(entry.endNode) : null;
+            if (start == null || (entry.endNode != null && end == null)) {
+                return null;
+            }
+            entryLayouts.add(new EntryLayout(entry.name, entry.id, start, end, entry.endParagraphIndex));
+        }
+        return new Layout(entryLayouts, maxBookmarkId);
+    }
+
+    /**
+     * 书签标记的位置，标记须是段落或容器的直接子节点
+     */
+    private Position position(Node node) {
+        Node parent = node.getParentNode();
+        Container container = containersByParagraphNode.get(parent);
+        int paragraphIndex = -1;
+        if (container != null) {
+            paragraphIndex = container.paragraphIndexesByNode.get(parent);
+        } else {
+            for (Container candidate : containers.values()) {
+                if (candidate.node == parent) {
+                    container = candidate;
+                    break;
+                }
+            }
+            if (container == null) {
+                return null;
+            }
+        }
+        int childOffset = 0;
+        for (Node sibling = parent.getFirstChild(); sibling != node; sibling = sibling.getNextSibling()) {
+            childOffset++;
+        }
+        return new Position(containerKey(container.partName, container.path), paragraphIndex, childOffset);
+    }
+
+    /**
+     * 按位置取得书签标记，位置上没有指定名称的元素时返回null
+     */
+    private Node resolve(Position position, String localName) {
+        Container container = containers.get(position.containerKey);
+        if (container == null) {
+            return null;
+        }
+        Node parent;
+        if (position.paragraphIndex >= 0) {
+            if (position.paragraphIndex >= container.paragraphNodes.size()) {
+                return null;
+            }
+            parent = container.paragraphNodes.get(position.paragraphIndex);
+        } else {
+            parent = container.node;
+        }
+        Node node = parent.getFirstChild();
+        for (int i = 0; i < position.childOffset && node != null; i++) {
+            node = node.getNextSibling();
+        }
+        return node != null && localName.equals(node.getLocalName()) ? node : null;
+    }
+
+    /**
+     * 获取索引对应的文档
+     */
+    public XWPFDocument getDocument() {
+        return document;
+    }
+
+    /**
+     * 按名称查找书签
+     * @param bookmarkName 书签名称
+     * @return 书签索引项，未找到返回null
+     */
+    public Entry find(String bookmarkName) {
+        return entriesByName.get(bookmarkName);
+    }
+
+    /**
+     * 按ID查找书签
+     * @param bookmarkId 书签ID
+     * @return 书签索引项，未找到返回null
+     */
+    public Entry findById(BigInteger bookmarkId) {
+        return bookmarkId == null ? null : entriesById.get(bookmarkId);
+    }
+
+    /**
+     * 检查指定段落是否包含书签的起始标记
+     */
+    public boolean containsBookmark(XWPFParagraph paragraph, String bookmarkName) {
+        Entry entry = find(bookmarkName);
+        return entry != null && entry.getStartParagraph() == paragraph;
+    }
+
+    /**
+     * 获取文档主体容器
+     */
+    public Container getBody() {
+        return body;
+    }
+
+    /**
+     * 获取全部容器（按遍历顺序）
+     */
+    public Collection<Container> getContainers() {
+        return Collections.unmodifiableCollection(containers.values());
+    }
+
+    /**
+     * 按书签范围中的位置直接查找容器，不需要遍历其他部件
+     * @param range 书签范围，未指定部件名称时按主文档部件处理
+     * @return 容器，不存在返回null
+     */
+    public Container findContainer(BookmarkRange range) {
+        String partName = range.getPartName() != null ? range.getPartName() : body.getPartName();
+        return containers.get(containerKey(partName, range.getContainer()));
+    }
+
+    /**
+     * 查找包含指定DOM节点的段落所在的容器，沿父节点向上查找
+     * @param node DOM节点（段落节点本身或段落中的任意后代节点）
+     * @return 容器，节点不在任何已索引的段落中时返回null
+     */
+    public Container findContainer(Node node) {
+        for (Node current = node; current != null; current = current.getParentNode()) {
+            Container container = containersByParagraphNode.get(current);
+            if (container != null) {
+                return container;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按DOM顺序获取文档主体的段落
+     * @param paragraphIndex 段落索引
+     * @return 段落对象，索引越界返回null
+     */
+    public XWPFParagraph getParagraph(int paragraphIndex) {
+        return body.getParagraph(paragraphIndex);
+    }
+
+    /**
+     * 查找包含指定DOM节点的文档主体段落索引
+     * 沿父节点向上查找，开销与节点深度成正比，与文档大小无关
+     * @param node DOM节点（段落节点本身或段落中的任意后代节点）
+     * @return 段落索引，节点不在文档主体的段落中时返回-1
+     */
+    public int findParagraphIndex(Node node) {
+        return body.findParagraphIndex(node);
+    }
+
+    /**
+     * 获取文档主体按DOM顺序排列的段落列表（只读）
+     */
+    public List<XWPFParagraph> getParagraphs() {
+        return body.getParagraphs();
+    }
+
+    /**
+     * 获取扫描时遇到的最大书签ID（包括所有部件及表格等非段落内容中的书签），没有书签返回null
+     */
+    public BigInteger getMaxBookmarkId() {
+        return maxBookmarkId;
+    }
+
+    /**
+     * 获取建立索引时扫描的段落数（包括表格、页眉页脚和脚注中的段落）
+     */
+    public int getScannedParagraphCount() {
+        return scannedParagraphCount;
+    }
+
+    /**
+     * 获取建立索引时访问的DOM节点数（容器和段落的直接子节点）
+     */
+    public int getVisitedNodeCount() {
+        return visitedNodeCount;
+    }
+
+    /**
+     * 获取全部书签（按文档顺序）
+     */
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entriesByName);
+    }
+
+    /**
+     * 获取段落的样式指纹（见 {@link ParagraphStyleFingerprint}），首次计算后按段落缓存，
+     * 段落被删除或索引重建时丢弃
+     */
+    public long getStyleFingerprint(XWPFParagraph paragraph) {
+        return styleFingerprints.computeIfAbsent(paragraph.getCTP().getDomNode(),
+                                                 node -> ParagraphStyleFingerprint.of(paragraph));
+    }
+
+    /**
+     * 文档主体中插入段落后增量更新索引
+     * @see #paragraphsInserted(Container, int, List)
+     */
+    public void paragraphsInserted(int position, List<Node> paragraphNodes) {
+        paragraphsInserted(body, position, paragraphNodes);
+    }
+
+    /**
+     * 段落插入后增量更新索引，避免重新遍历整个文档
+     * 同一容器中之后的段落索引整体后移，新段落中的书签标记被登记到索引中
+     * @param container 插入段落的容器
+     * @param position 第一个新段落的索引
+     * @param paragraphNodes 按顺序插入的段落DOM节点（已位于容器中）
+     */
+    public void paragraphsInserted(Container container, int position, List<Node> paragraphNodes) {
+        int count = paragraphNodes.size();
+        if (count == 0) {
+            return;
+        }
+        for (Entry entry : entriesByName.values()) {
+            if (entry.container != container) {
+                continue;
+            }
+            if (entry.startParagraphIndex >= position) {
+                entry.startParagraphIndex += count;
+            }
+            if (entry.endParagraphIndex >= position) {
+                entry.endParagraphIndex += count;
+            }
+        }
+        List<XWPFParagraph> inserted = new ArrayList<>(count);
+        for (Node paragraphNode : paragraphNodes) {
+            inserted.add(wrapParagraph(container.body, paragraphNode));
+            containersByParagraphNode.put(paragraphNode, container);
+        }
+        container.paragraphs.addAll(position, inserted);
+        container.paragraphNodes.addAll(position, paragraphNodes);
+        container.reindexParagraphNodes(position);
+
+        orphanEnds = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            scanParagraph(paragraphNodes.get(i), container, position + i);
+        }
+        orphanEnds = null;
+    }
+
+    /**
+     * 文档主体中删除段落后增量更新索引
+     * @see #paragraphsRemoved(Container, int, int)
+     */
+    public void paragraphsRemoved(int position, int count) {
+        paragraphsRemoved(body, position, count);
+    }
+
+    /**
+     * 段落删除后增量更新索引
+     * 起止标记位于被删除段落中的书签从索引中移除，同一容器中之后的段落索引整体前移
+     * @param container 删除段落的容器
+     * @param position 第一个被删除段落的索引
+     * @param count 被删除的段落数量
+     */
+    public void paragraphsRemoved(Container container, int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        int end = position + count;
+        Iterator<Entry> iterator = entriesByName.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.container != container) {
+                continue;
+            }
+            boolean startRemoved = entry.startParagraphIndex >= position && entry.startParagraphIndex < end;
+            boolean endRemoved = entry.endParagraphIndex >= position && entry.endParagraphIndex < end;
+            if (startRemoved || endRemoved) {
+                iterator.remove();
+                if (entry.id != null) {
+                    entriesById.remove(entry.id, entry);
+                }
+                continue;
+            }
+            if (entry.startParagraphIndex >= end) {
+                entry.startParagraphIndex -= count;
+            }
+            if (entry.endParagraphIndex >= end) {
+                entry.endParagraphIndex -= count;
+            }
+        }
+        container.paragraphs.subList(position, end).clear();
+        List<Node> removedNodes = container.paragraphNodes.subList(position, end);
+        for (Node removedNode : removedNodes) {
+            container.paragraphIndexesByNode.remove(removedNode);
+            containersByParagraphNode.remove(removedNode);
+            styleFingerprints.remove(removedNode);
+        }
+        removedNodes.clear();
+        container.reindexParagraphNodes(position);
+    }
+
+    /**
+     * 从索引中移除书签（书签标记已被删除时调用）
+     */
+    public void remove(String bookmarkName) {
+        Entry entry = entriesByName.remove(bookmarkName);
+        if (entry != null && entry.id != null) {
+            entriesById.remove(entry.id, entry);
+        }
+    }
+
+    /**
+     * 标记索引失效（无法增量更新的结构变化时调用）
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * 检查索引是否已被标记为失效
+     */
+    public boolean isStale() {
+        return stale;
+    }
+}
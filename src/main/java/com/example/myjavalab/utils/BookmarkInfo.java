@@ -0,0 +1,103 @@
+package com.example.myjavalab.utils;
+
+/**
+ * 单个书签的查询结果，汇总书签内容、范围、段落数量、编号样式和段落样式指纹
+ *
+ * <pre>
+ * Map&lt;String, BookmarkInfo&gt; infos = DocxUtils.getBookmarkInfo("input.docx", Arrays.asList("labelA", "labelB"));
+ * BookmarkInfo labelA = infos.get("labelA");
+ * if (labelA.isFound() &amp;&amp; labelA.isUsingNumberingStyle()) {
+ *     System.out.println(labelA.getText());
+ * }
+ * </pre>
+ *
+ * 各项的取值与 getBookmarkContent、getBookmarkRange、getBookmarkParagraphCount、isBookmarkUsingNumberingStyle 一致，
+ * 样式指纹相同的两个书签 compareBookmarkParagraphStyles 的结果为true
+ */
+public class BookmarkInfo {
+
+    private final String name;
+    private final boolean found;
+    private final String text;
+    private final BookmarkRange range;
+    private final boolean usingNumberingStyle;
+    private final long styleFingerprint;
+
+    BookmarkInfo(String name, String text, BookmarkRange range, boolean usingNumberingStyle, long styleFingerprint) {
+        this.name = name;
+        this.found = true;
+        this.text = text;
+        this.range = range;
+        this.usingNumberingStyle = usingNumberingStyle;
+        this.styleFingerprint = styleFingerprint;
+    }
+
+    private BookmarkInfo(String name) {
+        this.name = name;
+        this.found = false;
+        this.text = null;
+        this.range = new BookmarkRange(-1, -1);
+        this.usingNumberingStyle = false;
+        this.styleFingerprint = 0;
+    }
+
+    /**
+     * 文档中不存在的书签
+     */
+    static BookmarkInfo notFound(String name) {
+        return new BookmarkInfo(name);
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * 书签是否存在
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * 获取书签内容（已去除首尾空白），未找到返回null
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 获取书签范围，未找到返回BookmarkRange(-1, -1)
+     */
+    public BookmarkRange getRange() {
+        return range;
+    }
+
+    /**
+     * 获取书签包含的段落数量，未找到返回0
+     */
+    public int getParagraphCount() {
+        return range.isNotFound() ? 0 : range.getEnd() - range.getStart() + 1;
+    }
+
+    /**
+     * 书签所在段落是否使用Word编号样式
+     */
+    public boolean isUsingNumberingStyle() {
+        return usingNumberingStyle;
+    }
+
+    /**
+     * 获取书签全部段落的样式指纹，段落数量和每个对应段落的样式都相同时指纹相同；未找到返回0
+     */
+    public long getStyleFingerprint() {
+        return styleFingerprint;
+    }
+
+    @Override
+    public String toString() {
+        if (!found) {
+            return "BookmarkInfo{name=" + name + ", 未找到}";
+        }
+        return "BookmarkInfo{name=" + name + ", range=" + range + ", numbering=" + usingNumberingStyle
+            + ", style=" + Long.toHexString(styleFingerprint) + ", text='" + text + "'}";
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.myjavalab.utils;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 书签操作，用数据描述一次书签操作，由 {@link DocxSession#apply(List)} 批量执行
+ *
+ * JSON格式示例：
+ * <pre>
+ * [
+ *   {"type": "INSERT_BEFORE", "bookmarkA": "labelA", "bookmarkB": "labelB"},
+ *   {"type": "COPY", "bookmarkA": "labelA", "bookmarkB": "labelB"},
+ *   {"type": "SET_TEXT", "bookmarkA": "title", "text": "新标题"},
+ *   {"type": "DELETE", "bookmarkA": "draft"}
+ * ]
+ * </pre>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookmarkOp {
+
+    /**
+     * 操作类型
+     */
+    public enum Type {
+        /** 在书签A前面插入新书签B */
+        INSERT_BEFORE,
+        /** 将书签A的内容复制到书签B */
+        COPY,
+        /** 将书签A的内容设置为文本 */
+        SET_TEXT,
+        /** 删除书签A及其内容 */
+        DELETE
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Type type;
+    private final String bookmarkA;
+    private final String bookmarkB;
+    private final String text;
+
+    @JsonCreator
+    private BookmarkOp(@JsonProperty("type") Type type,
+                       @JsonProperty("bookmarkA") String bookmarkA,
+                       @JsonProperty("bookmarkB") String bookmarkB,
+                       @JsonProperty("text") String text) {
+        if (type == null) {
+            throw new IllegalArgumentException("书签操作类型不能为空");
+        }
+        if (bookmarkA == null) {
+            throw new IllegalArgumentException("书签操作 " + type + " 缺少书签A");
+        }
+        if ((type == Type.INSERT_BEFORE || type == Type.COPY) && bookmarkB == null) {
+            throw new IllegalArgumentException("书签操作 " + type + " 缺少书签B");
+        }
+        if (type == Type.SET_TEXT && text == null) {
+            throw new IllegalArgumentException("书签操作 " + type + " 缺少文本");
+        }
+        this.type = type;
+        this.bookmarkA = bookmarkA;
+        this.bookmarkB = bookmarkB;
+        this.text = text;
+    }
+
+    /**
+     * 在书签A前面插入新书签B
+     */
+    public static BookmarkOp insertBefore(String bookmarkA, String bookmarkB) {
+        return new BookmarkOp(Type.INSERT_BEFORE, bookmarkA, bookmarkB, null);
+    }
+
+    /**
+     * 将书签A的内容复制到书签B
+     */
+    public static BookmarkOp copy(String bookmarkA, String bookmarkB) {
+        return new BookmarkOp(Type.COPY, bookmarkA, bookmarkB, null);
+    }
+
+    /**
+     * 将书签的内容设置为文本
+     */
+    public static BookmarkOp setText(String bookmark, String text) {
+        return new BookmarkOp(Type.SET_TEXT, bookmark, null, text);
+    }
+
+    /**
+     * 删除书签及其内容
+     */
+    public static BookmarkOp delete(String bookmark) {
+        return new BookmarkOp(Type.DELETE, bookmark, null, null);
+    }
+
+    /**
+     * 从JSON数组解析书签操作列表
+     * @param json JSON格式的操作列表
+     * @return 书签操作列表
+     * @throws IOException JSON格式错误时抛出
+     */
+    public static List<BookmarkOp> parsePlan(String json) throws IOException {
+        return OBJECT_MAPPER.readValue(json, new TypeReference<List<BookmarkOp>>() {});
+    }
+
+    public Type getType() { return type; }
+    public String getBookmarkA() { return bookmarkA; }
+    public String getBookmarkB() { return bookmarkB; }
+    public String getText() { return text; }
+
+    /**
+     * 获取被修改的书签（COPY写入书签B，其余操作作用于书签A）
+     */
+    String getTargetBookmark() {
+        return type == Type.COPY ? bookmarkB : bookmarkA;
+    }
+
+    /**
+     * 获取被读取的书签（仅COPY读取书签A），没有返回null
+     */
+    String getSourceBookmark() {
+        return type == Type.COPY ? bookmarkA : null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("BookmarkOp{").append(type).append(", bookmarkA=").append(bookmarkA);
+        if (bookmarkB != null) {
+            sb.append(", bookmarkB=").append(bookmarkB);
+        }
+        if (text != null) {
+            sb.append(", text='").append(text).append('\'');
+        }
+        return sb.append('}').toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        BookmarkOp that = (BookmarkOp) obj;
+        return type == that.type && Objects.equals(bookmarkA, that.bookmarkA)
+            && Objects.equals(bookmarkB, that.bookmarkB) && Objects.equals(text, that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, bookmarkA, bookmarkB, text);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.myjavalab.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 书签操作计划编排
+ *
+ * 操作列表先按类型切分为连续的组（插入组、内容组、删除组），组与组之间保持原有顺序；
+ * 组内操作互不依赖时按书签所在段落排序，使同一段落区域的DOM修改集中执行：
+ * <ul>
+ *   <li>插入组：保持原有顺序，段落索引增量更新，不需要重建索引</li>
+ *   <li>内容组（COPY、SET_TEXT）：按目标书签起始段落升序执行，内容修改不改变段落索引</li>
+ *   <li>删除组：按起始段落降序执行，删除后面的段落不影响前面书签的段落索引</li>
+ * </ul>
+ * 组内存在读写依赖（同一书签被读又被写、被写多次，或读写的书签在同一容器中的段落范围重叠）时保持原有顺序
+ */
+final class BookmarkOpPlanner {
+
+    private enum Phase { INSERT, CONTENT, DELETE }
+
+    private BookmarkOpPlanner() {
+    }
+
+    /**
+     * 将操作列表切分为连续的同类操作组
+     * @param ops 操作列表
+     * @return 操作组列表
+     */
+    static List<List<BookmarkOp>> group(List<BookmarkOp> ops) {
+        List<List<BookmarkOp>> groups = new ArrayList<>();
+        Phase currentPhase = null;
+        List<BookmarkOp> current = null;
+        for (BookmarkOp op : ops) {
+            Phase phase = phaseOf(op);
+            if (phase != currentPhase) {
+                current = new ArrayList<>();
+                groups.add(current);
+                currentPhase = phase;
+            }
+            current.add(op);
+        }
+        return groups;
+    }
+
+    /**
+     * 确定组内操作的执行顺序
+     * @param group 同类操作组
+     * @param ranges 按书签名称查找当前书签范围
+     * @return 排序后的操作列表
+     */
+    static List<BookmarkOp> order(List<BookmarkOp> group, Function<String, BookmarkRange> ranges) {
+        if (group.size() < 2) {
+            return group;
+        }
+        Phase phase = phaseOf(group.get(0));
+        if (phase == Phase.INSERT) {
+            return group;
+        }
+
+        // 记录每个书签是否被写入，同一书签被写多次或既读又写时存在依赖
+        Map<String, Boolean> written = new LinkedHashMap<>();
+        for (BookmarkOp op : group) {
+            if (Boolean.TRUE.equals(written.put(op.getTargetBookmark(), Boolean.TRUE))) {
+                return group;
+            }
+        }
+        for (BookmarkOp op : group) {
+            String source = op.getSourceBookmark();
+            if (source != null) {
+                if (Boolean.TRUE.equals(written.get(source))) {
+                    return group;
+                }
+                written.put(source, Boolean.FALSE);
+            }
+        }
+
+        Map<String, BookmarkRange> rangeByName = new HashMap<>();
+        for (String name : written.keySet()) {
+            BookmarkRange range = ranges.apply(name);
+            if (range == null || !range.isValid()) {
+                // 书签不存在时保持原有顺序，由执行阶段报告错误
+                return group;
+            }
+            rangeByName.put(name, range);
+        }
+
+        // 有写入参与的两个书签段落范围重叠时，执行顺序会影响结果
+        List<String> names = new ArrayList<>(written.keySet());
+        for (int i = 0; i < names.size(); i++) {
+            for (int j = i + 1; j < names.size(); j++) {
+                if (!written.get(names.get(i)) && !written.get(names.get(j))) {
+                    continue;
+                }
+                if (overlaps(rangeByName.get(names.get(i)), rangeByName.get(names.get(j)))) {
+                    return group;
+                }
+            }
+        }
+
+        Comparator<BookmarkOp> byPosition = Comparator.comparingInt(
+            op -> rangeByName.get(op.getTargetBookmark()).getStart());
+        List<BookmarkOp> ordered = new ArrayList<>(group);
+        ordered.sort(phase == Phase.DELETE ? byPosition.reversed() : byPosition);
+        return ordered;
+    }
+
+    private static Phase phaseOf(BookmarkOp op) {
+        switch (op.getType()) {
+            case INSERT_BEFORE:
+                return Phase.INSERT;
+            case DELETE:
+                return Phase.DELETE;
+            default:
+                return Phase.CONTENT;
+        }
+    }
+
+    private static boolean overlaps(BookmarkRange a, BookmarkRange b) {
+        // 不同容器（表格单元格、页眉页脚等）中的段落索引互不影响
+        return a.isSameContainer(b) && a.getStart() <= b.getEnd() && b.getStart() <= a.getEnd();
+    }
+}
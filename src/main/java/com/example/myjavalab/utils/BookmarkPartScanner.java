@@ -0,0 +1,180 @@
+package com.example.myjavalab.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 流式检查页眉、页脚、脚注和尾注部件中是否有指定名称的书签起始标记
+ *
+ * 流式读取只扫描主文档部件，书签不在主文档部件中时，先用本类检查其他部件，
+ * 只有找到同名的起始标记时才需要打开文档用书签索引查询；都没有时可以直接返回"未找到"。
+ * 按主文档部件的关系定位这些部件，随机读取压缩包条目，遇到第一个匹配的起始标记即停止
+ */
+final class BookmarkPartScanner {
+
+    private static final String MAIN_DOCUMENT_PART = "word/document.xml";
+    private static final String PACKAGE_RELATIONSHIPS_PART = "_rels/.rels";
+    private static final String RELATIONSHIP_TYPE_PREFIX =
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+    private static final String OFFICE_DOCUMENT_RELATIONSHIP_TYPE = RELATIONSHIP_TYPE_PREFIX + "officeDocument";
+    private static final Set<String> STORY_RELATIONSHIP_TYPES = new HashSet<>(Arrays.asList(
+        RELATIONSHIP_TYPE_PREFIX + "header", RELATIONSHIP_TYPE_PREFIX + "footer",
+        RELATIONSHIP_TYPE_PREFIX + "footnotes", RELATIONSHIP_TYPE_PREFIX + "endnotes"));
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = BookmarkStreamReader.createInputFactory();
+
+    private BookmarkPartScanner() {
+    }
+
+    /**
+     * 文件中的页眉、页脚、脚注或尾注部件是否有指定名称的书签起始标记
+     */
+    static boolean containsBookmarkOutsideMainPart(String documentPath, String bookmarkName) throws IOException {
+        try (ZipFile zipFile = new ZipFile(new File(documentPath))) {
+            return containsBookmarkOutsideMainPart(zipFile, bookmarkName);
+        }
+    }
+
+    /**
+     * 内存中文档的页眉、页脚、脚注或尾注部件是否有指定名称的书签起始标记
+     */
+    static boolean containsBookmarkOutsideMainPart(byte[] document, String bookmarkName) throws IOException {
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(document))) {
+            return containsBookmarkOutsideMainPart(zipFile, bookmarkName);
+        }
+    }
+
+    private static boolean containsBookmarkOutsideMainPart(ZipFile zipFile, String bookmarkName) throws IOException {
+        OperationPhase previous = DocxOperation.enterPhase(OperationPhase.LOCATE);
+        try {
+            String mainPart = findMainDocumentPart(zipFile);
+            if (mainPart == null) {
+                return false;
+            }
+            for (String partName : findStoryParts(zipFile, mainPart)) {
+                ZipArchiveEntry entry = zipFile.getEntry(partName);
+                if (entry == null) {
+                    continue;
+                }
+                try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                    if (containsBookmarkStart(inputStream, bookmarkName)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            DocxOperation.exitPhase(previous);
+        }
+    }
+
+    /**
+     * 主文档部件的条目名称，优先使用 word/document.xml，否则按包关系查找；都没有时返回null
+     */
+    private static String findMainDocumentPart(ZipFile zipFile) throws IOException {
+        if (zipFile.getEntry(MAIN_DOCUMENT_PART) != null) {
+            return MAIN_DOCUMENT_PART;
+        }
+        List<String> targets = findRelationshipTargets(zipFile, PACKAGE_RELATIONSHIPS_PART, "",
+                                                       Collections.singleton(OFFICE_DOCUMENT_RELATIONSHIP_TYPE));
+        return targets.isEmpty() ? null : targets.get(0);
+    }
+
+    /**
+     * 主文档部件关系中的页眉、页脚、脚注和尾注部件的条目名称
+     */
+    private static List<String> findStoryParts(ZipFile zipFile, String mainPart) throws IOException {
+        int slash = mainPart.lastIndexOf('/');
+        String directory = mainPart.substring(0, slash + 1);
+        String relationships = directory + "_rels/" + mainPart.substring(slash + 1) + ".rels";
+        return findRelationshipTargets(zipFile, relationships, directory, STORY_RELATIONSHIP_TYPES);
+    }
+
+    /**
+     * 读取关系部件中指定类型的内部关系，目标按 directory 解析为条目名称
+     */
+    private static List<String> findRelationshipTargets(ZipFile zipFile, String relationshipsPart, String directory,
+                                                        Set<String> types) throws IOException {
+        List<String> targets = new ArrayList<>();
+        ZipArchiveEntry entry = zipFile.getEntry(relationshipsPart);
+        if (entry == null) {
+            return targets;
+        }
+        XMLStreamReader reader = null;
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                    && "Relationship".equals(reader.getLocalName())
+                    && types.contains(reader.getAttributeValue(null, "Type"))
+                    && !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+                    String target = reader.getAttributeValue(null, "Target");
+                    if (target != null) {
+                        targets.add(resolve(directory, target));
+                    }
+                }
+            }
+            return targets;
+        } catch (XMLStreamException | IllegalArgumentException e) {
+            throw new IOException("解析部件关系失败: " + relationshipsPart + ": " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /**
+     * 把关系目标解析为压缩包条目名称（不以/开头）
+     */
+    private static String resolve(String directory, String target) {
+        String path = URI.create("/" + directory).resolve(target).getPath();
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    /**
+     * 部件中是否有指定名称的书签起始标记；不限定标记所在的层级，结果只用于决定是否需要打开文档
+     */
+    private static boolean containsBookmarkStart(InputStream partXml, String bookmarkName) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(partXml);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                    && "bookmarkStart".equals(reader.getLocalName())
+                    && bookmarkName.equals(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "name"))) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (XMLStreamException e) {
+            throw new IOException("解析文档XML失败: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                // 忽略关闭异常
+            }
+        }
+    }
+}
@@ -2,19 +2,40 @@ package com.example.myjavalab.utils;
 
 /**
  * 书签范围类，用于表示书签在文档中的位置范围
+ * 除段落索引外还记录书签所在的部件和容器，段落索引是书签在该容器中的段落序号
  */
 public class BookmarkRange {
+    /**
+     * 文档主体容器的路径
+     */
+    public static final String BODY = "body";
+    
     private final int start;
     private final int end;
+    private final String partName;
+    private final String container;
     
     /**
-     * 构造函数
+     * 构造函数，书签位于主文档部件的文档主体中
      * @param start 书签起始位置（段落索引）
      * @param end 书签结束位置（段落索引）
      */
     public BookmarkRange(int start, int end) {
+        this(start, end, null, BODY);
+    }
+    
+    /**
+     * 构造函数
+     * @param start 书签起始位置（所在容器中的段落索引）
+     * @param end 书签结束位置（所在容器中的段落索引）
+     * @param partName 书签所在部件的名称，例如 /word/header1.xml，null表示主文档部件
+     * @param container 书签所在容器在部件中的路径，例如 body/tbl[0]/tr[1]/tc[2]
+     */
+    public BookmarkRange(int start, int end, String partName, String container) {
         this.start = start;
         this.end = end;
+        this.partName = partName;
+        this.container = container;
     }
     
     /**
@@ -33,6 +54,37 @@ public class BookmarkRange {
         return end;
     }
     
+    /**
+     * 获取书签所在部件的名称
+     * @return 部件名称，例如 /word/document.xml、/word/footnotes.xml，未指定时返回null（主文档部件）
+     */
+    public String getPartName() {
+        return partName;
+    }
+    
+    /**
+     * 获取书签所在容器在部件中的路径
+     * @return 容器路径，例如 body、body/tbl[0]/tr[1]/tc[2]、body/sdt[0]、hdr、ftr、footnote[1]、endnote[1]
+     */
+    public String getContainer() {
+        return container;
+    }
+    
+    /**
+     * 检查书签是否位于文档主体中（不包括表格单元格、内容控件、页眉页脚和脚注）
+     */
+    public boolean isInMainBody() {
+        return BODY.equals(container);
+    }
+    
+    /**
+     * 检查两个书签是否位于同一个容器中（只有同一容器中的段落索引可以比较）
+     */
+    public boolean isSameContainer(BookmarkRange other) {
+        return java.util.Objects.equals(container, other.container)
+            && (partName == null || other.partName == null || partName.equals(other.partName));
+    }
+    
     /**
      * 检查书签是否有效（起始位置小于等于结束位置）
      * @return 如果书签范围有效返回true，否则返回false
@@ -78,7 +130,10 @@ public class BookmarkRange {
         if (isNotFound()) {
             return "BookmarkRange{NOT_FOUND}";
         }
-        return "BookmarkRange{start=" + start + ", end=" + end + "}";
+        if (isInMainBody()) {
+            return "BookmarkRange{start=" + start + ", end=" + end + "}";
+        }
+        return "BookmarkRange{start=" + start + ", end=" + end + ", part=" + partName + ", container=" + container + "}";
     }
     
     @Override
@@ -86,11 +141,13 @@ public class BookmarkRange {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         BookmarkRange that = (BookmarkRange) obj;
-        return start == that.start && end == that.end;
+        return start == that.start && end == that.end
+            && java.util.Objects.equals(partName, that.partName)
+            && java.util.Objects.equals(container, that.container);
     }
     
     @Override
     public int hashCode() {
-        return java.util.Objects.hash(start, end);
+        return java.util.Objects.hash(start, end, partName, container);
     }
 }
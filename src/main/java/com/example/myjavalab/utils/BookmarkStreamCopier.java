@@ -0,0 +1,563 @@
+package com.example.myjavalab.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 书签内容流式复制引擎，用于超大文档的 copyBookmarkContent
+ *
+ * 两遍扫描 word/document.xml，不构建DOM：
+ * <ol>
+ *   <li>第一遍捕获源书签A范围内各段落的run，并确定目标书签B的段落范围</li>
+ *   <li>第二遍将文档XML逐事件原样写出（保留前缀和属性顺序），在目标书签B的段落中用捕获的run替换原有内容</li>
+ * </ol>
+ * 内存占用取决于书签A的内容大小，与文档大小无关；其他压缩包条目按原始压缩数据复制，不重新压缩。
+ * 输出与 {@link DocxUtils} 中 extractParagraphContentBetweenBookmarks / setBookmarkContentFromParagraphContent 的结果一致；
+ * 遇到该路径无法等价处理的结构（书签不在文档主体的段落中、起止标记顺序颠倒、书签ID重复等）时返回false，由调用方回退到DOM实现
+ */
+final class BookmarkStreamCopier {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = BookmarkStreamReader.createInputFactory();
+
+    /**
+     * 第一遍扫描的结果
+     */
+    private static class Plan {
+        // 源书签A各段落中的run（序列化后的XML片段），每个段落一个
+        final List<StringBuilder> sourceParagraphs = new ArrayList<>();
+        BigInteger targetId;
+        int targetStart = -1;
+        int targetEnd = -1;
+
+        boolean isSingleParagraphTarget() {
+            return targetStart == targetEnd;
+        }
+
+        /**
+         * 获取写入目标第offset个段落的run，单段落目标合并所有源段落，没有对应源段落返回null
+         */
+        CharSequence sourceRuns(int offset) {
+            if (isSingleParagraphTarget()) {
+                StringBuilder all = new StringBuilder();
+                for (StringBuilder paragraph : sourceParagraphs) {
+                    all.append(paragraph);
+                }
+                return all;
+            }
+            return offset < sourceParagraphs.size() ? sourceParagraphs.get(offset) : null;
+        }
+    }
+
+    private BookmarkStreamCopier() {
+    }
+
+    /**
+     * 将书签A的内容复制到书签B
+     * @param inputPath 输入文档路径
+     * @param outputPath 输出文档路径（可以与输入相同）
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @return 是否已完成复制，返回false表示文档结构需要回退到DOM实现
+     * @throws IOException
+     */
+    static boolean copy(String inputPath, String outputPath, String bookmarkA, String bookmarkB) throws IOException {
+        Path output = Paths.get(outputPath).toAbsolutePath();
+        Path tempFile = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+        try {
+            try (ZipFile zipFile = new ZipFile(new File(inputPath))) {
+                ZipArchiveEntry documentEntry = BookmarkStreamReader.findMainDocumentPart(zipFile);
+                Plan plan = capture(zipFile, documentEntry, bookmarkA, bookmarkB);
+                if (plan == null) {
+                    return false;
+                }
+                try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                    write(zipFile, documentEntry, outputStream, plan);
+                }
+            }
+            Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (XMLStreamException e) {
+            throw new IOException("流式复制书签内容失败: " + e.getMessage(), e);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 将书签A的内容复制到书签B，输入为内存中的文档，结果写入输出流（不会关闭输出流）
+     * 两遍扫描都直接读取字节数组，不写临时文件；返回false时输出流中没有写入任何内容
+     * @param input 输入文档内容
+     * @param output 输出流
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @return 是否已完成复制，返回false表示文档结构需要回退到DOM实现
+     * @throws IOException
+     */
+    static boolean copy(byte[] input, OutputStream output, String bookmarkA, String bookmarkB) throws IOException {
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(input))) {
+            ZipArchiveEntry documentEntry = BookmarkStreamReader.findMainDocumentPart(zipFile);
+            Plan plan = capture(zipFile, documentEntry, bookmarkA, bookmarkB);
+            if (plan == null) {
+                return false;
+            }
+            write(zipFile, documentEntry, output, plan);
+            return true;
+        } catch (XMLStreamException e) {
+            throw new IOException("流式复制书签内容失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static Plan capture(ZipFile zipFile, ZipArchiveEntry documentEntry, String bookmarkA, String bookmarkB)
+            throws XMLStreamException, IOException {
+        try (InputStream inputStream = zipFile.getInputStream(documentEntry)) {
+            return capture(inputStream, bookmarkA, bookmarkB);
+        }
+    }
+
+    /**
+     * 写出压缩包（不会关闭输出流）：主文档部件按计划重写，其他条目按压缩后的原始数据复制，不重新压缩
+     */
+    private static void write(ZipFile zipFile, ZipArchiveEntry documentEntry, OutputStream output, Plan plan)
+            throws XMLStreamException, IOException {
+        OperationPhase previous = DocxOperation.enterPhase(OperationPhase.WRITE);
+        int copied = 0;
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(CloseShieldOutputStream.wrap(output))) {
+            Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+            while (entries.hasMoreElements()) {
+                ZipArchiveEntry entry = entries.nextElement();
+                if (entry.getName().equals(documentEntry.getName())) {
+                    zos.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                    try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                        rewrite(inputStream, zos, plan);
+                    }
+                    zos.closeArchiveEntry();
+                } else {
+                    try (InputStream rawStream = zipFile.getRawInputStream(entry)) {
+                        zos.addRawArchiveEntry(entry, rawStream);
+                    }
+                    copied++;
+                }
+            }
+        } finally {
+            DocxOperation.exitPhase(previous);
+        }
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("streamCopy", null, copied + 1, 0L, "rewritten=1 copied=" + copied);
+        }
+    }
+
+    /**
+     * 第一遍：捕获书签A的run，定位书签B
+     * 层级：1 document，2 body，3 主体段落，4 段落直接子节点
+     */
+    private static Plan capture(InputStream documentXml, String bookmarkA, String bookmarkB)
+            throws XMLStreamException, IOException {
+        OperationPhase previous = DocxOperation.enterPhase(OperationPhase.LOCATE);
+        try {
+            return capture(XML_INPUT_FACTORY.createXMLStreamReader(documentXml), bookmarkA, bookmarkB);
+        } finally {
+            DocxOperation.exitPhase(previous);
+        }
+    }
+
+    private static Plan capture(XMLStreamReader reader, String bookmarkA, String bookmarkB)
+            throws XMLStreamException, IOException {
+        try {
+            Plan plan = new Plan();
+            Set<String> seenNames = new HashSet<>();
+            Set<BigInteger> seenIds = new HashSet<>();
+            Set<BigInteger> orphanEnds = new HashSet<>();
+            BigInteger sourceId = null;
+            boolean sourceOpen = false;
+            boolean sourceDone = false;
+            boolean targetDone = false;
+            StringBuilder currentParagraph = null;
+            int depth = 0;
+            int paragraphIndex = -1;
+            boolean inBodyParagraph = false;
+
+            while (reader.hasNext() && !(sourceDone && targetDone)) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 3) {
+                        inBodyParagraph = false;
+                    }
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                depth++;
+                String localName = wordLocalName(reader);
+                if (depth == 3) {
+                    if ("p".equals(localName)) {
+                        paragraphIndex++;
+                        inBodyParagraph = true;
+                        if (sourceOpen) {
+                            currentParagraph = new StringBuilder();
+                            plan.sourceParagraphs.add(currentParagraph);
+                        }
+                    } else if ("bookmarkEnd".equals(localName)) {
+                        BigInteger id = BookmarkStreamReader.parseId(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "id"));
+                        if (id != null && ((sourceOpen && id.equals(sourceId))
+                                || (!targetDone && id.equals(plan.targetId)))) {
+                            // 结束标记不在段落中
+                            return null;
+                        }
+                    }
+                } else if (!(depth == 4 && inBodyParagraph)) {
+                    if ("bookmarkStart".equals(localName) && isRequested(reader, bookmarkA, bookmarkB, seenNames)) {
+                        // 书签位于表格、内容控件等文档主体段落之外的位置
+                        return null;
+                    }
+                } else {
+                    if ("bookmarkStart".equals(localName)) {
+                        String name = reader.getAttributeValue(BookmarkIndex.WORDML_NS, "name");
+                        if (name == null || !seenNames.add(name)) {
+                            continue;
+                        }
+                        BigInteger id = BookmarkStreamReader.parseId(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "id"));
+                        boolean requested = name.equals(bookmarkA) || name.equals(bookmarkB);
+                        if (id == null || !seenIds.add(id) || orphanEnds.contains(id)) {
+                            if (requested) {
+                                return null;
+                            }
+                            continue;
+                        }
+                        if (name.equals(bookmarkA)) {
+                            sourceId = id;
+                            sourceOpen = true;
+                            currentParagraph = new StringBuilder();
+                            plan.sourceParagraphs.add(currentParagraph);
+                        }
+                        if (name.equals(bookmarkB)) {
+                            plan.targetId = id;
+                            plan.targetStart = paragraphIndex;
+                        }
+                    } else if ("bookmarkEnd".equals(localName)) {
+                        BigInteger id = BookmarkStreamReader.parseId(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "id"));
+                        if (id == null) {
+                            continue;
+                        }
+                        if (sourceOpen && id.equals(sourceId)) {
+                            sourceOpen = false;
+                            sourceDone = true;
+                        }
+                        if (!targetDone && id.equals(plan.targetId)) {
+                            plan.targetEnd = paragraphIndex;
+                            targetDone = true;
+                        }
+                        if (!seenIds.contains(id)) {
+                            orphanEnds.add(id);
+                        }
+                    } else if ("r".equals(localName) && sourceOpen) {
+                        copySubtree(reader, currentParagraph);
+                        depth--;
+                    }
+                }
+            }
+
+            if (sourceId == null || plan.targetId == null) {
+                // 书签可能位于页眉、页脚或脚注中，由DOM实现查找
+                return null;
+            }
+            if (!sourceDone || !targetDone || plan.targetEnd < plan.targetStart) {
+                return null;
+            }
+            return plan;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 检查尚未登记的bookmarkStart是否为请求的书签
+     */
+    private static boolean isRequested(XMLStreamReader reader, String bookmarkA, String bookmarkB, Set<String> seenNames) {
+        String name = reader.getAttributeValue(BookmarkIndex.WORDML_NS, "name");
+        return name != null && !seenNames.contains(name) && (name.equals(bookmarkA) || name.equals(bookmarkB));
+    }
+
+    /**
+     * 第二遍：写出文档XML，替换书签B的内容
+     */
+    private static void rewrite(InputStream documentXml, OutputStream output, Plan plan) throws XMLStreamException, IOException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(documentXml);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try {
+            int depth = 0;
+            int paragraphIndex = -1;
+            int elementCount = 0;
+            TargetParagraph target = null;
+
+            writeEvent(reader, writer);
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    elementCount++;
+                    String localName = wordLocalName(reader);
+                    if (depth == 3 && "p".equals(localName)) {
+                        paragraphIndex++;
+                        target = paragraphIndex >= plan.targetStart && paragraphIndex <= plan.targetEnd
+                            ? new TargetParagraph(plan, paragraphIndex - plan.targetStart) : null;
+                    } else if (depth == 4 && target != null) {
+                        target.child(reader, localName, writer);
+                        depth--;
+                        continue;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == 3 && target != null) {
+                        target.end(writer);
+                        target = null;
+                    }
+                    depth--;
+                }
+                writeEvent(reader, writer);
+            }
+            writer.flush();
+            DocxOperation.count(paragraphIndex + 1, elementCount);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 目标书签B所在段落的改写规则，与DOM实现的删除和插入顺序一一对应：
+     * <ul>
+     *   <li>单段落目标：bookmarkStart之后插入全部源run，起止标记之间只保留书签标记</li>
+     *   <li>起始段落：bookmarkStart之后插入第一个源段落的run，之后只保留书签标记</li>
+     *   <li>中间段落：只保留段落属性，段落末尾追加对应源段落的run</li>
+     *   <li>结束段落：bookmarkEnd之前只保留书签标记；有对应源段落时整个段落只保留书签标记，
+     *       源run插入到第一个bookmarkEnd之前</li>
+     * </ul>
+     */
+    private static class TargetParagraph {
+        private final Plan plan;
+        private final boolean first;
+        private final boolean last;
+        private final CharSequence runs;
+        private boolean afterStart;
+        private boolean afterEnd;
+        private boolean runsWritten;
+
+        TargetParagraph(Plan plan, int offset) {
+            this.plan = plan;
+            this.first = offset == 0;
+            this.last = plan.targetStart + offset == plan.targetEnd;
+            this.runs = plan.sourceRuns(offset);
+        }
+
+        /**
+         * 处理段落的直接子元素，保留时写出整个子树，否则跳过
+         */
+        void child(XMLStreamReader reader, String localName, Writer writer) throws XMLStreamException, IOException {
+            boolean marker = "bookmarkStart".equals(localName) || "bookmarkEnd".equals(localName);
+            boolean isTarget = marker && isTarget(reader);
+            if (first) {
+                if (afterStart && !marker) {
+                    skipSubtree(reader);
+                    return;
+                }
+                copySubtree(reader, writer);
+                if (!afterStart && !afterEnd && "bookmarkStart".equals(localName) && isTarget) {
+                    afterStart = true;
+                    writeRuns(writer);
+                } else if (plan.isSingleParagraphTarget() && afterStart && "bookmarkEnd".equals(localName) && isTarget) {
+                    // 单段落目标：结束标记之后的内容保持不变
+                    afterStart = false;
+                    afterEnd = true;
+                }
+                return;
+            }
+
+            boolean keep;
+            if (!last) {
+                keep = "pPr".equals(localName);
+            } else if (runs == null) {
+                keep = afterEnd || marker;
+            } else {
+                keep = marker || (afterEnd && "pPr".equals(localName));
+                if (!runsWritten && "bookmarkEnd".equals(localName)) {
+                    writeRuns(writer);
+                }
+            }
+            if ("bookmarkEnd".equals(localName) && isTarget) {
+                afterEnd = true;
+            }
+            if (keep) {
+                copySubtree(reader, writer);
+            } else {
+                skipSubtree(reader);
+            }
+        }
+
+        /**
+         * 段落结束前调用
+         */
+        void end(Writer writer) throws IOException {
+            if (!first && runs != null && !runsWritten) {
+                writeRuns(writer);
+            }
+        }
+
+        private boolean isTarget(XMLStreamReader reader) {
+            return plan.targetId.equals(
+                BookmarkStreamReader.parseId(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "id")));
+        }
+
+        private void writeRuns(Writer writer) throws IOException {
+            runsWritten = true;
+            if (runs != null) {
+                writer.append(runs);
+            }
+        }
+    }
+
+    private static String wordLocalName(XMLStreamReader reader) {
+        return BookmarkIndex.WORDML_NS.equals(reader.getNamespaceURI()) ? reader.getLocalName() : null;
+    }
+
+    /**
+     * 写出当前元素的整个子树（当前事件为START_ELEMENT）
+     */
+    private static void copySubtree(XMLStreamReader reader, Appendable out) throws XMLStreamException, IOException {
+        int depth = 0;
+        do {
+            int event = reader.getEventType();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+            writeEvent(reader, out);
+            if (depth > 0) {
+                reader.next();
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * 跳过当前元素的整个子树（当前事件为START_ELEMENT）
+     */
+    private static void skipSubtree(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * 按原样写出当前事件，保留前缀、命名空间声明和属性顺序
+     */
+    private static void writeEvent(XMLStreamReader reader, Appendable out) throws IOException {
+        switch (reader.getEventType()) {
+            case XMLStreamConstants.START_DOCUMENT:
+                out.append("<?xml version=\"").append(reader.getVersion() != null ? reader.getVersion() : "1.0")
+                   .append("\" encoding=\"UTF-8\"");
+                if (reader.standaloneSet()) {
+                    out.append(" standalone=\"").append(reader.isStandalone() ? "yes" : "no").append('"');
+                }
+                out.append("?>");
+                break;
+            case XMLStreamConstants.START_ELEMENT:
+                out.append('<');
+                appendName(out, reader.getPrefix(), reader.getLocalName());
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String prefix = reader.getNamespacePrefix(i);
+                    out.append(prefix == null || prefix.isEmpty() ? " xmlns" : " xmlns:" + prefix).append("=\"");
+                    appendEscaped(out, reader.getNamespaceURI(i), true);
+                    out.append('"');
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    out.append(' ');
+                    appendName(out, reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+                    out.append("=\"");
+                    appendEscaped(out, reader.getAttributeValue(i), true);
+                    out.append('"');
+                }
+                out.append('>');
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                out.append("</");
+                appendName(out, reader.getPrefix(), reader.getLocalName());
+                out.append('>');
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                appendEscaped(out, reader.getText(), false);
+                break;
+            case XMLStreamConstants.CDATA:
+                out.append("<![CDATA[").append(reader.getText()).append("]]>");
+                break;
+            case XMLStreamConstants.COMMENT:
+                out.append("<!--").append(reader.getText()).append("-->");
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                out.append("<?").append(reader.getPITarget());
+                if (reader.getPIData() != null && !reader.getPIData().isEmpty()) {
+                    out.append(' ').append(reader.getPIData());
+                }
+                out.append("?>");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void appendName(Appendable out, String prefix, String localName) throws IOException {
+        if (prefix != null && !prefix.isEmpty()) {
+            out.append(prefix).append(':');
+        }
+        out.append(localName);
+    }
+
+    private static void appendEscaped(Appendable out, String text, boolean attribute) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&': out.append("&amp;"); break;
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '"': out.append(attribute ? "&quot;" : "\""); break;
+                case '\r': out.append("&#13;"); break;
+                case '\n': out.append(attribute ? "&#10;" : "\n"); break;
+                case '\t': out.append(attribute ? "&#9;" : "\t"); break;
+                default: out.append(c); break;
+            }
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package com.example.myjavalab.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 书签流式读取器，只读场景下不构建XWPFDocument
+ *
+ * 直接从压缩包中打开主文档部件（word/document.xml），用StAX顺序扫描，
+ * 请求的书签全部解析完成后立即停止，内存占用与文档大小无关。
+ * 段落索引、书签范围和书签文本的计算规则与 {@link BookmarkIndex} 及 {@link DocxUtils#getBookmarkContent} 一致：
+ * 文档主体、表格单元格和内容控件分别作为容器统计段落，只识别段落直接子节点中的书签标记，同名书签取第一个。
+ * 书签文本为起止标记之间按文档顺序出现的全部字符，可以直接写入调用方提供的 Appendable（见 readText）。
+ * 只读取主文档部件，页眉、页脚、脚注和尾注中的书签不会被找到
+ */
+public final class BookmarkStreamReader {
+
+    private static final String MAIN_DOCUMENT_PART = "word/document.xml";
+    private static final String PACKAGE_RELATIONSHIPS_PART = "_rels/.rels";
+    private static final String OFFICE_DOCUMENT_RELATIONSHIP_TYPE =
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    // 扫描时的容器层级
+    private static final int CONTAINER = 0;
+    private static final int PARAGRAPH = 1;
+    private static final int TABLE = 2;
+    private static final int ROW = 3;
+    private static final int CONTENT_CONTROL = 4;
+
+    /**
+     * 书签读取结果
+     */
+    public static class Result {
+        private final String name;
+        private final String partName;
+        private BigInteger id;
+        private Frame container;
+        private int startParagraphIndex = -1;
+        private int endParagraphIndex = -1;
+        private boolean found;
+        private boolean resolved;
+        // 书签文本写入的位置：readText 提供的 Appendable，或在起始标记处创建的 StringBuilder
+        private BookmarkTextWriter textWriter;
+        private StringBuilder text;
+
+        Result(String name, String partName) {
+            this.name = name;
+            this.partName = partName;
+        }
+
+        public String getName() { return name; }
+
+        /**
+         * 书签是否存在
+         */
+        public boolean isFound() {
+            return found;
+        }
+
+        /**
+         * 是否找到了与起始标记匹配的结束标记
+         */
+        boolean isResolved() {
+            return resolved;
+        }
+
+        /**
+         * 获取书签起始段落位置，未找到返回-1
+         */
+        public int getPosition() {
+            return startParagraphIndex;
+        }
+
+        /**
+         * 获取书签范围，未找到返回BookmarkRange(-1, -1)
+         */
+        public BookmarkRange getRange() {
+            if (!found || id == null) {
+                return new BookmarkRange(-1, -1);
+            }
+            if (endParagraphIndex == -1) {
+                return new BookmarkRange(startParagraphIndex, startParagraphIndex, partName, container.path);
+            }
+            return new BookmarkRange(Math.min(startParagraphIndex, endParagraphIndex),
+                                     Math.max(startParagraphIndex, endParagraphIndex), partName, container.path);
+        }
+
+        /**
+         * 获取书签包含的段落数量，未找到返回0
+         */
+        public int getParagraphCount() {
+            BookmarkRange range = getRange();
+            return range.isNotFound() ? 0 : range.getEnd() - range.getStart() + 1;
+        }
+
+        /**
+         * 获取书签内容（已去除首尾空白），未找到返回null
+         */
+        public String getText() {
+            if (!found) {
+                return null;
+            }
+            return resolved && text != null ? text.toString() : "";
+        }
+
+        @Override
+        public String toString() {
+            return "BookmarkStreamReader.Result{name=" + name + ", range=" + getRange() + "}";
+        }
+    }
+
+    private BookmarkStreamReader() {
+    }
+
+    /**
+     * 读取单个书签
+     * @param documentPath 文档路径
+     * @param bookmarkName 书签名称
+     * @return 书签读取结果
+     * @throws IOException
+     */
+    public static Result read(String documentPath, String bookmarkName) throws IOException {
+        return read(documentPath, Arrays.asList(bookmarkName)).get(bookmarkName);
+    }
+
+    /**
+     * 读取多个书签，所有书签解析完成后停止扫描
+     * @param documentPath 文档路径
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到读取结果的映射，包含所有请求的书签（未找到的书签 isFound() 为false）
+     * @throws IOException
+     */
+    public static Map<String, Result> read(String documentPath, Collection<String> bookmarkNames) throws IOException {
+        try (ZipFile zipFile = new ZipFile(documentPath)) {
+            ZipEntry entry = findMainDocumentPart(zipFile);
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                return scan(inputStream, "/" + entry.getName(), bookmarkNames);
+            }
+        }
+    }
+
+    /**
+     * 从输入流读取单个书签（不会关闭输入流）
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @return 书签读取结果
+     * @throws IOException
+     */
+    public static Result read(InputStream inputStream, String bookmarkName) throws IOException {
+        return read(inputStream, Arrays.asList(bookmarkName)).get(bookmarkName);
+    }
+
+    /**
+     * 从输入流读取多个书签（不会关闭输入流），按压缩包顺序读到主文档部件为止，不缓存整个文档
+     * @param inputStream 文档输入流
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到读取结果的映射，包含所有请求的书签（未找到的书签 isFound() 为false）
+     * @throws IOException
+     */
+    public static Map<String, Result> read(InputStream inputStream, Collection<String> bookmarkNames) throws IOException {
+        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+        ZipEntry entry = findMainDocumentPart(zipInputStream);
+        return scan(nonClosing(zipInputStream), "/" + entry.getName(), bookmarkNames);
+    }
+
+    /**
+     * 把书签内容（已去除首尾空白）直接写入调用方提供的 Appendable，不生成中间字符串
+     *
+     * 文本在扫描过程中逐段写出；书签缺少结束标记时，已写出的内容会留在 out 中
+     * @param documentPath 文档路径
+     * @param bookmarkName 书签名称
+     * @param out 书签内容写入的位置，例如 StringBuilder、Writer
+     * @return 书签是否存在
+     * @throws IOException 读取文档或写入 out 失败时抛出
+     */
+    public static boolean readText(String documentPath, String bookmarkName, Appendable out) throws IOException {
+        return scanText(documentPath, bookmarkName, out).isFound();
+    }
+
+    /**
+     * 从输入流读取书签内容并写入 out（不会关闭输入流），见 {@link #readText(String, String, Appendable)}
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @param out 书签内容写入的位置
+     * @return 书签是否存在
+     * @throws IOException 读取文档或写入 out 失败时抛出
+     */
+    public static boolean readText(InputStream inputStream, String bookmarkName, Appendable out) throws IOException {
+        return scanText(inputStream, bookmarkName, out).isFound();
+    }
+
+    /**
+     * 读取书签并把内容写入 out，返回的结果中 getText() 不可用
+     */
+    static Result scanText(String documentPath, String bookmarkName, Appendable out) throws IOException {
+        try (ZipFile zipFile = new ZipFile(documentPath)) {
+            ZipEntry entry = findMainDocumentPart(zipFile);
+            try (InputStream inputStream = zipFile.getInputStream(entry)) {
+                return scanText(inputStream, "/" + entry.getName(), bookmarkName, out);
+            }
+        }
+    }
+
+    static Result scanText(InputStream inputStream, String bookmarkName, Appendable out) throws IOException {
+        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+        ZipEntry entry = findMainDocumentPart(zipInputStream);
+        return scanText(nonClosing(zipInputStream), "/" + entry.getName(), bookmarkName, out);
+    }
+
+    private static Result scanText(InputStream documentXml, String partName, String bookmarkName, Appendable out)
+            throws IOException {
+        Result result = new Result(bookmarkName, partName);
+        result.textWriter = new BookmarkTextWriter(out);
+        Map<String, Result> results = new LinkedHashMap<>();
+        results.put(bookmarkName, result);
+        scan(documentXml, results);
+        return result;
+    }
+
+    /**
+     * 扫描主文档部件的XML流
+     * @param documentXml word/document.xml 的内容
+     * @param partName 主文档部件的名称（以/开头）
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到读取结果的映射
+     * @throws IOException
+     */
+    static Map<String, Result> scan(InputStream documentXml, String partName, Collection<String> bookmarkNames)
+            throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (String name : new LinkedHashSet<>(bookmarkNames)) {
+            results.put(name, new Result(name, partName));
+        }
+        if (!results.isEmpty()) {
+            scan(documentXml, results);
+        }
+        return results;
+    }
+
+    private static void scan(InputStream documentXml, Map<String, Result> results) throws IOException {
+        XMLStreamReader reader = null;
+        OperationPhase previous = DocxOperation.enterPhase(OperationPhase.LOCATE);
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(documentXml);
+            Scanner scanner = new Scanner(reader, results);
+            scanner.run();
+            DocxOperation.count(scanner.paragraphCount, scanner.elementCount);
+        } catch (XMLStreamException e) {
+            throw new IOException("解析文档XML失败: " + e.getMessage(), e);
+        } finally {
+            DocxOperation.exitPhase(previous);
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // 忽略关闭异常
+                }
+            }
+        }
+    }
+
+    /**
+     * 扫描中打开的元素：容器（文档主体、表格单元格、内容控件）、段落、表格、表格行或内容控件
+     */
+    private static class Frame {
+        final int kind;
+        final int depth;
+        final String path;
+        // 段落所在的容器，容器为自身
+        final Frame container;
+        int paragraphIndex = -1;
+        int tables;
+        int rows;
+        int cells;
+        int contentControls;
+
+        Frame(int kind, int depth, String path, Frame container) {
+            this.kind = kind;
+            this.depth = depth;
+            this.path = path;
+            this.container = container != null ? container : this;
+        }
+    }
+
+    /**
+     * 单次扫描的状态
+     */
+    private static class Scanner {
+        private final XMLStreamReader reader;
+        private final Map<String, Result> results;
+        // 正在收集文本的书签（已遇到起始标记，尚未遇到结束标记）
+        private final Map<BigInteger, Result> open = new HashMap<>();
+        // 结束标记在起始标记之前出现的书签ID及其容器和段落
+        private final Map<BigInteger, Frame> orphanEndContainers = new HashMap<>();
+        private final Map<BigInteger, Integer> orphanEnds = new HashMap<>();
+        // 已登记的书签名称和ID（包括未请求的书签），与BookmarkIndex一样只取第一个
+        private final Set<String> seenNames = new HashSet<>();
+        private final Set<BigInteger> seenIds = new HashSet<>();
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        private int unresolved;
+        private int depth;
+        // 扫描的正文段落数和XML元素数
+        private int paragraphCount;
+        private int elementCount;
+
+        Scanner(XMLStreamReader reader, Map<String, Result> results) {
+            this.reader = reader;
+            this.results = results;
+            this.unresolved = results.size();
+        }
+
+        void run() throws XMLStreamException, IOException {
+            while (unresolved > 0 && reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        depth++;
+                        elementCount++;
+                        startElement();
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (!frames.isEmpty() && frames.peek().depth == depth) {
+                            frames.pop();
+                        }
+                        depth--;
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (!open.isEmpty()) {
+                            // 直接读取解析器的字符缓冲区，不生成字符串
+                            char[] chars = reader.getTextCharacters();
+                            int start = reader.getTextStart();
+                            int length = reader.getTextLength();
+                            for (Result result : open.values()) {
+                                result.textWriter.append(chars, start, length);
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        /**
+         * 只处理已打开元素的直接子节点，与 BookmarkIndex 遍历DOM的方式相同：
+         * 容器中的段落、bookmarkEnd、表格和内容控件，表格中的行，行中的单元格，内容控件中的sdtContent，
+         * 以及段落直接子节点中的书签标记
+         */
+        private void startElement() {
+            if (!BookmarkIndex.WORDML_NS.equals(reader.getNamespaceURI())) {
+                return;
+            }
+            String localName = reader.getLocalName();
+            if (frames.isEmpty()) {
+                // 层级：1 document，2 body
+                if (depth == 2 && "body".equals(localName)) {
+                    frames.push(new Frame(CONTAINER, depth, BookmarkRange.BODY, null));
+                }
+                return;
+            }
+            Frame parent = frames.peek();
+            if (depth != parent.depth + 1) {
+                return;
+            }
+            switch (parent.kind) {
+                case CONTAINER:
+                    if ("p".equals(localName)) {
+                        parent.paragraphIndex++;
+                        paragraphCount++;
+                        frames.push(new Frame(PARAGRAPH, depth, parent.path, parent));
+                    } else if ("bookmarkEnd".equals(localName)) {
+                        // 容器中的bookmarkEnd，不属于任何段落
+                        end(parent, -1);
+                    } else if ("tbl".equals(localName)) {
+                        frames.push(new Frame(TABLE, depth, parent.path + "/tbl[" + parent.tables++ + "]", null));
+                    } else if ("sdt".equals(localName)) {
+                        frames.push(new Frame(CONTENT_CONTROL, depth,
+                                              parent.path + "/sdt[" + parent.contentControls++ + "]", null));
+                    }
+                    break;
+                case PARAGRAPH:
+                    if ("bookmarkStart".equals(localName)) {
+                        start(parent.container);
+                    } else if ("bookmarkEnd".equals(localName)) {
+                        end(parent.container, parent.container.paragraphIndex);
+                    }
+                    break;
+                case TABLE:
+                    if ("tr".equals(localName)) {
+                        frames.push(new Frame(ROW, depth, parent.path + "/tr[" + parent.rows++ + "]", null));
+                    }
+                    break;
+                case ROW:
+                    if ("tc".equals(localName)) {
+                        frames.push(new Frame(CONTAINER, depth, parent.path + "/tc[" + parent.cells++ + "]", null));
+                    }
+                    break;
+                case CONTENT_CONTROL:
+                    if ("sdtContent".equals(localName)) {
+                        frames.push(new Frame(CONTAINER, depth, parent.path, null));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void start(Frame container) {
+            String name = reader.getAttributeValue(BookmarkIndex.WORDML_NS, "name");
+            if (name == null || !seenNames.add(name)) {
+                return;
+            }
+            BigInteger id = parseId(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "id"));
+            boolean firstWithId = id != null && seenIds.add(id);
+            Result result = results.get(name);
+            if (result == null) {
+                return;
+            }
+            result.found = true;
+            result.id = id;
+            result.container = container;
+            result.startParagraphIndex = container.paragraphIndex;
+            if (!firstWithId) {
+                // 没有ID或ID已被其他书签占用，无法匹配结束标记
+                unresolved--;
+                return;
+            }
+            Integer orphanEnd = orphanEnds.remove(id);
+            if (orphanEnd != null) {
+                result.endParagraphIndex = orphanEndContainers.remove(id) == container ? orphanEnd : -1;
+                unresolved--;
+                return;
+            }
+            if (result.textWriter == null) {
+                result.text = new StringBuilder();
+                result.textWriter = new BookmarkTextWriter(result.text);
+            }
+            open.put(id, result);
+        }
+
+        private void end(Frame container, int endParagraphIndex) {
+            BigInteger id = parseId(reader.getAttributeValue(BookmarkIndex.WORDML_NS, "id"));
+            if (id == null) {
+                return;
+            }
+            Result result = open.remove(id);
+            if (result != null) {
+                // 段落索引只在起始标记所在的容器中有意义
+                result.endParagraphIndex = container == result.container ? endParagraphIndex : -1;
+                result.resolved = true;
+                unresolved--;
+            } else if (!seenIds.contains(id) && !orphanEnds.containsKey(id)) {
+                orphanEnds.put(id, endParagraphIndex);
+                orphanEndContainers.put(id, container);
+            }
+        }
+    }
+
+    /**
+     * 定位主文档部件，优先使用 word/document.xml，否则按包关系查找
+     */
+    static ZipEntry findMainDocumentPart(ZipFile zipFile) throws IOException {
+        ZipEntry entry = zipFile.getEntry(MAIN_DOCUMENT_PART);
+        if (entry != null) {
+            return entry;
+        }
+        ZipEntry relationships = zipFile.getEntry(PACKAGE_RELATIONSHIPS_PART);
+        if (relationships != null) {
+            try (InputStream inputStream = zipFile.getInputStream(relationships)) {
+                String target = findOfficeDocumentTarget(inputStream);
+                if (target != null) {
+                    entry = zipFile.getEntry(target.startsWith("/") ? target.substring(1) : target);
+                    if (entry != null) {
+                        return entry;
+                    }
+                }
+            }
+        }
+        throw new IOException("文档中未找到主文档部件: " + zipFile.getName());
+    }
+
+    /**
+     * 定位主文档部件（commons-compress 的 ZipFile，用于需要原样复制压缩条目的场景），
+     * 优先使用 word/document.xml，否则按包关系查找
+     */
+    static ZipArchiveEntry findMainDocumentPart(org.apache.commons.compress.archivers.zip.ZipFile zipFile)
+            throws IOException {
+        ZipArchiveEntry entry = zipFile.getEntry(MAIN_DOCUMENT_PART);
+        if (entry != null) {
+            return entry;
+        }
+        ZipArchiveEntry relationships = zipFile.getEntry(PACKAGE_RELATIONSHIPS_PART);
+        if (relationships != null) {
+            try (InputStream inputStream = zipFile.getInputStream(relationships)) {
+                String target = findOfficeDocumentTarget(inputStream);
+                if (target != null) {
+                    entry = zipFile.getEntry(target.startsWith("/") ? target.substring(1) : target);
+                    if (entry != null) {
+                        return entry;
+                    }
+                }
+            }
+        }
+        throw new IOException("文档中未找到主文档部件");
+    }
+
+    /**
+     * 在顺序读取的压缩包中定位主文档部件，返回时输入流位于该部件内容的开头；
+     * 非标准路径的主文档部件需要包关系出现在它之前才能识别
+     */
+    static ZipEntry findMainDocumentPart(ZipInputStream zipInputStream) throws IOException {
+        String target = null;
+        ZipEntry entry;
+        while ((entry = zipInputStream.getNextEntry()) != null) {
+            String name = entry.getName();
+            if (MAIN_DOCUMENT_PART.equals(name) || name.equals(target)) {
+                return entry;
+            }
+            if (PACKAGE_RELATIONSHIPS_PART.equals(name)) {
+                target = findOfficeDocumentTarget(nonClosing(zipInputStream));
+                if (target != null && target.startsWith("/")) {
+                    target = target.substring(1);
+                }
+            }
+        }
+        throw new IOException("文档中未找到主文档部件");
+    }
+
+    private static String findOfficeDocumentTarget(InputStream relationships) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(relationships);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                    && "Relationship".equals(reader.getLocalName())
+                    && OFFICE_DOCUMENT_RELATIONSHIP_TYPE.equals(reader.getAttributeValue(null, "Type"))) {
+                    return reader.getAttributeValue(null, "Target");
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("解析包关系失败: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // 忽略关闭异常
+                }
+            }
+        }
+    }
+
+    /**
+     * 包装压缩包中当前条目的输入流，JDK自带的StAX实现读到文档末尾时会关闭输入流，
+     * 直接传入ZipInputStream会导致后续条目无法读取
+     */
+    static InputStream nonClosing(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    static BigInteger parseId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigInteger(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // 文档XML不需要DTD和外部实体，关闭以防止XXE
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.myjavalab.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * 把书签文本写入调用方提供的 Appendable，同时去除首尾空白（与 String.trim() 的规则相同）
+ *
+ * 开头的空白直接丢弃；中间的空白先暂存，遇到下一个非空白字符时再写出，结尾的空白因此不会被写出。
+ * 非空白字符按连续片段整段写出，不生成中间字符串，只有空白片段需要暂存
+ */
+final class BookmarkTextWriter {
+
+    private final Appendable out;
+    // 已写出的内容之后、尚未确定是否位于结尾的空白
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+    private boolean started;
+
+    BookmarkTextWriter(Appendable out) {
+        this.out = out;
+    }
+
+    /**
+     * 写入字符数组的一部分（StAX读取器的文本缓冲区）
+     */
+    void append(char[] chars, int start, int length) throws IOException {
+        append(CharBuffer.wrap(chars, start, length), 0, length);
+    }
+
+    /**
+     * 写入文本
+     */
+    void append(CharSequence text) throws IOException {
+        if (text != null) {
+            append(text, 0, text.length());
+        }
+    }
+
+    private void append(CharSequence text, int start, int end) throws IOException {
+        int i = start;
+        while (i < end) {
+            int whitespaceStart = i;
+            while (i < end && text.charAt(i) <= ' ') {
+                i++;
+            }
+            if (started && i > whitespaceStart) {
+                pendingWhitespace.append(text, whitespaceStart, i);
+            }
+            if (i == end) {
+                return;
+            }
+            int textStart = i;
+            while (i < end && text.charAt(i) > ' ') {
+                i++;
+            }
+            if (pendingWhitespace.length() > 0) {
+                out.append(pendingWhitespace);
+                pendingWhitespace.setLength(0);
+            }
+            write(text, textStart, i);
+            started = true;
+        }
+    }
+
+    /**
+     * Writer.append(CharSequence, int, int) 会先生成子串，能直接写字符数组或字符串时绕过它
+     */
+    private void write(CharSequence text, int start, int end) throws IOException {
+        if (out instanceof Writer) {
+            Writer writer = (Writer) out;
+            if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+                CharBuffer buffer = (CharBuffer) text;
+                writer.write(buffer.array(), buffer.arrayOffset() + buffer.position() + start, end - start);
+                return;
+            }
+            if (text instanceof String) {
+                writer.write((String) text, start, end - start);
+                return;
+            }
+        }
+        out.append(text, start, end);
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.myjavalab.utils;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 异步文档操作，在专用的有界线程池中执行 DocxUtils 的操作，返回 {@link OperationFuture}
+ *
+ * <pre>
+ * DocxAsyncExecutor executor = new DocxAsyncExecutor(4, 16);
+ * executor.applyBookmarkOps(document, ops)
+ *     .thenAccept(result -&gt; response.getOutputStream().write(result));
+ * </pre>
+ *
+ * 线程数和等待队列长度都有上限，排队中的任务（以及任务持有的文档字节数组）不会无限增长。
+ * 队列已满时，maxWaitMillis 为0则立即拒绝，否则提交线程最多等待 maxWaitMillis 毫秒（背压），仍然满则拒绝；
+ * 被拒绝的操作返回以 RejectedExecutionException 异常完成的 future，提交线程不会抛出异常。
+ * 操作抛出的异常（IOException、IllegalArgumentException 等）同样通过 future 传递。
+ * 操作报告在工作线程中生成，提交线程的 OperationReport.last() 取不到，完成后通过 OperationFuture.getReport() 获取。
+ *
+ * 只提供路径和字节数组版本：输入流需要在提交线程中读完，不适合异步执行。
+ * 执行器应该在应用中共用一个，不再使用时调用 close（例如在Spring中声明为 destroyMethod="close" 的Bean）
+ */
+public class DocxAsyncExecutor implements Closeable {
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final long maxWaitMillis;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * 使用CPU核数作为线程数，等待队列长度为线程数的2倍，队列已满时立即拒绝
+     */
+    public DocxAsyncExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads 工作线程数
+     */
+    public DocxAsyncExecutor(int threads) {
+        this(threads, threads * 2);
+    }
+
+    /**
+     * @param threads 工作线程数
+     * @param queueCapacity 等待队列长度（不包括执行中的任务）
+     */
+    public DocxAsyncExecutor(int threads, int queueCapacity) {
+        this(threads, queueCapacity, 0);
+    }
+
+    /**
+     * @param threads 工作线程数
+     * @param queueCapacity 等待队列长度（不包括执行中的任务）
+     * @param maxWaitMillis 队列已满时提交线程最多等待的毫秒数，0表示立即拒绝
+     */
+    public DocxAsyncExecutor(int threads, int queueCapacity, long maxWaitMillis) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("线程数必须大于0: " + threads);
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("等待队列长度必须大于0: " + queueCapacity);
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException("等待时间不能为负数: " + maxWaitMillis);
+        }
+        this.queueCapacity = queueCapacity;
+        this.maxWaitMillis = maxWaitMillis;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new WorkerThreadFactory(), new OverloadHandler());
+    }
+
+    /**
+     * 异步执行任意任务，用于没有对应异步方法的操作（例如在一个会话中执行多个操作）
+     * @param task 任务
+     * @return 任务结果和任务中书签操作的报告；线程池已满或已关闭时以 RejectedExecutionException 异常完成
+     */
+    public <T> OperationFuture<T> submit(Callable<T> task) {
+        OperationFuture<T> future = new OperationFuture<>();
+        try {
+            executor.execute(() -> {
+                // 排队期间已被调用方取消的任务不再执行
+                if (future.isDone()) {
+                    return;
+                }
+                // 工作线程上一个任务的报告不属于本任务
+                OperationReport previous = OperationReport.last();
+                try {
+                    T result = task.call();
+                    future.report = reportSince(previous);
+                    future.complete(result);
+                } catch (Throwable e) {
+                    future.report = reportSince(previous);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public OperationFuture<Void> insertBookmarkBefore(String inputPath, String outputPath,
+                                                        String bookmarkA, String bookmarkB) {
+        return submit(() -> {
+            DocxUtils.insertBookmarkBefore(inputPath, outputPath, bookmarkA, bookmarkB);
+            return null;
+        });
+    }
+
+    public OperationFuture<byte[]> insertBookmarkBefore(byte[] document, String bookmarkA, String bookmarkB) {
+        return submit(() -> DocxUtils.insertBookmarkBefore(document, bookmarkA, bookmarkB));
+    }
+
+    public OperationFuture<Void> copyBookmarkContent(String inputPath, String outputPath,
+                                                       String bookmarkA, String bookmarkB) {
+        return submit(() -> {
+            DocxUtils.copyBookmarkContent(inputPath, outputPath, bookmarkA, bookmarkB);
+            return null;
+        });
+    }
+
+    public OperationFuture<byte[]> copyBookmarkContent(byte[] document, String bookmarkA, String bookmarkB) {
+        return submit(() -> DocxUtils.copyBookmarkContent(document, bookmarkA, bookmarkB));
+    }
+
+    public OperationFuture<Void> copyBookmarkContentStreaming(String inputPath, String outputPath,
+                                                                String bookmarkA, String bookmarkB) {
+        return submit(() -> {
+            DocxUtils.copyBookmarkContentStreaming(inputPath, outputPath, bookmarkA, bookmarkB);
+            return null;
+        });
+    }
+
+    public OperationFuture<byte[]> copyBookmarkContentStreaming(byte[] document, String bookmarkA, String bookmarkB) {
+        return submit(() -> DocxUtils.copyBookmarkContentStreaming(document, bookmarkA, bookmarkB));
+    }
+
+    public OperationFuture<Void> copyBookmarkContentMultipleTimes(String inputPath, String outputPath,
+                                                                    String bookmarkName, int times) {
+        return submit(() -> {
+            DocxUtils.copyBookmarkContentMultipleTimes(inputPath, outputPath, bookmarkName, times);
+            return null;
+        });
+    }
+
+    public OperationFuture<byte[]> copyBookmarkContentMultipleTimes(byte[] document, String bookmarkName, int times) {
+        return submit(() -> DocxUtils.copyBookmarkContentMultipleTimes(document, bookmarkName, times));
+    }
+
+    public OperationFuture<Void> applyBookmarkOps(String inputPath, String outputPath, List<BookmarkOp> ops) {
+        return submit(() -> {
+            DocxUtils.applyBookmarkOps(inputPath, outputPath, ops);
+            return null;
+        });
+    }
+
+    public OperationFuture<byte[]> applyBookmarkOps(byte[] document, List<BookmarkOp> ops) {
+        return submit(() -> DocxUtils.applyBookmarkOps(document, ops));
+    }
+
+    public OperationFuture<String> getBookmarkContentFromFile(String documentPath, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkContentFromFile(documentPath, bookmarkName));
+    }
+
+    public OperationFuture<String> getBookmarkContentFromFile(byte[] document, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkContentFromFile(document, bookmarkName));
+    }
+
+    public OperationFuture<Integer> getBookmarkPositionFromFile(String documentPath, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkPositionFromFile(documentPath, bookmarkName));
+    }
+
+    public OperationFuture<Integer> getBookmarkPositionFromFile(byte[] document, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkPositionFromFile(document, bookmarkName));
+    }
+
+    public OperationFuture<BookmarkRange> getBookmarkRangeFromFile(String documentPath, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkRangeFromFile(documentPath, bookmarkName));
+    }
+
+    public OperationFuture<BookmarkRange> getBookmarkRangeFromFile(byte[] document, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkRangeFromFile(document, bookmarkName));
+    }
+
+    public OperationFuture<Integer> getBookmarkParagraphCountFromFile(String documentPath, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkParagraphCountFromFile(documentPath, bookmarkName));
+    }
+
+    public OperationFuture<Integer> getBookmarkParagraphCountFromFile(byte[] document, String bookmarkName) {
+        return submit(() -> DocxUtils.getBookmarkParagraphCountFromFile(document, bookmarkName));
+    }
+
+    public OperationFuture<Boolean> isBookmarkUsingNumberingStyle(String documentPath, String bookmarkName) {
+        return submit(() -> DocxUtils.isBookmarkUsingNumberingStyle(documentPath, bookmarkName));
+    }
+
+    public OperationFuture<Boolean> isBookmarkUsingNumberingStyle(byte[] document, String bookmarkName) {
+        return submit(() -> DocxUtils.isBookmarkUsingNumberingStyle(document, bookmarkName));
+    }
+
+    public OperationFuture<Boolean> compareBookmarkParagraphStyles(String documentPath,
+                                                                     String bookmarkName1, String bookmarkName2) {
+        return submit(() -> DocxUtils.compareBookmarkParagraphStyles(documentPath, bookmarkName1, bookmarkName2));
+    }
+
+    public OperationFuture<Boolean> compareBookmarkParagraphStyles(byte[] document,
+                                                                     String bookmarkName1, String bookmarkName2) {
+        return submit(() -> DocxUtils.compareBookmarkParagraphStyles(document, bookmarkName1, bookmarkName2));
+    }
+
+    public OperationFuture<List<List<String>>> findBookmarksWithSameParagraphStyles(String documentPath) {
+        return submit(() -> DocxUtils.findBookmarksWithSameParagraphStyles(documentPath));
+    }
+
+    public OperationFuture<List<List<String>>> findBookmarksWithSameParagraphStyles(byte[] document) {
+        return submit(() -> DocxUtils.findBookmarksWithSameParagraphStyles(document));
+    }
+
+    public OperationFuture<Map<String, BookmarkInfo>> getBookmarkInfo(String documentPath,
+                                                                        Collection<String> bookmarkNames) {
+        return submit(() -> DocxUtils.getBookmarkInfo(documentPath, bookmarkNames));
+    }
+
+    public OperationFuture<Map<String, BookmarkInfo>> getBookmarkInfo(byte[] document,
+                                                                        Collection<String> bookmarkNames) {
+        return submit(() -> DocxUtils.getBookmarkInfo(document, bookmarkNames));
+    }
+
+    public OperationFuture<BookmarkDiff> diffBookmarks(String oldDocumentPath, String newDocumentPath) {
+        return submit(() -> DocxUtils.diffBookmarks(oldDocumentPath, newDocumentPath));
+    }
+
+    public OperationFuture<BookmarkDiff> diffBookmarks(byte[] oldDocument, byte[] newDocument) {
+        return submit(() -> DocxUtils.diffBookmarks(oldDocument, newDocument));
+    }
+
+    private static OperationReport reportSince(OperationReport previous) {
+        OperationReport report = OperationReport.last();
+        return report != previous ? report : null;
+    }
+
+    /**
+     * 获取正在执行的任务数
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * 获取排队等待执行的任务数
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * 获取因线程池已满或已关闭而被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 不再接受新任务，等待已提交的任务执行完成（最多1分钟）
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 异步操作的结果，任务完成时同时带回工作线程中生成的操作报告
+     */
+    public static class OperationFuture<T> extends CompletableFuture<T> {
+        private volatile OperationReport report;
+
+        /**
+         * 任务中最后结束的书签操作的报告（成功或失败）；任务还没有完成、被拒绝或没有执行书签操作时返回null
+         */
+        public OperationReport getReport() {
+            return report;
+        }
+    }
+
+    /**
+     * 队列已满时按 maxWaitMillis 等待队列空位，超时后拒绝
+     */
+    private class OverloadHandler implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor pool) {
+            if (!pool.isShutdown() && maxWaitMillis > 0) {
+                try {
+                    if (pool.getQueue().offer(task, maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                        // 等待期间执行器可能已关闭，关闭后放入队列的任务可能永远不会执行；
+                        // 与 ThreadPoolExecutor.execute 一样再检查一次，还能从队列中移除时改为拒绝
+                        if (!pool.isShutdown() || !pool.remove(task)) {
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            rejectedCount.incrementAndGet();
+            throw new RejectedExecutionException(pool.isShutdown() ? "执行器已关闭" : "执行器已满（执行中 "
+                + pool.getActiveCount() + "，排队 " + pool.getQueue().size() + "/" + queueCapacity + "）");
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "docx-async-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.myjavalab.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 文档批量处理器，对一批docx文件并行执行同一个书签操作计划
+ *
+ * <pre>
+ * DocxBatchProcessor processor = new DocxBatchProcessor();
+ * DocxBatchProcessor.BatchResult result = processor.process(inputDir, outputDir, Arrays.asList(
+ *     BookmarkOp.insertBefore("labelA", "labelB"),
+ *     BookmarkOp.copy("labelA", "labelB")));
+ * System.out.println(result);
+ * </pre>
+ *
+ * 工作线程数默认等于CPU核数；同时加载的文档数量有上限，超过上限时提交线程等待，
+ * 因此堆内存占用与文件总数无关。单个文件失败不影响其他文件，失败原因记录在结果中
+ */
+public class DocxBatchProcessor {
+
+    private static final String DOCX_SUFFIX = ".docx";
+    // Word编辑文档时生成的锁文件
+    private static final String WORD_LOCK_FILE_PREFIX = "~$";
+
+    private final int parallelism;
+    private final int maxInFlight;
+
+    /**
+     * 使用CPU核数作为并行度，同时处理的文档数为并行度的2倍
+     */
+    public DocxBatchProcessor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism 工作线程数
+     */
+    public DocxBatchProcessor(int parallelism) {
+        this(parallelism, parallelism * 2);
+    }
+
+    /**
+     * @param parallelism 工作线程数
+     * @param maxInFlight 同时提交（执行中和排队中）的文档数上限，不能小于并行度
+     */
+    public DocxBatchProcessor(int parallelism, int maxInFlight) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并行度必须大于0: " + parallelism);
+        }
+        if (maxInFlight < parallelism) {
+            throw new IllegalArgumentException("同时处理的文档数不能小于并行度: " + maxInFlight + " < " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 处理目录中的所有docx文件（不包含子目录），结果写入输出目录中的同名文件
+     * @param inputDirectory 输入目录
+     * @param outputDirectory 输出目录，不存在时自动创建
+     * @param ops 书签操作计划
+     * @return 批量处理结果
+     * @throws IOException 读取目录失败时抛出
+     * @throws InterruptedException 等待处理完成时被中断
+     */
+    public BatchResult process(Path inputDirectory, Path outputDirectory, List<BookmarkOp> ops)
+            throws IOException, InterruptedException {
+        List<Path> inputs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(inputDirectory)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                if (Files.isRegularFile(path) && fileName.toLowerCase().endsWith(DOCX_SUFFIX)
+                        && !fileName.startsWith(WORD_LOCK_FILE_PREFIX)) {
+                    inputs.add(path);
+                }
+            }
+        }
+        Collections.sort(inputs);
+        return process(inputs, outputDirectory, ops);
+    }
+
+    /**
+     * 处理文件列表，结果写入输出目录中的同名文件
+     * @param inputs 输入文件列表
+     * @param outputDirectory 输出目录，不存在时自动创建
+     * @param ops 书签操作计划
+     * @return 批量处理结果，文件结果的顺序与输入顺序一致
+     * @throws IllegalArgumentException 多个输入文件同名（不区分大小写），输出会互相覆盖时抛出
+     * @throws IOException 创建输出目录失败时抛出
+     * @throws InterruptedException 等待处理完成时被中断
+     */
+    public BatchResult process(List<Path> inputs, Path outputDirectory, List<BookmarkOp> ops)
+            throws IOException, InterruptedException {
+        checkDistinctFileNames(inputs);
+        Files.createDirectories(outputDirectory);
+        List<BookmarkOp> plan = Collections.unmodifiableList(new ArrayList<>(ops));
+
+        long startTime = System.nanoTime();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(inputs.size(), 1)),
+                                                                 new WorkerThreadFactory());
+        List<Future<FileResult>> futures = new ArrayList<>(inputs.size());
+        try {
+            for (Path input : inputs) {
+                Path output = outputDirectory.resolve(input.getFileName());
+                inFlight.acquire();
+                try {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            return processFile(input, output, plan);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+
+            List<FileResult> results = new ArrayList<>(inputs.size());
+            for (Future<FileResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // processFile 已捕获所有异常，这里只可能是Error
+                    throw new IllegalStateException("批量处理任务异常终止", e.getCause());
+                }
+            }
+
+            BatchResult result = new BatchResult(results, System.nanoTime() - startTime);
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("batchDone", null, 0, 0L, result.toString());
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * 输出文件按输入文件名命名，不同目录中的同名文件会写到同一个输出文件；
+     * 按不区分大小写比较，避免在不区分大小写的文件系统上互相覆盖
+     */
+    private static void checkDistinctFileNames(List<Path> inputs) {
+        Map<String, Path> fileNames = new HashMap<>();
+        for (Path input : inputs) {
+            Path previous = fileNames.putIfAbsent(input.getFileName().toString().toLowerCase(Locale.ROOT), input);
+            if (previous != null) {
+                throw new IllegalArgumentException("输入文件同名，输出会互相覆盖: " + previous + ", " + input);
+            }
+        }
+    }
+
+    private static FileResult processFile(Path input, Path output, List<BookmarkOp> plan) {
+        long startTime = System.nanoTime();
+        try {
+            DocxUtils.applyBookmarkOps(input.toString(), output.toString(), plan);
+            return new FileResult(input, output, null, System.nanoTime() - startTime, OperationReport.last());
+        } catch (Exception e) {
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("batchFileFailed", null, 0, 0L, input + " - " + e.getMessage());
+            }
+            return new FileResult(input, output, e, System.nanoTime() - startTime, OperationReport.last());
+        }
+    }
+
+    /**
+     * 单个文件的处理结果
+     */
+    public static class FileResult {
+        private final Path input;
+        private final Path output;
+        private final Exception error;
+        private final long elapsedNanos;
+        private final OperationReport report;
+
+        FileResult(Path input, Path output, Exception error, long elapsedNanos, OperationReport report) {
+            this.input = input;
+            this.output = output;
+            this.error = error;
+            this.elapsedNanos = elapsedNanos;
+            this.report = report;
+        }
+
+        public Path getInput() { return input; }
+        public Path getOutput() { return output; }
+        public boolean isSuccess() { return error == null; }
+
+        /**
+         * 获取失败原因，成功时返回null
+         */
+        public Exception getError() { return error; }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * 获取文件处理的耗时报告（各阶段耗时、扫描的段落数），用于找出耗时异常的文档
+         */
+        public OperationReport getReport() { return report; }
+
+        @Override
+        public String toString() {
+            return input.getFileName() + (isSuccess() ? " ✅ " : " ❌ " + error.getMessage() + " ")
+                + getElapsedMillis() + "ms";
+        }
+    }
+
+    /**
+     * 批量处理结果
+     */
+    public static class BatchResult {
+        private final List<FileResult> fileResults;
+        private final long elapsedNanos;
+
+        BatchResult(List<FileResult> fileResults, long elapsedNanos) {
+            this.fileResults = Collections.unmodifiableList(fileResults);
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<FileResult> getFileResults() { return fileResults; }
+
+        public int getTotalCount() {
+            return fileResults.size();
+        }
+
+        public int getSuccessCount() {
+            int count = 0;
+            for (FileResult result : fileResults) {
+                if (result.isSuccess()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        public int getFailureCount() {
+            return getTotalCount() - getSuccessCount();
+        }
+
+        /**
+         * 获取失败的文件结果
+         */
+        public List<FileResult> getFailures() {
+            List<FileResult> failures = new ArrayList<>();
+            for (FileResult result : fileResults) {
+                if (!result.isSuccess()) {
+                    failures.add(result);
+                }
+            }
+            return failures;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * 获取吞吐量（每秒处理的文件数）
+         */
+        public double getFilesPerSecond() {
+            return elapsedNanos == 0 ? 0 : fileResults.size() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("批量处理完成: 共 %d 个文件，成功 %d，失败 %d，耗时 %dms，吞吐量 %.2f 文件/秒",
+                getTotalCount(), getSuccessCount(), getFailureCount(), getElapsedMillis(), getFilesPerSecond());
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "docx-batch-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
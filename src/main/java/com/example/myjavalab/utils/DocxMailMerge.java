@@ -0,0 +1,330 @@
+package com.example.myjavalab.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 邮件合并：用一个模板和大量数据行批量生成文档，每行数据生成一个文档
+ *
+ * <pre>
+ * DocxMailMerge merge = new DocxMailMerge().fileNameField("customerId");
+ * try (MergeRowReader rows = MergeRowReader.csv(Paths.get("customers.csv"))) {
+ *     DocxMailMerge.MergeResult result = merge.mergeToZip("templates/letter.docx", rows, zipOutputStream);
+ *     System.out.println(result);
+ * }
+ * </pre>
+ *
+ * 数据行的列名与模板中的书签名称对应，列值通过 setBookmarkContent 写入书签，
+ * 模板中没有的列会被忽略。模板只解析一次，书签位置也在加载模板时确定：
+ * 每行数据从模板副本生成文档，不再重复读取和解析模板文件，书签索引按模板的书签位置直接建立，不再扫描正文。
+ * 数据行按需读取，同时处理的行数有上限，结果逐个写入目录或zip压缩包，
+ * 只统计数量、不保存每行的结果，因此内存占用与数据行数无关（指定 fileNameField 时需要记住已使用的文件名）
+ */
+public class DocxMailMerge {
+
+    private static final String DOCX_SUFFIX = ".docx";
+    // 每处理这么多行发送一次进度跟踪事件
+    private static final int PROGRESS_INTERVAL = 10000;
+    // 结果中最多保留的失败记录数
+    private static final int MAX_RECORDED_FAILURES = 100;
+
+    private final int parallelism;
+    private final int maxInFlight;
+    private final DocxTemplateCache templateCache = new DocxTemplateCache(4, 256L * 1024 * 1024);
+    private String fileNameField;
+
+    /**
+     * 使用CPU核数作为并行度，同时处理的数据行数为并行度的2倍
+     */
+    public DocxMailMerge() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism 工作线程数
+     */
+    public DocxMailMerge(int parallelism) {
+        this(parallelism, parallelism * 2);
+    }
+
+    /**
+     * @param parallelism 工作线程数
+     * @param maxInFlight 同时提交（执行中和排队中）的数据行数上限，不能小于并行度
+     */
+    public DocxMailMerge(int parallelism, int maxInFlight) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("并行度必须大于0: " + parallelism);
+        }
+        if (maxInFlight < parallelism) {
+            throw new IllegalArgumentException("同时处理的数据行数不能小于并行度: " + maxInFlight + " < " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * 用指定列的值作为输出文件名（不含扩展名），默认按行号命名为 000001.docx 等
+     * 文件名重复时（不区分大小写）后出现的行在文件名后追加行号，例如 alice_000003.docx，
+     * 写入目录和写入压缩包的结果相同
+     */
+    public DocxMailMerge fileNameField(String fileNameField) {
+        this.fileNameField = fileNameField;
+        return this;
+    }
+
+    /**
+     * 合并结果写入目录，每行数据一个文件
+     * @param templatePath 模板文档路径
+     * @param rows 数据行（列名 -&gt; 值），按需读取
+     * @param outputDirectory 输出目录，不存在时自动创建
+     * @return 合并结果
+     * @throws IOException 读取模板或创建输出目录失败时抛出
+     * @throws InterruptedException 等待处理完成时被中断
+     */
+    public MergeResult mergeToDirectory(String templatePath, Iterator<Map<String, String>> rows, Path outputDirectory)
+            throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        return merge(templatePath, rows, (fileName, content) -> Files.write(outputDirectory.resolve(fileName), content));
+    }
+
+    /**
+     * 合并结果写入zip压缩包，每行数据一个压缩包条目（不会关闭输出流）
+     * @param templatePath 模板文档路径
+     * @param rows 数据行（列名 -&gt; 值），按需读取
+     * @param outputStream zip压缩包输出流
+     * @return 合并结果
+     * @throws IOException 读取模板或写入压缩包失败时抛出
+     * @throws InterruptedException 等待处理完成时被中断
+     */
+    public MergeResult mergeToZip(String templatePath, Iterator<Map<String, String>> rows, OutputStream outputStream)
+            throws IOException, InterruptedException {
+        ZipOutputStream zos = new ZipOutputStream(outputStream);
+        MergeResult result = merge(templatePath, rows, (fileName, content) -> {
+            // 压缩包只能依次写入，文档生成仍然并行
+            synchronized (zos) {
+                zos.putNextEntry(new ZipEntry(fileName));
+                zos.write(content);
+                zos.closeEntry();
+            }
+        });
+        zos.finish();
+        return result;
+    }
+
+    private MergeResult merge(String templatePath, Iterator<Map<String, String>> rows, OutputSink sink)
+            throws IOException, InterruptedException {
+        // 加载模板，确定模板中的书签
+        Set<String> bookmarkNames = templateCache.getBookmarkNames(templatePath);
+
+        long startTime = System.nanoTime();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong completed = new AtomicLong();
+        List<RowFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+        long rowCount = 0;
+        Set<String> usedFileNames = new HashSet<>();
+        try {
+            while (rows.hasNext()) {
+                Map<String, String> row = rows.next();
+                long rowNumber = ++rowCount;
+                if (rowNumber == 1) {
+                    traceUnknownFields(row, bookmarkNames);
+                }
+                // 文件名按数据行的顺序分配，与并行处理的完成顺序无关
+                String fileName = fileName(row, rowNumber, usedFileNames);
+                inFlight.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            mergeRow(templatePath, bookmarkNames, row, fileName, sink);
+                            succeeded.incrementAndGet();
+                        } catch (Exception e) {
+                            // 检查和添加放在同一个锁中，并发失败的行不会超过上限
+                            synchronized (failures) {
+                                if (failures.size() < MAX_RECORDED_FAILURES) {
+                                    failures.add(new RowFailure(rowNumber, e));
+                                }
+                            }
+                        } finally {
+                            long done = completed.incrementAndGet();
+                            if (done % PROGRESS_INTERVAL == 0 && DocxTrace.isEnabled()) {
+                                DocxTrace.emit("mergeProgress", null, 0, 0L, String.format("rows=%d rowsPerSecond=%.2f",
+                                    done, done * 1e9 / (System.nanoTime() - startTime)));
+                            }
+                            inFlight.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+            }
+
+            // 取回全部许可即表示所有数据行都已处理完
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+
+            return new MergeResult(rowCount, succeeded.get(), failures, System.nanoTime() - startTime);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private void mergeRow(String templatePath, Set<String> bookmarkNames, Map<String, String> row,
+                          String fileName, OutputSink sink) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DocxSession session = templateCache.open(templatePath)) {
+            for (Map.Entry<String, String> field : row.entrySet()) {
+                if (bookmarkNames.contains(field.getKey())) {
+                    session.setBookmarkText(field.getKey(), field.getValue() != null ? field.getValue() : "");
+                }
+            }
+            session.save(outputStream);
+        }
+        sink.write(fileName, outputStream.toByteArray());
+    }
+
+    /**
+     * 数据行的输出文件名；按行号命名的文件名不会重复，指定列的值重复时追加行号
+     */
+    private String fileName(Map<String, String> row, long rowNumber, Set<String> usedFileNames) {
+        String rowNumberName = String.format("%06d", rowNumber);
+        if (fileNameField == null) {
+            return rowNumberName + DOCX_SUFFIX;
+        }
+        String name = row.get(fileNameField);
+        // 去掉文件名中不允许的字符，避免写到输出目录之外
+        String baseName = name == null || name.trim().isEmpty() ? rowNumberName
+            : name.trim().replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+        String fileName = baseName;
+        while (!usedFileNames.add(fileName.toLowerCase(Locale.ROOT))) {
+            fileName = fileName + "_" + rowNumberName;
+        }
+        return fileName + DOCX_SUFFIX;
+    }
+
+    private static void traceUnknownFields(Map<String, String> row, Set<String> bookmarkNames) {
+        if (!DocxTrace.isEnabled()) {
+            return;
+        }
+        Set<String> unknownFields = new LinkedHashSet<>(row.keySet());
+        unknownFields.removeAll(bookmarkNames);
+        if (!unknownFields.isEmpty()) {
+            // 模板中没有这些书签，对应的列将被忽略
+            DocxTrace.emit("unknownFields", null, 0, 0L, unknownFields.toString());
+        }
+    }
+
+    /**
+     * 合并结果的输出位置
+     */
+    private interface OutputSink {
+        void write(String fileName, byte[] content) throws IOException;
+    }
+
+    /**
+     * 单行数据的失败记录
+     */
+    public static class RowFailure {
+        private final long rowNumber;
+        private final Exception error;
+
+        RowFailure(long rowNumber, Exception error) {
+            this.rowNumber = rowNumber;
+            this.error = error;
+        }
+
+        /**
+         * 获取数据行号（从1开始）
+         */
+        public long getRowNumber() { return rowNumber; }
+        public Exception getError() { return error; }
+
+        @Override
+        public String toString() {
+            return "第 " + rowNumber + " 行 ❌ " + error.getMessage();
+        }
+    }
+
+    /**
+     * 合并结果
+     */
+    public static class MergeResult {
+        private final long rowCount;
+        private final long successCount;
+        private final List<RowFailure> failures;
+        private final long elapsedNanos;
+
+        MergeResult(long rowCount, long successCount, List<RowFailure> failures, long elapsedNanos) {
+            this.rowCount = rowCount;
+            this.successCount = successCount;
+            this.failures = Collections.unmodifiableList(new ArrayList<>(failures));
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRowCount() { return rowCount; }
+        public long getSuccessCount() { return successCount; }
+
+        public long getFailureCount() {
+            return rowCount - successCount;
+        }
+
+        /**
+         * 获取失败记录，最多保留前100条
+         */
+        public List<RowFailure> getFailures() { return failures; }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        /**
+         * 获取吞吐量（每秒合并的数据行数）
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowCount * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("邮件合并完成: 共 %d 行，成功 %d，失败 %d，耗时 %dms，吞吐量 %.2f 行/秒",
+                getRowCount(), getSuccessCount(), getFailureCount(), getElapsedMillis(), getRowsPerSecond());
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "docx-merge-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
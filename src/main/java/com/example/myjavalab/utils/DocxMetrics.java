@@ -0,0 +1,182 @@
+package com.example.myjavalab.utils;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 书签操作的Micrometer指标
+ *
+ * <pre>
+ * &#64;Bean
+ * public DocxMetrics docxMetrics() {
+ *     return new DocxMetrics();   // Spring Boot Actuator 自动调用 bindTo 绑定到应用的 MeterRegistry
+ * }
+ * </pre>
+ *
+ * 指标：
+ * <ul>
+ *     <li>docx.operation（Timer）：每个公开操作的总耗时，标签 operation、outcome（success / error）</li>
+ *     <li>docx.operation.phase（Timer）：操作各阶段的耗时（见 {@link OperationPhase}），标签 operation、phase</li>
+ *     <li>docx.document.size（DistributionSummary，字节）：打开的文档大小</li>
+ *     <li>docx.document.paragraphs、docx.document.bookmarks（DistributionSummary）：首次建立书签索引时的正文段落数和书签数</li>
+ *     <li>docx.document.last.size、docx.document.last.paragraphs、docx.document.last.bookmarks（Gauge）：最近一个文档的上述值</li>
+ *     <li>docx.sessions.open（Gauge）：当前打开的文档会话数</li>
+ *     <li>docx.fallback（Counter）：快速路径回退次数，标签 path（stream-query / stream-copy / changed-parts）</li>
+ * </ul>
+ * 没有绑定时记录到 Metrics.globalRegistry；百分位数和直方图通过 MeterRegistry 的配置开启
+ * （Spring Boot 中为 management.metrics.distribution.*）
+ */
+public class DocxMetrics implements MeterBinder {
+
+    private static final OperationPhase[] PHASES = OperationPhase.values();
+
+    private static volatile MeterRegistry registry = Metrics.globalRegistry;
+    // 按操作名缓存已注册的Timer，记录时不拼接字符串，也不重新查找
+    private static final ConcurrentMap<String, OperationTimers> TIMERS = new ConcurrentHashMap<>();
+    // 按标签缓存已注册的计数器
+    private static final ConcurrentMap<String, Counter> COUNTERS = new ConcurrentHashMap<>();
+    // 文档大小、段落数和书签数没有标签，随 registry 一起替换
+    private static volatile DocumentSummaries summaries = new DocumentSummaries(Metrics.globalRegistry);
+
+    private static final AtomicInteger OPEN_SESSIONS = new AtomicInteger();
+    private static final AtomicLong LAST_DOCUMENT_SIZE = new AtomicLong();
+    private static final AtomicLong LAST_PARAGRAPH_COUNT = new AtomicLong();
+    private static final AtomicLong LAST_BOOKMARK_COUNT = new AtomicLong();
+
+    static {
+        registerGauges(Metrics.globalRegistry);
+    }
+
+    /**
+     * 把书签操作的指标绑定到 registry，之后的指标都记录到 registry 中
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        DocxMetrics.registry = registry;
+        summaries = new DocumentSummaries(registry);
+        TIMERS.clear();
+        COUNTERS.clear();
+        registerGauges(registry);
+    }
+
+    private static void registerGauges(MeterRegistry registry) {
+        Gauge.builder("docx.sessions.open", OPEN_SESSIONS, AtomicInteger::get)
+            .description("当前打开的文档会话数").register(registry);
+        Gauge.builder("docx.document.last.size", LAST_DOCUMENT_SIZE, AtomicLong::get)
+            .description("最近打开的文档大小").baseUnit("bytes").register(registry);
+        Gauge.builder("docx.document.last.paragraphs", LAST_PARAGRAPH_COUNT, AtomicLong::get)
+            .description("最近建立书签索引的文档的正文段落数").register(registry);
+        Gauge.builder("docx.document.last.bookmarks", LAST_BOOKMARK_COUNT, AtomicLong::get)
+            .description("最近建立书签索引的文档的书签数").register(registry);
+    }
+
+    /**
+     * 记录结束的操作：总耗时和进入过的各阶段耗时
+     */
+    static void record(OperationReport report) {
+        OperationTimers timers = TIMERS.get(report.getOperation());
+        if (timers == null) {
+            timers = TIMERS.computeIfAbsent(report.getOperation(), OperationTimers::new);
+        }
+        timers.outcome(report.isSucceeded()).record(report.getTotalNanos(), TimeUnit.NANOSECONDS);
+        for (OperationPhase phase : PHASES) {
+            if (report.isPhaseEntered(phase)) {
+                timers.phase(phase).record(report.getPhaseNanos(phase), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    static void sessionOpened() {
+        OPEN_SESSIONS.incrementAndGet();
+    }
+
+    /**
+     * 记录打开的文档大小（压缩包字节数）
+     */
+    static void documentOpened(long documentSize) {
+        LAST_DOCUMENT_SIZE.set(documentSize);
+        summaries.documentSize.record(documentSize);
+    }
+
+    static void sessionClosed() {
+        OPEN_SESSIONS.decrementAndGet();
+    }
+
+    static void indexBuilt(int paragraphCount, int bookmarkCount) {
+        LAST_PARAGRAPH_COUNT.set(paragraphCount);
+        LAST_BOOKMARK_COUNT.set(bookmarkCount);
+        DocumentSummaries current = summaries;
+        current.paragraphs.record(paragraphCount);
+        current.bookmarks.record(bookmarkCount);
+    }
+
+    /**
+     * 记录一次快速路径回退
+     * @param path stream-query（流式查询回退到文档模型）、stream-copy（流式复制回退到文档模型）、
+     *             changed-parts（增量保存回退到完整保存）
+     */
+    static void fallback(String path) {
+        COUNTERS.computeIfAbsent(path, key -> Counter.builder("docx.fallback").tag("path", key).register(registry))
+            .increment();
+    }
+
+    /**
+     * 一个操作的Timer，按结果和阶段序号索引；首次记录时才注册，没有出现过的结果和阶段不产生指标
+     */
+    private static class OperationTimers {
+        private final String operation;
+        // 0：success，1：error
+        private final AtomicReferenceArray<Timer> outcomes = new AtomicReferenceArray<>(2);
+        private final AtomicReferenceArray<Timer> phases = new AtomicReferenceArray<>(PHASES.length);
+
+        OperationTimers(String operation) {
+            this.operation = operation;
+        }
+
+        Timer outcome(boolean succeeded) {
+            int index = succeeded ? 0 : 1;
+            Timer timer = outcomes.get(index);
+            if (timer == null) {
+                // 并发注册时 MeterRegistry 返回同一个Timer
+                timer = Timer.builder("docx.operation").tag("operation", operation)
+                    .tag("outcome", succeeded ? "success" : "error").register(registry);
+                outcomes.set(index, timer);
+            }
+            return timer;
+        }
+
+        Timer phase(OperationPhase phase) {
+            Timer timer = phases.get(phase.ordinal());
+            if (timer == null) {
+                timer = Timer.builder("docx.operation.phase").tag("operation", operation)
+                    .tag("phase", phase.tagValue()).register(registry);
+                phases.set(phase.ordinal(), timer);
+            }
+            return timer;
+        }
+    }
+
+    private static class DocumentSummaries {
+        final DistributionSummary documentSize;
+        final DistributionSummary paragraphs;
+        final DistributionSummary bookmarks;
+
+        DocumentSummaries(MeterRegistry registry) {
+            documentSize = DistributionSummary.builder("docx.document.size").baseUnit("bytes").register(registry);
+            paragraphs = DistributionSummary.builder("docx.document.paragraphs").register(registry);
+            bookmarks = DistributionSummary.builder("docx.document.bookmarks").register(registry);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.myjavalab.utils;
+
+/**
+ * 当前线程正在执行的书签操作，按阶段累计耗时并统计扫描的段落数和访问的节点数，
+ * 操作结束时生成 {@link OperationReport} 并记录到 {@link DocxMetrics}
+ *
+ * <pre>
+ * try (DocxOperation operation = DocxOperation.start("insertBookmarkBefore")) {
+ *     ...
+ *     operation.success();
+ * }
+ *
+ * OperationPhase previous = DocxOperation.enterPhase(OperationPhase.INDEX);
+ * try {
+ *     ...
+ * } finally {
+ *     DocxOperation.exitPhase(previous);
+ * }
+ * </pre>
+ *
+ * 嵌套的操作（例如字节数组版本调用输入流版本、DocxUtils调用DocxSession）并入最外层的操作，只记录一次。
+ * 阶段的耗时不重叠：进入嵌套阶段时暂停外层阶段的计时，各阶段耗时之和不超过操作总耗时。
+ * 没有正在执行的操作时 enterPhase、exitPhase 和 count 什么都不做
+ */
+final class DocxOperation implements AutoCloseable {
+
+    private static final OperationPhase[] PHASES = OperationPhase.values();
+    private static final ThreadLocal<DocxOperation> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<OperationReport> LAST_REPORT = new ThreadLocal<>();
+
+    private final String name;
+    private final long startNanos;
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final boolean[] phaseEntered = new boolean[PHASES.length];
+    // 当前阶段，null表示不属于任何阶段
+    private OperationPhase phase;
+    private long phaseStartNanos;
+    // 嵌套并入本操作的层数
+    private int depth;
+    private boolean succeeded;
+    private int paragraphsScanned;
+    private int nodesVisited;
+
+    private DocxOperation(String name) {
+        this.name = name;
+        this.startNanos = System.nanoTime();
+        this.phaseStartNanos = startNanos;
+    }
+
+    /**
+     * 开始一个操作，当前线程已有操作时并入已有操作
+     * @param name 操作名称，对应公开方法名
+     */
+    static DocxOperation start(String name) {
+        DocxOperation current = CURRENT.get();
+        if (current != null) {
+            current.depth++;
+            return current;
+        }
+        DocxOperation operation = new DocxOperation(name);
+        CURRENT.set(operation);
+        return operation;
+    }
+
+    /**
+     * 当前线程正在执行的操作，没有时返回null
+     */
+    static DocxOperation current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 进入阶段
+     * @return 进入前的阶段，传给 exitPhase 恢复
+     */
+    static OperationPhase enterPhase(OperationPhase phase) {
+        DocxOperation operation = CURRENT.get();
+        if (operation == null) {
+            return null;
+        }
+        OperationPhase previous = operation.phase;
+        operation.switchPhase(phase);
+        operation.phaseEntered[phase.ordinal()] = true;
+        return previous;
+    }
+
+    /**
+     * 退出阶段，恢复进入前的阶段
+     */
+    static void exitPhase(OperationPhase previous) {
+        DocxOperation operation = CURRENT.get();
+        if (operation != null) {
+            operation.switchPhase(previous);
+        }
+    }
+
+    /**
+     * 累计扫描的段落数和访问的节点数
+     */
+    static void count(int paragraphs, int nodes) {
+        DocxOperation operation = CURRENT.get();
+        if (operation != null) {
+            operation.paragraphsScanned += paragraphs;
+            operation.nodesVisited += nodes;
+        }
+    }
+
+    /**
+     * 当前线程最近结束的操作的报告，没有时返回null
+     */
+    static OperationReport lastReport() {
+        return LAST_REPORT.get();
+    }
+
+    private void switchPhase(OperationPhase next) {
+        long now = System.nanoTime();
+        if (phase != null) {
+            phaseNanos[phase.ordinal()] += now - phaseStartNanos;
+        }
+        phase = next;
+        phaseStartNanos = now;
+    }
+
+    /**
+     * 标记操作成功完成；嵌套并入的操作不影响最外层操作的结果
+     */
+    void success() {
+        if (depth == 0) {
+            succeeded = true;
+        }
+    }
+
+    /**
+     * 标记操作成功完成并返回结果
+     */
+    <T> T success(T result) {
+        success();
+        return result;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 结束操作；没有调用 success 就结束的操作记为失败
+     */
+    @Override
+    public void close() {
+        if (depth > 0) {
+            depth--;
+            return;
+        }
+        CURRENT.remove();
+        switchPhase(null);
+        OperationReport report = new OperationReport(name, succeeded, System.nanoTime() - startNanos, phaseNanos,
+                                                     phaseEntered, paragraphsScanned, nodesVisited);
+        LAST_REPORT.set(report);
+        DocxMetrics.record(report);
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.myjavalab.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractFootnoteEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFEndnote;
+import org.apache.poi.xwpf.usermodel.XWPFFooter;
+import org.apache.poi.xwpf.usermodel.XWPFHeader;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDocument1;
+
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按部件增量保存文档：只重新序列化修改过的部件，其他部件从源压缩包中原样复制压缩数据（不解压也不重新压缩）
+ *
+ * 主文档部件总是重新序列化；页眉、页脚、脚注和尾注部件只有被标记为已修改时才重新序列化。
+ * 以下情况 write 返回false，由调用方回退为 XWPFDocument.write 完整保存（回退次数记录在 docx.fallback{path=changed-parts}，
+ * 回退原因通过 fullSaveFallback 跟踪事件输出）：
+ * <ul>
+ *     <li>调用过 markAllModified（例如通过 getDocument 直接修改了文档对象）</li>
+ *     <li>源文件在打开后被修改</li>
+ *     <li>修改过的部件不是主文档、页眉、页脚、脚注或尾注部件</li>
+ *     <li>文档中存在源压缩包里没有的部件</li>
+ * </ul>
+ */
+final class DocxPackageWriter {
+
+    private static final String W_NAMESPACE = CTDocument1.type.getName().getNamespaceURI();
+
+    private final Path sourcePath;
+    private final long sourceSize;
+    private final long sourceLastModified;
+    private final byte[] sourceContent;
+    private final Set<String> modifiedParts = new HashSet<>();
+    private boolean allModified;
+
+    private DocxPackageWriter(Path sourcePath, long sourceSize, long sourceLastModified, byte[] sourceContent) {
+        this.sourcePath = sourcePath;
+        this.sourceSize = sourceSize;
+        this.sourceLastModified = sourceLastModified;
+        this.sourceContent = sourceContent;
+    }
+
+    /**
+     * 源压缩包为文件，保存时再读取，期间文件被修改则回退为完整保存
+     */
+    static DocxPackageWriter of(Path sourcePath) throws IOException {
+        Path path = sourcePath.toAbsolutePath().normalize();
+        return new DocxPackageWriter(path, Files.size(path), Files.getLastModifiedTime(path).toMillis(), null);
+    }
+
+    /**
+     * 源压缩包在内存中
+     */
+    static DocxPackageWriter of(byte[] sourceContent) {
+        return new DocxPackageWriter(null, -1, -1, sourceContent);
+    }
+
+    /**
+     * 标记部件已修改
+     * @param partName 部件名称，例如 /word/header1.xml；null表示主文档部件（主文档部件总是重新序列化）
+     */
+    void markModified(String partName) {
+        if (partName != null) {
+            modifiedParts.add(partName);
+        }
+    }
+
+    /**
+     * 文档可能被任意修改，之后只能完整保存
+     */
+    void markAllModified() {
+        allModified = true;
+    }
+
+    /**
+     * path 是否就是源文件
+     */
+    boolean isSource(Path path) throws IOException {
+        return sourcePath != null && Files.exists(path)
+            && Files.isSameFile(sourcePath, path.toAbsolutePath().normalize());
+    }
+
+    /**
+     * 增量保存文档到输出流（不会关闭输出流）
+     * @param document 从源压缩包打开的文档
+     * @param out 输出流
+     * @return 是否已完成保存，返回false时输出流中没有写入任何内容
+     * @throws IOException
+     */
+    boolean write(XWPFDocument document, OutputStream out) throws IOException {
+        if (allModified) {
+            return false;
+        }
+        if (sourcePath != null && (Files.size(sourcePath) != sourceSize
+            || Files.getLastModifiedTime(sourcePath).toMillis() != sourceLastModified)) {
+            DocxTrace.emit("fullSaveFallback", null, 0, 0L, "源文件在打开后被修改");
+            return false;
+        }
+        Map<String, Part> parts = modifiedParts(document);
+        if (parts == null) {
+            return false;
+        }
+
+        try (ZipFile zipFile = sourcePath != null ? new ZipFile(sourcePath.toFile())
+                : new ZipFile(new SeekableInMemoryByteChannel(sourceContent))) {
+            if (!containsAllParts(document, zipFile)) {
+                return false;
+            }
+            XmlOptions options = new XmlOptions(POIXMLTypeLoader.DEFAULT_XML_OPTIONS);
+            int copied = 0;
+            try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(CloseShieldOutputStream.wrap(out))) {
+                Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+                while (entries.hasMoreElements()) {
+                    ZipArchiveEntry entry = entries.nextElement();
+                    Part part = parts.get(entry.getName());
+                    if (part != null) {
+                        zos.putArchiveEntry(new ZipArchiveEntry(entry.getName()));
+                        options.setSaveSyntheticDocumentElement(part.element);
+                        part.xml.save(zos, options);
+                        zos.closeArchiveEntry();
+                    } else {
+                        try (InputStream rawStream = zipFile.getRawInputStream(entry)) {
+                            zos.addRawArchiveEntry(entry, rawStream);
+                        }
+                        copied++;
+                    }
+                }
+            }
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("incrementalSave", null, parts.size() + copied, 0L,
+                               "rewritten=" + parts.size() + " copied=" + copied);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 需要重新序列化的部件（压缩包条目名称 -&gt; 部件），有无法单独序列化的部件时返回null
+     */
+    private Map<String, Part> modifiedParts(XWPFDocument document) {
+        Map<String, Part> candidates = new LinkedHashMap<>();
+        candidates.put(partName(document.getPackagePart()), new Part(document.getDocument(), "document"));
+        for (XWPFHeader header : document.getHeaderList()) {
+            candidates.put(partName(header.getPackagePart()), new Part(header._getHdrFtr(), "hdr"));
+        }
+        for (XWPFFooter footer : document.getFooterList()) {
+            candidates.put(partName(footer.getPackagePart()), new Part(footer._getHdrFtr(), "ftr"));
+        }
+        List<XWPFAbstractFootnoteEndnote> notes = new ArrayList<>(document.getFootnotes());
+        notes.addAll(document.getEndnotes());
+        for (XWPFAbstractFootnoteEndnote note : notes) {
+            String name = partName(note.getPart().getPackagePart());
+            if (!candidates.containsKey(name)) {
+                // 脚注和尾注部件的根元素是所有脚注的父元素
+                try (XmlCursor cursor = note.getCTFtnEdn().newCursor()) {
+                    cursor.toParent();
+                    candidates.put(name, new Part(cursor.getObject(), note instanceof XWPFEndnote ? "endnotes" : "footnotes"));
+                }
+            }
+        }
+
+        Map<String, Part> parts = new LinkedHashMap<>();
+        String mainPart = partName(document.getPackagePart());
+        parts.put(mainPart, candidates.get(mainPart));
+        for (String modifiedPart : modifiedParts) {
+            String name = modifiedPart.substring(1);
+            Part part = candidates.get(name);
+            if (part == null) {
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("fullSaveFallback", null, 0, 0L, "不支持单独保存的部件 " + modifiedPart);
+                }
+                return null;
+            }
+            parts.put(name, part);
+        }
+        return parts;
+    }
+
+    /**
+     * 文档的每个部件都能在源压缩包中找到（没有新增的部件）
+     */
+    private static boolean containsAllParts(XWPFDocument document, ZipFile zipFile) throws IOException {
+        try {
+            for (PackagePart part : document.getPackage().getParts()) {
+                if (zipFile.getEntry(partName(part)) == null) {
+                    if (DocxTrace.isEnabled()) {
+                        DocxTrace.emit("fullSaveFallback", null, 0, 0L, "源文档中没有部件 " + part.getPartName().getName());
+                    }
+                    return false;
+                }
+            }
+            return true;
+        } catch (InvalidFormatException e) {
+            throw new IOException("读取文档部件失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 部件在压缩包中的条目名称（去掉开头的 /）
+     */
+    private static String partName(PackagePart part) {
+        return part.getPartName().getName().substring(1);
+    }
+
+    /**
+     * 需要重新序列化的部件：部件的XML对象和根元素名称（与POI保存部件时相同）
+     */
+    private static class Part {
+        final XmlObject xml;
+        final QName element;
+
+        Part(XmlObject xml, String element) {
+            this.xml = xml;
+            this.element = new QName(W_NAMESPACE, element);
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 文档会话，只解析一次文档，在同一个文档对象上执行多个书签操作后统一保存
+ *
+ * <pre>
+ * try (DocxSession session = DocxSession.open("input.docx")) {
+ *     session.insertBookmarkBefore("labelA", "labelB");
+ *     session.copyBookmarkContent("labelA", "labelB");
+ *     session.save("output.docx");
+ * }
+ * </pre>
+ *
+ * 默认按部件增量保存（{@link SaveMode#CHANGED_PARTS}）：只重新序列化书签操作修改过的部件，
+ * 图片、嵌入对象等其他部件从源文档中原样复制压缩数据
+ *
+ * 会话不是线程安全的，一个会话只应在一个线程中使用
+ */
+public class DocxSession implements Closeable {
+
+    /**
+     * 保存方式
+     */
+    public enum SaveMode {
+        /**
+         * 重新序列化并压缩全部部件（XWPFDocument.write）
+         */
+        FULL,
+        /**
+         * 只重新序列化修改过的部件，其他部件原样复制；无法增量保存时自动回退为 FULL
+         */
+        CHANGED_PARTS
+    }
+
+    // 当前线程正在执行操作的会话，DocxUtils 通过它找到文档的书签索引和书签ID分配器
+    private static final ThreadLocal<DocxSession> ACTIVE = new ThreadLocal<>();
+
+    private final XWPFDocument document;
+    // 源压缩包，null表示没有源文档，只能完整保存
+    private final DocxPackageWriter packageWriter;
+    private SaveMode saveMode = SaveMode.CHANGED_PARTS;
+    private boolean closed;
+    // 书签索引和书签ID分配器，由 DocxUtils 按需创建，随会话释放
+    BookmarkIndex bookmarkIndex;
+    BookmarkIdAllocator bookmarkIdAllocator;
+    // 模板中的书签位置（从模板缓存打开时），首次建立索引时按位置绑定，不扫描段落内容
+    BookmarkIndex.Layout bookmarkLayout;
+    // 同时执行操作的外层会话（例如比较两个会话的书签时）
+    private DocxSession outer;
+
+    DocxSession(XWPFDocument document) {
+        this(document, null);
+    }
+
+    DocxSession(XWPFDocument document, DocxPackageWriter packageWriter) {
+        this.document = document;
+        this.packageWriter = packageWriter;
+        DocxMetrics.sessionOpened();
+    }
+
+    /**
+     * 打开文档文件
+     * 按随机访问方式读取压缩包，只解压解析文档时用到的部件，图片等部件在保存时才读取；
+     * 会话关闭前保持文件打开，关闭会话不会写回源文件
+     * @param inputPath 输入文档路径
+     * @return 文档会话
+     * @throws IOException
+     */
+    public static DocxSession open(String inputPath) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("open")) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.OPEN);
+            try {
+                Path path = Paths.get(inputPath);
+                DocxPackageWriter packageWriter = DocxPackageWriter.of(path);
+                DocxMetrics.documentOpened(Files.size(path));
+                OPCPackage pkg;
+                try {
+                    // 需要READ_WRITE才能完整保存到其他位置，关闭时用revert避免写回源文件
+                    pkg = OPCPackage.open(path.toFile(), PackageAccess.READ_WRITE);
+                } catch (InvalidFormatException e) {
+                    throw new IOException("打开文档失败: " + inputPath + ", " + e.getMessage(), e);
+                }
+                try {
+                    return operation.success(new DocxSession(new XWPFDocument(pkg), packageWriter));
+                } catch (IOException | RuntimeException e) {
+                    pkg.revert();
+                    throw e;
+                }
+            } finally {
+                DocxOperation.exitPhase(previous);
+            }
+        }
+    }
+
+    /**
+     * 从输入流打开文档（不会关闭输入流）
+     * 文档的压缩数据保留在内存中，用于增量保存
+     * @param inputStream 文档输入流
+     * @return 文档会话
+     * @throws IOException
+     */
+    public static DocxSession open(InputStream inputStream) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("open")) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.OPEN);
+            try {
+                byte[] content = IOUtils.toByteArray(inputStream);
+                DocxMetrics.documentOpened(content.length);
+                return operation.success(new DocxSession(new XWPFDocument(new ByteArrayInputStream(content)),
+                                                         DocxPackageWriter.of(content)));
+            } finally {
+                DocxOperation.exitPhase(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取底层文档对象
+     * 直接修改文档对象时无法跟踪修改了哪些部件，调用后会话总是完整保存，并在下次书签操作时重建书签索引
+     */
+    public XWPFDocument getDocument() {
+        if (packageWriter != null) {
+            packageWriter.markAllModified();
+        }
+        if (bookmarkIndex != null) {
+            bookmarkIndex.invalidate();
+        }
+        return document;
+    }
+
+    /**
+     * 当前线程正在执行操作的、打开了该文档的会话，没有时返回null
+     */
+    static DocxSession active(XWPFDocument document) {
+        for (DocxSession session = ACTIVE.get(); session != null; session = session.outer) {
+            if (session.document == document) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 把会话登记为当前线程正在执行操作的会话
+     * @return 是否已登记，嵌套调用时会话已经登记，返回false
+     */
+    private boolean activate() {
+        DocxSession current = ACTIVE.get();
+        for (DocxSession session = current; session != null; session = session.outer) {
+            if (session == this) {
+                return false;
+            }
+        }
+        outer = current;
+        ACTIVE.set(this);
+        return true;
+    }
+
+    private void deactivate(boolean activated) {
+        if (!activated) {
+            return;
+        }
+        if (outer != null) {
+            ACTIVE.set(outer);
+        } else {
+            ACTIVE.remove();
+        }
+        outer = null;
+    }
+
+    /**
+     * 设置保存方式，默认 {@link SaveMode#CHANGED_PARTS}
+     * @param saveMode 保存方式
+     * @return 当前会话
+     */
+    public DocxSession saveMode(SaveMode saveMode) {
+        this.saveMode = saveMode;
+        return this;
+    }
+
+    /**
+     * 在指定书签A前面插入新书签B
+     * @param bookmarkA 目标书签A的名称
+     * @param bookmarkB 要插入的书签B的名称
+     */
+    public void insertBookmarkBefore(String bookmarkA, String bookmarkB) {
+        mutate("insertBookmarkBefore", bookmarkA, () -> DocxUtils.insertBookmarkBefore(document, bookmarkA, bookmarkB));
+    }
+
+    /**
+     * 将书签A的内容复制到书签B
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     */
+    public void copyBookmarkContent(String bookmarkA, String bookmarkB) {
+        mutate("copyBookmarkContent", bookmarkB, () -> DocxUtils.copyBookmarkContent(document, bookmarkA, bookmarkB));
+    }
+
+    /**
+     * 多次复制书签内容，在书签之后创建 bookmarkName1 ~ bookmarkNameN
+     * @param bookmarkName 源书签名称
+     * @param times 复制次数
+     */
+    public void copyBookmarkContentMultipleTimes(String bookmarkName, int times) {
+        mutate("copyBookmarkContentMultipleTimes", bookmarkName, () -> DocxUtils.copyBookmarkContentMultipleTimes(document, bookmarkName, times));
+    }
+
+    /**
+     * 将书签的内容设置为文本（支持多段落书签）
+     * @param bookmarkName 书签名称
+     * @param text 新的文本内容
+     */
+    public void setBookmarkText(String bookmarkName, String text) {
+        mutate("setBookmarkText", bookmarkName, () -> DocxUtils.setBookmarkContent(document, bookmarkName, text));
+    }
+
+    /**
+     * 删除书签及其包围的内容
+     * @param bookmarkName 书签名称
+     */
+    public void deleteBookmark(String bookmarkName) {
+        mutate("deleteBookmark", bookmarkName, () -> DocxUtils.deleteBookmark(document, bookmarkName));
+    }
+
+    /**
+     * 批量执行书签操作
+     * 操作按 {@link BookmarkOpPlanner} 的规则分组排序，整个计划共用一次解析和一个书签索引
+     * @param ops 书签操作列表
+     */
+    public void apply(List<BookmarkOp> ops) {
+        try (DocxOperation operation = DocxOperation.start("apply")) {
+            for (List<BookmarkOp> group : BookmarkOpPlanner.group(ops)) {
+                for (BookmarkOp op : BookmarkOpPlanner.order(group, this::getBookmarkRange)) {
+                    apply(op);
+                }
+            }
+            operation.success();
+        }
+    }
+
+    /**
+     * 执行单个书签操作
+     * @param op 书签操作
+     */
+    public void apply(BookmarkOp op) {
+        switch (op.getType()) {
+            case INSERT_BEFORE:
+                insertBookmarkBefore(op.getBookmarkA(), op.getBookmarkB());
+                break;
+            case COPY:
+                copyBookmarkContent(op.getBookmarkA(), op.getBookmarkB());
+                break;
+            case SET_TEXT:
+                setBookmarkText(op.getBookmarkA(), op.getText());
+                break;
+            case DELETE:
+                deleteBookmark(op.getBookmarkA());
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的书签操作: " + op);
+        }
+    }
+
+    /**
+     * 获取书签的内容
+     * @param bookmarkName 书签名称
+     * @return 书签内容，如果未找到返回null
+     */
+    public String getBookmarkContent(String bookmarkName) {
+        return query("getBookmarkContent", () -> DocxUtils.getBookmarkContent(document, bookmarkName));
+    }
+
+    /**
+     * 把书签内容（已去除首尾空白）写入 out，不生成中间字符串
+     * @param bookmarkName 书签名称
+     * @param out 书签内容写入的位置，例如 StringBuilder、Writer
+     * @return 书签是否存在，不存在时不写入任何内容
+     * @throws IOException 写入 out 失败时抛出
+     */
+    public boolean writeBookmarkContent(String bookmarkName, Appendable out) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("writeBookmarkContent")) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.LOCATE);
+            boolean activated = activate();
+            try {
+                return operation.success(DocxUtils.writeBookmarkContent(document, bookmarkName, out));
+            } finally {
+                deactivate(activated);
+                DocxOperation.exitPhase(previous);
+            }
+        }
+    }
+
+    /**
+     * 获取书签在文档中的位置
+     * @param bookmarkName 书签名称
+     * @return 书签位置，如果未找到返回-1
+     */
+    public int getBookmarkPosition(String bookmarkName) {
+        return query("getBookmarkPosition", () -> DocxUtils.findBookmarkPosition(document, bookmarkName));
+    }
+
+    /**
+     * 获取书签在文档中的范围
+     * @param bookmarkName 书签名称
+     * @return 书签范围，如果未找到返回BookmarkRange(-1, -1)
+     */
+    public BookmarkRange getBookmarkRange(String bookmarkName) {
+        return query("getBookmarkRange", () -> DocxUtils.findBookmarkRange(document, bookmarkName));
+    }
+
+    /**
+     * 获取书签包含的段落数量
+     * @param bookmarkName 书签名称
+     * @return 书签包含的段落数量
+     */
+    public int getBookmarkParagraphCount(String bookmarkName) {
+        return query("getBookmarkParagraphCount", () -> DocxUtils.getBookmarkParagraphCount(document, bookmarkName));
+    }
+
+    /**
+     * 比较两个书签中对应段落的样式是否一致
+     * @param bookmarkName1 第一个书签名称
+     * @param bookmarkName2 第二个书签名称
+     * @return 样式是否一致
+     */
+    public boolean compareBookmarkParagraphStyles(String bookmarkName1, String bookmarkName2) {
+        return query("compareBookmarkParagraphStyles",
+            () -> DocxUtils.compareBookmarkParagraphStyles(document, bookmarkName1, bookmarkName2));
+    }
+
+    /**
+     * 按段落样式对书签分组，书签包含的段落数量和每个对应段落的样式都相同时属于同一组
+     * @return 包含两个及以上书签的分组，按书签在文档中出现的顺序排列
+     */
+    public List<List<String>> findBookmarksWithSameParagraphStyles() {
+        return query("findBookmarksWithSameParagraphStyles", () -> DocxUtils.findBookmarksWithSameParagraphStyles(document));
+    }
+
+    /**
+     * 把本文档作为旧文档，与另一个文档比较书签（见 {@link BookmarkDiff}）
+     * @param newSession 新文档的会话
+     * @return 书签差异
+     */
+    public BookmarkDiff diffBookmarks(DocxSession newSession) {
+        return query("diffBookmarks", () -> newSession.query("diffBookmarks",
+            () -> DocxUtils.diffBookmarks(document, newSession.document)));
+    }
+
+    /**
+     * 检查书签所在段落是否使用Word编号样式
+     * @param bookmarkName 书签名称
+     * @return 是否使用编号样式
+     */
+    public boolean isBookmarkUsingNumberingStyle(String bookmarkName) {
+        return query("isBookmarkUsingNumberingStyle", () -> DocxUtils.isParagraphUsingNumberingStyle(document, bookmarkName));
+    }
+
+    /**
+     * 一次查询多个书签的内容、范围、段落数量、编号样式和样式指纹
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到查询结果的映射，按请求的顺序排列，包含所有请求的书签（未找到的书签 isFound() 为false）
+     */
+    public Map<String, BookmarkInfo> getBookmarkInfo(Collection<String> bookmarkNames) {
+        return query("getBookmarkInfo", () -> DocxUtils.getBookmarkInfo(document, bookmarkNames));
+    }
+
+    /**
+     * 保存文档到输出流（不会关闭输出流）
+     * @param outputStream 输出流
+     * @throws IOException
+     */
+    public void save(OutputStream outputStream) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("save")) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.WRITE);
+            try {
+                if (saveMode == SaveMode.CHANGED_PARTS && packageWriter != null) {
+                    if (packageWriter.write(document, outputStream)) {
+                        operation.success();
+                        return;
+                    }
+                    DocxMetrics.fallback("changed-parts");
+                }
+                document.write(outputStream);
+            } finally {
+                DocxOperation.exitPhase(previous);
+            }
+            operation.success();
+        }
+    }
+
+    /**
+     * 保存文档到文件
+     * @param outputPath 输出文档路径（可以与打开的文档相同）
+     * @throws IOException
+     */
+    public void save(String outputPath) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("save")) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.WRITE);
+            try {
+                saveToFile(Paths.get(outputPath).toAbsolutePath());
+            } finally {
+                DocxOperation.exitPhase(previous);
+            }
+            operation.success();
+        }
+    }
+
+    private void saveToFile(Path output) throws IOException {
+        if (packageWriter == null || !packageWriter.isSource(output)) {
+            try (FileOutputStream fos = new FileOutputStream(output.toFile())) {
+                save(fos);
+            }
+            return;
+        }
+        // 增量保存需要读取源文件，先写入临时文件再替换
+        Path tempFile = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                save(out);
+            }
+            Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * 在MUTATE阶段执行修改操作，修改前标记书签所在的部件
+     */
+    private void mutate(String operationName, String modifiedBookmark, Runnable mutation) {
+        try (DocxOperation operation = DocxOperation.start(operationName)) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.MUTATE);
+            boolean activated = activate();
+            try {
+                markModified(modifiedBookmark);
+                mutation.run();
+            } finally {
+                deactivate(activated);
+                DocxOperation.exitPhase(previous);
+            }
+            operation.success();
+        }
+    }
+
+    /**
+     * 在LOCATE阶段执行只读查询
+     */
+    private <T> T query(String operationName, Supplier<T> query) {
+        try (DocxOperation operation = DocxOperation.start(operationName)) {
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.LOCATE);
+            boolean activated = activate();
+            try {
+                return operation.success(query.get());
+            } finally {
+                deactivate(activated);
+                DocxOperation.exitPhase(previous);
+            }
+        }
+    }
+
+    /**
+     * 标记书签所在的部件已修改（在修改之前调用，书签被删除后就找不到所在部件了）
+     */
+    private void markModified(String bookmarkName) {
+        if (packageWriter != null) {
+            packageWriter.markModified(DocxUtils.findBookmarkPartName(document, bookmarkName));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        bookmarkIndex = null;
+        bookmarkIdAllocator = null;
+        DocxMetrics.sessionClosed();
+        // 会话只通过save保存；XWPFDocument.close会把从文件打开的文档写回源文件
+        document.getPackage().revert();
+    }
+}
@@ -0,0 +1,350 @@
+package com.example.myjavalab.utils;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.poi.ooxml.POIXMLTypeLoader;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFSDT;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBody;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDocument1;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTP;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSdtBlock;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTSectPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTTbl;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 模板缓存，模板文档只解析一次，每次请求得到一个独立可修改的文档会话
+ *
+ * <pre>
+ * DocxTemplateCache cache = new DocxTemplateCache(32, 256L * 1024 * 1024);
+ * try (DocxSession session = cache.open("templates/contract.docx")) {
+ *     session.setBookmarkText("customerName", "张三");
+ *     session.save(response.getOutputStream());
+ * }
+ * </pre>
+ *
+ * 缓存项保存解析好的主文档XML对象、书签位置，以及正文被清空的“骨架”压缩包。
+ * 打开会话时先加载骨架（样式、编号、图片等部件照常读取，正文为空，解析开销很小），
+ * 再把主文档XML对象整体复制到新文档中，省去正文的XML解析；会话首次查找书签时按模板的书签位置
+ * 直接建立书签索引，不再扫描段落内容。
+ * 缓存按最近使用顺序淘汰，同时限制模板数量和缓存项的总字节数。缓存项的字节数按骨架压缩包大小
+ * 加主文档XML的未压缩大小计算；解析后的XML对象实际占用的堆内存通常是XML大小的数倍，设置上限时需要留出余量。
+ * 模板文件修改时间变化后自动重新加载。缓存是线程安全的，返回的会话归调用方所有
+ */
+public class DocxTemplateCache {
+
+    private final int maxTemplates;
+    private final long maxBytes;
+    // 按访问顺序排列，第一个为最久未使用的模板
+    private final LinkedHashMap<Path, Template> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param maxTemplates 最多缓存的模板数量
+     * @param maxBytes 缓存项的总字节数上限（骨架压缩包大小加主文档XML的未压缩大小）
+     */
+    public DocxTemplateCache(int maxTemplates, long maxBytes) {
+        if (maxTemplates < 1) {
+            throw new IllegalArgumentException("模板数量上限必须大于0: " + maxTemplates);
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("模板总字节数上限必须大于0: " + maxBytes);
+        }
+        this.maxTemplates = maxTemplates;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 用缓存的模板打开一个新的文档会话，模板未缓存或已修改时先加载模板
+     * @param templatePath 模板文档路径
+     * @return 独立的文档会话，修改不会影响模板和其他会话；增量保存时从骨架中复制正文以外的部件
+     * @throws IOException 读取模板失败时抛出
+     */
+    public DocxSession open(String templatePath) throws IOException {
+        Template template = template(Paths.get(templatePath));
+        DocxSession session = new DocxSession(template.newDocument(), DocxPackageWriter.of(template.skeleton));
+        session.bookmarkLayout = template.bookmarkLayout;
+        return session;
+    }
+
+    /**
+     * 获取模板中书签的范围，直接使用加载模板时记录的书签范围，不创建文档
+     * @param templatePath 模板文档路径
+     * @param bookmarkName 书签名称
+     * @return 书签范围，如果未找到返回BookmarkRange(-1, -1)
+     * @throws IOException 读取模板失败时抛出
+     */
+    public BookmarkRange getBookmarkRange(String templatePath, String bookmarkName) throws IOException {
+        BookmarkRange range = template(Paths.get(templatePath)).bookmarkRanges.get(bookmarkName);
+        return range != null ? range : new BookmarkRange(-1, -1);
+    }
+
+    /**
+     * 获取模板中的全部书签名称
+     * @param templatePath 模板文档路径
+     * @return 书签名称集合（只读）
+     * @throws IOException 读取模板失败时抛出
+     */
+    public Set<String> getBookmarkNames(String templatePath) throws IOException {
+        return Collections.unmodifiableSet(template(Paths.get(templatePath)).bookmarkRanges.keySet());
+    }
+
+    /**
+     * 移除缓存的模板
+     * @param templatePath 模板文档路径
+     */
+    public synchronized void invalidate(String templatePath) {
+        Template removed = templates.remove(key(Paths.get(templatePath)));
+        if (removed != null) {
+            totalBytes -= removed.size;
+        }
+    }
+
+    public synchronized void clear() {
+        templates.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    private Template template(Path templatePath) throws IOException {
+        Path key = key(templatePath);
+        long lastModified = Files.getLastModifiedTime(key).toMillis();
+        synchronized (this) {
+            Template template = templates.get(key);
+            if (template != null && template.lastModified == lastModified) {
+                hits++;
+                return template;
+            }
+            misses++;
+        }
+
+        // 解析放在锁外，不阻塞其他模板的请求；同一模板并发加载时以后放入的为准
+        Template template = Template.load(key, lastModified);
+        int cachedTemplates;
+        synchronized (this) {
+            Template previous = templates.put(key, template);
+            if (previous != null) {
+                totalBytes -= previous.size;
+            }
+            totalBytes += template.size;
+            evict();
+            cachedTemplates = templates.size();
+        }
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("templateLoaded", null, 0, 0L,
+                           key + " bytes=" + template.size + " cachedTemplates=" + cachedTemplates);
+        }
+        return template;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Path, Template>> iterator = templates.entrySet().iterator();
+        // 至少保留刚加载的模板
+        while ((templates.size() > maxTemplates || totalBytes > maxBytes) && templates.size() > 1) {
+            Map.Entry<Path, Template> eldest = iterator.next();
+            totalBytes -= eldest.getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private static Path key(Path templatePath) {
+        return templatePath.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 缓存的模板，创建后只读
+     */
+    private static class Template {
+        final long lastModified;
+        // 骨架压缩包大小加主文档XML的未压缩大小
+        final long size;
+        // 正文只保留节属性的压缩包
+        final byte[] skeleton;
+        final CTDocument1 document;
+        final Map<String, BookmarkRange> bookmarkRanges;
+        // 书签位置，模板中有无法按位置描述的书签标记时为null（会话按正常方式建立索引）
+        final BookmarkIndex.Layout bookmarkLayout;
+
+        private Template(long lastModified, long size, byte[] skeleton, CTDocument1 document,
+                         Map<String, BookmarkRange> bookmarkRanges, BookmarkIndex.Layout bookmarkLayout) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.skeleton = skeleton;
+            this.document = document;
+            this.bookmarkRanges = bookmarkRanges;
+            this.bookmarkLayout = bookmarkLayout;
+        }
+
+        static Template load(Path path, long lastModified) throws IOException {
+            byte[] content = Files.readAllBytes(path);
+            try (XWPFDocument master = new XWPFDocument(new ByteArrayInputStream(content))) {
+                CTDocument1 document = (CTDocument1) master.getDocument().copy();
+                // 只保存书签范围和位置，不持有模板文档的DOM节点
+                BookmarkIndex index = BookmarkIndex.build(master);
+                Map<String, BookmarkRange> bookmarkRanges = new HashMap<>();
+                for (BookmarkIndex.Entry entry : index.getEntries().values()) {
+                    bookmarkRanges.put(entry.getName(), entry.getRange());
+                }
+                byte[] skeleton = skeleton(content, document);
+                return new Template(lastModified, skeleton.length + documentXmlSize(content), skeleton, document,
+                                    bookmarkRanges, index.layout());
+            }
+        }
+
+        /**
+         * 主文档XML的未压缩字节数
+         */
+        private static long documentXmlSize(byte[] content) throws IOException {
+            try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content))) {
+                BookmarkStreamReader.findMainDocumentPart(zipInputStream);
+                return IOUtils.consume(zipInputStream);
+            }
+        }
+
+        /**
+         * 生成骨架压缩包：主文档部件替换为只包含节属性的正文，其他部件原样保留
+         */
+        private static byte[] skeleton(byte[] content, CTDocument1 document) throws IOException {
+            CTDocument1 emptyDocument = (CTDocument1) document.copy();
+            CTSectPr sectPr = emptyDocument.getBody() != null && emptyDocument.getBody().isSetSectPr()
+                ? (CTSectPr) emptyDocument.getBody().getSectPr().copy() : null;
+            CTBody body = CTBody.Factory.newInstance();
+            if (sectPr != null) {
+                body.setSectPr(sectPr);
+            }
+            emptyDocument.setBody(body);
+
+            XmlOptions options = new XmlOptions(POIXMLTypeLoader.DEFAULT_XML_OPTIONS);
+            options.setSaveSyntheticDocumentElement(new QName(CTDocument1.type.getName().getNamespaceURI(), "document"));
+
+            String documentPart;
+            try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content))) {
+                documentPart = BookmarkStreamReader.findMainDocumentPart(zipInputStream).getName();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+            try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(content));
+                 ZipOutputStream zos = new ZipOutputStream(out)) {
+                ZipEntry entry;
+                byte[] buffer = new byte[8192];
+                while ((entry = zipInputStream.getNextEntry()) != null) {
+                    zos.putNextEntry(new ZipEntry(entry.getName()));
+                    if (entry.getName().equals(documentPart)) {
+                        emptyDocument.save(zos, options);
+                    } else {
+                        int read;
+                        while ((read = zipInputStream.read(buffer)) != -1) {
+                            zos.write(buffer, 0, read);
+                        }
+                    }
+                    zos.closeEntry();
+                }
+            }
+            return out.toByteArray();
+        }
+
+        XWPFDocument newDocument() throws IOException {
+            OPCPackage pkg;
+            try {
+                pkg = OPCPackage.open(new ByteArrayInputStream(skeleton));
+            } catch (InvalidFormatException e) {
+                throw new IOException("打开模板骨架失败: " + e.getMessage(), e);
+            }
+            SOURCE.set(document);
+            try {
+                return new TemplateDocument(pkg);
+            } finally {
+                SOURCE.remove();
+            }
+        }
+    }
+
+    // 父类构造方法中就会调用onDocumentRead，只能通过线程变量传入模板正文
+    private static final ThreadLocal<CTDocument1> SOURCE = new ThreadLocal<>();
+
+    /**
+     * 从骨架加载后，用模板正文的副本替换空正文，并按正文重新建立段落、表格和内容控件列表
+     * （与XWPFDocument.onDocumentRead中遍历正文的方式相同）
+     */
+    private static class TemplateDocument extends XWPFDocument {
+
+        TemplateDocument(OPCPackage pkg) throws IOException {
+            super(pkg);
+        }
+
+        @Override
+        protected void onDocumentRead() throws IOException {
+            super.onDocumentRead();
+            CTDocument1 source = SOURCE.get();
+            if (source == null) {
+                return;
+            }
+            // 模板对象只读，多个线程可以同时从中复制
+            getDocument().set(source);
+
+            bodyElements.clear();
+            paragraphs.clear();
+            tables.clear();
+            contentControls.clear();
+            try (XmlCursor cursor = getDocument().getBody().newCursor()) {
+                cursor.selectPath("./*");
+                while (cursor.toNextSelection()) {
+                    XmlObject object = cursor.getObject();
+                    IBodyElement element;
+                    if (object instanceof CTP) {
+                        XWPFParagraph paragraph = new XWPFParagraph((CTP) object, this);
+                        paragraphs.add(paragraph);
+                        element = paragraph;
+                    } else if (object instanceof CTTbl) {
+                        XWPFTable table = new XWPFTable((CTTbl) object, this);
+                        tables.add(table);
+                        element = table;
+                    } else if (object instanceof CTSdtBlock) {
+                        XWPFSDT contentControl = new XWPFSDT((CTSdtBlock) object, this);
+                        contentControls.add(contentControl);
+                        element = contentControl;
+                    } else {
+                        continue;
+                    }
+                    bodyElements.add(element);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.util.Units;
+import org.apache.poi.xwpf.usermodel.Document;
+import org.apache.poi.xwpf.usermodel.XWPFAbstractNum;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFNumbering;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.apache.poi.xwpf.usermodel.XWPFTableCell;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTAbstractNum;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTLvl;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTNumPr;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.STNumberFormat;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * 测试文档创建器，按配置生成包含书签、表格、编号和图片的docx文档
+ *
+ * <pre>
+ * new DocxTestDocumentCreator(42)
+ *     .paragraphs(10000)
+ *     .bookmarks(20)
+ *     .bookmarkParagraphs(1, 6)
+ *     .nestedBookmarks(true)
+ *     .tableEvery(200)
+ *     .imageEvery(500)
+ *     .create(Paths.get("large.docx"));
+ * </pre>
+ *
+ * 相同的种子和配置生成相同的文档内容。第一个书签命名为labelA，其余依次为bookmark1、bookmark2…；
+ * 开启嵌套时，每个书签的第一个段落中还包含一个名为"书签名_inner"的单段落书签
+ */
+public class DocxTestDocumentCreator {
+
+    public static final String FIRST_BOOKMARK_NAME = "labelA";
+    public static final String BOOKMARK_NAME_PREFIX = "bookmark";
+    public static final String NESTED_BOOKMARK_SUFFIX = "_inner";
+
+    private static final String[] WORDS = {
+        "项目", "背景", "目标", "需求", "方案", "设计", "实现", "测试", "部署", "运维",
+        "数据", "接口", "服务", "模块", "性能", "安全", "文档", "流程", "规范", "评审",
+        "系统", "用户", "配置", "版本", "发布", "监控", "日志", "缓存", "存储", "网络"
+    };
+    // 生成文档的创建时间固定，保证相同种子生成相同的内容
+    private static final Date CREATED = new Date(0);
+    private static final int IMAGE_SIZE = 32;
+
+    private final long seed;
+    private int paragraphs = 100;
+    private int bookmarks = 1;
+    private int minBookmarkParagraphs = 1;
+    private int maxBookmarkParagraphs = 1;
+    private boolean nestedBookmarks;
+    private boolean numbering = true;
+    private int tableEvery;
+    private int tableRows = 3;
+    private int tableColumns = 3;
+    private int imageEvery;
+
+    /**
+     * @param seed 随机种子
+     */
+    public DocxTestDocumentCreator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * 正文段落数（不包含表格中的段落），默认100
+     */
+    public DocxTestDocumentCreator paragraphs(int paragraphs) {
+        if (paragraphs < 1) {
+            throw new IllegalArgumentException("段落数必须大于0: " + paragraphs);
+        }
+        this.paragraphs = paragraphs;
+        return this;
+    }
+
+    /**
+     * 书签数量，书签均匀分布在正文中且互不重叠，默认1
+     */
+    public DocxTestDocumentCreator bookmarks(int bookmarks) {
+        if (bookmarks < 0) {
+            throw new IllegalArgumentException("书签数量不能为负数: " + bookmarks);
+        }
+        this.bookmarks = bookmarks;
+        return this;
+    }
+
+    /**
+     * 每个书签包含的段落数范围，默认单段落书签
+     */
+    public DocxTestDocumentCreator bookmarkParagraphs(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("书签段落数范围无效: " + min + " - " + max);
+        }
+        this.minBookmarkParagraphs = min;
+        this.maxBookmarkParagraphs = max;
+        return this;
+    }
+
+    /**
+     * 是否在每个书签中嵌套一个单段落书签，默认不嵌套
+     */
+    public DocxTestDocumentCreator nestedBookmarks(boolean nestedBookmarks) {
+        this.nestedBookmarks = nestedBookmarks;
+        return this;
+    }
+
+    /**
+     * 书签中的段落是否使用Word编号样式，默认使用
+     */
+    public DocxTestDocumentCreator numbering(boolean numbering) {
+        this.numbering = numbering;
+        return this;
+    }
+
+    /**
+     * 每隔多少个段落插入一个表格，0表示不插入，默认0
+     */
+    public DocxTestDocumentCreator tableEvery(int tableEvery) {
+        if (tableEvery < 0) {
+            throw new IllegalArgumentException("表格间隔不能为负数: " + tableEvery);
+        }
+        this.tableEvery = tableEvery;
+        return this;
+    }
+
+    /**
+     * 表格的行数和列数，默认3x3
+     */
+    public DocxTestDocumentCreator tableSize(int rows, int columns) {
+        if (rows < 1 || columns < 1) {
+            throw new IllegalArgumentException("表格行列数必须大于0: " + rows + "x" + columns);
+        }
+        this.tableRows = rows;
+        this.tableColumns = columns;
+        return this;
+    }
+
+    /**
+     * 每隔多少个段落嵌入一张图片，0表示不嵌入，默认0
+     */
+    public DocxTestDocumentCreator imageEvery(int imageEvery) {
+        if (imageEvery < 0) {
+            throw new IllegalArgumentException("图片间隔不能为负数: " + imageEvery);
+        }
+        this.imageEvery = imageEvery;
+        return this;
+    }
+
+    /**
+     * 获取第index个书签的名称
+     */
+    public static String bookmarkName(int index) {
+        return index == 0 ? FIRST_BOOKMARK_NAME : BOOKMARK_NAME_PREFIX + index;
+    }
+
+    /**
+     * 生成文档并写入文件
+     * @param outputPath 输出文件路径，父目录不存在时自动创建
+     * @return 输出文件路径
+     * @throws IOException 写入文件失败时抛出
+     */
+    public Path create(Path outputPath) throws IOException {
+        Path parent = outputPath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileOutputStream fos = new FileOutputStream(outputPath.toFile())) {
+            create(fos);
+        }
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("testDocumentCreated", null, 0, 0L,
+                           outputPath + " paragraphs=" + paragraphs + " bookmarks=" + bookmarks);
+        }
+        return outputPath;
+    }
+
+    /**
+     * 生成文档并写入输出流，不关闭输出流
+     * @param out 输出流
+     * @throws IOException 写入失败时抛出
+     */
+    public void create(OutputStream out) throws IOException {
+        Random random = new Random(seed);
+        List<int[]> bookmarkRanges = layoutBookmarks(random);
+
+        try (XWPFDocument document = new XWPFDocument()) {
+            document.getProperties().getCoreProperties().setCreated(Optional.of(CREATED));
+            BigInteger numId = numbering ? createNumbering(document) : null;
+            byte[] image = imageEvery > 0 ? createImage(random) : null;
+
+            int nextBookmark = 0;
+            BigInteger nextBookmarkId = BigInteger.ZERO;
+            // 书签互不重叠，同一时刻最多只有一个未结束的书签
+            BigInteger openBookmarkId = null;
+            for (int i = 0; i < paragraphs; i++) {
+                XWPFParagraph paragraph = document.createParagraph();
+                boolean bookmarkFirst = nextBookmark < bookmarkRanges.size() && bookmarkRanges.get(nextBookmark)[0] == i;
+                boolean inBookmark = bookmarkFirst || openBookmarkId != null;
+
+                if (inBookmark && numId != null) {
+                    CTNumPr numPr = paragraph.getCTP().addNewPPr().addNewNumPr();
+                    numPr.addNewIlvl().setVal(BigInteger.ZERO);
+                    numPr.addNewNumId().setVal(numId);
+                }
+                if (bookmarkFirst) {
+                    addBookmarkStart(paragraph, nextBookmarkId, bookmarkName(nextBookmark));
+                    openBookmarkId = nextBookmarkId;
+                    nextBookmarkId = nextBookmarkId.add(BigInteger.ONE);
+                }
+
+                paragraph.createRun().setText(sentence(random, i));
+                if (bookmarkFirst && nestedBookmarks) {
+                    // 嵌套书签只包含一个文本片段，结束在外层书签之前
+                    addBookmarkStart(paragraph, nextBookmarkId, bookmarkName(nextBookmark) + NESTED_BOOKMARK_SUFFIX);
+                    paragraph.createRun().setText(sentence(random, i));
+                    paragraph.getCTP().addNewBookmarkEnd().setId(nextBookmarkId);
+                    nextBookmarkId = nextBookmarkId.add(BigInteger.ONE);
+                }
+                if (image != null && (i + 1) % imageEvery == 0) {
+                    addImage(paragraph, image, i);
+                }
+
+                if (openBookmarkId != null && bookmarkRanges.get(nextBookmark)[1] == i) {
+                    paragraph.getCTP().addNewBookmarkEnd().setId(openBookmarkId);
+                    openBookmarkId = null;
+                    nextBookmark++;
+                }
+
+                // 表格只插在书签之外，书签范围内的段落保持连续
+                if (tableEvery > 0 && (i + 1) % tableEvery == 0 && openBookmarkId == null) {
+                    addTable(document, random);
+                }
+            }
+
+            document.write(out);
+        }
+    }
+
+    /**
+     * 计算每个书签的起止段落，把正文平均分成若干区间，每个区间内随机放置一个书签
+     */
+    private List<int[]> layoutBookmarks(Random random) {
+        List<int[]> ranges = new ArrayList<>(bookmarks);
+        if (bookmarks == 0) {
+            return ranges;
+        }
+        int slot = paragraphs / bookmarks;
+        if (slot < maxBookmarkParagraphs) {
+            throw new IllegalArgumentException("段落数不足以放置 " + bookmarks + " 个书签: 每个书签最多 "
+                + maxBookmarkParagraphs + " 个段落，共 " + paragraphs + " 个段落");
+        }
+        for (int i = 0; i < bookmarks; i++) {
+            int length = minBookmarkParagraphs + random.nextInt(maxBookmarkParagraphs - minBookmarkParagraphs + 1);
+            int start = i * slot + random.nextInt(slot - length + 1);
+            ranges.add(new int[]{start, start + length - 1});
+        }
+        return ranges;
+    }
+
+    private static void addBookmarkStart(XWPFParagraph paragraph, BigInteger id, String name) {
+        CTBookmark bookmarkStart = paragraph.getCTP().addNewBookmarkStart();
+        bookmarkStart.setId(id);
+        bookmarkStart.setName(name);
+    }
+
+    private static String sentence(Random random, int paragraphIndex) {
+        int wordCount = 5 + random.nextInt(20);
+        StringBuilder builder = new StringBuilder();
+        builder.append(paragraphIndex + 1).append(". ");
+        for (int i = 0; i < wordCount; i++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.append('。').toString();
+    }
+
+    /**
+     * 创建单级十进制编号定义，返回编号ID
+     */
+    private static BigInteger createNumbering(XWPFDocument document) {
+        CTAbstractNum abstractNum = CTAbstractNum.Factory.newInstance();
+        abstractNum.setAbstractNumId(BigInteger.ZERO);
+        CTLvl level = abstractNum.addNewLvl();
+        level.setIlvl(BigInteger.ZERO);
+        level.addNewStart().setVal(BigInteger.ONE);
+        level.addNewNumFmt().setVal(STNumberFormat.DECIMAL);
+        level.addNewLvlText().setVal("%1.");
+
+        XWPFNumbering numbering = document.createNumbering();
+        BigInteger abstractNumId = numbering.addAbstractNum(new XWPFAbstractNum(abstractNum, numbering));
+        return numbering.addNum(abstractNumId);
+    }
+
+    private byte[] createImage(Random random) throws IOException {
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillRect(0, 0, IMAGE_SIZE, IMAGE_SIZE);
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillOval(IMAGE_SIZE / 4, IMAGE_SIZE / 4, IMAGE_SIZE / 2, IMAGE_SIZE / 2);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void addImage(XWPFParagraph paragraph, byte[] image, int paragraphIndex) throws IOException {
+        try {
+            paragraph.createRun().addPicture(new ByteArrayInputStream(image), Document.PICTURE_TYPE_PNG,
+                "image" + paragraphIndex + ".png", Units.toEMU(IMAGE_SIZE), Units.toEMU(IMAGE_SIZE));
+        } catch (InvalidFormatException e) {
+            throw new IOException("嵌入图片失败", e);
+        }
+    }
+
+    private void addTable(XWPFDocument document, Random random) {
+        XWPFTable table = document.createTable(tableRows, tableColumns);
+        for (int row = 0; row < tableRows; row++) {
+            for (int column = 0; column < tableColumns; column++) {
+                XWPFTableCell cell = table.getRow(row).getCell(column);
+                cell.setText(WORDS[random.nextInt(WORDS.length)]);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.myjavalab.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 书签操作的跟踪入口，代替查找循环中逐个节点的控制台输出
+ *
+ * <pre>
+ * DocxTrace.setListener(event -&gt; log.info("{}", event));   // 自定义监听器
+ * DocxTrace.setListener(new Slf4jDocxTraceListener());    // 输出到SLF4J（DEBUG级别）
+ * DocxTrace.setListener(null);                            // 关闭跟踪
+ * </pre>
+ *
+ * 没有安装监听器时，每个跟踪点只读取一次 volatile 字段：不计时、不创建事件对象、不拼接字符串、不加锁。
+ * 调用方需要拼接附加说明时先检查 {@link #isEnabled()}
+ */
+public final class DocxTrace {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocxTrace.class);
+
+    private static volatile DocxTraceListener listener;
+    // 监听器失败只记录一次日志，避免每个跟踪点都输出
+    private static final AtomicBoolean LISTENER_FAILURE_LOGGED = new AtomicBoolean();
+
+    private DocxTrace() {
+    }
+
+    /**
+     * 安装跟踪监听器，传入null关闭跟踪
+     * @param listener 跟踪监听器
+     */
+    public static void setListener(DocxTraceListener listener) {
+        DocxTrace.listener = listener;
+    }
+
+    /**
+     * 获取当前的跟踪监听器，没有时返回null
+     */
+    public static DocxTraceListener getListener() {
+        return listener;
+    }
+
+    /**
+     * 是否安装了跟踪监听器
+     */
+    public static boolean isEnabled() {
+        return listener != null;
+    }
+
+    /**
+     * 跟踪开启时返回当前时间，否则返回0，作为 emit 的 startNanos
+     */
+    static long startNanos() {
+        return listener != null ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 发送跟踪事件，没有安装监听器时什么都不做
+     * @param event 事件名称
+     * @param bookmark 相关的书签名称，没有时为null
+     * @param visitedNodes 访问的节点数
+     * @param startNanos startNanos() 的返回值，为0时不计算耗时
+     * @param detail 附加说明，没有时为null
+     */
+    static void emit(String event, String bookmark, int visitedNodes, long startNanos, String detail) {
+        DocxTraceListener current = listener;
+        if (current == null) {
+            return;
+        }
+        long durationNanos = startNanos != 0L ? System.nanoTime() - startNanos : 0L;
+        DocxOperation operation = DocxOperation.current();
+        try {
+            current.onEvent(new DocxTraceEvent(event, operation != null ? operation.getName() : null, bookmark,
+                                               visitedNodes, durationNanos, detail));
+        } catch (RuntimeException e) {
+            // 跟踪失败不影响书签操作
+            if (LISTENER_FAILURE_LOGGED.compareAndSet(false, true)) {
+                LOGGER.warn("跟踪监听器处理事件失败，之后的失败不再记录: {}", event, e);
+            }
+        }
+    }
+
+    static void emit(String event, String bookmark, int visitedNodes, long startNanos) {
+        emit(event, bookmark, visitedNodes, startNanos, null);
+    }
+}
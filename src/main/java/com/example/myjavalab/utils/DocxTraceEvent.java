@@ -0,0 +1,83 @@
+package com.example.myjavalab.utils;
+
+/**
+ * 书签操作的跟踪事件，只在安装了 {@link DocxTraceListener} 时创建
+ */
+public class DocxTraceEvent {
+
+    private final String event;
+    private final String operation;
+    private final String bookmark;
+    private final int visitedNodes;
+    private final long durationNanos;
+    private final String detail;
+
+    DocxTraceEvent(String event, String operation, String bookmark, int visitedNodes, long durationNanos,
+                   String detail) {
+        this.event = event;
+        this.operation = operation;
+        this.bookmark = bookmark;
+        this.visitedNodes = visitedNodes;
+        this.durationNanos = durationNanos;
+        this.detail = detail;
+    }
+
+    /**
+     * 事件名称，例如 buildIndex、locateBookmark、findBookmarkEnd、compareStyles
+     */
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * 事件所属的公开操作（DocxUtils方法名），不在操作中时为null
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * 相关的书签名称，没有时为null
+     */
+    public String getBookmark() {
+        return bookmark;
+    }
+
+    /**
+     * 访问的DOM节点数（或段落数），没有统计时为0
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * 耗时（纳秒），没有计时为0
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * 附加说明，没有时为null
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("event=").append(event);
+        if (operation != null) {
+            sb.append(" operation=").append(operation);
+        }
+        if (bookmark != null) {
+            sb.append(" bookmark=").append(bookmark);
+        }
+        sb.append(" visitedNodes=").append(visitedNodes);
+        sb.append(" durationMicros=").append(durationNanos / 1_000);
+        if (detail != null) {
+            sb.append(" detail=\"").append(detail).append('"');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.myjavalab.utils;
+
+/**
+ * 书签操作的跟踪监听器，通过 {@link DocxTrace#setListener(DocxTraceListener)} 安装
+ *
+ * 监听器在执行操作的线程上同步调用，实现应该尽快返回；多个线程可能同时调用同一个监听器
+ */
+@FunctionalInterface
+public interface DocxTraceListener {
+
+    /**
+     * 接收一个跟踪事件
+     * @param event 跟踪事件
+     */
+    void onEvent(DocxTraceEvent event);
+}
@@ -2,6 +2,7 @@ package com.example.myjavalab.utils;
 
 import org.apache.poi.xwpf.usermodel.*;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.util.IOUtils;
 import org.apache.xmlbeans.XmlException;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
 import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDecimalNumber;
@@ -16,13 +17,16 @@ import org.w3c.dom.NodeList;
 import java.io.*;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 
 public class DocxUtils {
 
-    // 书签ID计数器，确保每个书签有唯一ID
-    private static long bookmarkIdCounter = 1000;
-    
     /**
      * 段落内容类，用于保存段落的结构信息
      */
@@ -55,25 +59,69 @@ public class DocxUtils {
     public static void insertBookmarkBefore(String inputPath, String outputPath, 
                                           String bookmarkA, String bookmarkB) 
                                           throws IOException, InvalidFormatException, XmlException {
-        
-        try (FileInputStream fis = new FileInputStream(inputPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            
-            // 检查书签A是否存在
-            if (findBookmarkPosition(document, bookmarkA) == -1) {
-                throw new IllegalArgumentException("书签 " + bookmarkA + " 未找到");
+        try (DocxOperation operation = DocxOperation.start("insertBookmarkBefore")) {
+            try (DocxSession session = DocxSession.open(inputPath)) {
+                session.insertBookmarkBefore(bookmarkA, bookmarkB);
+                session.save(outputPath);
             }
-            
-            // 在书签A前面插入书签B（使用改进的方法）
-            insertBookmarkBeforeTargetBookmark(document, bookmarkA, bookmarkB);
-            
-            // 保存文档
-            try (FileOutputStream fos = new FileOutputStream(outputPath)) {
-                document.write(fos);
+            operation.success();
+        }
+    }
+
+    /**
+     * 在指定书签A前面插入新书签B，从输入流读取文档并写入输出流（不会关闭两个流）
+     * @param inputStream 输入文档流
+     * @param outputStream 输出文档流
+     * @param bookmarkA 目标书签A的名称
+     * @param bookmarkB 要插入的书签B的名称
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static void insertBookmarkBefore(InputStream inputStream, OutputStream outputStream,
+                                          String bookmarkA, String bookmarkB)
+                                          throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("insertBookmarkBefore")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                session.insertBookmarkBefore(bookmarkA, bookmarkB);
+                session.save(outputStream);
             }
+            operation.success();
         }
     }
 
+    /**
+     * 在指定书签A前面插入新书签B，输入和输出都是内存中的文档内容
+     * @param document 输入文档内容
+     * @param bookmarkA 目标书签A的名称
+     * @param bookmarkB 要插入的书签B的名称
+     * @return 输出文档内容
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static byte[] insertBookmarkBefore(byte[] document, String bookmarkA, String bookmarkB)
+                                            throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("insertBookmarkBefore")) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(document.length);
+            insertBookmarkBefore(new ByteArrayInputStream(document), outputStream, bookmarkA, bookmarkB);
+            return operation.success(outputStream.toByteArray());
+        }
+    }
+    
+    /**
+     * 在已打开的文档中，于书签A前面插入新书签B
+     */
+    static void insertBookmarkBefore(XWPFDocument document, String bookmarkA, String bookmarkB) {
+        // 检查书签A是否存在
+        if (findBookmarkPosition(document, bookmarkA) == -1) {
+            throw new IllegalArgumentException("书签 " + bookmarkA + " 未找到");
+        }
+        
+        // 在书签A前面插入书签B（使用改进的方法）
+        insertBookmarkBeforeTargetBookmark(document, bookmarkA, bookmarkB);
+    }
+
     
     /**
      * 将书签A的内容复制到书签B
@@ -88,242 +136,625 @@ public class DocxUtils {
     public static void copyBookmarkContent(String inputPath, String outputPath,
                                         String bookmarkA, String bookmarkB)
                                         throws IOException, InvalidFormatException, XmlException {
-        
-        try (FileInputStream fis = new FileInputStream(inputPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            
-            // 获取书签A的段落内容（支持多段落书签）
-            List<ParagraphContent> paragraphContentsA = getBookmarkParagraphContent(document, bookmarkA);
-            if (paragraphContentsA.isEmpty()) {
-                throw new IllegalArgumentException("书签 " + bookmarkA + " 未找到或内容为空");
-            }
-            
-            // 设置书签B的内容，保持段落结构
-            setBookmarkContentFromParagraphContent(document, bookmarkB, paragraphContentsA);
-            
-            // 保存文档
-            try (FileOutputStream fos = new FileOutputStream(outputPath)) {
-                document.write(fos);
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContent")) {
+            try (DocxSession session = DocxSession.open(inputPath)) {
+                session.copyBookmarkContent(bookmarkA, bookmarkB);
+                session.save(outputPath);
             }
+            operation.success();
         }
     }
-    
-    
+
     /**
-     * 查找书签在文档中的位置
+     * 将书签A的内容复制到书签B，从输入流读取文档并写入输出流（不会关闭两个流）
+     * @param inputStream 输入文档流
+     * @param outputStream 输出文档流
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
      */
-    private static int findBookmarkPosition(XWPFDocument document, String bookmarkName) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (int i = 0; i < paragraphs.size(); i++) {
-            XWPFParagraph paragraph = paragraphs.get(i);
-            if (containsBookmark(paragraph, bookmarkName)) {
-                return i;
+    public static void copyBookmarkContent(InputStream inputStream, OutputStream outputStream,
+                                        String bookmarkA, String bookmarkB)
+                                        throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContent")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                session.copyBookmarkContent(bookmarkA, bookmarkB);
+                session.save(outputStream);
             }
+            operation.success();
+        }
+    }
+
+    /**
+     * 将书签A的内容复制到书签B，输入和输出都是内存中的文档内容
+     * @param document 输入文档内容
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @return 输出文档内容
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static byte[] copyBookmarkContent(byte[] document, String bookmarkA, String bookmarkB)
+                                          throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContent")) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(document.length);
+            copyBookmarkContent(new ByteArrayInputStream(document), outputStream, bookmarkA, bookmarkB);
+            return operation.success(outputStream.toByteArray());
         }
-        return -1;
     }
     
     /**
-     * 查找书签在文档中的范围
-     * 支持单段落和多段落书签
+     * 将书签A的内容复制到书签B（流式实现，适用于超大文档）
+     * 两遍扫描word/document.xml，不构建DOM，内存占用取决于书签A的内容大小；
+     * 结果与 {@link #copyBookmarkContent(String, String, String, String)} 一致，
+     * 文档结构不适合流式处理时自动回退到DOM实现
+     * @param inputPath 输入文档路径
+     * @param outputPath 输出文档路径
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
      */
-    private static BookmarkRange findBookmarkRange(XWPFDocument document, String bookmarkName) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (int i = 0; i < paragraphs.size(); i++) {
-            XWPFParagraph paragraph = paragraphs.get(i);
-            if (containsBookmark(paragraph, bookmarkName)) {
-                // 找到书签起始段落，现在需要找到结束段落
-                BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
-                if (bookmarkId == null) {
-                    return new BookmarkRange(-1, -1); // 无法获取书签ID
-                }
-                
-                // 查找bookmarkEnd节点来确定结束段落
-                Node bookmarkEndNode = findBookmarkEndNodeInDocument(paragraph, bookmarkId);
-                if (bookmarkEndNode == null) {
-                    // 如果找不到bookmarkEnd，假设是单段落书签
-                    return new BookmarkRange(i, i);
-                }
-                
-                // 确定bookmarkEnd所在的段落索引
-                int endParagraphIndex = findParagraphIndexContainingNode(document, bookmarkEndNode);
-                System.out.println("🔍 书签 " + bookmarkName + " 起始段落: " + i + ", 结束段落: " + endParagraphIndex);
-                if (endParagraphIndex == -1) {
-                    // 如果无法确定结束段落，假设是单段落书签
-                    return new BookmarkRange(i, i);
+    public static void copyBookmarkContentStreaming(String inputPath, String outputPath,
+                                                 String bookmarkA, String bookmarkB)
+                                                 throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContentStreaming")) {
+            if (!BookmarkStreamCopier.copy(inputPath, outputPath, bookmarkA, bookmarkB)) {
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("streamingFallback", bookmarkA, 0, 0L, bookmarkA + " -> " + bookmarkB);
                 }
-                
-                // 确保start <= end
-                if (i <= endParagraphIndex) {
-                    return new BookmarkRange(i, endParagraphIndex);
-                } else {
-                    // 如果end < start，交换它们
-                    System.out.println("⚠️ 书签范围异常，交换start和end: " + i + " -> " + endParagraphIndex);
-                    return new BookmarkRange(endParagraphIndex, i);
+                DocxMetrics.fallback("stream-copy");
+                copyBookmarkContent(inputPath, outputPath, bookmarkA, bookmarkB);
+            }
+            operation.success();
+        }
+    }
+
+    /**
+     * 将书签A的内容复制到书签B（流式实现），从输入流读取文档并写入输出流（不会关闭两个流）
+     * 流式复制需要两遍读取，输入流的内容会先读入内存（压缩后的大小），不写临时文件
+     * @param inputStream 输入文档流
+     * @param outputStream 输出文档流
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static void copyBookmarkContentStreaming(InputStream inputStream, OutputStream outputStream,
+                                                 String bookmarkA, String bookmarkB)
+                                                 throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContentStreaming")) {
+            byte[] document = IOUtils.toByteArray(inputStream);
+            if (!BookmarkStreamCopier.copy(document, outputStream, bookmarkA, bookmarkB)) {
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("streamingFallback", bookmarkA, 0, 0L, bookmarkA + " -> " + bookmarkB);
                 }
+                DocxMetrics.fallback("stream-copy");
+                copyBookmarkContent(new ByteArrayInputStream(document), outputStream, bookmarkA, bookmarkB);
             }
+            operation.success();
         }
-        return new BookmarkRange(-1, -1); // 未找到
     }
-    
+
     /**
-     * 查找包含指定书签的段落
+     * 将书签A的内容复制到书签B（流式实现），输入和输出都是内存中的文档内容
+     * @param document 输入文档内容
+     * @param bookmarkA 源书签A的名称
+     * @param bookmarkB 目标书签B的名称
+     * @return 输出文档内容
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
      */
-    private static XWPFParagraph findParagraphWithBookmark(XWPFDocument document, String bookmarkName) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (XWPFParagraph paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmarkName)) {
-                return paragraph;
+    public static byte[] copyBookmarkContentStreaming(byte[] document, String bookmarkA, String bookmarkB)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContentStreaming")) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(document.length);
+            copyBookmarkContentStreaming(new ByteArrayInputStream(document), outputStream, bookmarkA, bookmarkB);
+            return operation.success(outputStream.toByteArray());
+        }
+    }
+
+    /**
+     * 批量执行书签操作，整个操作列表只解析和保存一次文档
+     * @param inputPath 输入文档路径
+     * @param outputPath 输出文档路径
+     * @param ops 书签操作列表
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static void applyBookmarkOps(String inputPath, String outputPath, List<BookmarkOp> ops)
+                                        throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("applyBookmarkOps")) {
+            try (DocxSession session = DocxSession.open(inputPath)) {
+                session.apply(ops);
+                session.save(outputPath);
             }
+            operation.success();
         }
-        return null;
     }
-    
+
     /**
-     * 查找包含指定DOM节点的段落索引
+     * 批量执行书签操作，从输入流读取文档并写入输出流（不会关闭两个流）
+     * @param inputStream 输入文档流
+     * @param outputStream 输出文档流
+     * @param ops 书签操作列表
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
      */
-    private static int findParagraphIndexContainingNode(XWPFDocument document, Node targetNode) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (int i = 0; i < paragraphs.size(); i++) {
-            XWPFParagraph paragraph = paragraphs.get(i);
-            CTP ctp = paragraph.getCTP();
-            Node paragraphNode = ctp.getDomNode();
-            
-            // 检查目标节点是否在当前段落中
-            if (isNodeContainedIn(paragraphNode, targetNode)) {
-                return i;
+    public static void applyBookmarkOps(InputStream inputStream, OutputStream outputStream, List<BookmarkOp> ops)
+                                        throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("applyBookmarkOps")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                session.apply(ops);
+                session.save(outputStream);
             }
+            operation.success();
+        }
+    }
+
+    /**
+     * 批量执行书签操作，输入和输出都是内存中的文档内容
+     * @param document 输入文档内容
+     * @param ops 书签操作列表
+     * @return 输出文档内容
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static byte[] applyBookmarkOps(byte[] document, List<BookmarkOp> ops)
+                                          throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("applyBookmarkOps")) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(document.length);
+            applyBookmarkOps(new ByteArrayInputStream(document), outputStream, ops);
+            return operation.success(outputStream.toByteArray());
         }
-        return -1; // 未找到
     }
     
     /**
-     * 检查目标节点是否包含在指定段落节点中
+     * 在已打开的文档中，将书签A的内容复制到书签B
      */
-    private static boolean isNodeContainedIn(Node paragraphNode, Node targetNode) {
-        // 如果目标节点就是段落节点本身
-        if (paragraphNode.equals(targetNode)) {
-            return true;
+    static void copyBookmarkContent(XWPFDocument document, String bookmarkA, String bookmarkB) {
+        // 获取书签A的段落内容（支持多段落书签）
+        List<ParagraphContent> paragraphContentsA = getBookmarkParagraphContent(document, bookmarkA);
+        if (paragraphContentsA.isEmpty()) {
+            throw new IllegalArgumentException("书签 " + bookmarkA + " 未找到或内容为空");
         }
         
-        // 递归检查子节点
-        NodeList children = paragraphNode.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
-            if (child.equals(targetNode) || isNodeContainedIn(child, targetNode)) {
-                return true;
+        // 设置书签B的内容，保持段落结构
+        setBookmarkContentFromParagraphContent(document, bookmarkB, paragraphContentsA);
+    }
+    
+    /**
+     * 多次复制指定书签的内容，在书签之后依次创建 bookmarkName1 ~ bookmarkNameN
+     * @param inputPath 输入文档路径
+     * @param outputPath 输出文档路径
+     * @param bookmarkName 源书签名称
+     * @param times 复制次数
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static void copyBookmarkContentMultipleTimes(String inputPath, String outputPath,
+                                                      String bookmarkName, int times)
+                                                      throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContentMultipleTimes")) {
+            try (DocxSession session = DocxSession.open(inputPath)) {
+                session.copyBookmarkContentMultipleTimes(bookmarkName, times);
+                session.save(outputPath);
             }
+            operation.success();
         }
-        
-        return false;
     }
-    
+
     /**
-     * 获取书签的run节点（包含格式信息）
+     * 多次复制指定书签的内容，从输入流读取文档并写入输出流（不会关闭两个流）
+     * @param inputStream 输入文档流
+     * @param outputStream 输出文档流
+     * @param bookmarkName 源书签名称
+     * @param times 复制次数
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
      */
-    private static List<Node> getBookmarkRunNodes(XWPFDocument document, String bookmarkName) {
-        XWPFParagraph paragraph = findParagraphWithBookmark(document, bookmarkName);
-        if (paragraph == null) {
-            return new ArrayList<>();
+    public static void copyBookmarkContentMultipleTimes(InputStream inputStream, OutputStream outputStream,
+                                                      String bookmarkName, int times)
+                                                      throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContentMultipleTimes")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                session.copyBookmarkContentMultipleTimes(bookmarkName, times);
+                session.save(outputStream);
+            }
+            operation.success();
         }
-        
-        BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
-        if (bookmarkId == null) {
-            return new ArrayList<>();
+    }
+
+    /**
+     * 多次复制指定书签的内容，输入和输出都是内存中的文档内容
+     * @param document 输入文档内容
+     * @param bookmarkName 源书签名称
+     * @param times 复制次数
+     * @return 输出文档内容
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static byte[] copyBookmarkContentMultipleTimes(byte[] document, String bookmarkName, int times)
+                                                        throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("copyBookmarkContentMultipleTimes")) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(document.length);
+            copyBookmarkContentMultipleTimes(new ByteArrayInputStream(document), outputStream, bookmarkName, times);
+            return operation.success(outputStream.toByteArray());
         }
-        
-        return extractRunNodesBetweenBookmarks(paragraph, bookmarkId);
     }
     
     /**
-     * 获取书签的段落内容（支持多段落书签）
+     * 在已打开的文档中多次复制书签内容
+     * 源书签的段落内容只提取一次，每个副本的段落按源段落的样式（包括编号）创建，
+     * 书签ID依次分配，全部副本组装好后一次插入到源书签之后，书签索引也只增量更新一次，
+     * 复制几千次也不会因为逐个插入而反复扫描文档
      */
-    private static List<ParagraphContent> getBookmarkParagraphContent(XWPFDocument document, String bookmarkName) {
-        XWPFParagraph paragraph = findParagraphWithBookmark(document, bookmarkName);
-        if (paragraph == null) {
-            return new ArrayList<>();
+    static void copyBookmarkContentMultipleTimes(XWPFDocument document, String bookmarkName, int times) {
+        if (times < 1) {
+            throw new IllegalArgumentException("复制次数必须大于0: " + times);
+        }
+        List<ParagraphContent> paragraphContents = getBookmarkParagraphContent(document, bookmarkName);
+        if (paragraphContents.isEmpty()) {
+            throw new IllegalArgumentException("书签 " + bookmarkName + " 未找到或内容为空");
+        }
+        BookmarkIndex index = bookmarkIndex(document);
+        for (int copy = 1; copy <= times; copy++) {
+            if (index.find(bookmarkName + copy) != null) {
+                throw new IllegalArgumentException("书签 " + bookmarkName + copy + " 已存在");
+            }
         }
+        BookmarkIndex.Entry entry = index.find(bookmarkName);
+        BookmarkIndex.Container container = entry.getContainer();
         
-        BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
-        if (bookmarkId == null) {
-            return new ArrayList<>();
+        // 副本插入到源书签的最后一个段落之后（与源书签在同一容器中）；bookmarkEnd不在段落中时插入到bookmarkEnd之后
+        boolean bodyLevelEnd = entry.getEndNode() != null && entry.getEndParagraphIndex() == -1
+            && entry.getEndNode().getParentNode() == container.getNode();
+        int lastParagraphIndex = entry.getRange().getEnd();
+        Node anchor = bodyLevelEnd ? entry.getEndNode() : container.getParagraph(lastParagraphIndex).getCTP().getDomNode();
+        Node body = container.getNode();
+        org.w3c.dom.Document ownerDocument = body.getOwnerDocument();
+        
+        // 每个源段落准备一个段落模板：复制段落样式和run节点，之后每个副本只需整体克隆
+        List<Node> templates = new ArrayList<>(paragraphContents.size());
+        for (ParagraphContent content : paragraphContents) {
+            templates.add(createParagraphTemplate(ownerDocument, content));
         }
         
-        // 查找bookmarkStart和bookmarkEnd节点
-        CTP ctp = paragraph.getCTP();
-        Node paragraphNode = ctp.getDomNode();
-        Node bookmarkStartNode = findBookmarkStartNode(paragraphNode, bookmarkId);
-        Node bookmarkEndNode = findBookmarkEndNodeInDocument(paragraph, bookmarkId);
+        // 在文档片段中组装全部副本，只做一次DOM插入
+        org.w3c.dom.DocumentFragment fragment = ownerDocument.createDocumentFragment();
+        List<Node> insertedNodes = new ArrayList<>(templates.size() * times);
+        for (int copy = 1; copy <= times; copy++) {
+            String copyName = bookmarkName + copy;
+            String copyId = nextBookmarkId(document).toString();
+            for (int i = 0; i < templates.size(); i++) {
+                Node paragraphNode = templates.get(i).cloneNode(true);
+                if (i == 0) {
+                    Element bookmarkStart = ownerDocument.createElementNS(BookmarkIndex.WORDML_NS, "w:bookmarkStart");
+                    bookmarkStart.setAttributeNS(BookmarkIndex.WORDML_NS, "w:id", copyId);
+                    bookmarkStart.setAttributeNS(BookmarkIndex.WORDML_NS, "w:name", copyName);
+                    // 段落属性之后、第一个run之前
+                    Node firstChild = paragraphNode.getFirstChild();
+                    boolean hasPPr = firstChild != null && "pPr".equals(firstChild.getLocalName());
+                    paragraphNode.insertBefore(bookmarkStart, hasPPr ? firstChild.getNextSibling() : firstChild);
+                }
+                if (i == templates.size() - 1) {
+                    Element bookmarkEnd = ownerDocument.createElementNS(BookmarkIndex.WORDML_NS, "w:bookmarkEnd");
+                    bookmarkEnd.setAttributeNS(BookmarkIndex.WORDML_NS, "w:id", copyId);
+                    paragraphNode.appendChild(bookmarkEnd);
+                }
+                fragment.appendChild(paragraphNode);
+                insertedNodes.add(paragraphNode);
+            }
+        }
+        body.insertBefore(fragment, anchor.getNextSibling());
         
-        if (bookmarkStartNode == null || bookmarkEndNode == null) {
-            return new ArrayList<>();
+        if (bodyLevelEnd) {
+            // 无法确定副本之前的段落数，下次查找时重建索引
+            invalidateBookmarkIndex(document);
+        } else {
+            updateBookmarkIndexAfterInsert(document, index, container, lastParagraphIndex + 1, insertedNodes);
         }
         
-        return extractParagraphContentBetweenBookmarks(document, bookmarkStartNode, bookmarkEndNode);
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("copyMultipleTimes", bookmarkName, 0, 0L, "times=" + times + " paragraphs=" + templates.size());
+        }
     }
     
     /**
-     * 提取书签之间的段落内容（支持多段落书签）
-     * 返回按段落组织的结构信息，保持段落边界
+     * 根据源段落内容创建副本段落的模板（未加入文档主体）
      */
-    private static List<ParagraphContent> extractParagraphContentBetweenBookmarks(XWPFDocument document, 
-                                                                                 Node bookmarkStartNode, 
-                                                                                 Node bookmarkEndNode) {
-        List<ParagraphContent> paragraphContents = new ArrayList<>();
+    private static Node createParagraphTemplate(org.w3c.dom.Document ownerDocument, ParagraphContent content) {
+        Node paragraphNode = ownerDocument.createElementNS(BookmarkIndex.WORDML_NS, "w:p");
         
-        try {
-            // 如果bookmarkStart和bookmarkEnd在同一个段落中
-            if (bookmarkStartNode.getParentNode().equals(bookmarkEndNode.getParentNode())) {
-                // 单段落情况：提取run节点
-                List<Node> runNodes = new ArrayList<>();
-                Node current = bookmarkStartNode.getNextSibling();
-                while (current != null && !current.equals(bookmarkEndNode)) {
-                    if (current.getNodeType() == Node.ELEMENT_NODE && 
-                        current.getLocalName() != null && 
-                        current.getLocalName().equals("r")) {
-                        runNodes.add(current);
-                    }
-                    current = current.getNextSibling();
+        // 与插入书签时相同的样式复制规则
+        CTP styledCTP = CTP.Factory.newInstance();
+        if (content.getParagraphProperties() != null) {
+            copyParagraphStyle(content.getParagraphProperties(), styledCTP);
+        } else {
+            setParagraphNumberingStyle(styledCTP);
+        }
+        if (styledCTP.getPPr() != null) {
+            paragraphNode.appendChild(ownerDocument.importNode(styledCTP.getPPr().getDomNode(), true));
+        }
+        
+        for (Node runNode : content.getRunNodes()) {
+            paragraphNode.appendChild(ownerDocument.importNode(runNode, true));
+        }
+        return paragraphNode;
+    }
+    
+    
+    /**
+     * 获取文档的书签索引，索引不存在或已失效时重新构建
+     * 索引缓存在打开文档的会话中（见 {@link DocxSession#active(XWPFDocument)}），随会话释放；
+     * 不在会话中的文档不缓存索引，每次重新构建
+     */
+    private static BookmarkIndex bookmarkIndex(XWPFDocument document) {
+        DocxSession session = DocxSession.active(document);
+        BookmarkIndex index = session != null ? session.bookmarkIndex : null;
+        if (index == null || index.isStale()) {
+            boolean firstBuild = index == null;
+            long traceStart = DocxTrace.startNanos();
+            OperationPhase previous = DocxOperation.enterPhase(OperationPhase.INDEX);
+            boolean bound = false;
+            try {
+                // 从模板打开的文档首次建立索引时按模板的书签位置绑定，文档已修改过则重新扫描
+                if (firstBuild && session != null && session.bookmarkLayout != null) {
+                    index = BookmarkIndex.bind(document, session.bookmarkLayout);
+                    bound = index != null;
                 }
-                
-                // 获取段落属性
-                XWPFParagraph paragraph = findParagraphContainingNode(document, bookmarkStartNode);
-                CTP paragraphProps = paragraph != null ? paragraph.getCTP() : null;
-                paragraphContents.add(new ParagraphContent(0, runNodes, paragraphProps));
-                
-            } else {
-                // 多段落情况：按段落组织内容
-                Node startParent = bookmarkStartNode.getParentNode();
-                Node endParent = bookmarkEndNode.getParentNode();
-                
-                // 获取文档的段落列表
-                List<XWPFParagraph> paragraphs = document.getParagraphs();
-                int startParagraphIndex = findParagraphIndexContainingNode(document, startParent);
-                int endParagraphIndex = findParagraphIndexContainingNode(document, endParent);
-                
-                if (startParagraphIndex != -1 && endParagraphIndex != -1) {
-                    // 处理每个段落
-                    for (int i = startParagraphIndex; i <= endParagraphIndex; i++) {
-                        XWPFParagraph paragraph = paragraphs.get(i);
-                        CTP ctp = paragraph.getCTP();
-                        Node paragraphNode = ctp.getDomNode();
-                        List<Node> runNodes = new ArrayList<>();
-                        
-                        if (i == startParagraphIndex) {
-                            // 起始段落：提取bookmarkStart之后的所有run节点
-                            Node current = bookmarkStartNode.getNextSibling();
-                            while (current != null) {
-                                if (current.getNodeType() == Node.ELEMENT_NODE && 
-                                    current.getLocalName() != null && 
-                                    current.getLocalName().equals("r")) {
-                                    runNodes.add(current);
-                                }
-                                current = current.getNextSibling();
-                            }
+                if (!bound) {
+                    index = BookmarkIndex.build(document);
+                }
+            } finally {
+                DocxOperation.exitPhase(previous);
+            }
+            DocxOperation.count(index.getScannedParagraphCount(), index.getVisitedNodeCount());
+            DocxTrace.emit("buildIndex", null, index.getVisitedNodeCount(), traceStart, bound ? "fromTemplate" : null);
+            if (firstBuild) {
+                DocxMetrics.indexBuilt(index.getParagraphs().size(), index.getEntries().size());
+            }
+            if (session != null) {
+                session.bookmarkIndex = index;
+                if (session.bookmarkIdAllocator != null) {
+                    session.bookmarkIdAllocator.observe(index.getMaxBookmarkId());
+                }
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * 获取会话中缓存的书签索引，没有时返回null
+     */
+    private static BookmarkIndex cachedBookmarkIndex(XWPFDocument document) {
+        DocxSession session = DocxSession.active(document);
+        return session != null ? session.bookmarkIndex : null;
+    }
+    
+    /**
+     * 为文档分配新的书签ID，不与文档中已有的书签ID冲突
+     * 分配器与书签索引一样保存在会话中；不在会话中的文档每次从已有的最大ID之后分配
+     */
+    private static BigInteger nextBookmarkId(XWPFDocument document) {
+        DocxSession session = DocxSession.active(document);
+        if (session == null) {
+            return new BookmarkIdAllocator(bookmarkIndex(document).getMaxBookmarkId()).next();
+        }
+        if (session.bookmarkIdAllocator == null) {
+            session.bookmarkIdAllocator = new BookmarkIdAllocator(bookmarkIndex(document).getMaxBookmarkId());
+        }
+        return session.bookmarkIdAllocator.next();
+    }
+    
+    /**
+     * 标记文档的书签索引失效（段落结构发生变化时调用）
+     */
+    private static void invalidateBookmarkIndex(XWPFDocument document) {
+        BookmarkIndex index = cachedBookmarkIndex(document);
+        if (index != null) {
+            index.invalidate();
+        }
+    }
+    
+    /**
+     * 段落插入后增量更新书签索引
+     * 如果插入期间索引已被替换或失效，则只标记失效，下次查找时重建
+     */
+    private static void updateBookmarkIndexAfterInsert(XWPFDocument document, BookmarkIndex index,
+                                                       BookmarkIndex.Container container,
+                                                       int position, List<Node> insertedNodes) {
+        if (cachedBookmarkIndex(document) == index && !index.isStale()) {
+            index.paragraphsInserted(container, position, insertedNodes);
+        } else {
+            invalidateBookmarkIndex(document);
+        }
+    }
+    
+    /**
+     * 通过索引查找书签，书签标记已被移除时重建索引后再查找
+     */
+    private static BookmarkIndex.Entry findBookmarkEntry(XWPFDocument document, String bookmarkName) {
+        OperationPhase previous = DocxOperation.enterPhase(OperationPhase.LOCATE);
+        try {
+            BookmarkIndex.Entry entry = bookmarkIndex(document).find(bookmarkName);
+            if (entry != null && !entry.isAttached()) {
+                invalidateBookmarkIndex(document);
+                entry = bookmarkIndex(document).find(bookmarkName);
+            }
+            return entry;
+        } finally {
+            DocxOperation.exitPhase(previous);
+        }
+    }
+    
+    /**
+     * 查找书签在文档中的位置
+     */
+    static int findBookmarkPosition(XWPFDocument document, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        return entry != null ? entry.getStartParagraphIndex() : -1;
+    }
+    
+    /**
+     * 查找书签在文档中的范围
+     * 支持单段落和多段落书签
+     */
+    static BookmarkRange findBookmarkRange(XWPFDocument document, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null) {
+            return new BookmarkRange(-1, -1); // 未找到
+        }
+        BookmarkRange range = entry.getRange();
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("bookmarkRange", bookmarkName, 0, 0L, "start=" + range.getStart() + " end=" + range.getEnd());
+        }
+        return range;
+    }
+
+    /**
+     * 查找书签所在部件的名称，例如 /word/header1.xml；未找到返回null
+     */
+    static String findBookmarkPartName(XWPFDocument document, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        return entry != null ? entry.getRange().getPartName() : null;
+    }
+
+    /**
+     * 查找包含指定书签的段落
+     */
+    private static XWPFParagraph findParagraphWithBookmark(XWPFDocument document, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null) {
+            return null;
+        }
+        return entry.getStartParagraph();
+    }
+    
+    /**
+     * 查找包含指定DOM节点的段落所在的容器（文档主体、表格单元格、页眉页脚或脚注）
+     */
+    private static BookmarkIndex.Container findContainerOfNode(XWPFDocument document, Node targetNode) {
+        return bookmarkIndex(document).findContainer(targetNode);
+    }
+    
+    /**
+     * 查找包含指定DOM节点的段落在其容器中的索引
+     */
+    private static int findParagraphIndexContainingNode(XWPFDocument document, Node targetNode) {
+        BookmarkIndex.Container container = findContainerOfNode(document, targetNode);
+        return container != null ? container.findParagraphIndex(targetNode) : -1;
+    }
+    
+    /**
+     * 获取书签的run节点（包含格式信息）
+     */
+    private static List<Node> getBookmarkRunNodes(XWPFDocument document, String bookmarkName) {
+        XWPFParagraph paragraph = findParagraphWithBookmark(document, bookmarkName);
+        if (paragraph == null) {
+            return new ArrayList<>();
+        }
+        
+        BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
+        if (bookmarkId == null) {
+            return new ArrayList<>();
+        }
+        
+        return extractRunNodesBetweenBookmarks(paragraph, bookmarkId);
+    }
+    
+    /**
+     * 获取书签的段落内容（支持多段落书签）
+     */
+    private static List<ParagraphContent> getBookmarkParagraphContent(XWPFDocument document, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null || entry.getId() == null) {
+            return new ArrayList<>();
+        }
+        
+        // 从索引中获取bookmarkStart和bookmarkEnd节点
+        Node bookmarkStartNode = entry.getStartNode();
+        Node bookmarkEndNode = entry.getEndNode();
+        
+        if (bookmarkStartNode == null || bookmarkEndNode == null) {
+            return new ArrayList<>();
+        }
+        
+        return extractParagraphContentBetweenBookmarks(document, bookmarkStartNode, bookmarkEndNode);
+    }
+    
+    /**
+     * 提取书签之间的段落内容（支持多段落书签）
+     * 返回按段落组织的结构信息，保持段落边界
+     */
+    private static List<ParagraphContent> extractParagraphContentBetweenBookmarks(XWPFDocument document, 
+                                                                                 Node bookmarkStartNode, 
+                                                                                 Node bookmarkEndNode) {
+        List<ParagraphContent> paragraphContents = new ArrayList<>();
+        
+        try {
+            // 如果bookmarkStart和bookmarkEnd在同一个段落中
+            if (bookmarkStartNode.getParentNode().equals(bookmarkEndNode.getParentNode())) {
+                // 单段落情况：提取run节点
+                List<Node> runNodes = new ArrayList<>();
+                Node current = bookmarkStartNode.getNextSibling();
+                while (current != null && !current.equals(bookmarkEndNode)) {
+                    if (current.getNodeType() == Node.ELEMENT_NODE && 
+                        current.getLocalName() != null && 
+                        current.getLocalName().equals("r")) {
+                        runNodes.add(current);
+                    }
+                    current = current.getNextSibling();
+                }
+                
+                // 获取段落属性
+                XWPFParagraph paragraph = findParagraphContainingNode(document, bookmarkStartNode);
+                CTP paragraphProps = paragraph != null ? paragraph.getCTP() : null;
+                paragraphContents.add(new ParagraphContent(0, runNodes, paragraphProps));
+                
+            } else {
+                // 多段落情况：按段落组织内容
+                Node startParent = bookmarkStartNode.getParentNode();
+                Node endParent = bookmarkEndNode.getParentNode();
+                
+                // 获取书签所在容器的段落列表（按DOM顺序），起止标记必须在同一容器中
+                BookmarkIndex.Container container = findContainerOfNode(document, startParent);
+                List<XWPFParagraph> paragraphs = container != null ? container.getParagraphs() : Collections.emptyList();
+                int startParagraphIndex = findParagraphIndexContainingNode(document, startParent);
+                int endParagraphIndex = container != null && container == findContainerOfNode(document, endParent)
+                    ? container.findParagraphIndex(endParent) : -1;
+                
+                if (startParagraphIndex != -1 && endParagraphIndex != -1) {
+                    // 处理每个段落
+                    for (int i = startParagraphIndex; i <= endParagraphIndex; i++) {
+                        XWPFParagraph paragraph = paragraphs.get(i);
+                        CTP ctp = paragraph.getCTP();
+                        Node paragraphNode = ctp.getDomNode();
+                        List<Node> runNodes = new ArrayList<>();
+                        
+                        if (i == startParagraphIndex) {
+                            // 起始段落：提取bookmarkStart之后的所有run节点
+                            Node current = bookmarkStartNode.getNextSibling();
+                            while (current != null) {
+                                if (current.getNodeType() == Node.ELEMENT_NODE && 
+                                    current.getLocalName() != null && 
+                                    current.getLocalName().equals("r")) {
+                                    runNodes.add(current);
+                                }
+                                current = current.getNextSibling();
+                            }
                         } else if (i == endParagraphIndex) {
                             // 结束段落：提取bookmarkEnd之前的所有run节点
                             Node current = paragraphNode.getFirstChild();
@@ -354,10 +785,10 @@ public class DocxUtils {
                 }
             }
             
-            System.out.println("✅ 提取到 " + paragraphContents.size() + " 个段落的内容，保持段落结构");
-            
         } catch (Exception e) {
-            System.err.println("提取段落内容失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "提取段落内容失败: " + e.getMessage());
+            }
         }
         
         return paragraphContents;
@@ -386,19 +817,9 @@ public class DocxUtils {
      * 检查段落是否包含指定的书签
      */
     private static boolean containsBookmark(XWPFParagraph paragraph, String bookmarkName) {
-        try {
-            CTP ctp = paragraph.getCTP();
-            CTBookmark[] bookmarks = ctp.getBookmarkStartArray();
-            for (CTBookmark bookmark : bookmarks) {
-                if (bookmarkName.equals(bookmark.getName())) {
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            // 如果无法访问书签，返回false
-            return false;
-        }
-        return false;
+        XWPFDocument document = paragraph.getDocument();
+        findBookmarkEntry(document, bookmarkName);
+        return bookmarkIndex(document).containsBookmark(paragraph, bookmarkName);
     }
     
     
@@ -416,18 +837,19 @@ public class DocxUtils {
         // 根据书签类型选择处理方式
         if (targetRange.isMultiParagraph()) {
             // 多段落书签：创建匹配的多段落书签
-            System.out.println("🔄 检测到多段落书签，使用多段落插入方式");
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("insertBefore", targetBookmarkName, 0, 0L,
+                               "multiParagraph start=" + targetRange.getStart() + " end=" + targetRange.getEnd());
+            }
             insertMultiParagraphBookmarkBefore(document, targetBookmarkName, newBookmarkName, targetRange);
         } else {
             // 单段落书签：使用原有的单段落插入方式
-            System.out.println("🔄 检测到单段落书签，使用单段落插入方式");
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
-            for (int i = 0; i < paragraphs.size(); i++) {
-                XWPFParagraph paragraph = paragraphs.get(i);
-                if (containsBookmark(paragraph, targetBookmarkName)) {
-                    insertParagraphBeforeTarget(document, paragraph, newBookmarkName);
-                    break;
-                }
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("insertBefore", targetBookmarkName, 0, 0L, "singleParagraph start=" + targetRange.getStart());
+            }
+            XWPFParagraph paragraph = findParagraphWithBookmark(document, targetBookmarkName);
+            if (paragraph != null) {
+                insertParagraphBeforeTarget(document, paragraph, targetRange.getStart(), newBookmarkName);
             }
         }
     }
@@ -439,20 +861,19 @@ public class DocxUtils {
     private static void insertMultiParagraphBookmarkBefore(XWPFDocument document, String targetBookmarkName, 
                                                           String newBookmarkName, BookmarkRange targetRange) {
         try {
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
+            BookmarkIndex index = bookmarkIndex(document);
+            BookmarkIndex.Container container = index.findContainer(targetRange);
+            List<XWPFParagraph> paragraphs = container.getParagraphs();
             int startIndex = targetRange.getStart();
             int endIndex = targetRange.getEnd();
             int paragraphCount = endIndex - startIndex + 1;
             
-            System.out.println("📝 创建多段落书签，段落数: " + paragraphCount + 
-                             " (从段落 " + startIndex + " 到 " + endIndex + ")");
-            
             // 获取目标书签的第一个段落
             XWPFParagraph firstTargetParagraph = paragraphs.get(startIndex);
             CTP firstTargetCTP = firstTargetParagraph.getCTP();
             
             // 生成唯一的书签ID
-            BigInteger bookmarkId = BigInteger.valueOf(System.currentTimeMillis() % 1000000);
+            BigInteger bookmarkId = nextBookmarkId(document);
             
             // 创建新段落列表
             List<XWPFParagraph> newParagraphs = new ArrayList<>();
@@ -476,17 +897,17 @@ public class DocxUtils {
             createMultiParagraphBookmarkBeforeInsertion(newParagraphs, newBookmarkName, bookmarkId);
             
             // 将新段落插入到文档中（从前往后插入，保持顺序）
+            List<Node> insertedNodes = new ArrayList<>();
             for (int i = 0; i < newParagraphs.size(); i++) {
                 XWPFParagraph newParagraph = newParagraphs.get(i);
-                CTP newCTP = newParagraph.getCTP();
+                Node targetNode = firstTargetCTP.getDomNode();
+                Node newNode = adoptParagraphNode(document, newParagraph, targetNode);
                 
                 // 在第一个目标段落之前插入
-                firstTargetCTP.getDomNode().getParentNode().insertBefore(
-                    newCTP.getDomNode(), firstTargetCTP.getDomNode());
+                targetNode.getParentNode().insertBefore(newNode, targetNode);
+                insertedNodes.add(newNode);
             }
-            
-            System.out.println("✅ 多段落书签创建完成: " + newBookmarkName + 
-                             " (段落数: " + paragraphCount + ")");
+            updateBookmarkIndexAfterInsert(document, index, container, startIndex, insertedNodes);
             
         } catch (Exception e) {
             throw new IllegalStateException("创建多段落书签失败: " + e.getMessage(), e);
@@ -540,11 +961,7 @@ public class DocxUtils {
                 firstCTP.getDomNode().insertBefore(bookmarkStartNode, firstRunNode);
             }
             
-            System.out.println("✅ 多段落书签预创建完成: " + bookmarkName + " (ID: " + bookmarkId + ")");
-            
         } catch (Exception e) {
-            System.err.println("❌ 预创建多段落书签失败: " + e.getMessage());
-            e.printStackTrace();
             throw new IllegalStateException("预创建多段落书签失败: " + e.getMessage(), e);
         }
     }
@@ -596,11 +1013,7 @@ public class DocxUtils {
             // 添加bookmarkEnd到最后一个段落
             lastCTPElement.appendChild(bookmarkEnd);
             
-            System.out.println("✅ 多段落书签DOM创建完成: " + bookmarkName + " (ID: " + bookmarkId + ")");
-            
         } catch (Exception e) {
-            System.err.println("❌ 创建多段落书签失败: " + e.getMessage());
-            e.printStackTrace();
             throw new IllegalStateException("创建多段落书签失败: " + e.getMessage(), e);
         }
     }
@@ -613,7 +1026,7 @@ public class DocxUtils {
                                                            String bookmarkName) {
         try {
             // 生成唯一的书签ID
-            BigInteger bookmarkId = BigInteger.valueOf(System.currentTimeMillis() % 1000000);
+            BigInteger bookmarkId = nextBookmarkId(firstParagraph.getDocument());
             
             // 直接使用DOM操作创建书签，避免orphaned问题
             org.w3c.dom.Document doc = firstParagraph.getDocument().getDocument().getDomNode().getOwnerDocument();
@@ -654,11 +1067,7 @@ public class DocxUtils {
             // 添加bookmarkEnd到最后一个段落
             lastCTPElement.appendChild(bookmarkEnd);
             
-            System.out.println("✅ 多段落书签DOM创建完成: " + bookmarkName + " (ID: " + bookmarkId + ")");
-            
         } catch (Exception e) {
-            System.err.println("❌ 创建多段落书签DOM失败: " + e.getMessage());
-            e.printStackTrace();
             throw new IllegalStateException("创建多段落书签DOM失败: " + e.getMessage(), e);
         }
     }
@@ -670,18 +1079,12 @@ public class DocxUtils {
         try {
             CTP ctp = paragraph.getCTP();
             
-            // 首先查找书签ID（从第一个段落中获取）
-            BigInteger bookmarkId = null;
-            List<XWPFParagraph> allParagraphs = paragraph.getDocument().getParagraphs();
-            for (XWPFParagraph p : allParagraphs) {
-                bookmarkId = getBookmarkId(p, bookmarkName);
-                if (bookmarkId != null) {
-                    break;
-                }
-            }
+            // 首先查找书签ID（从书签索引中获取）
+            BookmarkIndex.Entry entry = findBookmarkEntry(paragraph.getDocument(), bookmarkName);
+            BigInteger bookmarkId = entry != null ? entry.getId() : null;
             
             if (bookmarkId == null) {
-                System.err.println("无法找到书签ID: " + bookmarkName);
+                DocxTrace.emit("markerNotFound", bookmarkName, 0, 0L, "无法找到书签ID");
                 return;
             }
             
@@ -689,10 +1092,10 @@ public class DocxUtils {
             CTMarkupRange bookmarkEnd = ctp.addNewBookmarkEnd();
             bookmarkEnd.setId(bookmarkId);
             
-            System.out.println("✅ bookmarkEnd已添加到段落末尾，书签: " + bookmarkName + ", ID: " + bookmarkId);
-            
         } catch (Exception e) {
-            System.err.println("添加bookmarkEnd失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "添加bookmarkEnd失败: " + e.getMessage());
+            }
         }
     }
     
@@ -700,8 +1103,11 @@ public class DocxUtils {
      * 在目标段落之前插入新段落
      * 修复：只使用编号样式，避免重复序号和破坏书签结构
      */
-    private static void insertParagraphBeforeTarget(XWPFDocument document, XWPFParagraph targetParagraph, String bookmarkName) {
+    private static void insertParagraphBeforeTarget(XWPFDocument document, XWPFParagraph targetParagraph, 
+                                                    int targetIndex, String bookmarkName) {
         try {
+            BookmarkIndex index = bookmarkIndex(document);
+            
             // 创建新段落
             XWPFParagraph newParagraph = document.createParagraph();
             
@@ -716,31 +1122,50 @@ public class DocxUtils {
             createParagraphBookmark(newParagraph, bookmarkName);
             
             // 获取目标段落的XML节点
-            CTP targetCTP = targetParagraph.getCTP();
+            Node targetNode = targetParagraph.getCTP().getDomNode();
+            BookmarkIndex.Container container = index.findContainer(targetNode);
             
             // 获取新段落的XML节点
-            CTP newCTP = newParagraph.getCTP();
+            Node newNode = adoptParagraphNode(document, newParagraph, targetNode);
             
             // 在目标段落之前插入新段落
             // 使用DOM操作将新段落插入到目标段落之前
-            targetCTP.getDomNode().getParentNode().insertBefore(
-                newCTP.getDomNode(), targetCTP.getDomNode());
-                
-            System.out.println("✅ 新段落已插入，书签: " + bookmarkName);
+            targetNode.getParentNode().insertBefore(newNode, targetNode);
+            updateBookmarkIndexAfterInsert(document, index, container, targetIndex, Collections.singletonList(newNode));
                 
         } catch (Exception e) {
             throw new IllegalStateException("在目标段落之前插入失败: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * 获取可以插入到目标段落旁边的新段落节点
+     * 新段落由 document.createParagraph() 创建在主文档部件中；目标位于页眉、页脚、脚注等其他部件时，
+     * 把段落节点导入目标部件，并从文档主体中移除新段落
+     */
+    private static Node adoptParagraphNode(XWPFDocument document, XWPFParagraph newParagraph, Node targetNode) {
+        Node newNode = newParagraph.getCTP().getDomNode();
+        org.w3c.dom.Document targetDocument = targetNode.getOwnerDocument();
+        if (targetDocument == newNode.getOwnerDocument()) {
+            return newNode;
+        }
+        Node importedNode = targetDocument.importNode(newNode, true);
+        document.removeBodyElement(document.getPosOfParagraph(newParagraph));
+        return importedNode;
+    }
+    
     /**
      * 复制段落的样式到目标段落
      */
     private static void copyParagraphStyle(XWPFParagraph sourceParagraph, XWPFParagraph targetParagraph) {
+        copyParagraphStyle(sourceParagraph.getCTP(), targetParagraph.getCTP());
+    }
+    
+    /**
+     * 复制段落的样式到目标段落（目标段落可以尚未加入文档）
+     */
+    private static void copyParagraphStyle(CTP sourceCTP, CTP targetCTP) {
         try {
-            CTP sourceCTP = sourceParagraph.getCTP();
-            CTP targetCTP = targetParagraph.getCTP();
-            
             // 复制段落属性
             if (sourceCTP.getPPr() != null) {
                 if (targetCTP.getPPr() == null) {
@@ -787,7 +1212,7 @@ public class DocxUtils {
                 }
             } else {
                 // 如果源段落没有编号样式，为目标段落设置默认编号样式
-                setParagraphNumberingStyle(targetParagraph);
+                setParagraphNumberingStyle(targetCTP);
             }
             
         } catch (Exception e) {
@@ -802,11 +1227,8 @@ public class DocxUtils {
     /**
      * 设置段落的编号样式
      */
-    private static void setParagraphNumberingStyle(XWPFParagraph paragraph) {
+    private static void setParagraphNumberingStyle(CTP ctp) {
         try {
-            // 获取段落的底层XML对象
-            CTP ctp = paragraph.getCTP();
-            
             // 设置段落为编号列表
             if (ctp.getPPr() == null) {
                 ctp.addNewPPr();
@@ -824,18 +1246,13 @@ public class DocxUtils {
             ilvl.setVal(BigInteger.valueOf(0)); // 使用级别0
             
         } catch (Exception e) {
-            System.err.println("设置编号样式失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "设置编号样式失败: " + e.getMessage());
+            }
         }
     }
     
     
-    /**
-     * 生成唯一的书签ID
-     */
-    private static BigInteger generateUniqueBookmarkId() {
-        return BigInteger.valueOf(bookmarkIdCounter++);
-    }
-    
     /**
      * 在段落中创建书签（包围整个段落内容）
      * 修复：使用DOM操作确保书签正确包围段落内容
@@ -843,7 +1260,7 @@ public class DocxUtils {
     private static void createParagraphBookmark(XWPFParagraph paragraph, String bookmarkName) {
         try {
             CTP ctp = paragraph.getCTP();
-            BigInteger bookmarkId = generateUniqueBookmarkId();
+            BigInteger bookmarkId = nextBookmarkId(paragraph.getDocument());
             
             // 确保段落有内容，如果没有则添加initialString
             if (paragraph.getRuns().isEmpty()) {
@@ -878,11 +1295,10 @@ public class DocxUtils {
                 ctp.getDomNode().insertBefore(bookmarkStartNode, firstRunNode);
             }
             
-            System.out.println("✅ 书签 '" + bookmarkName + "' 已创建，ID: " + bookmarkId);
-            
         } catch (Exception e) {
-            System.err.println("创建书签失败: " + e.getMessage());
-            e.printStackTrace();
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "创建书签失败: " + e.getMessage());
+            }
             // 如果创建书签失败，至少添加文本作为备选
             XWPFRun run = paragraph.createRun();
             run.setText("[" + bookmarkName + "]");
@@ -893,39 +1309,56 @@ public class DocxUtils {
     /**
      * 获取书签的内容
      */
-    private static String getBookmarkContent(XWPFDocument document, String bookmarkName) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (XWPFParagraph paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmarkName)) {
-                // 获取书签范围内的内容
-                return extractBookmarkContent(paragraph, bookmarkName);
-            }
+    static String getBookmarkContent(XWPFDocument document, String bookmarkName) {
+        StringBuilder content = new StringBuilder();
+        try {
+            return writeBookmarkContent(document, bookmarkName, content) ? content.toString() : null;
+        } catch (IOException e) {
+            // 写入StringBuilder不会失败
+            throw new UncheckedIOException(e);
         }
-        return null;
+    }
+    
+    /**
+     * 把书签的内容（已去除首尾空白）写入调用方提供的 Appendable，不生成中间字符串
+     * @param document 文档对象
+     * @param bookmarkName 书签名称
+     * @param out 内容写入的位置，例如 StringBuilder、Writer
+     * @return 书签是否存在，不存在时不写入任何内容
+     * @throws IOException 写入out失败时抛出
+     */
+    static boolean writeBookmarkContent(XWPFDocument document, String bookmarkName, Appendable out) throws IOException {
+        XWPFParagraph paragraph = findParagraphWithBookmark(document, bookmarkName);
+        if (paragraph == null) {
+            return false;
+        }
+        // 获取书签范围内的内容
+        extractBookmarkContent(paragraph, bookmarkName, new BookmarkTextWriter(out));
+        return true;
     }
     
     /**
      * 从段落中提取书签范围内的内容
      */
-    private static String extractBookmarkContent(XWPFParagraph paragraph, String bookmarkName) {
+    private static void extractBookmarkContent(XWPFParagraph paragraph, String bookmarkName,
+                                               BookmarkTextWriter out) throws IOException {
+        BookmarkIndex.Entry entry = null;
         try {
-            CTP ctp = paragraph.getCTP();
-            CTBookmark[] bookmarks = ctp.getBookmarkStartArray();
-            
-            for (CTBookmark bookmark : bookmarks) {
-                if (bookmarkName.equals(bookmark.getName())) {
-                    System.out.println("🎯 找到书签 '" + bookmarkName + "'，ID: " + bookmark.getId());
-                    // 找到书签，提取书签范围内的内容
-                    return extractContentBetweenBookmarks(paragraph, bookmark.getId());
-                }
+            entry = findBookmarkEntry(paragraph.getDocument(), bookmarkName);
+        } catch (RuntimeException e) {
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "提取书签内容失败: " + e.getMessage());
             }
-        } catch (Exception e) {
-            System.err.println("提取书签内容失败: " + e.getMessage());
         }
-        
-        // 如果无法提取书签内容，抛出异常，提示书签不存在
-        throw new IllegalArgumentException("无法提取书签 '" + bookmarkName + "' 的内容，书签不存在或格式不正确");
+        if (entry == null || entry.getId() == null) {
+            // 如果无法提取书签内容，抛出异常，提示书签不存在
+            throw new IllegalArgumentException("无法提取书签 '" + bookmarkName + "' 的内容，书签不存在或格式不正确");
+        }
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("locateBookmark", bookmarkName, 0, 0L, "id=" + entry.getId());
+        }
+        // 找到书签，提取书签范围内的内容
+        extractContentBetweenBookmarks(paragraph, entry.getId(), out);
     }
     
     /**
@@ -933,34 +1366,42 @@ public class DocxUtils {
      * 修复：正确解析XML结构，提取bookmarkStart和bookmarkEnd之间的内容
      * 支持跨段落的书签（bookmarkEnd可能在下一个段落中）
      */
-    private static String extractContentBetweenBookmarks(XWPFParagraph paragraph, BigInteger bookmarkId) {
+    private static void extractContentBetweenBookmarks(XWPFParagraph paragraph, BigInteger bookmarkId,
+                                                       BookmarkTextWriter out) throws IOException {
+        Node bookmarkStartNode;
+        Node bookmarkEndNode;
         try {
             CTP ctp = paragraph.getCTP();
             Node paragraphNode = ctp.getDomNode();
             
             // 查找bookmarkStart节点
-            Node bookmarkStartNode = findBookmarkStartNode(paragraphNode, bookmarkId);
+            bookmarkStartNode = findBookmarkStartNode(paragraphNode, bookmarkId);
             if (bookmarkStartNode == null) {
-                System.err.println("未找到bookmarkStart节点，ID: " + bookmarkId);
-                return "";
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "未找到bookmarkStart节点，ID: " + bookmarkId);
+                }
+                return;
             }
             
             // 查找对应的bookmarkEnd节点（可能在当前段落或后续段落中）
-            Node bookmarkEndNode = findBookmarkEndNodeInDocument(paragraph, bookmarkId);
+            bookmarkEndNode = findBookmarkEndNodeInDocument(paragraph, bookmarkId);
             if (bookmarkEndNode == null) {
-                System.err.println("未找到bookmarkEnd节点，ID: " + bookmarkId);
-                return "";
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "未找到bookmarkEnd节点，ID: " + bookmarkId);
+                }
+                return;
+            }
+        } catch (RuntimeException e) {
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "提取书签内容失败: " + e.getMessage());
             }
-            
-            // 提取两个节点之间的文本内容
-            return extractTextBetweenNodes(bookmarkStartNode, bookmarkEndNode);
-            
-        } catch (Exception e) {
-            System.err.println("提取书签内容失败: " + e.getMessage());
             // 如果XML解析失败，回退到段落文本
-            String paragraphText = paragraph.getText();
-            return paragraphText != null ? paragraphText.trim() : "";
+            out.append(paragraph.getText());
+            return;
         }
+        
+        // 提取两个节点之间的文本内容
+        appendTextBetweenNodes(bookmarkStartNode, bookmarkEndNode, out);
     }
     
     /**
@@ -974,7 +1415,7 @@ public class DocxUtils {
                 // 检查ID是否匹配
                 NamedNodeMap attributes = child.getAttributes();
                 if (attributes != null) {
-                    Node idAttr = attributes.getNamedItem("w:id");
+                    Node idAttr = attributes.getNamedItemNS(BookmarkIndex.WORDML_NS, "id");
                     if (idAttr != null) {
                         try {
                             BigInteger nodeId = new BigInteger(idAttr.getNodeValue());
@@ -995,45 +1436,33 @@ public class DocxUtils {
      * 查找指定ID的bookmarkEnd节点
      */
     private static Node findBookmarkEndNode(Node paragraphNode, BigInteger bookmarkId) {
+        long traceStart = DocxTrace.startNanos();
         NodeList children = paragraphNode.getChildNodes();
+        int visitedNodes = 0;
         for (int i = 0; i < children.getLength(); i++) {
             Node child = children.item(i);
-            
-            // 打印所有子节点信息用于调试
-            System.out.println("🔍 检查子节点: " + child.getNodeName() + ", 本地名: " + child.getLocalName() + ", 类型: " + child.getNodeType());
-            
+            visitedNodes++;
             if (child.getLocalName() != null && child.getLocalName().equals("bookmarkEnd")) {
-                System.out.println("🎯 找到bookmarkEnd节点！");
                 // 检查ID是否匹配
                 NamedNodeMap attributes = child.getAttributes();
-                if (attributes != null) {
-                    // 打印所有属性
-                    for (int j = 0; j < attributes.getLength(); j++) {
-                        Node attr = attributes.item(j);
-                        System.out.println("   属性: " + attr.getNodeName() + " = " + attr.getNodeValue());
-                    }
-                    
-                    Node idAttr = attributes.getNamedItem("w:id");
-                    if (idAttr != null) {
-                        try {
-                            BigInteger nodeId = new BigInteger(idAttr.getNodeValue());
-                            System.out.println("🔍 bookmarkEnd节点ID: " + nodeId + ", 查找的ID: " + bookmarkId + ", 匹配: " + nodeId.equals(bookmarkId));
-                            if (nodeId.equals(bookmarkId)) {
-                                System.out.println("✅ 找到bookmarkEnd节点，ID: " + nodeId + ", 节点名: " + child.getLocalName());
-                                return child;
-                            }
-                        } catch (NumberFormatException e) {
-                            // 忽略格式错误的ID
-                            System.out.println("⚠️ 无法解析bookmarkEnd ID: " + idAttr.getNodeValue());
+                Node idAttr = attributes != null ? attributes.getNamedItemNS(BookmarkIndex.WORDML_NS, "id") : null;
+                if (idAttr != null) {
+                    try {
+                        if (new BigInteger(idAttr.getNodeValue()).equals(bookmarkId)) {
+                            DocxOperation.count(0, visitedNodes);
+                            DocxTrace.emit("findBookmarkEnd", null, visitedNodes, traceStart);
+                            return child;
                         }
-                    } else {
-                        System.out.println("⚠️ bookmarkEnd节点没有w:id属性");
+                    } catch (NumberFormatException e) {
+                        // 忽略格式错误的ID
                     }
-                } else {
-                    System.out.println("⚠️ bookmarkEnd节点没有属性");
                 }
             }
         }
+        DocxOperation.count(0, visitedNodes);
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("findBookmarkEnd", null, visitedNodes, traceStart, "未找到bookmarkEnd节点，ID: " + bookmarkId);
+        }
         return null;
     }
     
@@ -1042,225 +1471,69 @@ public class DocxUtils {
      * 支持跨段落的书签结构，包括段落外的bookmarkEnd节点
      */
     private static Node findBookmarkEndNodeInDocument(XWPFParagraph startParagraph, BigInteger bookmarkId) {
-        try {
-            System.out.println("🔍 查找bookmarkEnd节点，ID: " + bookmarkId);
-            
-            // 首先在当前段落中查找
-            CTP ctp = startParagraph.getCTP();
-            Node paragraphNode = ctp.getDomNode();
-            Node bookmarkEndNode = findBookmarkEndNode(paragraphNode, bookmarkId);
-            if (bookmarkEndNode != null) {
-                System.out.println("✅ 在当前段落找到bookmarkEnd节点");
-                return bookmarkEndNode;
+        XWPFDocument document = startParagraph.getDocument();
+        BookmarkIndex.Entry entry = bookmarkIndex(document).findById(bookmarkId);
+        if (entry != null && !entry.isAttached()) {
+            invalidateBookmarkIndex(document);
+            entry = bookmarkIndex(document).findById(bookmarkId);
+        }
+        if (entry == null || entry.getEndNode() == null) {
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("findBookmarkEnd", null, 0, 0L, "在所有位置都未找到bookmarkEnd节点，ID: " + bookmarkId);
             }
-            
-            // 如果当前段落没找到，在后续段落中查找
-            // 获取文档对象
-            XWPFDocument document = startParagraph.getDocument();
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
-            
-            // 找到当前段落的索引
-            int startIndex = -1;
-            for (int i = 0; i < paragraphs.size(); i++) {
-                if (paragraphs.get(i) == startParagraph) {
-                    startIndex = i;
-                    break;
-                }
-            }
-            
-            if (startIndex == -1) {
-                System.out.println("❌ 找不到当前段落");
-                return null; // 找不到当前段落
-            }
-            
-            System.out.println("🔍 在后续段落中查找bookmarkEnd，从段落 " + (startIndex + 1) + " 开始，总段落数: " + paragraphs.size());
-            
-            // 在后续段落中查找bookmarkEnd
-            for (int i = startIndex + 1; i < paragraphs.size(); i++) {
-                XWPFParagraph paragraph = paragraphs.get(i);
-                CTP paragraphCTP = paragraph.getCTP();
-                Node paragraphNode2 = paragraphCTP.getDomNode();
-                
-                // 打印段落内容用于调试
-                String paragraphText = paragraph.getText();
-                System.out.println("🔍 检查段落 " + i + ": '" + paragraphText + "'");
-                
-                bookmarkEndNode = findBookmarkEndNode(paragraphNode2, bookmarkId);
-                if (bookmarkEndNode != null) {
-                    System.out.println("✅ 在段落 " + i + " 找到bookmarkEnd节点");
-                    return bookmarkEndNode;
-                }
-            }
-            
-            // 如果没找到，也检查当前段落之前的所有段落
-            System.out.println("🔍 检查当前段落之前的所有段落");
-            for (int i = 0; i <= startIndex; i++) {
-                XWPFParagraph paragraph = paragraphs.get(i);
-                CTP paragraphCTP = paragraph.getCTP();
-                Node paragraphNode2 = paragraphCTP.getDomNode();
-                
-                // 打印段落内容用于调试
-                String paragraphText = paragraph.getText();
-                System.out.println("🔍 检查段落 " + i + ": '" + paragraphText + "'");
-                
-                bookmarkEndNode = findBookmarkEndNode(paragraphNode2, bookmarkId);
-                if (bookmarkEndNode != null) {
-                    System.out.println("✅ 在段落 " + i + " 找到bookmarkEnd节点");
-                    return bookmarkEndNode;
-                }
-            }
-            
-            // 如果段落中都没找到，检查文档主体中的直接子节点
-            System.out.println("🔍 检查文档主体中的直接子节点");
-            try {
-                org.openxmlformats.schemas.wordprocessingml.x2006.main.CTDocument1 documentCT = document.getDocument();
-                Node documentNode = documentCT.getDomNode();
-                bookmarkEndNode = findBookmarkEndNodeInDocumentBody(documentNode, bookmarkId);
-                if (bookmarkEndNode != null) {
-                    System.out.println("✅ 在文档主体中找到bookmarkEnd节点");
-                    return bookmarkEndNode;
-                }
-            } catch (Exception e) {
-                System.out.println("⚠️ 检查文档主体失败: " + e.getMessage());
-            }
-            
-            System.out.println("❌ 在所有位置都未找到bookmarkEnd节点");
-            return null;
-        } catch (Exception e) {
-            System.err.println("在文档中查找bookmarkEnd节点失败: " + e.getMessage());
-            e.printStackTrace();
             return null;
         }
-    }
-    
-    /**
-     * 在文档主体中查找bookmarkEnd节点
-     */
-    private static Node findBookmarkEndNodeInDocumentBody(Node documentNode, BigInteger bookmarkId) {
-        NodeList children = documentNode.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            Node child = children.item(i);
-            System.out.println("🔍 检查文档主体子节点: " + child.getNodeName() + ", 本地名: " + child.getLocalName());
-            
-            if (child.getLocalName() != null && child.getLocalName().equals("bookmarkEnd")) {
-                System.out.println("🎯 在文档主体中找到bookmarkEnd节点！");
-                NamedNodeMap attributes = child.getAttributes();
-                if (attributes != null) {
-                    Node idAttr = attributes.getNamedItem("w:id");
-                    if (idAttr != null) {
-                        try {
-                            BigInteger nodeId = new BigInteger(idAttr.getNodeValue());
-                            System.out.println("🔍 文档主体bookmarkEnd节点ID: " + nodeId + ", 查找的ID: " + bookmarkId + ", 匹配: " + nodeId.equals(bookmarkId));
-                            if (nodeId.equals(bookmarkId)) {
-                                System.out.println("✅ 在文档主体中找到匹配的bookmarkEnd节点，ID: " + nodeId);
-                                return child;
-                            }
-                        } catch (NumberFormatException e) {
-                            System.out.println("⚠️ 无法解析文档主体bookmarkEnd ID: " + idAttr.getNodeValue());
-                        }
-                    }
-                }
-            } else if (child.getLocalName() != null && child.getLocalName().equals("body")) {
-                // 如果找到body节点，递归搜索其子节点
-                System.out.println("🔍 在body节点中递归搜索bookmarkEnd");
-                Node result = findBookmarkEndNodeInDocumentBody(child, bookmarkId);
-                if (result != null) {
-                    return result;
-                }
-            }
-        }
-        return null;
+        return entry.getEndNode();
     }
     
     /**
      * 提取两个节点之间的文本内容
      * 支持跨段落的书签内容提取
      */
-    private static String extractTextBetweenNodes(Node startNode, Node endNode) {
-        StringBuilder content = new StringBuilder();
-        
+    private static void appendTextBetweenNodes(Node startNode, Node endNode, BookmarkTextWriter out) throws IOException {
         // 如果startNode和endNode在同一个段落中
         if (startNode.getParentNode().equals(endNode.getParentNode())) {
             // 从startNode的下一个兄弟节点开始，到endNode的前一个兄弟节点结束
-            Node current = startNode.getNextSibling();
-            while (current != null && !current.equals(endNode)) {
-                if (current.getNodeType() == Node.TEXT_NODE) {
-                    content.append(current.getNodeValue());
-                } else if (current.getNodeType() == Node.ELEMENT_NODE) {
-                    // 如果是元素节点（如run），提取其中的文本
-                    String text = extractTextFromElement(current);
-                    if (!text.isEmpty()) {
-                        content.append(text);
-                    }
-                }
-                current = current.getNextSibling();
+            for (Node current = startNode.getNextSibling(); current != null && !current.equals(endNode);
+                 current = current.getNextSibling()) {
+                appendText(current, out);
             }
-        } else {
-            // 跨段落的情况：从startNode开始，到endNode结束
-            // 首先提取startNode所在段落中startNode之后的内容
-            Node current = startNode.getNextSibling();
-            while (current != null) {
-                if (current.getNodeType() == Node.TEXT_NODE) {
-                    content.append(current.getNodeValue());
-                } else if (current.getNodeType() == Node.ELEMENT_NODE) {
-                    String text = extractTextFromElement(current);
-                    if (!text.isEmpty()) {
-                        content.append(text);
-                    }
-                }
-                current = current.getNextSibling();
-            }
-            
-            // 然后提取中间段落的完整内容
-            Node startParent = startNode.getParentNode();
-            Node endParent = endNode.getParentNode();
-            Node currentParent = startParent.getNextSibling();
-            
-            while (currentParent != null && !currentParent.equals(endParent)) {
-                if (currentParent.getNodeType() == Node.ELEMENT_NODE) {
-                    String text = extractTextFromElement(currentParent);
-                    if (!text.isEmpty()) {
-                        content.append(text);
-                    }
-                }
-                currentParent = currentParent.getNextSibling();
-            }
-            
-            // 最后提取endNode所在段落中endNode之前的内容
-            current = endParent.getFirstChild();
-            while (current != null && !current.equals(endNode)) {
-                if (current.getNodeType() == Node.TEXT_NODE) {
-                    content.append(current.getNodeValue());
-                } else if (current.getNodeType() == Node.ELEMENT_NODE) {
-                    String text = extractTextFromElement(current);
-                    if (!text.isEmpty()) {
-                        content.append(text);
-                    }
-                }
-                current = current.getNextSibling();
+            return;
+        }
+        
+        // 跨段落的情况：从startNode开始，到endNode结束
+        // 首先提取startNode所在段落中startNode之后的内容
+        for (Node current = startNode.getNextSibling(); current != null; current = current.getNextSibling()) {
+            appendText(current, out);
+        }
+        
+        // 然后提取中间段落的完整内容
+        Node endParent = endNode.getParentNode();
+        for (Node current = startNode.getParentNode().getNextSibling(); current != null && !current.equals(endParent);
+             current = current.getNextSibling()) {
+            if (current.getNodeType() == Node.ELEMENT_NODE) {
+                appendText(current, out);
             }
         }
         
-        return content.toString().trim();
+        // 最后提取endNode所在段落中endNode之前的内容
+        for (Node current = endParent.getFirstChild(); current != null && !current.equals(endNode);
+             current = current.getNextSibling()) {
+            appendText(current, out);
+        }
     }
     
     /**
-     * 从元素节点中提取文本内容
+     * 按文档顺序写出节点（文本节点或元素节点的全部后代文本节点）中的文本
      */
-    private static String extractTextFromElement(Node element) {
-        StringBuilder text = new StringBuilder();
-        
-        if (element.getNodeType() == Node.TEXT_NODE) {
-            text.append(element.getNodeValue());
-        } else if (element.getNodeType() == Node.ELEMENT_NODE) {
-            // 递归提取子节点的文本
-            NodeList children = element.getChildNodes();
-            for (int i = 0; i < children.getLength(); i++) {
-                text.append(extractTextFromElement(children.item(i)));
+    private static void appendText(Node node, BookmarkTextWriter out) throws IOException {
+        if (node.getNodeType() == Node.TEXT_NODE) {
+            out.append(node.getNodeValue());
+        } else if (node.getNodeType() == Node.ELEMENT_NODE) {
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                appendText(child, out);
             }
         }
-        
-        return text.toString();
     }
     
     /**
@@ -1277,14 +1550,18 @@ public class DocxUtils {
             // 查找bookmarkStart节点
             Node bookmarkStartNode = findBookmarkStartNode(paragraphNode, bookmarkId);
             if (bookmarkStartNode == null) {
-                System.err.println("未找到bookmarkStart节点，ID: " + bookmarkId);
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "未找到bookmarkStart节点，ID: " + bookmarkId);
+                }
                 return runNodes;
             }
             
             // 查找对应的bookmarkEnd节点（支持跨段落）
             Node bookmarkEndNode = findBookmarkEndNodeInDocument(paragraph, bookmarkId);
             if (bookmarkEndNode == null) {
-                System.err.println("未找到bookmarkEnd节点，ID: " + bookmarkId);
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "未找到bookmarkEnd节点，ID: " + bookmarkId);
+                }
                 return runNodes;
             }
             
@@ -1292,10 +1569,10 @@ public class DocxUtils {
             XWPFDocument document = paragraph.getDocument();
             runNodes = extractParagraphNodesBetweenBookmarks(document, bookmarkStartNode, bookmarkEndNode);
             
-            System.out.println("✅ 提取到 " + runNodes.size() + " 个run节点，支持多段落书签，保持格式信息");
-            
         } catch (Exception e) {
-            System.err.println("提取run节点失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "提取run节点失败: " + e.getMessage());
+            }
         }
         
         return runNodes;
@@ -1316,7 +1593,9 @@ public class DocxUtils {
             Node bookmarkEndNode = findBookmarkEndNode(paragraphNode, bookmarkId);
             
             if (bookmarkStartNode == null || bookmarkEndNode == null) {
-                System.err.println("无法找到书签标记，ID: " + bookmarkId);
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "无法找到书签标记，ID: " + bookmarkId);
+                }
                 return;
             }
             
@@ -1326,10 +1605,10 @@ public class DocxUtils {
             // 在bookmarkStart之后插入新的内容
             insertContentAfterBookmarkStart(paragraph, bookmarkStartNode, newContent);
             
-            System.out.println("✅ 书签内容已替换，ID: " + bookmarkId);
-            
         } catch (Exception e) {
-            System.err.println("替换书签内容失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "替换书签内容失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1345,14 +1624,18 @@ public class DocxUtils {
             // 查找bookmarkStart节点
             Node bookmarkStartNode = findBookmarkStartNode(paragraphNode, bookmarkId);
             if (bookmarkStartNode == null) {
-                System.err.println("无法找到bookmarkStart节点，ID: " + bookmarkId);
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "无法找到bookmarkStart节点，ID: " + bookmarkId);
+                }
                 return;
             }
             
             // 查找bookmarkEnd节点（支持跨段落）
             Node bookmarkEndNode = findBookmarkEndNodeInDocument(paragraph, bookmarkId);
             if (bookmarkEndNode == null) {
-                System.err.println("无法找到bookmarkEnd节点，ID: " + bookmarkId);
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("markerNotFound", null, 0, 0L, "无法找到bookmarkEnd节点，ID: " + bookmarkId);
+                }
                 return;
             }
             
@@ -1365,10 +1648,10 @@ public class DocxUtils {
             // 在bookmarkStart之后插入节点（支持多段落）
             insertParagraphNodesAfterBookmarkStart(document, bookmarkStartNode, runNodes);
             
-            System.out.println("✅ 书签内容已替换为run节点，支持多段落，保持格式，ID: " + bookmarkId);
-            
         } catch (Exception e) {
-            System.err.println("替换书签内容为run节点失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "替换书签内容为run节点失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1406,12 +1689,14 @@ public class DocxUtils {
                 Node startParent = bookmarkStartNode.getParentNode();
                 Node endParent = bookmarkEndNode.getParentNode();
                 
-                // 获取段落索引
+                // 获取段落在所在容器中的索引，起止标记必须在同一容器中
+                BookmarkIndex.Container container = findContainerOfNode(document, startParent);
                 int startParagraphIndex = findParagraphIndexContainingNode(document, startParent);
-                int endParagraphIndex = findParagraphIndexContainingNode(document, endParent);
+                int endParagraphIndex = container != null && container == findContainerOfNode(document, endParent)
+                    ? container.findParagraphIndex(endParent) : -1;
                 
                 if (startParagraphIndex != -1 && endParagraphIndex != -1) {
-                    List<XWPFParagraph> paragraphs = document.getParagraphs();
+                    List<XWPFParagraph> paragraphs = container.getParagraphs();
                     
                     // 删除起始段落中bookmarkStart之后的内容
                     Node current = bookmarkStartNode.getNextSibling();
@@ -1463,10 +1748,10 @@ public class DocxUtils {
                 }
             }
             
-            System.out.println("✅ 多段落书签内容删除完成");
-            
         } catch (Exception e) {
-            System.err.println("删除多段落书签内容失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "删除多段落书签内容失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1486,7 +1771,9 @@ public class DocxUtils {
             bookmarkStartNode.getParentNode().insertBefore(newRunNode, bookmarkStartNode.getNextSibling());
             
         } catch (Exception e) {
-            System.err.println("插入新内容失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "插入新内容失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1522,10 +1809,10 @@ public class DocxUtils {
                 insertAfterNode = clonedRunNode;
             }
             
-            System.out.println("✅ 成功插入 " + runNodes.size() + " 个带格式的run节点，保持正确顺序");
-            
         } catch (Exception e) {
-            System.err.println("插入run节点失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "插入run节点失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1553,10 +1840,10 @@ public class DocxUtils {
                 );
             }
             
-            System.out.println("✅ 成功插入段落节点，支持多段落书签");
-            
         } catch (Exception e) {
-            System.err.println("插入段落节点失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "插入段落节点失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1570,22 +1857,14 @@ public class DocxUtils {
             // 找到bookmarkStart所在的段落
             XWPFParagraph startParagraph = findParagraphContainingNode(document, bookmarkStartNode);
             if (startParagraph == null) {
-                System.err.println("无法找到bookmarkStart所在的段落");
+                DocxTrace.emit("markerNotFound", null, 0, 0L, "无法找到bookmarkStart所在的段落");
                 return;
             }
             
-            // 获取文档的段落列表
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
-            int startParagraphIndex = -1;
-            for (int i = 0; i < paragraphs.size(); i++) {
-                if (paragraphs.get(i) == startParagraph) {
-                    startParagraphIndex = i;
-                    break;
-                }
-            }
-            
+            // 获取起始段落在所在容器中的索引
+            int startParagraphIndex = findParagraphIndexContainingNode(document, bookmarkStartNode);
             if (startParagraphIndex == -1) {
-                System.err.println("无法确定起始段落索引");
+                DocxTrace.emit("markerNotFound", null, 0, 0L, "无法确定起始段落索引");
                 return;
             }
             
@@ -1611,16 +1890,19 @@ public class DocxUtils {
                     newCTP.getDomNode().appendChild(child.cloneNode(true));
                 }
                 
-                // 将新段落插入到文档中
-                CTP startCTP = startParagraph.getCTP();
-                startCTP.getDomNode().getParentNode().insertBefore(
-                    newCTP.getDomNode(), 
-                    startCTP.getDomNode().getNextSibling()
+                // 将新段落插入到起始段落所在的容器中
+                Node startNode = startParagraph.getCTP().getDomNode();
+                startNode.getParentNode().insertBefore(
+                    adoptParagraphNode(document, newParagraph, startNode), 
+                    startNode.getNextSibling()
                 );
             }
+            invalidateBookmarkIndex(document);
             
         } catch (Exception e) {
-            System.err.println("插入多段落内容失败: " + e.getMessage());
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "插入多段落内容失败: " + e.getMessage());
+            }
         }
     }
     
@@ -1628,17 +1910,8 @@ public class DocxUtils {
      * 查找包含指定节点的段落
      */
     private static XWPFParagraph findParagraphContainingNode(XWPFDocument document, Node targetNode) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (XWPFParagraph paragraph : paragraphs) {
-            CTP ctp = paragraph.getCTP();
-            Node paragraphNode = ctp.getDomNode();
-            
-            if (isNodeContainedIn(paragraphNode, targetNode)) {
-                return paragraph;
-            }
-        }
-        return null;
+        BookmarkIndex.Container container = findContainerOfNode(document, targetNode);
+        return container != null ? container.getParagraph(container.findParagraphIndex(targetNode)) : null;
     }
     
     
@@ -1647,30 +1920,144 @@ public class DocxUtils {
      * 为书签设置内容并保持编号样式
      * 修复：使用DOM操作保持书签结构，避免破坏bookmarkStart和bookmarkEnd位置
      */
-    private static void setBookmarkContent(XWPFDocument document, String bookmarkName, String content) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
+    static void setBookmarkContent(XWPFDocument document, String bookmarkName, String content) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null || entry.getId() == null) {
+            throw new IllegalArgumentException("书签 " + bookmarkName + " 未找到");
+        }
+        try {
+            XWPFParagraph paragraph = entry.getStartParagraph();
+            Node bookmarkStartNode = entry.getStartNode();
+            
+            // 删除书签之间的内容（支持多段落书签），保持书签标记不变
+            if (entry.getEndNode() != null) {
+                removeContentBetweenBookmarksMultiParagraph(document, bookmarkStartNode, entry.getEndNode());
+            }
+            
+            // 在bookmarkStart之后插入新的内容
+            insertContentAfterBookmarkStart(paragraph, bookmarkStartNode, content);
+            
+        } catch (Exception e) {
+            throw new IllegalStateException("设置书签内容失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 删除书签及其包围的内容
+     * 被书签完整包围的段落整体删除，其余段落只删除书签范围内的内容和书签标记
+     */
+    static void deleteBookmark(XWPFDocument document, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null) {
+            throw new IllegalArgumentException("书签 " + bookmarkName + " 未找到");
+        }
+        BookmarkIndex index = bookmarkIndex(document);
+        BookmarkIndex.Container container = entry.getContainer();
+        Node bookmarkStartNode = entry.getStartNode();
+        Node bookmarkEndNode = entry.getEndNode();
+        int startIndex = entry.getStartParagraphIndex();
+        int endIndex = entry.getEndParagraphIndex();
         
-        for (XWPFParagraph paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmarkName)) {
-                try {
-                    // 获取书签ID
-                    BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
-                    if (bookmarkId == null) {
-                        System.err.println("无法找到书签ID: " + bookmarkName);
-                        break;
-                    }
-                    
-                    // 使用DOM操作替换内容，保持书签结构
-                    replaceContentBetweenBookmarks(paragraph, bookmarkId, content);
-                    
-                    System.out.println("✅ 书签内容已更新，保持书签结构: " + bookmarkName);
-                    break;
-                    
-                } catch (Exception e) {
-                    throw new IllegalStateException("设置书签内容失败: " + e.getMessage(), e);
-                }
+        // 只有起止标记都位于同一容器的段落中且顺序正常时，才考虑删除整段
+        boolean regular = bookmarkEndNode != null && endIndex >= startIndex;
+        boolean hasContent = regular && hasContentBetween(bookmarkStartNode, bookmarkEndNode);
+        boolean startCovered = hasContent && !hasContentBefore(bookmarkStartNode);
+        boolean endCovered = hasContent && !hasContentAfter(bookmarkEndNode);
+        
+        // 需要整段删除的段落范围
+        int from = startCovered ? startIndex : startIndex + 1;
+        int to = endCovered ? endIndex : endIndex - 1;
+        if (!regular || (startIndex == endIndex && !(startCovered && endCovered))) {
+            from = 0;
+            to = -1;
+        }
+        if (!container.isMainBody() && to - from + 1 >= container.getParagraphs().size()) {
+            // 表格单元格、页眉页脚和脚注中至少要保留一个段落
+            to--;
+        }
+        List<Node> paragraphNodesToRemove = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            paragraphNodesToRemove.add(container.getParagraph(i).getCTP().getDomNode());
+        }
+        
+        // 删除书签之间的内容和书签标记
+        if (regular) {
+            removeContentBetweenBookmarksMultiParagraph(document, bookmarkStartNode, bookmarkEndNode);
+        }
+        bookmarkStartNode.getParentNode().removeChild(bookmarkStartNode);
+        if (bookmarkEndNode != null && bookmarkEndNode.getParentNode() != null) {
+            bookmarkEndNode.getParentNode().removeChild(bookmarkEndNode);
+        }
+        
+        // 删除被完整包围的段落
+        for (Node paragraphNode : paragraphNodesToRemove) {
+            paragraphNode.getParentNode().removeChild(paragraphNode);
+        }
+        
+        if (cachedBookmarkIndex(document) == index && !index.isStale()) {
+            index.remove(bookmarkName);
+            index.paragraphsRemoved(container, from, paragraphNodesToRemove.size());
+        } else {
+            invalidateBookmarkIndex(document);
+        }
+        
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("deleteBookmark", bookmarkName, 0, 0L, "removedParagraphs=" + paragraphNodesToRemove.size());
+        }
+    }
+    
+    /**
+     * 检查节点是否为不承载内容的标记节点
+     */
+    private static boolean isMarkupNode(Node node) {
+        if (node.getNodeType() != Node.ELEMENT_NODE) {
+            return true;
+        }
+        String localName = node.getLocalName();
+        return "pPr".equals(localName) || "bookmarkStart".equals(localName) 
+            || "bookmarkEnd".equals(localName) || "proofErr".equals(localName);
+    }
+    
+    /**
+     * 检查bookmarkStart之前的同级节点中是否有内容
+     */
+    private static boolean hasContentBefore(Node node) {
+        for (Node current = node.getPreviousSibling(); current != null; current = current.getPreviousSibling()) {
+            if (!isMarkupNode(current)) {
+                return true;
             }
         }
+        return false;
+    }
+    
+    /**
+     * 检查bookmarkEnd之后的同级节点中是否有内容
+     */
+    private static boolean hasContentAfter(Node node) {
+        for (Node current = node.getNextSibling(); current != null; current = current.getNextSibling()) {
+            if (!isMarkupNode(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 检查两个书签标记之间是否有内容（支持多段落书签）
+     */
+    private static boolean hasContentBetween(Node bookmarkStartNode, Node bookmarkEndNode) {
+        Node startParent = bookmarkStartNode.getParentNode();
+        Node endParent = bookmarkEndNode.getParentNode();
+        for (Node current = bookmarkStartNode.getNextSibling(); current != null; current = current.getNextSibling()) {
+            if (current == bookmarkEndNode) {
+                return false;
+            }
+            if (!isMarkupNode(current)) {
+                return true;
+            }
+        }
+        // 跨段落：起始段落之后还有其他段落即视为有内容
+        return startParent != endParent;
     }
     
     /**
@@ -1697,263 +2084,678 @@ public class DocxUtils {
      * 为单段落书签设置段落内容
      */
     private static void setSingleParagraphContentFromParagraphContent(XWPFDocument document, String bookmarkName, List<ParagraphContent> paragraphContents) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (XWPFParagraph paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmarkName)) {
-                try {
-                    // 获取书签ID
-                    BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
-                    if (bookmarkId == null) {
-                        System.err.println("无法找到书签ID: " + bookmarkName);
-                        break;
-                    }
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null) {
+            return;
+        }
+        try {
+            // 获取书签ID
+            BigInteger bookmarkId = entry.getId();
+            if (bookmarkId == null) {
+                DocxTrace.emit("markerNotFound", bookmarkName, 0, 0L, "无法找到书签ID");
+                return;
+            }
+            
+            // 合并所有段落的run节点
+            List<Node> allRunNodes = new ArrayList<>();
+            for (ParagraphContent content : paragraphContents) {
+                allRunNodes.addAll(content.getRunNodes());
+            }
+            
+            // 使用DOM操作替换内容为run节点，保持书签结构和格式
+            XWPFParagraph paragraph = entry.getStartParagraph();
+            replaceContentBetweenBookmarksWithRunNodes(paragraph, bookmarkId, allRunNodes);
+            
+        } catch (Exception e) {
+            throw new IllegalStateException("设置单段落书签内容失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 为多段落书签设置段落内容
+     */
+    private static void setMultiParagraphContentFromParagraphContent(XWPFDocument document, String bookmarkName, 
+                                                                    List<ParagraphContent> paragraphContents, BookmarkRange targetRange) {
+        try {
+            List<XWPFParagraph> paragraphs = bookmarkIndex(document).findContainer(targetRange).getParagraphs();
+            int startIndex = targetRange.getStart();
+            int endIndex = targetRange.getEnd();
+            
+            // 确保源段落数和目标段落数匹配
+            int targetParagraphCount = endIndex - startIndex + 1;
+            if (paragraphContents.size() != targetParagraphCount && DocxTrace.isEnabled()) {
+                DocxTrace.emit("paragraphCountMismatch", bookmarkName, 0, 0L,
+                               "source=" + paragraphContents.size() + " target=" + targetParagraphCount);
+            }
+            
+            // 获取书签ID（从书签索引中获取）
+            BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+            BigInteger bookmarkId = entry != null ? entry.getId() : null;
+            
+            if (bookmarkId == null) {
+                throw new IllegalStateException("无法找到书签ID: " + bookmarkName);
+            }
+            
+            // 为每个目标段落设置对应的源段落内容
+            for (int i = 0; i < Math.min(paragraphContents.size(), targetParagraphCount); i++) {
+                int targetParagraphIndex = startIndex + i;
+                if (targetParagraphIndex < paragraphs.size()) {
+                    XWPFParagraph targetParagraph = paragraphs.get(targetParagraphIndex);
+                    ParagraphContent sourceContent = paragraphContents.get(i);
                     
-                    // 合并所有段落的run节点
-                    List<Node> allRunNodes = new ArrayList<>();
-                    for (ParagraphContent content : paragraphContents) {
-                        allRunNodes.addAll(content.getRunNodes());
+                    if (i == 0) {
+                        // 第一个段落：替换bookmarkStart和bookmarkEnd之间的内容
+                        replaceContentBetweenBookmarksWithRunNodes(targetParagraph, bookmarkId, sourceContent.getRunNodes());
+                    } else {
+                        // 中间段落：直接替换整个段落的内容
+                        replaceParagraphContentWithRunNodes(targetParagraph, sourceContent.getRunNodes());
                     }
-                    
-                    // 使用DOM操作替换内容为run节点，保持书签结构和格式
-                    replaceContentBetweenBookmarksWithRunNodes(paragraph, bookmarkId, allRunNodes);
-                    
-                    System.out.println("✅ 单段落书签内容已更新，保持格式和书签结构: " + bookmarkName);
-                    break;
-                    
-                } catch (Exception e) {
-                    throw new IllegalStateException("设置单段落书签内容失败: " + e.getMessage(), e);
                 }
             }
+            
+        } catch (Exception e) {
+            throw new IllegalStateException("设置多段落书签内容失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 替换段落内容为run节点（保持格式）
+     * 用于多段落书签的中间段落
+     */
+    private static void replaceParagraphContentWithRunNodes(XWPFParagraph paragraph, List<Node> runNodes) {
+        try {
+            CTP ctp = paragraph.getCTP();
+            Node paragraphNode = ctp.getDomNode();
+            
+            // 删除段落中的所有内容节点（保留段落属性和书签标记）
+            List<Node> nodesToRemove = new ArrayList<>();
+            Node firstBookmarkEnd = null;
+            for (Node child = paragraphNode.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    String localName = child.getLocalName();
+                    if ("bookmarkEnd".equals(localName)) {
+                        if (firstBookmarkEnd == null) {
+                            firstBookmarkEnd = child;
+                        }
+                    } else if (!"pPr".equals(localName) && !"bookmarkStart".equals(localName)) {
+                        nodesToRemove.add(child);
+                    }
+                }
+            }
+            
+            for (Node node : nodesToRemove) {
+                paragraphNode.removeChild(node);
+            }
+            
+            // 插入新的run节点（位于bookmarkEnd之前，保证书签仍然包围内容）
+            for (Node runNode : runNodes) {
+                Node importedNode = paragraphNode.getOwnerDocument().importNode(runNode, true);
+                paragraphNode.insertBefore(importedNode, firstBookmarkEnd);
+            }
+            
+        } catch (Exception e) {
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("operationFailed", null, 0, 0L, "替换段落内容为run节点失败: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * 为书签设置run节点内容（保持格式）
+     * 修复：使用run节点设置内容以保持所有格式信息
+     */
+    private static void setBookmarkContentFromRunNodes(XWPFDocument document, String bookmarkName, List<Node> runNodes) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+        if (entry == null) {
+            return;
+        }
+        try {
+            // 获取书签ID
+            BigInteger bookmarkId = entry.getId();
+            if (bookmarkId == null) {
+                DocxTrace.emit("markerNotFound", bookmarkName, 0, 0L, "无法找到书签ID");
+                return;
+            }
+            
+            // 使用DOM操作替换内容为run节点，保持书签结构和格式
+            XWPFParagraph paragraph = entry.getStartParagraph();
+            replaceContentBetweenBookmarksWithRunNodes(paragraph, bookmarkId, runNodes);
+            
+        } catch (Exception e) {
+            throw new IllegalStateException("设置书签run节点内容失败: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * 获取书签的ID
+     */
+    private static BigInteger getBookmarkId(XWPFParagraph paragraph, String bookmarkName) {
+        BookmarkIndex.Entry entry = findBookmarkEntry(paragraph.getDocument(), bookmarkName);
+        if (entry == null || !bookmarkIndex(paragraph.getDocument()).containsBookmark(paragraph, bookmarkName)) {
+            return null;
+        }
+        return entry.getId();
+    }
+    
+    
+    /**
+     * 只读查询先流式读取主文档部件；主文档部件中没有该书签时，再流式检查页眉、页脚、脚注和尾注部件，
+     * 只有其中有同名的书签起始标记时才打开文档用书签索引查询，书签不存在时不会构建XWPFDocument
+     */
+    private static <T> T queryBookmark(String documentPath, String bookmarkName,
+                                       Function<BookmarkStreamReader.Result, T> streamQuery,
+                                       Function<DocxSession, T> sessionQuery) throws IOException {
+        BookmarkStreamReader.Result result = BookmarkStreamReader.read(documentPath, bookmarkName);
+        if (result.isFound() || !BookmarkPartScanner.containsBookmarkOutsideMainPart(documentPath, bookmarkName)) {
+            return streamQuery.apply(result);
+        }
+        DocxMetrics.fallback("stream-query");
+        try (DocxSession session = DocxSession.open(documentPath)) {
+            return sessionQuery.apply(session);
+        }
+    }
+
+    private static <T> T queryBookmark(byte[] document, String bookmarkName,
+                                       Function<BookmarkStreamReader.Result, T> streamQuery,
+                                       Function<DocxSession, T> sessionQuery) throws IOException {
+        BookmarkStreamReader.Result result = BookmarkStreamReader.read(new ByteArrayInputStream(document), bookmarkName);
+        if (result.isFound() || !BookmarkPartScanner.containsBookmarkOutsideMainPart(document, bookmarkName)) {
+            return streamQuery.apply(result);
+        }
+        DocxMetrics.fallback("stream-query");
+        try (DocxSession session = DocxSession.open(new ByteArrayInputStream(document))) {
+            return sessionQuery.apply(session);
+        }
+    }
+
+    /**
+     * 获取文档中指定书签的内容（公共方法，用于测试验证）
+     * @param documentPath 文档路径
+     * @param bookmarkName 书签名称
+     * @return 书签内容，如果未找到返回null
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static String getBookmarkContentFromFile(String documentPath, String bookmarkName) 
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkContentFromFile")) {
+            // 只读查询走流式读取，不构建XWPFDocument
+            StringBuilder content = new StringBuilder();
+            BookmarkStreamReader.Result result = BookmarkStreamReader.scanText(documentPath, bookmarkName, content);
+            if (result.isFound()) {
+                return operation.success(bookmarkContent(result, content));
+            }
+            if (!BookmarkPartScanner.containsBookmarkOutsideMainPart(documentPath, bookmarkName)) {
+                return operation.success(null);
+            }
+            DocxMetrics.fallback("stream-query");
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                return operation.success(session.getBookmarkContent(bookmarkName));
+            }
+        }
+    }
+
+    /**
+     * 获取文档中指定书签的内容，从输入流读取文档（不会关闭输入流）
+     * 输入流的内容先读入内存（压缩后的大小），与读取内存中的文档内容相同，页眉、页脚、脚注和尾注中的书签也能找到
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @return 书签内容，如果未找到返回null
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static String getBookmarkContentFromFile(InputStream inputStream, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkContentFromFile")) {
+            return operation.success(getBookmarkContentFromFile(IOUtils.toByteArray(inputStream), bookmarkName));
+        }
+    }
+
+    /**
+     * 获取文档中指定书签的内容，读取内存中的文档内容
+     * @param document 文档内容
+     * @param bookmarkName 书签名称
+     * @return 书签内容，如果未找到返回null
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static String getBookmarkContentFromFile(byte[] document, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkContentFromFile")) {
+            StringBuilder content = new StringBuilder();
+            BookmarkStreamReader.Result result =
+                BookmarkStreamReader.scanText(new ByteArrayInputStream(document), bookmarkName, content);
+            if (result.isFound()) {
+                return operation.success(bookmarkContent(result, content));
+            }
+            if (!BookmarkPartScanner.containsBookmarkOutsideMainPart(document, bookmarkName)) {
+                return operation.success(null);
+            }
+            DocxMetrics.fallback("stream-query");
+            try (DocxSession session = DocxSession.open(new ByteArrayInputStream(document))) {
+                return operation.success(session.getBookmarkContent(bookmarkName));
+            }
+        }
+    }
+
+    /**
+     * 流式读取到的书签内容；缺少结束标记的书签与文档模型一样按空内容处理
+     */
+    private static String bookmarkContent(BookmarkStreamReader.Result result, StringBuilder content) {
+        return result.isResolved() ? content.toString() : "";
+    }
+
+    /**
+     * 把书签内容（已去除首尾空白）直接写入调用方提供的 Appendable，不生成中间字符串；
+     * 先流式读取主文档部件，主文档部件中没有该书签时流式检查其他部件，其中有该书签时才打开文档用书签索引查询
+     *
+     * <pre>
+     * try (Writer writer = Files.newBufferedWriter(outputPath)) {
+     *     DocxUtils.writeBookmarkContent("doc/report.docx", "summary", writer);
+     * }
+     * </pre>
+     *
+     * 书签缺少结束标记时，流式读取已写出的内容会留在 out 中
+     * @param documentPath 文档路径
+     * @param bookmarkName 书签名称
+     * @param out 书签内容写入的位置，例如 StringBuilder、Writer
+     * @return 书签是否存在，不存在时不写入任何内容
+     * @throws IOException 读取文档或写入 out 失败时抛出
+     */
+    public static boolean writeBookmarkContent(String documentPath, String bookmarkName, Appendable out) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("writeBookmarkContent")) {
+            if (BookmarkStreamReader.readText(documentPath, bookmarkName, out)) {
+                return operation.success(true);
+            }
+            if (!BookmarkPartScanner.containsBookmarkOutsideMainPart(documentPath, bookmarkName)) {
+                return operation.success(false);
+            }
+            DocxMetrics.fallback("stream-query");
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                return operation.success(session.writeBookmarkContent(bookmarkName, out));
+            }
+        }
+    }
+
+    /**
+     * 把书签内容写入 out，从输入流读取文档（不会关闭输入流）
+     * 输入流的内容先读入内存（压缩后的大小），与读取内存中的文档内容相同，页眉、页脚、脚注和尾注中的书签也能找到
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @param out 书签内容写入的位置
+     * @return 书签是否存在，不存在时不写入任何内容
+     * @throws IOException 读取文档或写入 out 失败时抛出
+     */
+    public static boolean writeBookmarkContent(InputStream inputStream, String bookmarkName, Appendable out) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("writeBookmarkContent")) {
+            return operation.success(writeBookmarkContent(IOUtils.toByteArray(inputStream), bookmarkName, out));
+        }
+    }
+
+    /**
+     * 把书签内容写入 out，读取内存中的文档内容
+     * @param document 文档内容
+     * @param bookmarkName 书签名称
+     * @param out 书签内容写入的位置
+     * @return 书签是否存在，不存在时不写入任何内容
+     * @throws IOException 读取文档或写入 out 失败时抛出
+     */
+    public static boolean writeBookmarkContent(byte[] document, String bookmarkName, Appendable out) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("writeBookmarkContent")) {
+            if (BookmarkStreamReader.readText(new ByteArrayInputStream(document), bookmarkName, out)) {
+                return operation.success(true);
+            }
+            if (!BookmarkPartScanner.containsBookmarkOutsideMainPart(document, bookmarkName)) {
+                return operation.success(false);
+            }
+            DocxMetrics.fallback("stream-query");
+            try (DocxSession session = DocxSession.open(new ByteArrayInputStream(document))) {
+                return operation.success(session.writeBookmarkContent(bookmarkName, out));
+            }
+        }
+    }
+    
+    /**
+     * 从文件中获取书签包含的段落数量
+     * @param documentPath 文档路径
+     * @param bookmarkName 书签名称
+     * @return 书签包含的段落数量
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static int getBookmarkParagraphCountFromFile(String documentPath, String bookmarkName) 
+                                                       throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkParagraphCountFromFile")) {
+            return operation.success(queryBookmark(documentPath, bookmarkName, BookmarkStreamReader.Result::getParagraphCount,
+                                 session -> session.getBookmarkParagraphCount(bookmarkName)));
+        }
+    }
+
+    /**
+     * 获取书签包含的段落数量，从输入流读取文档（不会关闭输入流）
+     * 输入流的内容先读入内存（压缩后的大小），与读取内存中的文档内容相同，页眉、页脚、脚注和尾注中的书签也能找到
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @return 书签包含的段落数量
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static int getBookmarkParagraphCountFromFile(InputStream inputStream, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkParagraphCountFromFile")) {
+            return operation.success(getBookmarkParagraphCountFromFile(IOUtils.toByteArray(inputStream), bookmarkName));
+        }
+    }
+
+    /**
+     * 获取书签包含的段落数量，读取内存中的文档内容
+     * @param document 文档内容
+     * @param bookmarkName 书签名称
+     * @return 书签包含的段落数量
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static int getBookmarkParagraphCountFromFile(byte[] document, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkParagraphCountFromFile")) {
+            return operation.success(queryBookmark(document, bookmarkName, BookmarkStreamReader.Result::getParagraphCount,
+                                 session -> session.getBookmarkParagraphCount(bookmarkName)));
+        }
+    }
+    
+    /**
+     * 比较两个书签中对应段落的样式是否一致
+     * @param documentPath 文档路径
+     * @param bookmarkName1 第一个书签名称
+     * @param bookmarkName2 第二个书签名称
+     * @return 样式是否一致
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static boolean compareBookmarkParagraphStyles(String documentPath, String bookmarkName1, String bookmarkName2) 
+                                                         throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("compareBookmarkParagraphStyles")) {
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                return operation.success(session.compareBookmarkParagraphStyles(bookmarkName1, bookmarkName2));
+            }
+        }
+    }
+
+    /**
+     * 比较两个书签中对应段落的样式是否一致，从输入流读取文档（不会关闭输入流）
+     * @param inputStream 文档输入流
+     * @param bookmarkName1 第一个书签名称
+     * @param bookmarkName2 第二个书签名称
+     * @return 样式是否一致
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static boolean compareBookmarkParagraphStyles(InputStream inputStream, String bookmarkName1, String bookmarkName2)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("compareBookmarkParagraphStyles")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                return operation.success(session.compareBookmarkParagraphStyles(bookmarkName1, bookmarkName2));
+            }
+        }
+    }
+
+    /**
+     * 比较两个书签中对应段落的样式是否一致，读取内存中的文档内容
+     * @param document 文档内容
+     * @param bookmarkName1 第一个书签名称
+     * @param bookmarkName2 第二个书签名称
+     * @return 样式是否一致
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static boolean compareBookmarkParagraphStyles(byte[] document, String bookmarkName1, String bookmarkName2)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("compareBookmarkParagraphStyles")) {
+            return operation.success(compareBookmarkParagraphStyles(new ByteArrayInputStream(document), bookmarkName1, bookmarkName2));
+        }
+    }
+
+    /**
+     * 找出段落样式相同的书签：书签包含的段落数量和每个对应段落的样式都相同时属于同一组
+     * @param documentPath 文档路径
+     * @return 包含两个及以上书签的分组，按书签在文档中出现的顺序排列
+     * @throws IOException
+     */
+    public static List<List<String>> findBookmarksWithSameParagraphStyles(String documentPath) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("findBookmarksWithSameParagraphStyles")) {
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                return operation.success(session.findBookmarksWithSameParagraphStyles());
+            }
+        }
+    }
+
+    /**
+     * 找出段落样式相同的书签，从输入流读取文档（不会关闭输入流）
+     * @param inputStream 文档输入流
+     * @return 包含两个及以上书签的分组，按书签在文档中出现的顺序排列
+     * @throws IOException
+     */
+    public static List<List<String>> findBookmarksWithSameParagraphStyles(InputStream inputStream) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("findBookmarksWithSameParagraphStyles")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                return operation.success(session.findBookmarksWithSameParagraphStyles());
+            }
+        }
+    }
+
+    /**
+     * 找出段落样式相同的书签，读取内存中的文档内容
+     * @param document 文档内容
+     * @return 包含两个及以上书签的分组，按书签在文档中出现的顺序排列
+     * @throws IOException
+     */
+    public static List<List<String>> findBookmarksWithSameParagraphStyles(byte[] document) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("findBookmarksWithSameParagraphStyles")) {
+            return operation.success(findBookmarksWithSameParagraphStyles(new ByteArrayInputStream(document)));
+        }
+    }
+
+    /**
+     * 打开文档一次，查询多个书签的内容、范围、段落数量、编号样式和样式指纹
+     * 适合对同一文档的大量书签逐项检查，避免每项查询都重新打开和解析文档
+     * @param documentPath 文档路径
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到查询结果的映射，按请求的顺序排列，包含所有请求的书签（未找到的书签 isFound() 为false）
+     * @throws IOException
+     */
+    public static Map<String, BookmarkInfo> getBookmarkInfo(String documentPath, Collection<String> bookmarkNames)
+            throws IOException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkInfo")) {
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                return operation.success(session.getBookmarkInfo(bookmarkNames));
+            }
+        }
+    }
+
+    /**
+     * 查询多个书签的信息，从输入流读取文档（不会关闭输入流）
+     * @param inputStream 文档输入流
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到查询结果的映射，按请求的顺序排列，包含所有请求的书签
+     * @throws IOException
+     */
+    public static Map<String, BookmarkInfo> getBookmarkInfo(InputStream inputStream, Collection<String> bookmarkNames)
+            throws IOException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkInfo")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                return operation.success(session.getBookmarkInfo(bookmarkNames));
+            }
         }
     }
-    
+
     /**
-     * 为多段落书签设置段落内容
+     * 查询多个书签的信息，读取内存中的文档内容
+     * @param document 文档内容
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到查询结果的映射，按请求的顺序排列，包含所有请求的书签
+     * @throws IOException
      */
-    private static void setMultiParagraphContentFromParagraphContent(XWPFDocument document, String bookmarkName, 
-                                                                    List<ParagraphContent> paragraphContents, BookmarkRange targetRange) {
-        try {
-            List<XWPFParagraph> paragraphs = document.getParagraphs();
-            int startIndex = targetRange.getStart();
-            int endIndex = targetRange.getEnd();
-            
-            System.out.println("📝 设置多段落书签内容，段落数: " + paragraphContents.size() + 
-                             " (目标段落 " + startIndex + " 到 " + endIndex + ")");
-            
-            // 确保源段落数和目标段落数匹配
-            int targetParagraphCount = endIndex - startIndex + 1;
-            if (paragraphContents.size() != targetParagraphCount) {
-                System.err.println("⚠️ 源段落数(" + paragraphContents.size() + 
-                                 ")与目标段落数(" + targetParagraphCount + ")不匹配");
-            }
-            
-            // 获取书签ID（只在第一个段落中查找）
-            BigInteger bookmarkId = null;
-            if (startIndex < paragraphs.size()) {
-                bookmarkId = getBookmarkId(paragraphs.get(startIndex), bookmarkName);
-            }
-            
-            if (bookmarkId == null) {
-                throw new IllegalStateException("无法找到书签ID: " + bookmarkName);
-            }
-            
-            // 为每个目标段落设置对应的源段落内容
-            for (int i = 0; i < Math.min(paragraphContents.size(), targetParagraphCount); i++) {
-                int targetParagraphIndex = startIndex + i;
-                if (targetParagraphIndex < paragraphs.size()) {
-                    XWPFParagraph targetParagraph = paragraphs.get(targetParagraphIndex);
-                    ParagraphContent sourceContent = paragraphContents.get(i);
-                    
-                    if (i == 0) {
-                        // 第一个段落：替换bookmarkStart和bookmarkEnd之间的内容
-                        replaceContentBetweenBookmarksWithRunNodes(targetParagraph, bookmarkId, sourceContent.getRunNodes());
-                    } else {
-                        // 中间段落：直接替换整个段落的内容
-                        replaceParagraphContentWithRunNodes(targetParagraph, sourceContent.getRunNodes());
-                    }
-                }
-            }
-            
-            System.out.println("✅ 多段落书签内容已更新，保持段落结构: " + bookmarkName);
-            
-        } catch (Exception e) {
-            throw new IllegalStateException("设置多段落书签内容失败: " + e.getMessage(), e);
+    public static Map<String, BookmarkInfo> getBookmarkInfo(byte[] document, Collection<String> bookmarkNames)
+            throws IOException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkInfo")) {
+            return operation.success(getBookmarkInfo(new ByteArrayInputStream(document), bookmarkNames));
         }
     }
-    
+
     /**
-     * 替换段落内容为run节点（保持格式）
-     * 用于多段落书签的中间段落
+     * 比较两个文档中的书签，报告新增、删除、移动、内容变化和样式变化的书签（见 {@link BookmarkDiff}）
+     * 每个文档只解析一次
+     * @param oldDocumentPath 旧文档路径
+     * @param newDocumentPath 新文档路径
+     * @return 书签差异
+     * @throws IOException
      */
-    private static void replaceParagraphContentWithRunNodes(XWPFParagraph paragraph, List<Node> runNodes) {
-        try {
-            CTP ctp = paragraph.getCTP();
-            Node paragraphNode = ctp.getDomNode();
-            
-            // 删除段落中的所有内容节点（保留段落属性）
-            List<Node> nodesToRemove = new ArrayList<>();
-            for (int i = 0; i < paragraphNode.getChildNodes().getLength(); i++) {
-                Node child = paragraphNode.getChildNodes().item(i);
-                if (child.getNodeType() == Node.ELEMENT_NODE) {
-                    String localName = child.getLocalName();
-                    // 保留段落属性节点，删除其他内容节点
-                    if (!"pPr".equals(localName)) {
-                        nodesToRemove.add(child);
-                    }
-                }
-            }
-            
-            for (Node node : nodesToRemove) {
-                paragraphNode.removeChild(node);
-            }
-            
-            // 插入新的run节点
-            for (Node runNode : runNodes) {
-                Node importedNode = paragraphNode.getOwnerDocument().importNode(runNode, true);
-                paragraphNode.appendChild(importedNode);
+    public static BookmarkDiff diffBookmarks(String oldDocumentPath, String newDocumentPath) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("diffBookmarks")) {
+            try (DocxSession oldSession = DocxSession.open(oldDocumentPath);
+                 DocxSession newSession = DocxSession.open(newDocumentPath)) {
+                return operation.success(oldSession.diffBookmarks(newSession));
             }
-            
-            System.out.println("✅ 段落内容已替换为run节点，保持格式");
-            
-        } catch (Exception e) {
-            System.err.println("替换段落内容为run节点失败: " + e.getMessage());
         }
     }
-    
+
     /**
-     * 为书签设置run节点内容（保持格式）
-     * 修复：使用run节点设置内容以保持所有格式信息
+     * 比较两个文档中的书签，从输入流读取文档（不会关闭输入流）
+     * @param oldInputStream 旧文档输入流
+     * @param newInputStream 新文档输入流
+     * @return 书签差异
+     * @throws IOException
      */
-    private static void setBookmarkContentFromRunNodes(XWPFDocument document, String bookmarkName, List<Node> runNodes) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (XWPFParagraph paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmarkName)) {
-                try {
-                    // 获取书签ID
-                    BigInteger bookmarkId = getBookmarkId(paragraph, bookmarkName);
-                    if (bookmarkId == null) {
-                        System.err.println("无法找到书签ID: " + bookmarkName);
-                        break;
-                    }
-                    
-                    // 使用DOM操作替换内容为run节点，保持书签结构和格式
-                    replaceContentBetweenBookmarksWithRunNodes(paragraph, bookmarkId, runNodes);
-                    
-                    System.out.println("✅ 书签内容已更新为run节点，保持格式和书签结构: " + bookmarkName);
-                    break;
-                    
-                } catch (Exception e) {
-                    throw new IllegalStateException("设置书签run节点内容失败: " + e.getMessage(), e);
-                }
+    public static BookmarkDiff diffBookmarks(InputStream oldInputStream, InputStream newInputStream) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("diffBookmarks")) {
+            try (DocxSession oldSession = DocxSession.open(oldInputStream);
+                 DocxSession newSession = DocxSession.open(newInputStream)) {
+                return operation.success(oldSession.diffBookmarks(newSession));
             }
         }
     }
-    
+
     /**
-     * 获取书签的ID
+     * 比较两个文档中的书签，读取内存中的文档内容
+     * @param oldDocument 旧文档内容
+     * @param newDocument 新文档内容
+     * @return 书签差异
+     * @throws IOException
      */
-    private static BigInteger getBookmarkId(XWPFParagraph paragraph, String bookmarkName) {
-        try {
-            CTP ctp = paragraph.getCTP();
-            CTBookmark[] bookmarks = ctp.getBookmarkStartArray();
-            
-            for (CTBookmark bookmark : bookmarks) {
-                if (bookmarkName.equals(bookmark.getName())) {
-                    return bookmark.getId();
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("获取书签ID失败: " + e.getMessage());
+    public static BookmarkDiff diffBookmarks(byte[] oldDocument, byte[] newDocument) throws IOException {
+        try (DocxOperation operation = DocxOperation.start("diffBookmarks")) {
+            return operation.success(diffBookmarks(new ByteArrayInputStream(oldDocument), new ByteArrayInputStream(newDocument)));
         }
-        return null;
     }
-    
-    
+
     /**
-     * 获取文档中指定书签的内容（公共方法，用于测试验证）
+     * 获取书签在文档中的位置（公共方法，用于测试验证）
      * @param documentPath 文档路径
      * @param bookmarkName 书签名称
-     * @return 书签内容，如果未找到返回null
+     * @return 书签位置，如果未找到返回-1
      * @throws IOException
      * @throws InvalidFormatException
      * @throws XmlException
      */
-    public static String getBookmarkContentFromFile(String documentPath, String bookmarkName) 
+    public static int getBookmarkPositionFromFile(String documentPath, String bookmarkName) 
+                                                 throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkPositionFromFile")) {
+            return operation.success(queryBookmark(documentPath, bookmarkName, BookmarkStreamReader.Result::getPosition,
+                                 session -> session.getBookmarkPosition(bookmarkName)));
+        }
+    }
+
+    /**
+     * 获取书签在文档中的位置，从输入流读取文档（不会关闭输入流）
+     * 输入流的内容先读入内存（压缩后的大小），与读取内存中的文档内容相同，页眉、页脚、脚注和尾注中的书签也能找到
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @return 书签位置，如果未找到返回-1
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static int getBookmarkPositionFromFile(InputStream inputStream, String bookmarkName)
                                                    throws IOException, InvalidFormatException, XmlException {
-        try (FileInputStream fis = new FileInputStream(documentPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            return getBookmarkContent(document, bookmarkName);
+        try (DocxOperation operation = DocxOperation.start("getBookmarkPositionFromFile")) {
+            return operation.success(getBookmarkPositionFromFile(IOUtils.toByteArray(inputStream), bookmarkName));
         }
     }
-    
+
     /**
-     * 从文件中获取书签包含的段落数量
-     * @param documentPath 文档路径
+     * 获取书签在文档中的位置，读取内存中的文档内容
+     * @param document 文档内容
      * @param bookmarkName 书签名称
-     * @return 书签包含的段落数量
+     * @return 书签位置，如果未找到返回-1
      * @throws IOException
      * @throws InvalidFormatException
      * @throws XmlException
      */
-    public static int getBookmarkParagraphCountFromFile(String documentPath, String bookmarkName) 
-                                                       throws IOException, InvalidFormatException, XmlException {
-        try (FileInputStream fis = new FileInputStream(documentPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            return getBookmarkParagraphCount(document, bookmarkName);
+    public static int getBookmarkPositionFromFile(byte[] document, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkPositionFromFile")) {
+            return operation.success(queryBookmark(document, bookmarkName, BookmarkStreamReader.Result::getPosition,
+                                 session -> session.getBookmarkPosition(bookmarkName)));
         }
     }
     
     /**
-     * 比较两个书签中对应段落的样式是否一致
+     * 获取书签在文档中的范围（公共方法，用于测试验证）
      * @param documentPath 文档路径
-     * @param bookmarkName1 第一个书签名称
-     * @param bookmarkName2 第二个书签名称
-     * @return 样式是否一致
+     * @param bookmarkName 书签名称
+     * @return 书签范围，如果未找到返回BookmarkRange(-1, -1)
      * @throws IOException
      * @throws InvalidFormatException
      * @throws XmlException
      */
-    public static boolean compareBookmarkParagraphStyles(String documentPath, String bookmarkName1, String bookmarkName2) 
-                                                         throws IOException, InvalidFormatException, XmlException {
-        try (FileInputStream fis = new FileInputStream(documentPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            return compareBookmarkParagraphStyles(document, bookmarkName1, bookmarkName2);
+    public static BookmarkRange getBookmarkRangeFromFile(String documentPath, String bookmarkName) 
+                                                       throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkRangeFromFile")) {
+            return operation.success(queryBookmark(documentPath, bookmarkName, BookmarkStreamReader.Result::getRange,
+                                 session -> session.getBookmarkRange(bookmarkName)));
         }
     }
 
     /**
-     * 获取书签在文档中的位置（公共方法，用于测试验证）
-     * @param documentPath 文档路径
+     * 获取书签在文档中的范围，从输入流读取文档（不会关闭输入流）
+     * 输入流的内容先读入内存（压缩后的大小），与读取内存中的文档内容相同，页眉、页脚、脚注和尾注中的书签也能找到
+     * @param inputStream 文档输入流
      * @param bookmarkName 书签名称
-     * @return 书签位置，如果未找到返回-1
+     * @return 书签范围，如果未找到返回BookmarkRange(-1, -1)
      * @throws IOException
      * @throws InvalidFormatException
      * @throws XmlException
      */
-    public static int getBookmarkPositionFromFile(String documentPath, String bookmarkName) 
-                                                 throws IOException, InvalidFormatException, XmlException {
-        try (FileInputStream fis = new FileInputStream(documentPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            return findBookmarkPosition(document, bookmarkName);
+    public static BookmarkRange getBookmarkRangeFromFile(InputStream inputStream, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkRangeFromFile")) {
+            return operation.success(getBookmarkRangeFromFile(IOUtils.toByteArray(inputStream), bookmarkName));
         }
     }
-    
+
     /**
-     * 获取书签在文档中的范围（公共方法，用于测试验证）
-     * @param documentPath 文档路径
+     * 获取书签在文档中的范围，读取内存中的文档内容
+     * @param document 文档内容
      * @param bookmarkName 书签名称
      * @return 书签范围，如果未找到返回BookmarkRange(-1, -1)
      * @throws IOException
      * @throws InvalidFormatException
      * @throws XmlException
      */
-    public static BookmarkRange getBookmarkRangeFromFile(String documentPath, String bookmarkName) 
-                                                       throws IOException, InvalidFormatException, XmlException {
-        try (FileInputStream fis = new FileInputStream(documentPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            return findBookmarkRange(document, bookmarkName);
+    public static BookmarkRange getBookmarkRangeFromFile(byte[] document, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("getBookmarkRangeFromFile")) {
+            return operation.success(queryBookmark(document, bookmarkName, BookmarkStreamReader.Result::getRange,
+                                 session -> session.getBookmarkRange(bookmarkName)));
         }
     }
     
@@ -1968,31 +2770,67 @@ public class DocxUtils {
      */
     public static boolean isBookmarkUsingNumberingStyle(String documentPath, String bookmarkName) 
                                                        throws IOException, InvalidFormatException, XmlException {
-        try (FileInputStream fis = new FileInputStream(documentPath);
-             XWPFDocument document = new XWPFDocument(fis)) {
-            return isParagraphUsingNumberingStyle(document, bookmarkName);
+        try (DocxOperation operation = DocxOperation.start("isBookmarkUsingNumberingStyle")) {
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                return operation.success(session.isBookmarkUsingNumberingStyle(bookmarkName));
+            }
+        }
+    }
+
+    /**
+     * 检查书签所在段落是否使用Word编号样式，从输入流读取文档（不会关闭输入流）
+     * @param inputStream 文档输入流
+     * @param bookmarkName 书签名称
+     * @return 是否使用编号样式
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static boolean isBookmarkUsingNumberingStyle(InputStream inputStream, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("isBookmarkUsingNumberingStyle")) {
+            try (DocxSession session = DocxSession.open(inputStream)) {
+                return operation.success(session.isBookmarkUsingNumberingStyle(bookmarkName));
+            }
+        }
+    }
+
+    /**
+     * 检查书签所在段落是否使用Word编号样式，读取内存中的文档内容
+     * @param document 文档内容
+     * @param bookmarkName 书签名称
+     * @return 是否使用编号样式
+     * @throws IOException
+     * @throws InvalidFormatException
+     * @throws XmlException
+     */
+    public static boolean isBookmarkUsingNumberingStyle(byte[] document, String bookmarkName)
+                                                   throws IOException, InvalidFormatException, XmlException {
+        try (DocxOperation operation = DocxOperation.start("isBookmarkUsingNumberingStyle")) {
+            return operation.success(isBookmarkUsingNumberingStyle(new ByteArrayInputStream(document), bookmarkName));
         }
     }
     
     /**
      * 检查段落是否使用编号样式
      */
-    private static boolean isParagraphUsingNumberingStyle(XWPFDocument document, String bookmarkName) {
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
-        
-        for (XWPFParagraph paragraph : paragraphs) {
-            if (containsBookmark(paragraph, bookmarkName)) {
-                try {
-                    // 检查Word编号样式
-                    CTP ctp = paragraph.getCTP();
-                    if (ctp.getPPr() != null && ctp.getPPr().getNumPr() != null) {
-                        return true; // 使用了Word编号样式
-                    }
-                } catch (Exception e) {
-                    // 如果无法检查，返回false
-                }
-                return false;
+    static boolean isParagraphUsingNumberingStyle(XWPFDocument document, String bookmarkName) {
+        XWPFParagraph paragraph = findParagraphWithBookmark(document, bookmarkName);
+        return paragraph != null && isParagraphUsingNumberingStyle(paragraph);
+    }
+    
+    /**
+     * 检查段落是否使用Word编号样式
+     */
+    private static boolean isParagraphUsingNumberingStyle(XWPFParagraph paragraph) {
+        try {
+            // 检查Word编号样式
+            CTP ctp = paragraph.getCTP();
+            if (ctp.getPPr() != null && ctp.getPPr().getNumPr() != null) {
+                return true; // 使用了Word编号样式
             }
+        } catch (Exception e) {
+            // 如果无法检查，返回false
         }
         return false;
     }
@@ -2003,7 +2841,7 @@ public class DocxUtils {
      * @param bookmarkName 书签名称
      * @return 书签包含的段落数量
      */
-    private static int getBookmarkParagraphCount(XWPFDocument document, String bookmarkName) {
+    static int getBookmarkParagraphCount(XWPFDocument document, String bookmarkName) {
         BookmarkRange range = findBookmarkRange(document, bookmarkName);
         if (range.isNotFound()) {
             return 0;
@@ -2023,16 +2861,16 @@ public class DocxUtils {
      * @param bookmarkName2 第二个书签名称
      * @return 样式是否一致
      */
-    private static boolean compareBookmarkParagraphStyles(XWPFDocument document, String bookmarkName1, String bookmarkName2) {
+    static boolean compareBookmarkParagraphStyles(XWPFDocument document, String bookmarkName1, String bookmarkName2) {
+        long traceStart = DocxTrace.startNanos();
         BookmarkRange range1 = findBookmarkRange(document, bookmarkName1);
         BookmarkRange range2 = findBookmarkRange(document, bookmarkName2);
 
-        System.out.println("🔍 比较书签段落样式 - " + bookmarkName1 + " vs " + bookmarkName2);
-        System.out.println("📝 " + bookmarkName1 + " 范围: " + range1);
-        System.out.println("📝 " + bookmarkName2 + " 范围: " + range2);
-
         if (range1.isNotFound() || range2.isNotFound()) {
-            System.out.println("❌ 书签未找到");
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("compareStyles", bookmarkName1, 0, traceStart, "书签未找到: " + bookmarkName1 + " "
+                               + range1 + ", " + bookmarkName2 + " " + range2);
+            }
             return false;
         }
 
@@ -2040,154 +2878,202 @@ public class DocxUtils {
         int count1 = range1.getEndParagraphIndex() - range1.getStartParagraphIndex() + 1;
         int count2 = range2.getEndParagraphIndex() - range2.getStartParagraphIndex() + 1;
 
-        System.out.println("📝 " + bookmarkName1 + " 段落数: " + count1);
-        System.out.println("📝 " + bookmarkName2 + " 段落数: " + count2);
-
         if (count1 != count2) {
-            System.out.println("❌ 段落数量不同");
+            if (DocxTrace.isEnabled()) {
+                DocxTrace.emit("compareStyles", bookmarkName1, 0, traceStart, "段落数量不同: " + bookmarkName1 + " "
+                               + count1 + ", " + bookmarkName2 + " " + count2);
+            }
             return false;
         }
 
-        // 比较每个对应段落的样式
-        List<XWPFParagraph> paragraphs = document.getParagraphs();
+        // 比较每个对应段落的样式指纹（两个书签可以位于不同的容器中）
+        BookmarkIndex index = bookmarkIndex(document);
+        List<XWPFParagraph> paragraphs1 = index.findContainer(range1).getParagraphs();
+        List<XWPFParagraph> paragraphs2 = index.findContainer(range2).getParagraphs();
 
         for (int i = 0; i < count1; i++) {
             int index1 = range1.getStartParagraphIndex() + i;
             int index2 = range2.getStartParagraphIndex() + i;
-            XWPFParagraph para1 = paragraphs.get(index1);
-            XWPFParagraph para2 = paragraphs.get(index2);
+            XWPFParagraph para1 = paragraphs1.get(index1);
+            XWPFParagraph para2 = paragraphs2.get(index2);
 
-            System.out.println("📋 比较第 " + i + " 个段落: 索引 " + index1 + " vs " + index2);
-
-            if (!compareParagraphStyles(para1, para2)) {
-                System.out.println("❌ 第 " + i + " 个段落样式不同");
+            if (index.getStyleFingerprint(para1) != index.getStyleFingerprint(para2)) {
+                if (DocxTrace.isEnabled()) {
+                    DocxTrace.emit("compareStyles", bookmarkName1, i + 1, traceStart, "第 " + i + " 个段落样式不同（"
+                                   + bookmarkName2 + "）: 索引 " + index1 + " vs " + index2 + ", "
+                                   + describeParagraphStyleDifference(para1, para2));
+                }
                 return false;
             }
-
-            System.out.println("✅ 第 " + i + " 个段落样式相同");
         }
 
-        System.out.println("✅ 所有段落样式都相同");
+        DocxTrace.emit("compareStyles", bookmarkName1, count1, traceStart);
         return true;
     }
     
     /**
-     * 比较两个段落的样式是否一致
-     * @param para1 第一个段落
-     * @param para2 第二个段落
-     * @return 样式是否一致
+     * 按段落样式对文档中的书签分组，书签包含的段落数量和每个对应段落的样式都相同时属于同一组
+     * 每个段落的样式指纹只计算一次，整个文档只需遍历一遍；分组按每个段落的指纹列表比较，不依赖合并后的指纹
+     * @param document 文档对象
+     * @return 包含两个及以上书签的分组，组内和组间均按书签在文档中出现的顺序排列
      */
-    private static boolean compareParagraphStyles(XWPFParagraph para1, XWPFParagraph para2) {
-        // 获取段落内容用于日志输出
-        String content1 = getParagraphText(para1);
-        String content2 = getParagraphText(para2);
-        
-        // 比较段落对齐方式
-        if (para1.getAlignment() != para2.getAlignment()) {
-            System.out.println("❌ 段落对齐方式不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1对齐: " + para1.getAlignment());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2对齐: " + para2.getAlignment());
-            return false;
-        }
-
-        // 比较段落间距
-        if (para1.getSpacingBefore() != para2.getSpacingBefore()) {
-            System.out.println("❌ 段前间距不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1段前间距: " + para1.getSpacingBefore());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2段前间距: " + para2.getSpacingBefore());
-            return false;
-        }
-        if (para1.getSpacingAfter() != para2.getSpacingAfter()) {
-            System.out.println("❌ 段后间距不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1段后间距: " + para1.getSpacingAfter());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2段后间距: " + para2.getSpacingAfter());
-            return false;
-        }
-        if (para1.getSpacingBetween() != para2.getSpacingBetween()) {
-            System.out.println("❌ 行间距不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1行间距: " + para1.getSpacingBetween());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2行间距: " + para2.getSpacingBetween());
-            return false;
+    static List<List<String>> findBookmarksWithSameParagraphStyles(XWPFDocument document) {
+        BookmarkIndex index = bookmarkIndex(document);
+        Map<List<Long>, List<String>> groups = new LinkedHashMap<>();
+        for (BookmarkIndex.Entry entry : index.getEntries().values()) {
+            BookmarkRange range = entry.getRange();
+            if (range.isNotFound()) {
+                continue;
+            }
+            groups.computeIfAbsent(paragraphStyleFingerprints(index, range), key -> new ArrayList<>())
+                  .add(entry.getName());
         }
 
-        // 比较段落缩进
-        if (para1.getIndentationLeft() != para2.getIndentationLeft()) {
-            System.out.println("❌ 左缩进不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1左缩进: " + para1.getIndentationLeft());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2左缩进: " + para2.getIndentationLeft());
-            return false;
-        }
-        if (para1.getIndentationRight() != para2.getIndentationRight()) {
-            System.out.println("❌ 右缩进不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1右缩进: " + para1.getIndentationRight());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2右缩进: " + para2.getIndentationRight());
-            return false;
+        List<List<String>> result = new ArrayList<>();
+        for (List<String> group : groups.values()) {
+            if (group.size() > 1) {
+                result.add(Collections.unmodifiableList(group));
+            }
         }
-        if (para1.getIndentationFirstLine() != para2.getIndentationFirstLine()) {
-            System.out.println("❌ 首行缩进不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1首行缩进: " + para1.getIndentationFirstLine());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2首行缩进: " + para2.getIndentationFirstLine());
-            return false;
+        return result;
+    }
+    
+    /**
+     * 计算书签全部段落的样式指纹，段落数量和每个对应段落的样式都相同时结果相同
+     */
+    private static long bookmarkStyleFingerprint(BookmarkIndex index, BookmarkRange range) {
+        return ParagraphStyleFingerprint.combine(paragraphStyleFingerprints(index, range));
+    }
+    
+    /**
+     * 按顺序获取书签每个段落的样式指纹
+     */
+    private static List<Long> paragraphStyleFingerprints(BookmarkIndex index, BookmarkRange range) {
+        List<XWPFParagraph> paragraphs = index.findContainer(range).getParagraphs();
+        List<Long> fingerprints = new ArrayList<>(range.getEnd() - range.getStart() + 1);
+        for (int i = range.getStart(); i <= range.getEnd(); i++) {
+            fingerprints.add(index.getStyleFingerprint(paragraphs.get(i)));
         }
-        if (para1.getIndentationHanging() != para2.getIndentationHanging()) {
-            System.out.println("❌ 悬挂缩进不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1悬挂缩进: " + para1.getIndentationHanging());
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2悬挂缩进: " + para2.getIndentationHanging());
-            return false;
+        return fingerprints;
+    }
+    
+    /**
+     * 比较两个文档中的书签
+     * @param oldDocument 旧文档
+     * @param newDocument 新文档
+     * @return 书签差异
+     */
+    static BookmarkDiff diffBookmarks(XWPFDocument oldDocument, XWPFDocument newDocument) {
+        long traceStart = DocxTrace.startNanos();
+        BookmarkDiff diff = BookmarkDiff.compare(snapshotBookmarks(oldDocument), snapshotBookmarks(newDocument));
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("diffBookmarks", null, 0, traceStart, diff.toString());
         }
-
-        // 比较编号样式
-        BigInteger numId1 = para1.getNumID();
-        BigInteger numId2 = para2.getNumID();
-        if ((numId1 == null && numId2 != null) || (numId1 != null && !numId1.equals(numId2))) {
-            System.out.println("❌ 编号ID不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1编号ID: " + numId1);
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2编号ID: " + numId2);
-            return false;
+        return diff;
+    }
+    
+    /**
+     * 从书签索引为文档中的每个书签生成快照（按书签在文档中出现的顺序）
+     * 内容直接写入哈希计算，不生成字符串；样式指纹按段落缓存在索引中，
+     * 没有ID的书签无法确定范围，样式指纹记为0
+     */
+    private static Map<String, BookmarkDiff.Snapshot> snapshotBookmarks(XWPFDocument document) {
+        BookmarkIndex index = bookmarkIndex(document);
+        Map<String, BookmarkDiff.Snapshot> snapshots = new LinkedHashMap<>();
+        for (BookmarkIndex.Entry entry : index.getEntries().values()) {
+            BookmarkRange range = entry.getRange();
+            BookmarkDiff.ContentHasher contentHasher = new BookmarkDiff.ContentHasher();
+            writeEntryContent(entry, contentHasher);
+            long styleFingerprint = range.isNotFound() ? 0 : bookmarkStyleFingerprint(index, range);
+            snapshots.put(entry.getName(), new BookmarkDiff.Snapshot(entry.getName(), range, contentHasher.getHash(),
+                                                                     styleFingerprint));
+        }
+        return snapshots;
+    }
+    
+    /**
+     * 把索引项对应书签的内容写入内存中的 Appendable（StringBuilder、哈希计算等不会抛出IOException的目标）
+     * 没有ID的书签无法匹配结束标记，不写入内容
+     */
+    private static void writeEntryContent(BookmarkIndex.Entry entry, Appendable out) {
+        if (entry.getId() == null) {
+            return;
         }
-        
-        BigInteger numIlvl1 = para1.getNumIlvl();
-        BigInteger numIlvl2 = para2.getNumIlvl();
-        if ((numIlvl1 == null && numIlvl2 != null) || (numIlvl1 != null && !numIlvl1.equals(numIlvl2))) {
-            System.out.println("❌ 编号级别不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1编号级别: " + numIlvl1);
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2编号级别: " + numIlvl2);
-            return false;
+        try {
+            extractContentBetweenBookmarks(entry.getStartParagraph(), entry.getId(), new BookmarkTextWriter(out));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
-        // 比较段落样式ID
-        String style1 = para1.getStyle();
-        String style2 = para2.getStyle();
-        if ((style1 == null && style2 != null) || (style1 != null && !style1.equals(style2))) {
-            System.out.println("❌ 段落样式ID不同:");
-            System.out.println("   段落1内容: \"" + content1 + "\"");
-            System.out.println("   段落1样式ID: '" + style1 + "'");
-            System.out.println("   段落2内容: \"" + content2 + "\"");
-            System.out.println("   段落2样式ID: '" + style2 + "'");
-            return false;
+    }
+    
+    /**
+     * 一次查询多个书签的内容、范围、段落数量、编号样式和样式指纹，全部从同一个书签索引中获取
+     * @param document 文档对象
+     * @param bookmarkNames 书签名称
+     * @return 书签名称到查询结果的映射，按请求的顺序排列，包含所有请求的书签（未找到的书签 isFound() 为false）；
+     *         没有ID的书签无法确定范围，范围为未找到，样式指纹为0
+     */
+    static Map<String, BookmarkInfo> getBookmarkInfo(XWPFDocument document, Collection<String> bookmarkNames) {
+        long traceStart = DocxTrace.startNanos();
+        BookmarkIndex index = bookmarkIndex(document);
+        Map<String, BookmarkInfo> infos = new LinkedHashMap<>();
+        for (String bookmarkName : bookmarkNames) {
+            if (infos.containsKey(bookmarkName)) {
+                continue;
+            }
+            BookmarkIndex.Entry entry = findBookmarkEntry(document, bookmarkName);
+            if (entry == null) {
+                infos.put(bookmarkName, BookmarkInfo.notFound(bookmarkName));
+                continue;
+            }
+            BookmarkRange range = entry.getRange();
+            StringBuilder text = new StringBuilder();
+            writeEntryContent(entry, text);
+            long styleFingerprint = range.isNotFound() ? 0 : bookmarkStyleFingerprint(index, range);
+            infos.put(bookmarkName, new BookmarkInfo(bookmarkName, text.toString(), range,
+                                                     isParagraphUsingNumberingStyle(entry.getStartParagraph()),
+                                                     styleFingerprint));
+        }
+        if (DocxTrace.isEnabled()) {
+            DocxTrace.emit("bookmarkInfo", null, 0, traceStart, "bookmarks=" + infos.size());
+        }
+        return infos;
+    }
+    
+    /**
+     * 描述两个段落第一个不同的样式属性（样式指纹不同时调用）
+     * @param para1 第一个段落
+     * @param para2 第二个段落
+     * @return 不同的样式属性及两个段落的值
+     */
+    private static String describeParagraphStyleDifference(XWPFParagraph para1, XWPFParagraph para2) {
+        String difference;
+        if (para1.getAlignment() != para2.getAlignment()) {
+            difference = "段落对齐方式不同: " + para1.getAlignment() + " vs " + para2.getAlignment();
+        } else if (para1.getSpacingBefore() != para2.getSpacingBefore()) {
+            difference = "段前间距不同: " + para1.getSpacingBefore() + " vs " + para2.getSpacingBefore();
+        } else if (para1.getSpacingAfter() != para2.getSpacingAfter()) {
+            difference = "段后间距不同: " + para1.getSpacingAfter() + " vs " + para2.getSpacingAfter();
+        } else if (para1.getSpacingBetween() != para2.getSpacingBetween()) {
+            difference = "行间距不同: " + para1.getSpacingBetween() + " vs " + para2.getSpacingBetween();
+        } else if (para1.getIndentationLeft() != para2.getIndentationLeft()) {
+            difference = "左缩进不同: " + para1.getIndentationLeft() + " vs " + para2.getIndentationLeft();
+        } else if (para1.getIndentationRight() != para2.getIndentationRight()) {
+            difference = "右缩进不同: " + para1.getIndentationRight() + " vs " + para2.getIndentationRight();
+        } else if (para1.getIndentationFirstLine() != para2.getIndentationFirstLine()) {
+            difference = "首行缩进不同: " + para1.getIndentationFirstLine() + " vs " + para2.getIndentationFirstLine();
+        } else if (para1.getIndentationHanging() != para2.getIndentationHanging()) {
+            difference = "悬挂缩进不同: " + para1.getIndentationHanging() + " vs " + para2.getIndentationHanging();
+        } else if (!Objects.equals(para1.getNumID(), para2.getNumID())) {
+            difference = "编号ID不同: " + para1.getNumID() + " vs " + para2.getNumID();
+        } else if (!Objects.equals(para1.getNumIlvl(), para2.getNumIlvl())) {
+            difference = "编号级别不同: " + para1.getNumIlvl() + " vs " + para2.getNumIlvl();
+        } else if (!Objects.equals(para1.getStyle(), para2.getStyle())) {
+            difference = "段落样式ID不同: '" + para1.getStyle() + "' vs '" + para2.getStyle() + "'";
+        } else {
+            difference = "样式指纹不同";
         }
-
-        return true;
+        return difference + "（段落1: \"" + getParagraphText(para1) + "\"，段落2: \"" + getParagraphText(para2) + "\"）";
     }
     
     /**
@@ -0,0 +1,243 @@
+package com.example.myjavalab.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 邮件合并的数据行读取器，按需逐行读取CSV或JSON，不把整个数据文件读入内存
+ *
+ * <pre>
+ * try (MergeRowReader rows = MergeRowReader.csv(Paths.get("customers.csv"))) {
+ *     while (rows.hasNext()) {
+ *         Map&lt;String, String&gt; row = rows.next();   // 列名 -&gt; 值
+ *     }
+ * }
+ * </pre>
+ *
+ * CSV第一行为列名，支持双引号包围的字段（字段中可以包含逗号、换行，两个双引号表示一个双引号）；
+ * JSON为对象数组，对象的每个属性为一列，非字符串的值按JSON文本转换，null转换为空字符串
+ */
+public abstract class MergeRowReader implements Iterator<Map<String, String>>, Closeable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private Map<String, String> nextRow;
+    private boolean finished;
+
+    /**
+     * 读取CSV文件（UTF-8编码，可以带BOM）
+     */
+    public static MergeRowReader csv(Path path) throws IOException {
+        return csv(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 从字符流读取CSV，关闭读取器时关闭字符流
+     */
+    public static MergeRowReader csv(Reader reader) throws IOException {
+        return new CsvRowReader(reader instanceof BufferedReader ? reader : new BufferedReader(reader));
+    }
+
+    /**
+     * 读取JSON文件（对象数组）
+     */
+    public static MergeRowReader json(Path path) throws IOException {
+        return json(Files.newInputStream(path));
+    }
+
+    /**
+     * 从输入流读取JSON（对象数组），关闭读取器时关闭输入流
+     */
+    public static MergeRowReader json(InputStream inputStream) throws IOException {
+        return new JsonRowReader(OBJECT_MAPPER.getFactory().createParser(inputStream));
+    }
+
+    /**
+     * 读取下一行，没有更多数据时返回null
+     */
+    protected abstract Map<String, String> readRow() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow == null && !finished) {
+            try {
+                nextRow = readRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException("读取合并数据失败: " + e.getMessage(), e);
+            }
+            finished = nextRow == null;
+        }
+        return nextRow != null;
+    }
+
+    @Override
+    public Map<String, String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Map<String, String> row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    private static class CsvRowReader extends MergeRowReader {
+        private static final char BOM = '\uFEFF';
+
+        private final Reader reader;
+        private final List<String> header;
+        private int lineNumber = 1;
+
+        CsvRowReader(Reader reader) throws IOException {
+            this.reader = reader;
+            reader.mark(1);
+            if (reader.read() != BOM) {
+                reader.reset();
+            }
+            List<String> fields = readRecord();
+            if (fields == null) {
+                reader.close();
+                throw new IOException("CSV缺少列名行");
+            }
+            this.header = Collections.unmodifiableList(fields);
+        }
+
+        @Override
+        protected Map<String, String> readRow() throws IOException {
+            List<String> fields;
+            int recordLine;
+            do {
+                recordLine = lineNumber;
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+                // 跳过空行
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+
+            if (fields.size() > header.size()) {
+                throw new IOException("CSV第 " + recordLine + " 行的字段数 " + fields.size() + " 多于列数 " + header.size());
+            }
+            Map<String, String> row = new LinkedHashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                row.put(header.get(i), i < fields.size() ? fields.get(i) : "");
+            }
+            return row;
+        }
+
+        /**
+         * 读取一条记录，已到文件末尾时返回null
+         */
+        private List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("CSV第 " + lineNumber + " 行的引号没有闭合");
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        if (c == '\n') {
+                            lineNumber++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    if (c != -1) {
+                        lineNumber++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static class JsonRowReader extends MergeRowReader {
+        private final JsonParser parser;
+
+        JsonRowReader(JsonParser parser) throws IOException {
+            this.parser = parser;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.close();
+                throw new IOException("JSON数据必须是对象数组");
+            }
+        }
+
+        @Override
+        protected Map<String, String> readRow() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY || token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("JSON数组元素必须是对象: " + parser.getCurrentLocation());
+            }
+            JsonNode node = OBJECT_MAPPER.readTree(parser);
+            Map<String, String> row = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                row.put(field.getKey(), value.isNull() ? "" : value.isValueNode() ? value.asText() : value.toString());
+            }
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
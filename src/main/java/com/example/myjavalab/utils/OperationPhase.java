@@ -0,0 +1,34 @@
+package com.example.myjavalab.utils;
+
+/**
+ * 书签操作的阶段，一次操作的耗时按阶段拆分统计
+ */
+public enum OperationPhase {
+    /**
+     * 读取压缩包并解析文档（打开会话）
+     */
+    OPEN,
+    /**
+     * 建立书签索引
+     */
+    INDEX,
+    /**
+     * 查找书签、读取书签内容（包括流式读取）
+     */
+    LOCATE,
+    /**
+     * 修改文档DOM
+     */
+    MUTATE,
+    /**
+     * 序列化并写出文档
+     */
+    WRITE;
+
+    /**
+     * 指标标签中使用的小写名称
+     */
+    String tagValue() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.myjavalab.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次书签操作的耗时报告：各阶段耗时、扫描的段落数和访问的DOM节点数
+ *
+ * <pre>
+ * byte[] result = DocxUtils.copyBookmarkContent(document, "labelA", "labelB");
+ * OperationReport report = OperationReport.last();
+ * report.getPhaseNanos(OperationPhase.WRITE);
+ * </pre>
+ *
+ * 每个公开操作（DocxUtils的方法、DocxSession的打开、保存和修改方法）结束时都会生成报告，
+ * 无论成功还是失败。生成报告只需一次对象分配，记录指标时按操作名和阶段序号取已注册的Timer，
+ * 不拼接字符串，可以在生产环境中一直开启。
+ * 嵌套调用并入最外层操作，只生成一个报告
+ */
+public class OperationReport {
+
+    private static final OperationPhase[] PHASES = OperationPhase.values();
+
+    private final String operation;
+    private final boolean succeeded;
+    private final long totalNanos;
+    private final long[] phaseNanos;
+    private final boolean[] phaseEntered;
+    private final int paragraphsScanned;
+    private final int nodesVisited;
+
+    OperationReport(String operation, boolean succeeded, long totalNanos, long[] phaseNanos, boolean[] phaseEntered,
+                    int paragraphsScanned, int nodesVisited) {
+        this.operation = operation;
+        this.succeeded = succeeded;
+        this.totalNanos = totalNanos;
+        this.phaseNanos = phaseNanos;
+        this.phaseEntered = phaseEntered;
+        this.paragraphsScanned = paragraphsScanned;
+        this.nodesVisited = nodesVisited;
+    }
+
+    /**
+     * 获取当前线程最近结束的书签操作的报告，当前线程还没有执行过操作时返回null；
+     * 通过 DocxAsyncExecutor 执行的操作在工作线程中生成报告，使用 OperationFuture.getReport() 获取
+     */
+    public static OperationReport last() {
+        return DocxOperation.lastReport();
+    }
+
+    /**
+     * 操作名称，对应公开方法名
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * 操作总耗时（纳秒），包括不属于任何阶段的时间
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * 阶段耗时（纳秒），没有进入过的阶段为0；各阶段耗时不重叠
+     */
+    public long getPhaseNanos(OperationPhase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    boolean isPhaseEntered(OperationPhase phase) {
+        return phaseEntered[phase.ordinal()];
+    }
+
+    /**
+     * 扫描的段落数（建立书签索引、流式读取和流式复制时统计）
+     */
+    public int getParagraphsScanned() {
+        return paragraphsScanned;
+    }
+
+    /**
+     * 访问的DOM节点数（流式处理时为XML元素数）
+     */
+    public int getNodesVisited() {
+        return nodesVisited;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(operation).append(succeeded ? " ✅ " : " ❌ ")
+            .append(millis(totalNanos)).append("ms (");
+        for (OperationPhase phase : PHASES) {
+            if (phase.ordinal() > 0) {
+                sb.append(", ");
+            }
+            sb.append(phase.tagValue()).append(' ').append(millis(phaseNanos[phase.ordinal()])).append("ms");
+        }
+        return sb.append("), 扫描段落 ").append(paragraphsScanned).append(", 访问节点 ").append(nodesVisited).toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
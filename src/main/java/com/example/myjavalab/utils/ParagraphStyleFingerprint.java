@@ -0,0 +1,90 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * 段落样式指纹：把段落样式比较用到的属性压缩成一个64位哈希值
+ *
+ * 包含的属性与逐项比较段落样式时相同：对齐方式、段前段后间距、行间距、左右缩进、首行缩进、悬挂缩进、
+ * 编号ID、编号级别和段落样式ID。指纹相同即认为样式一致，比较两个段落只需比较两个long；
+ * 指纹由 {@link BookmarkIndex#getStyleFingerprint} 按段落缓存
+ */
+final class ParagraphStyleFingerprint {
+
+    // FNV-1a 64位参数
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    // 属性缺失（null）时写入的值，与任何实际值的编码都不同
+    private static final long ABSENT = 0x9e3779b97f4a7c15L;
+
+    private ParagraphStyleFingerprint() {
+    }
+
+    /**
+     * 计算段落的样式指纹
+     */
+    static long of(XWPFParagraph paragraph) {
+        long hash = OFFSET_BASIS;
+        ParagraphAlignment alignment = paragraph.getAlignment();
+        hash = mix(hash, alignment != null ? alignment.getValue() : ABSENT);
+        hash = mix(hash, paragraph.getSpacingBefore());
+        hash = mix(hash, paragraph.getSpacingAfter());
+        hash = mix(hash, Double.doubleToLongBits(paragraph.getSpacingBetween()));
+        hash = mix(hash, paragraph.getIndentationLeft());
+        hash = mix(hash, paragraph.getIndentationRight());
+        hash = mix(hash, paragraph.getIndentationFirstLine());
+        hash = mix(hash, paragraph.getIndentationHanging());
+        hash = mix(hash, paragraph.getNumID());
+        hash = mix(hash, paragraph.getNumIlvl());
+        return mix(hash, paragraph.getStyle());
+    }
+
+    /**
+     * 计算一组段落的样式指纹，段落数量和每个段落的指纹（按顺序）都相同时结果相同
+     * @param fingerprints 各段落的样式指纹
+     */
+    static long combine(List<Long> fingerprints) {
+        long hash = mix(OFFSET_BASIS, fingerprints.size());
+        for (long fingerprint : fingerprints) {
+            hash = mix(hash, fingerprint);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, BigInteger value) {
+        if (value == null) {
+            return mix(hash, ABSENT);
+        }
+        // 先写入长度，避免不同的值拼接后相同
+        byte[] bytes = value.toByteArray();
+        hash = mix(hash, bytes.length);
+        for (byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, ABSENT);
+        }
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int shift = 0; shift < 64; shift += 8) {
+            hash = (hash ^ ((value >>> shift) & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.myjavalab.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 把跟踪事件以 DEBUG 级别输出到 SLF4J，日志名称为 com.example.myjavalab.utils.DocxTrace
+ *
+ * <pre>
+ * Slf4jDocxTraceListener.installIfDebugEnabled();   // 只在该日志开启DEBUG时安装
+ * </pre>
+ *
+ * 日志内容为 key=value 形式，例如
+ * {@code event=findBookmarkEnd operation=copyBookmarkContent bookmark=labelA visitedNodes=12 durationMicros=35}
+ */
+public class Slf4jDocxTraceListener implements DocxTraceListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DocxTrace.class);
+
+    /**
+     * 日志开启DEBUG时安装监听器；否则不安装，跟踪点保持零开销
+     * 安装后在运行期间关闭DEBUG，事件仍会创建但不会输出
+     * @return 是否已安装
+     */
+    public static boolean installIfDebugEnabled() {
+        if (!LOGGER.isDebugEnabled()) {
+            return false;
+        }
+        DocxTrace.setListener(new Slf4jDocxTraceListener());
+        return true;
+    }
+
+    @Override
+    public void onEvent(DocxTraceEvent event) {
+        LOGGER.debug("{}", event);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookmarkDiffTest {
+
+    @Test
+    void testDiffReportsEachChangeType() {
+        try {
+            byte[] oldDocument = document(false, "a", "b", "c", "d", "e");
+            byte[] newDocument = document(true, "a", "c", "e", "b", "f");
+
+            BookmarkDiff diff = DocxUtils.diffBookmarks(oldDocument, newDocument);
+            assertEquals(4, diff.getComparedCount(), "共有书签应该是a、b、c、e");
+            assertEquals(Collections.singletonList("d"), diff.getRemoved(), "d应该被删除");
+            assertEquals(Collections.singletonList("f"), diff.getAdded(), "f应该是新增的");
+            assertEquals(Collections.singletonList("b"), diff.getMoved(), "只有b改变了与其他书签的先后顺序");
+            assertEquals(Collections.singletonList("e"), diff.getContentChanged(), "e的内容应该发生变化");
+            assertEquals(Collections.singletonList("c"), diff.getStyleChanged(), "c的样式应该发生变化");
+
+            BookmarkDiff.Change moved = diff.getChanges().stream()
+                .filter(change -> change.getBookmarkName().equals("b")).findFirst().orElse(null);
+            assertNotNull(moved, "应该报告b的差异");
+            assertEquals(1, moved.getOldRange().getStart(), "b在旧文档中是第2个段落");
+            assertEquals(4, moved.getNewRange().getStart(), "b在新文档中是第5个段落");
+
+            // 前面插入段落导致段落索引整体偏移的书签不算变化
+            assertTrue(diff.getChanges().stream().noneMatch(change -> change.getBookmarkName().equals("a")),
+                "a只有段落索引偏移，不应该报告差异");
+
+            assertTrue(DocxUtils.diffBookmarks(oldDocument, oldDocument).isEmpty(), "相同文档不应该有差异");
+            System.out.println("✅ 书签差异测试通过: " + diff);
+
+        } catch (Exception e) {
+            fail("书签差异测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testDiffAfterSettingBookmarkText() {
+        try {
+            String documentPath = "src/main/resources/doc/debug_introduction_2.docx";
+            ByteArrayOutputStream updated = new ByteArrayOutputStream();
+            try (DocxSession session = DocxSession.open(documentPath)) {
+                session.setBookmarkText("labelA", "新的labelA内容");
+                session.save(updated);
+            }
+
+            BookmarkDiff diff = DocxUtils.diffBookmarks(Files.readAllBytes(Paths.get(documentPath)), updated.toByteArray());
+            assertEquals(Collections.singletonList("labelA"), diff.getContentChanged(), "只有labelA的内容应该发生变化");
+            assertTrue(diff.getAdded().isEmpty(), "不应该有新增的书签");
+            // 嵌套在labelA内容中的书签（Word的_GoBack）随原内容一起被替换
+            assertEquals(Collections.singletonList("_GoBack"), diff.getRemoved(), "只有labelA内容中的书签应该被删除");
+            assertTrue(diff.getMoved().isEmpty(), "不应该有移动的书签");
+            System.out.println("✅ 修改书签内容后的差异测试通过: " + diff);
+
+        } catch (Exception e) {
+            fail("修改书签内容后的差异测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testDiffWithBookmarkWithoutId() {
+        try {
+            byte[] oldDocument = documentWithBookmarkWithoutId("旧的内容");
+            byte[] newDocument = documentWithBookmarkWithoutId("新的内容");
+
+            // 没有ID的书签无法确定范围，不应该导致比较失败
+            BookmarkDiff diff = DocxUtils.diffBookmarks(oldDocument, newDocument);
+            assertEquals(2, diff.getComparedCount(), "两个书签都应该参与比较");
+            assertEquals(Collections.singletonList("a"), diff.getContentChanged(), "只有a的内容应该发生变化");
+            assertTrue(diff.getChanges().stream().noneMatch(change -> change.getBookmarkName().equals("noId")),
+                "没有ID的书签不应该报告差异");
+            System.out.println("✅ 没有ID的书签差异测试通过: " + diff);
+
+        } catch (Exception e) {
+            fail("没有ID的书签差异测试失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 书签a的内容为text，之后的段落有一个没有ID的书签noId
+     */
+    private static byte[] documentWithBookmarkWithoutId(String text) throws Exception {
+        try (XWPFDocument document = new XWPFDocument()) {
+            DocxTestFixtures.addBookmarkedParagraph(document.createParagraph(), "a", text, 1);
+
+            XWPFParagraph withoutId = document.createParagraph();
+            withoutId.getCTP().addNewBookmarkStart().setName("noId");
+            withoutId.createRun().setText("没有ID的书签");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * 每个书签占一个段落；changed 为true时在开头多插入一个段落，并修改书签c的对齐方式和书签e的内容
+     */
+    private static byte[] document(boolean changed, String... bookmarkNames) throws Exception {
+        try (XWPFDocument document = new XWPFDocument()) {
+            if (changed) {
+                document.createParagraph().createRun().setText("新增的开头段落");
+            }
+            long id = 0;
+            for (String name : Arrays.asList(bookmarkNames)) {
+                XWPFParagraph paragraph = document.createParagraph();
+                if (changed && name.equals("c")) {
+                    paragraph.setAlignment(ParagraphAlignment.CENTER);
+                }
+                DocxTestFixtures.addBookmarkedParagraph(paragraph, name,
+                    changed && name.equals("e") ? "修改后的内容" : name + "的内容", ++id);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.write(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFFootnote;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookmarkIndexTest {
+
+    private static final String DOCUMENT_PATH = "src/main/resources/doc/debug_introduction_2.docx";
+
+    @Test
+    void testFindByNameAndId() {
+        try (DocxSession session = DocxSession.open(DOCUMENT_PATH)) {
+            BookmarkIndex index = BookmarkIndex.build(session.getDocument());
+            for (String name : Arrays.asList("labelA", "_GoBack")) {
+                BookmarkIndex.Entry entry = index.find(name);
+                assertNotNull(entry, name + " 应该按名称找到");
+                assertEquals(name, entry.getName());
+                assertSame(entry, index.findById(entry.getId()), name + " 按ID应该找到同一个索引项");
+                assertTrue(entry.isAttached(), name + " 的书签标记应该位于文档中");
+                assertSame(entry.getStartParagraph(), index.getParagraph(entry.getStartParagraphIndex()),
+                    name + " 的起始段落应该与段落索引一致");
+                assertTrue(index.getMaxBookmarkId().compareTo(entry.getId()) >= 0, "最大书签ID不应该小于任何书签的ID");
+            }
+            assertNotEquals(index.find("labelA").getId(), index.find("_GoBack").getId(), "不同书签的ID应该不同");
+            assertNull(index.find("notExistBookmark"), "不存在的书签应该返回null");
+            assertNull(index.findById(index.getMaxBookmarkId().add(BigInteger.ONE)), "不存在的书签ID应该返回null");
+            assertNull(index.findById(null), "书签ID为null时应该返回null");
+            System.out.println("✅ 按名称和ID查找书签测试通过");
+
+        } catch (Exception e) {
+            fail("按名称和ID查找书签测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testRebuildAfterDetachedMarker() {
+        try (DocxSession session = DocxSession.open(DOCUMENT_PATH)) {
+            XWPFDocument document = session.getDocument();
+            int position = session.getBookmarkPosition("labelA");
+            assertTrue(position >= 0, "labelA应该存在");
+
+            // 绕过索引把labelA所在的段落替换为副本并移动到文档末尾，缓存的索引项指向已脱离文档的标记
+            List<XWPFParagraph> paragraphs = document.getParagraphs();
+            Node paragraphNode = paragraphs.get(position).getCTP().getDomNode();
+            Node lastParagraph = paragraphs.get(paragraphs.size() - 1).getCTP().getDomNode();
+            BookmarkIndex stale = BookmarkIndex.build(document);
+            Node copy = paragraphNode.cloneNode(true);
+            lastParagraph.getParentNode().insertBefore(copy, lastParagraph.getNextSibling());
+            paragraphNode.getParentNode().removeChild(paragraphNode);
+            assertFalse(stale.find("labelA").isAttached(), "移除段落后原来的书签标记应该脱离文档");
+
+            int movedPosition = session.getBookmarkPosition("labelA");
+            assertNotEquals(position, movedPosition, "查找到脱离文档的标记时应该重建索引");
+            assertEquals(BookmarkIndex.build(document).find("labelA").getStartParagraphIndex(), movedPosition,
+                "重建后的位置应该与重新建立的索引一致");
+            assertSame(copy, BookmarkIndex.build(document).find("labelA").getStartNode().getParentNode(),
+                "书签应该定位到移动后的段落");
+            System.out.println("✅ 书签标记脱离文档后重建索引测试通过");
+
+        } catch (Exception e) {
+            fail("书签标记脱离文档后重建索引测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testRangesAfterInsertion() {
+        try (DocxSession session = DocxSession.open(DOCUMENT_PATH)) {
+            int paragraphCount = session.getDocument().getParagraphs().size();
+            BookmarkRange rangeA = session.getBookmarkRange("labelA");
+            assertTrue(rangeA.getStart() >= 0, "labelA应该存在");
+
+            session.insertBookmarkBefore("labelA", "labelB");
+            int inserted = session.getDocument().getParagraphs().size() - paragraphCount;
+            assertTrue(inserted > 0, "插入书签内容后段落数应该增加");
+
+            // 增量更新的索引应该与重新建立的索引一致
+            BookmarkIndex rebuilt = BookmarkIndex.build(session.getDocument());
+            BookmarkRange movedA = session.getBookmarkRange("labelA");
+            assertEquals(rebuilt.find("labelA").getRange(), movedA, "labelA的范围应该与重新建立的索引一致");
+            assertEquals(rebuilt.find("labelB").getRange(), session.getBookmarkRange("labelB"),
+                "labelB的范围应该与重新建立的索引一致");
+            assertEquals(rangeA.getStart() + inserted, movedA.getStart(), "labelA的起始段落应该后移插入的段落数");
+            assertEquals(rangeA.getEnd() + inserted, movedA.getEnd(), "labelA的结束段落应该后移插入的段落数");
+            assertEquals(rangeA.getStart(), session.getBookmarkPosition("labelB"), "labelB应该位于原来labelA的位置");
+            System.out.println("✅ 插入段落后书签范围测试通过");
+
+        } catch (Exception e) {
+            fail("插入段落后书签范围测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testFindParagraphIndexAfterInsertAndRemove() {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new DocxTestDocumentCreator(5).paragraphs(60).bookmarks(3).bookmarkParagraphs(2, 3).tableEvery(20).create(out);
+
+            try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(out.toByteArray()))) {
+                BookmarkIndex index = BookmarkIndex.build(document);
+                assertParagraphIndexesMatch(index);
+
+                // 在第10个段落之前插入两个段落（复制已有段落的DOM节点）
+                Node body = document.getDocument().getBody().getDomNode();
+                Node target = paragraphNode(index, 10);
+                List<Node> inserted = new ArrayList<>();
+                for (int i = 0; i < 2; i++) {
+                    Node copy = paragraphNode(index, 30 + i).cloneNode(true);
+                    body.insertBefore(copy, target);
+                    inserted.add(copy);
+                }
+                index.paragraphsInserted(10, inserted);
+                assertEquals(10, index.findParagraphIndex(inserted.get(0).getFirstChild()), "新段落中的节点应该定位到新段落");
+                assertEquals(12, index.findParagraphIndex(target), "之后的段落索引应该后移");
+                assertParagraphIndexesMatch(index);
+
+                // 删除第20、21个段落
+                Node removed = paragraphNode(index, 20);
+                for (Node node : Arrays.asList(removed, paragraphNode(index, 21))) {
+                    body.removeChild(node);
+                }
+                index.paragraphsRemoved(20, 2);
+                assertEquals(-1, index.findParagraphIndex(removed), "已删除的段落应该找不到");
+                assertParagraphIndexesMatch(index);
+
+                // 表格中的节点不属于文档主体的段落
+                Node tableCell = document.getTables().get(0).getRow(0).getCell(0).getParagraphs().get(0).getCTP().getDomNode();
+                assertEquals(-1, index.findParagraphIndex(tableCell), "表格中的段落不应该被定位到正文段落");
+            }
+            System.out.println("✅ 段落反向索引测试通过");
+
+        } catch (Exception e) {
+            fail("段落反向索引测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testBookmarksInTablesHeadersAndFootnotes() {
+        try {
+            byte[] content;
+            String footnotePath;
+            try (XWPFDocument document = new XWPFDocument()) {
+                DocxTestFixtures.addBookmarkedParagraph(document.createParagraph(), "bodyMark", "正文内容", 1);
+                XWPFTable table = document.createTable(1, 2);
+                DocxTestFixtures.addBookmarkedParagraph(table.getRow(0).getCell(1).getParagraphs().get(0), "cellMark", "单元格内容", 2);
+                DocxTestFixtures.addBookmarkedParagraph(document.createHeader(HeaderFooterType.DEFAULT).createParagraph(), "headerMark", "页眉内容", 3);
+                XWPFFootnote footnote = document.createFootnote();
+                DocxTestFixtures.addBookmarkedParagraph(footnote.createParagraph(), "noteMark", "脚注内容", 7);
+                footnotePath = "footnote[" + footnote.getId() + "]";
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                document.write(out);
+                content = out.toByteArray();
+            }
+
+            BookmarkRange cellRange;
+            try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(content))) {
+                BookmarkIndex index = BookmarkIndex.build(document);
+                assertEquals(4, index.getEntries().size(), "所有部件中的书签都应该进入索引");
+                assertEquals(BigInteger.valueOf(7), index.getMaxBookmarkId(), "最大书签ID应该包括脚注中的书签");
+
+                assertTrue(index.find("bodyMark").getRange().isInMainBody(), "正文书签应该位于文档主体");
+                cellRange = index.find("cellMark").getRange();
+                assertEquals("/word/document.xml", cellRange.getPartName(), "单元格书签应该位于主文档部件");
+                assertEquals("body/tbl[0]/tr[0]/tc[1]", cellRange.getContainer(), "应该记录书签所在的单元格");
+                BookmarkRange headerRange = index.find("headerMark").getRange();
+                assertEquals("/word/header1.xml", headerRange.getPartName(), "应该记录书签所在的页眉部件");
+                assertEquals("hdr", headerRange.getContainer(), "页眉书签的容器应该是页眉");
+                BookmarkRange noteRange = index.find("noteMark").getRange();
+                assertEquals("/word/footnotes.xml", noteRange.getPartName(), "应该记录书签所在的脚注部件");
+                assertEquals(footnotePath, noteRange.getContainer(), "应该记录书签所在的脚注");
+
+                // 按书签范围直接定位容器，段落索引相对于容器
+                for (String name : Arrays.asList("cellMark", "headerMark", "noteMark")) {
+                    BookmarkIndex.Entry entry = index.find(name);
+                    BookmarkIndex.Container container = index.findContainer(entry.getRange());
+                    assertSame(entry.getContainer(), container, name + " 应该按范围定位到所在容器");
+                    assertSame(container, index.findContainer(entry.getStartNode()), name + " 的起始标记应该定位到所在容器");
+                    assertSame(entry.getStartParagraph(), container.getParagraph(entry.getRange().getStart()),
+                        name + " 的段落索引应该相对于所在容器");
+                }
+                assertEquals(-1, index.findParagraphIndex(index.find("cellMark").getStartNode()), "单元格中的节点不属于文档主体段落");
+            }
+
+            // 主文档部件中的书签流式读取，其他部件中的书签回退到书签索引
+            assertEquals(cellRange, DocxUtils.getBookmarkRangeFromFile(content, "cellMark"), "流式读取的单元格书签范围应该与索引一致");
+            assertEquals("单元格内容", DocxUtils.getBookmarkContentFromFile(content, "cellMark"), "应该读取单元格书签的内容");
+            assertEquals("页眉内容", DocxUtils.getBookmarkContentFromFile(content, "headerMark"), "应该读取页眉书签的内容");
+            assertEquals("脚注内容", DocxUtils.getBookmarkContentFromFile(content, "noteMark"), "应该读取脚注书签的内容");
+
+            // 输入流与内存中的文档内容一样查找全部部件
+            assertEquals("页眉内容", DocxUtils.getBookmarkContentFromFile(new ByteArrayInputStream(content), "headerMark"),
+                "从输入流应该读取页眉书签的内容");
+            assertEquals(DocxUtils.getBookmarkRangeFromFile(content, "noteMark"),
+                DocxUtils.getBookmarkRangeFromFile(new ByteArrayInputStream(content), "noteMark"), "从输入流应该读取脚注书签的范围");
+            StringBuilder headerText = new StringBuilder();
+            assertTrue(DocxUtils.writeBookmarkContent(new ByteArrayInputStream(content), "headerMark", headerText));
+            assertEquals("页眉内容", headerText.toString(), "从输入流应该写出页眉书签的内容");
+
+            // 不存在的书签只流式扫描，不打开文档
+            assertNull(DocxUtils.getBookmarkContentFromFile(content, "notExistBookmark"), "不存在的书签应该返回null");
+            assertFalse(OperationReport.last().isPhaseEntered(OperationPhase.OPEN), "不存在的书签不应该打开文档");
+            assertEquals(-1, DocxUtils.getBookmarkPositionFromFile(content, "notExistBookmark"), "不存在的书签位置应该为-1");
+            assertFalse(OperationReport.last().isPhaseEntered(OperationPhase.OPEN), "不存在的书签不应该打开文档");
+            assertFalse(DocxUtils.getBookmarkRangeFromFile(content, "headerMark").isInMainBody(), "页眉书签不在文档主体中");
+            assertTrue(OperationReport.last().isPhaseEntered(OperationPhase.OPEN), "页眉中的书签应该打开文档查询");
+
+            ByteArrayOutputStream updated = new ByteArrayOutputStream();
+            try (DocxSession session = DocxSession.open(new ByteArrayInputStream(content))) {
+                session.setBookmarkText("cellMark", "新单元格");
+                session.setBookmarkText("headerMark", "新页眉");
+                session.setBookmarkText("noteMark", "新脚注");
+                session.save(updated);
+            }
+            byte[] result = updated.toByteArray();
+            assertEquals("新单元格", DocxUtils.getBookmarkContentFromFile(result, "cellMark"), "单元格书签内容应该被更新");
+            assertEquals("新页眉", DocxUtils.getBookmarkContentFromFile(result, "headerMark"), "页眉书签内容应该被更新");
+            assertEquals("新脚注", DocxUtils.getBookmarkContentFromFile(result, "noteMark"), "脚注书签内容应该被更新");
+            assertEquals("正文内容", DocxUtils.getBookmarkContentFromFile(result, "bodyMark"), "正文书签内容不应该改变");
+            System.out.println("✅ 表格、页眉、脚注书签索引测试通过");
+
+        } catch (Exception e) {
+            fail("表格、页眉、脚注书签索引测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testBindLayoutMatchesBuild() {
+        try {
+            String[] documents = {
+                "src/main/resources/doc/debug_introduction.docx",
+                DOCUMENT_PATH,
+                "src/main/resources/doc/demo_introduction.docx",
+                "src/main/resources/doc/introduction.docx"
+            };
+            for (String documentPath : documents) {
+                try (XWPFDocument master = new XWPFDocument(Files.newInputStream(Paths.get(documentPath)));
+                     XWPFDocument copy = new XWPFDocument(Files.newInputStream(Paths.get(documentPath)))) {
+                    BookmarkIndex built = BookmarkIndex.build(master);
+                    BookmarkIndex.Layout layout = built.layout();
+                    assertNotNull(layout, documentPath + " 书签标记都应该可以按位置描述");
+
+                    // 按位置绑定的索引与扫描建立的索引一致，访问的节点更少
+                    BookmarkIndex bound = BookmarkIndex.bind(copy, layout);
+                    assertNotNull(bound, documentPath + " 内容相同的文档应该可以按位置绑定");
+                    assertEquals(new ArrayList<>(built.getEntries().keySet()), new ArrayList<>(bound.getEntries().keySet()),
+                        documentPath + " 书签应该相同且顺序一致");
+                    for (BookmarkIndex.Entry expected : built.getEntries().values()) {
+                        BookmarkIndex.Entry actual = bound.find(expected.getName());
+                        assertEquals(expected.getId(), actual.getId(), documentPath + " 书签ID不一致: " + expected.getName());
+                        assertEquals(expected.getRange(), actual.getRange(), documentPath + " 书签范围不一致: " + expected.getName());
+                        assertEquals(expected.getEndNode() != null, actual.getEndNode() != null,
+                            documentPath + " 结束标记不一致: " + expected.getName());
+                        assertSame(copy, actual.getStartParagraph().getDocument(), "绑定的索引应该指向新文档的段落");
+                        assertEquals(expected.getStartParagraph().getText(), actual.getStartParagraph().getText(),
+                            documentPath + " 起始段落不一致: " + expected.getName());
+                        if (expected.getId() != null) {
+                            assertSame(actual, bound.findById(expected.getId()), documentPath + " 应该可以按ID查找: " + expected.getName());
+                        }
+                    }
+                    assertEquals(built.getMaxBookmarkId(), bound.getMaxBookmarkId(), documentPath + " 最大书签ID应该一致");
+                    assertEquals(built.getParagraphs().size(), bound.getParagraphs().size(), documentPath + " 段落数应该一致");
+                    assertTrue(bound.getVisitedNodeCount() < built.getVisitedNodeCount(), documentPath + " 绑定时不应该扫描段落内容");
+                    assertParagraphIndexesMatch(bound);
+                }
+            }
+
+            // 内容不同的文档不能按位置绑定
+            try (XWPFDocument master = new XWPFDocument(Files.newInputStream(Paths.get(DOCUMENT_PATH)));
+                 XWPFDocument changed = new XWPFDocument(Files.newInputStream(Paths.get(DOCUMENT_PATH)))) {
+                BookmarkIndex.Layout layout = BookmarkIndex.build(master).layout();
+                BookmarkIndex.Entry labelA = BookmarkIndex.build(changed).find("labelA");
+                labelA.getStartNode().getParentNode().removeChild(labelA.getStartNode());
+                assertNull(BookmarkIndex.bind(changed, layout), "书签标记位置不同时应该返回null");
+            }
+            System.out.println("✅ 按书签位置绑定索引测试通过");
+
+        } catch (Exception e) {
+            fail("按书签位置绑定索引测试失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 检查每个段落及其后代节点都能定位到正确的段落索引，并且与重新建立的索引一致
+     */
+    private static void assertParagraphIndexesMatch(BookmarkIndex index) {
+        BookmarkIndex rebuilt = BookmarkIndex.build(index.getDocument());
+        assertEquals(rebuilt.getParagraphs().size(), index.getParagraphs().size(), "段落数量应该与重新建立的索引一致");
+        for (int i = 0; i < index.getParagraphs().size(); i++) {
+            Node paragraphNode = paragraphNode(index, i);
+            assertSame(paragraphNode(rebuilt, i), paragraphNode, "第 " + i + " 个段落应该与重新建立的索引一致");
+            assertEquals(i, index.findParagraphIndex(paragraphNode), "段落节点应该定位到第 " + i + " 个段落");
+            Node descendant = paragraphNode.getLastChild();
+            while (descendant != null && descendant.getLastChild() != null) {
+                descendant = descendant.getLastChild();
+            }
+            if (descendant != null) {
+                assertEquals(i, index.findParagraphIndex(descendant), "后代节点应该定位到第 " + i + " 个段落");
+            }
+        }
+    }
+
+    private static Node paragraphNode(BookmarkIndex index, int paragraphIndex) {
+        return index.getParagraph(paragraphIndex).getCTP().getDomNode();
+    }
+}
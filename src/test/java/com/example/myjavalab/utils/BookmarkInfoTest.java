@@ -0,0 +1,98 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookmarkInfoTest {
+
+    private static final String[] DOCUMENTS = {
+        "src/main/resources/doc/debug_introduction.docx",
+        "src/main/resources/doc/debug_introduction_2.docx",
+        "src/main/resources/doc/demo_introduction.docx",
+        "src/main/resources/doc/introduction.docx"
+    };
+
+    @Test
+    void testBookmarkInfoMatchesSingleQueries() {
+        try {
+            for (String documentPath : DOCUMENTS) {
+                List<String> names = new ArrayList<>();
+                Map<String, BookmarkIndex.Entry> entries;
+                try (DocxSession session = DocxSession.open(documentPath)) {
+                    entries = BookmarkIndex.build(session.getDocument()).getEntries();
+                    names.addAll(entries.keySet());
+                }
+                names.add("notExistBookmark");
+                names.add(names.get(0));
+
+                Map<String, BookmarkInfo> infos = DocxUtils.getBookmarkInfo(documentPath, names);
+                assertEquals(names.size() - 1, infos.size(), "重复请求的书签只应该返回一个结果");
+                assertEquals(names.subList(0, names.size() - 1), new ArrayList<>(infos.keySet()), "结果应该按请求的顺序排列");
+
+                try (DocxSession session = DocxSession.open(documentPath)) {
+                    for (String name : entries.keySet()) {
+                        BookmarkInfo info = infos.get(name);
+                        assertTrue(info.isFound(), documentPath + " 书签应该存在: " + name);
+                        assertEquals(session.getBookmarkRange(name), info.getRange(), documentPath + " 书签范围不一致: " + name);
+                        assertEquals(session.getBookmarkParagraphCount(name), info.getParagraphCount(),
+                            documentPath + " 段落数量不一致: " + name);
+                        assertEquals(session.isBookmarkUsingNumberingStyle(name), info.isUsingNumberingStyle(),
+                            documentPath + " 编号样式不一致: " + name);
+                        if (entries.get(name).getId() != null) {
+                            assertEquals(session.getBookmarkContent(name), info.getText(), documentPath + " 书签内容不一致: " + name);
+                        }
+                        // 样式指纹相同与逐段比较样式的结果一致
+                        String first = names.get(0);
+                        assertEquals(session.compareBookmarkParagraphStyles(first, name),
+                            infos.get(first).getStyleFingerprint() == info.getStyleFingerprint(),
+                            documentPath + " 样式指纹与样式比较结果不一致: " + first + " vs " + name);
+                    }
+                }
+
+                BookmarkInfo notFound = infos.get("notExistBookmark");
+                assertFalse(notFound.isFound(), "不存在的书签不应该被找到");
+                assertNull(notFound.getText(), "不存在的书签内容应该为null");
+                assertTrue(notFound.getRange().isNotFound(), "不存在的书签范围应该为未找到");
+                assertEquals(0, notFound.getParagraphCount(), "不存在的书签段落数量应该为0");
+                System.out.println("✅ 批量书签查询与单项查询一致: " + documentPath + "，书签数: " + entries.size());
+            }
+        } catch (Exception e) {
+            fail("批量书签查询测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testBookmarkInfoForBookmarkWithoutId() {
+        try {
+            byte[] document;
+            try (XWPFDocument created = new XWPFDocument()) {
+                XWPFParagraph paragraph = created.createParagraph();
+                paragraph.getCTP().addNewBookmarkStart().setName("noId");
+                paragraph.createRun().setText("没有ID的书签");
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                created.write(out);
+                document = out.toByteArray();
+            }
+
+            // 没有ID的书签存在，但无法确定范围，不应该导致查询失败
+            BookmarkInfo info = DocxUtils.getBookmarkInfo(document, Collections.singletonList("noId")).get("noId");
+            assertTrue(info.isFound(), "没有ID的书签应该存在");
+            assertTrue(info.getRange().isNotFound(), "没有ID的书签范围应该为未找到");
+            assertEquals(0, info.getParagraphCount(), "没有ID的书签段落数量应该为0");
+            assertEquals(0, info.getStyleFingerprint(), "没有ID的书签样式指纹应该为0");
+            System.out.println("✅ 没有ID的书签查询测试通过");
+
+        } catch (Exception e) {
+            fail("没有ID的书签查询测试失败: " + e.getMessage());
+        }
+    }
+}
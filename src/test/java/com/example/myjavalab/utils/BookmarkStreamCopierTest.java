@@ -0,0 +1,71 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookmarkStreamCopierTest {
+
+    private String testDir;
+
+    @BeforeEach
+    void setUp() {
+        testDir = "src/test/resources/test-output";
+        try {
+            Files.createDirectories(Paths.get(testDir));
+        } catch (IOException e) {
+            fail("无法创建测试目录: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testMultiParagraphCopyMatchesDomImplementation() {
+        try {
+            String insertedDocPath = testDir + "/stream_inserted_introduction.docx";
+            DocxUtils.insertBookmarkBefore("src/main/resources/doc/debug_introduction_2.docx", insertedDocPath, "labelA", "labelB");
+
+            assertSameAsDom(insertedDocPath, "labelA", "labelB");
+            assertEquals(DocxUtils.getBookmarkContentFromFile(testDir + "/stream_result.docx", "labelA"),
+                DocxUtils.getBookmarkContentFromFile(testDir + "/stream_result.docx", "labelB"),
+                "labelB内容应该与labelA一致");
+        } catch (Exception e) {
+            fail("流式复制测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testSingleParagraphCopyMatchesDomImplementation() {
+        try {
+            // 多段落源书签复制到其中嵌套的单段落目标书签
+            assertSameAsDom("src/main/resources/doc/debug_introduction_2.docx", "labelA", "_GoBack");
+            // 单段落源书签复制到单段落目标书签
+            assertSameAsDom("src/main/resources/doc/demo_introduction.docx", "_GoBack", "labelA");
+        } catch (Exception e) {
+            fail("流式复制测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testSourceBookmarkNotFound() {
+        assertThrows(IllegalArgumentException.class, () ->
+            DocxUtils.copyBookmarkContentStreaming("src/main/resources/doc/debug_introduction_2.docx",
+                testDir + "/stream_not_found.docx", "notExistBookmark", "labelA"),
+            "源书签不存在时应该抛出IllegalArgumentException");
+    }
+
+    private void assertSameAsDom(String inputPath, String bookmarkA, String bookmarkB) throws Exception {
+        String domResultPath = testDir + "/stream_dom_result.docx";
+        String streamResultPath = testDir + "/stream_result.docx";
+        DocxUtils.copyBookmarkContent(inputPath, domResultPath, bookmarkA, bookmarkB);
+        DocxUtils.copyBookmarkContentStreaming(inputPath, streamResultPath, bookmarkA, bookmarkB);
+
+        assertEquals(DocxTestFixtures.bodyXml(domResultPath), DocxTestFixtures.bodyXml(streamResultPath),
+            "流式复制结果应该与DOM实现一致: " + bookmarkA + " -> " + bookmarkB);
+        System.out.println("✅ 流式复制与DOM实现一致: " + bookmarkA + " -> " + bookmarkB);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookmarkStreamReaderTest {
+
+    private static final String[] DOCUMENTS = {
+        "src/main/resources/doc/debug_introduction.docx",
+        "src/main/resources/doc/debug_introduction_2.docx",
+        "src/main/resources/doc/demo_introduction.docx",
+        "src/main/resources/doc/introduction.docx"
+    };
+
+    @Test
+    void testStreamingReadMatchesDocumentModel() {
+        try {
+            for (String documentPath : DOCUMENTS) {
+                List<String> names = new ArrayList<>();
+                try (DocxSession session = DocxSession.open(documentPath)) {
+                    Map<String, BookmarkIndex.Entry> entries = BookmarkIndex.build(session.getDocument()).getEntries();
+                    names.addAll(entries.keySet());
+                    names.add("notExistBookmark");
+
+                    Map<String, BookmarkStreamReader.Result> results = BookmarkStreamReader.read(documentPath, names);
+                    assertEquals(names.size(), results.size(), "每个请求的书签都应该有结果");
+
+                    for (String name : names) {
+                        BookmarkStreamReader.Result result = results.get(name);
+                        assertEquals(session.getBookmarkPosition(name), result.getPosition(), documentPath + " 书签位置不一致: " + name);
+                        assertEquals(session.getBookmarkRange(name), result.getRange(), documentPath + " 书签范围不一致: " + name);
+                        assertEquals(session.getBookmarkParagraphCount(name), result.getParagraphCount(), documentPath + " 段落数量不一致: " + name);
+                        // bookmarkEnd位于文档主体（不在段落中）时，文档模型按单段落处理，不比较内容
+                        BookmarkIndex.Entry entry = entries.get(name);
+                        if (entry != null && entry.getEndParagraphIndex() != -1) {
+                            assertEquals(session.getBookmarkContent(name), result.getText(), documentPath + " 书签内容不一致: " + name);
+                        }
+                    }
+                }
+                System.out.println("✅ 流式读取与文档模型一致: " + documentPath + "，书签数: " + (names.size() - 1));
+            }
+        } catch (Exception e) {
+            fail("流式读取测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testNotFoundBookmark() {
+        try {
+            BookmarkStreamReader.Result result = BookmarkStreamReader.read(DOCUMENTS[1], "notExistBookmark");
+            assertFalse(result.isFound(), "不存在的书签不应该被找到");
+            assertNull(result.getText(), "不存在的书签内容应该为null");
+            assertEquals(-1, result.getPosition(), "不存在的书签位置应该为-1");
+            assertTrue(result.getRange().isNotFound(), "不存在的书签范围应该为未找到");
+            assertEquals(0, result.getParagraphCount(), "不存在的书签段落数量应该为0");
+
+            Map<String, BookmarkStreamReader.Result> results =
+                BookmarkStreamReader.read(DOCUMENTS[1], Arrays.asList("labelA", "labelA"));
+            assertEquals(1, results.size(), "重复请求的书签只应该返回一个结果");
+        } catch (Exception e) {
+            fail("流式读取测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testWriteBookmarkContentToAppendable() {
+        try {
+            for (String documentPath : DOCUMENTS) {
+                byte[] content = Files.readAllBytes(Paths.get(documentPath));
+                try (DocxSession session = DocxSession.open(documentPath)) {
+                    Map<String, BookmarkIndex.Entry> entries = BookmarkIndex.build(session.getDocument()).getEntries();
+                    for (Map.Entry<String, BookmarkIndex.Entry> entry : entries.entrySet()) {
+                        String name = entry.getKey();
+                        String expected = DocxUtils.getBookmarkContentFromFile(documentPath, name);
+
+                        StringWriter writer = new StringWriter();
+                        assertTrue(DocxUtils.writeBookmarkContent(documentPath, name, writer), documentPath + " 书签应该存在: " + name);
+                        assertEquals(expected, writer.toString(), documentPath + " 写入Writer的内容不一致: " + name);
+                        StringBuilder builder = new StringBuilder();
+                        assertTrue(DocxUtils.writeBookmarkContent(content, name, builder), documentPath + " 书签应该存在: " + name);
+                        assertEquals(expected, builder.toString(), documentPath + " 写入StringBuilder的内容不一致: " + name);
+
+                        if (entry.getValue().getEndParagraphIndex() != -1) {
+                            StringWriter sessionWriter = new StringWriter();
+                            assertTrue(session.writeBookmarkContent(name, sessionWriter), documentPath + " 书签应该存在: " + name);
+                            assertEquals(session.getBookmarkContent(name), sessionWriter.toString(),
+                                documentPath + " 文档模型写入的内容不一致: " + name);
+                            assertEquals(expected, sessionWriter.toString(), documentPath + " 流式读取与文档模型内容不一致: " + name);
+                        }
+                    }
+                }
+            }
+
+            StringWriter notFound = new StringWriter();
+            assertFalse(DocxUtils.writeBookmarkContent(DOCUMENTS[1], "notExistBookmark", notFound), "不存在的书签应该返回false");
+            assertEquals("", notFound.toString(), "不存在的书签不应该写入内容");
+
+            // 首尾空白去除规则与 String.trim() 一致，跨越多段文本的中间空白保留
+            StringBuilder trimmed = new StringBuilder();
+            BookmarkTextWriter textWriter = new BookmarkTextWriter(trimmed);
+            String[] pieces = {" \t ", "  第一段", "", " \n ", "第二段  ", "\t", " 结尾 ", "\n "};
+            StringBuilder joined = new StringBuilder();
+            for (String piece : pieces) {
+                textWriter.append(piece);
+                joined.append(piece);
+            }
+            assertEquals(joined.toString().trim(), trimmed.toString(), "去除首尾空白的结果应该与String.trim()一致");
+            System.out.println("✅ 书签内容写入Appendable测试通过");
+
+        } catch (Exception e) {
+            fail("书签内容写入Appendable测试失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxAsyncExecutorTest {
+
+    private static final String DOCUMENT_PATH = "src/main/resources/doc/debug_introduction_2.docx";
+
+    @Test
+    void testAsyncResultsMatchSynchronousCalls() {
+        try (DocxAsyncExecutor executor = new DocxAsyncExecutor(2)) {
+            byte[] document = Files.readAllBytes(Paths.get(DOCUMENT_PATH));
+
+            byte[] updated = executor.applyBookmarkOps(document, Arrays.asList(
+                BookmarkOp.insertBefore("labelA", "labelB"),
+                BookmarkOp.copy("labelA", "labelB"))).get(1, TimeUnit.MINUTES);
+            byte[] expected = DocxUtils.applyBookmarkOps(document, Arrays.asList(
+                BookmarkOp.insertBefore("labelA", "labelB"),
+                BookmarkOp.copy("labelA", "labelB")));
+            assertEquals(DocxUtils.getBookmarkContentFromFile(expected, "labelB"),
+                executor.getBookmarkContentFromFile(updated, "labelB").get(1, TimeUnit.MINUTES), "异步操作的结果应该与同步调用一致");
+            assertEquals(DocxUtils.getBookmarkRangeFromFile(DOCUMENT_PATH, "labelA"),
+                executor.getBookmarkRangeFromFile(DOCUMENT_PATH, "labelA").get(1, TimeUnit.MINUTES), "异步查询的书签范围应该与同步调用一致");
+
+            // 操作抛出的异常通过future传递
+            CompletableFuture<byte[]> failed = executor.insertBookmarkBefore(document, "notExistBookmark", "labelB");
+            ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.MINUTES));
+            assertTrue(e.getCause() instanceof IllegalArgumentException, "书签不存在时应该以IllegalArgumentException完成");
+            System.out.println("✅ 异步操作结果测试通过");
+
+        } catch (Exception e) {
+            fail("异步操作结果测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testRejectsWhenQueueIsFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        try (DocxAsyncExecutor executor = new DocxAsyncExecutor(1, 1)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CompletableFuture<String> running = executor.submit(() -> {
+                started.countDown();
+                release.await();
+                return "running";
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS), "第一个任务应该开始执行");
+            CompletableFuture<String> queued = executor.submit(() -> "queued");
+            assertEquals(1, executor.getQueuedCount(), "第二个任务应该在排队");
+
+            // 线程和队列都已占满，立即拒绝而不是阻塞提交线程
+            CompletableFuture<String> rejected = executor.submit(() -> "rejected");
+            assertTrue(rejected.isCompletedExceptionally(), "队列已满时应该立即拒绝");
+            ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+            assertTrue(e.getCause() instanceof RejectedExecutionException, "拒绝原因应该是RejectedExecutionException");
+            assertEquals(1, executor.getRejectedCount(), "拒绝计数应该为1");
+
+            release.countDown();
+            assertEquals("running", running.get(10, TimeUnit.SECONDS));
+            assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+            System.out.println("✅ 队列已满时拒绝测试通过");
+
+        } catch (Exception e) {
+            fail("队列已满时拒绝测试失败: " + e.getMessage());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testWaitsForQueueSpaceWhenConfigured() {
+        CountDownLatch release = new CountDownLatch(1);
+        try (DocxAsyncExecutor executor = new DocxAsyncExecutor(1, 1, TimeUnit.SECONDS.toMillis(10))) {
+            executor.submit(() -> release.await(10, TimeUnit.SECONDS));
+            executor.submit(() -> "queued");
+
+            // 提交线程等待队列空位（背压），第一个任务结束后提交成功
+            CompletableFuture<CompletableFuture<String>> submitted = CompletableFuture.supplyAsync(
+                () -> executor.submit(() -> "waited"));
+            Thread.sleep(200);
+            assertFalse(submitted.isDone(), "队列已满时提交线程应该等待");
+            release.countDown();
+            assertEquals("waited", submitted.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS), "等待后提交的任务应该执行");
+            assertEquals(0, executor.getRejectedCount(), "等待期间出现空位时不应该拒绝");
+            System.out.println("✅ 队列已满时等待测试通过");
+
+        } catch (Exception e) {
+            fail("队列已满时等待测试失败: " + e.getMessage());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testRejectsQueuedTaskWhenClosedWhileWaiting() {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch releaseQueued = new CountDownLatch(1);
+        try (DocxAsyncExecutor executor = new DocxAsyncExecutor(1, 1, TimeUnit.SECONDS.toMillis(10))) {
+            executor.submit(() -> release.await(10, TimeUnit.SECONDS));
+            executor.submit(() -> releaseQueued.await(10, TimeUnit.SECONDS));
+
+            // 提交线程等待队列空位期间执行器被关闭
+            CompletableFuture<CompletableFuture<String>> submitted = CompletableFuture.supplyAsync(
+                () -> executor.submit(() -> "late"));
+            Thread.sleep(200);
+            CompletableFuture<Void> closing = CompletableFuture.runAsync(executor::close);
+            Thread.sleep(200);
+
+            // 出现空位后任务不应该留在已关闭的执行器队列中，而是以拒绝完成
+            release.countDown();
+            CompletableFuture<String> late = submitted.get(10, TimeUnit.SECONDS);
+            ExecutionException e = assertThrows(ExecutionException.class, () -> late.get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof RejectedExecutionException, "关闭后进入队列的任务应该被拒绝");
+            assertEquals(1, executor.getRejectedCount(), "拒绝计数应该为1");
+
+            releaseQueued.countDown();
+            closing.get(10, TimeUnit.SECONDS);
+            System.out.println("✅ 等待期间关闭时拒绝测试通过");
+
+        } catch (Exception e) {
+            fail("等待期间关闭时拒绝测试失败: " + e.getMessage());
+        } finally {
+            release.countDown();
+            releaseQueued.countDown();
+        }
+    }
+
+    @Test
+    void testFutureCarriesWorkerReport() {
+        try (DocxAsyncExecutor executor = new DocxAsyncExecutor(1)) {
+            byte[] document = Files.readAllBytes(Paths.get(DOCUMENT_PATH));
+            DocxUtils.copyBookmarkContentStreaming(document, "labelA", "labelA");
+            OperationReport callerReport = OperationReport.last();
+
+            // 报告在工作线程中生成，随future返回，不影响提交线程的报告
+            DocxAsyncExecutor.OperationFuture<BookmarkRange> range = executor.getBookmarkRangeFromFile(DOCUMENT_PATH, "labelA");
+            range.get(1, TimeUnit.MINUTES);
+            assertNotNull(range.getReport(), "完成的future应该带有操作报告");
+            assertEquals("getBookmarkRangeFromFile", range.getReport().getOperation());
+            assertTrue(range.getReport().isSucceeded());
+            assertSame(callerReport, OperationReport.last(), "提交线程的报告不应该被异步操作修改");
+
+            // 失败的操作同样带回报告
+            DocxAsyncExecutor.OperationFuture<byte[]> failed = executor.insertBookmarkBefore(document, "notExistBookmark", "labelB");
+            assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.MINUTES));
+            assertEquals("insertBookmarkBefore", failed.getReport().getOperation());
+            assertFalse(failed.getReport().isSucceeded(), "失败的操作报告应该标记为失败");
+
+            // 同一个工作线程上之前任务的报告不属于没有执行书签操作的任务
+            DocxAsyncExecutor.OperationFuture<String> plain = executor.submit(() -> "plain");
+            assertEquals("plain", plain.get(1, TimeUnit.MINUTES));
+            assertNull(plain.getReport(), "没有执行书签操作的任务不应该带有报告");
+            System.out.println("✅ 异步操作报告测试通过: " + range.getReport());
+
+        } catch (Exception e) {
+            fail("异步操作报告测试失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxBatchProcessorTest {
+
+    private final Path outputDir = Paths.get("src/test/resources/test-output/batch");
+
+    @Test
+    void testProcessDirectory() {
+        try {
+            List<BookmarkOp> plan = Arrays.asList(
+                BookmarkOp.insertBefore("labelA", "labelB"),
+                BookmarkOp.copy("labelA", "labelB"));
+
+            DocxBatchProcessor.BatchResult result = new DocxBatchProcessor(2, 3)
+                .process(Paths.get("src/main/resources/doc"), outputDir, plan);
+
+            assertEquals(4, result.getTotalCount(), "应该处理目录中的4个文档");
+            assertEquals(4, result.getSuccessCount(), "所有文档都应该处理成功: " + result.getFailures());
+            for (DocxBatchProcessor.FileResult fileResult : result.getFileResults()) {
+                assertTrue(Files.exists(fileResult.getOutput()), "输出文件应该存在: " + fileResult.getOutput());
+                assertTrue(DocxUtils.getBookmarkRangeFromFile(fileResult.getOutput().toString(), "labelB").isValid(),
+                    "输出文件中labelB应该存在: " + fileResult.getOutput());
+                assertNotNull(fileResult.getReport(), "每个文件都应该有耗时报告");
+                assertEquals("applyBookmarkOps", fileResult.getReport().getOperation());
+                assertTrue(fileResult.getReport().getParagraphsScanned() > 0, "耗时报告应该包含扫描的段落数");
+            }
+            assertTrue(result.getFilesPerSecond() > 0, "吞吐量应该大于0");
+            System.out.println("✅ " + result);
+
+        } catch (Exception e) {
+            fail("批量处理测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testFailureIsReportedPerFile() {
+        try {
+            List<Path> inputs = Arrays.asList(
+                Paths.get("src/main/resources/doc/debug_introduction_2.docx"),
+                Paths.get("src/main/resources/doc/notExistFile.docx"));
+
+            DocxBatchProcessor.BatchResult result = new DocxBatchProcessor(2)
+                .process(inputs, outputDir, Arrays.asList(BookmarkOp.setText("labelA", "批量文本")));
+
+            assertEquals(1, result.getSuccessCount(), "存在的文件应该处理成功");
+            assertEquals(1, result.getFailureCount(), "不存在的文件应该记录为失败");
+            assertEquals(inputs.get(1), result.getFailures().get(0).getInput(), "失败结果应该对应不存在的文件");
+            assertNotNull(result.getFailures().get(0).getError(), "失败结果应该包含异常");
+            System.out.println("✅ " + result);
+
+        } catch (Exception e) {
+            fail("批量处理失败测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testRejectsDuplicateFileNames() {
+        try {
+            List<Path> inputs = Arrays.asList(
+                Paths.get("src/main/resources/doc/debug_introduction_2.docx"),
+                Paths.get("src/test/resources/test-output/DEBUG_introduction_2.docx"));
+            Path duplicateOutputDir = outputDir.resolve("duplicates");
+
+            // 不同目录中的同名文件会写到同一个输出文件，处理前直接拒绝
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new DocxBatchProcessor(2)
+                .process(inputs, duplicateOutputDir, Arrays.asList(BookmarkOp.setText("labelA", "批量文本"))));
+            assertTrue(e.getMessage().contains("DEBUG_introduction_2.docx"), "异常信息应该包含重复的文件: " + e.getMessage());
+            assertFalse(Files.exists(duplicateOutputDir), "拒绝时不应该创建输出目录");
+            System.out.println("✅ 同名输入文件拒绝测试通过");
+
+        } catch (Exception e) {
+            fail("同名输入文件拒绝测试失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxMailMergeTest {
+
+    private final Path outputDir = Paths.get("src/test/resources/test-output/merge");
+
+    @Test
+    void testMergeCsvToDirectory() {
+        try {
+            String templatePath = template("merge_template_csv.docx");
+            Path resultDir = outputDir.resolve("letters");
+            String csv = "id,labelA,bookmark1,unused\n"
+                + "a001,张三,\"北京, 朝阳区\",x\n"
+                + "a002,李四,\"他说\"\"你好\"\"\",y\n"
+                + "\n"
+                + "a003,王五\n";
+
+            DocxMailMerge.MergeResult result;
+            List<DocxTraceEvent> events = Collections.synchronizedList(new ArrayList<>());
+            DocxTrace.setListener(events::add);
+            try (MergeRowReader rows = MergeRowReader.csv(new StringReader(csv))) {
+                result = new DocxMailMerge(2).fileNameField("id").mergeToDirectory(templatePath, rows, resultDir);
+            } finally {
+                DocxTrace.setListener(null);
+            }
+
+            assertEquals(3, result.getRowCount(), "应该合并3行数据（跳过空行）");
+            // 每行的书签索引都按模板的书签位置建立，不重新扫描正文
+            List<String> indexDetails = new ArrayList<>();
+            synchronized (events) {
+                for (DocxTraceEvent event : events) {
+                    if (event.getEvent().equals("buildIndex")) {
+                        indexDetails.add(event.getDetail());
+                    }
+                }
+            }
+            assertEquals(Arrays.asList("fromTemplate", "fromTemplate", "fromTemplate"), indexDetails,
+                "每行数据都应该按模板的书签位置建立书签索引");
+            assertEquals(3, result.getSuccessCount(), "所有数据行都应该合并成功");
+            assertTrue(result.getRowsPerSecond() > 0, "应该统计吞吐量");
+
+            String letter1 = resultDir.resolve("a001.docx").toString();
+            assertEquals("张三", DocxUtils.getBookmarkContentFromFile(letter1, "labelA"), "labelA应该填入第1行的值");
+            assertEquals("北京, 朝阳区", DocxUtils.getBookmarkContentFromFile(letter1, "bookmark1"), "带逗号的字段应该完整填入");
+            assertEquals("他说\"你好\"", DocxUtils.getBookmarkContentFromFile(resultDir.resolve("a002.docx").toString(), "bookmark1"),
+                "转义的双引号应该还原");
+            assertEquals("", DocxUtils.getBookmarkContentFromFile(resultDir.resolve("a003.docx").toString(), "bookmark1"),
+                "缺少的字段应该按空值填入");
+            System.out.println("✅ CSV合并到目录测试通过: " + result);
+
+        } catch (Exception e) {
+            fail("CSV合并到目录测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testMergeJsonToZip() {
+        try {
+            String templatePath = template("merge_template_json.docx");
+            int rowCount = 200;
+            StringBuilder json = new StringBuilder("[");
+            for (int i = 1; i <= rowCount; i++) {
+                json.append(i > 1 ? "," : "").append("{\"labelA\":\"客户").append(i).append("\",\"bookmark1\":").append(i * 10).append('}');
+            }
+            json.append(']');
+
+            ByteArrayOutputStream zip = new ByteArrayOutputStream();
+            DocxMailMerge.MergeResult result;
+            try (MergeRowReader rows = MergeRowReader.json(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)))) {
+                result = new DocxMailMerge(4, 8).mergeToZip(templatePath, rows, zip);
+            }
+            assertEquals(rowCount, result.getSuccessCount(), "所有数据行都应该合并成功");
+
+            Set<String> entryNames = new HashSet<>();
+            byte[] lastLetter = null;
+            try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+                ZipEntry entry;
+                while ((entry = zipInputStream.getNextEntry()) != null) {
+                    entryNames.add(entry.getName());
+                    if (entry.getName().equals("000200.docx")) {
+                        ByteArrayOutputStream content = new ByteArrayOutputStream();
+                        byte[] buffer = new byte[8192];
+                        int read;
+                        while ((read = zipInputStream.read(buffer)) != -1) {
+                            content.write(buffer, 0, read);
+                        }
+                        lastLetter = content.toByteArray();
+                    }
+                }
+            }
+            assertEquals(rowCount, entryNames.size(), "压缩包中每行数据应该有一个文档");
+            assertNotNull(lastLetter, "最后一行的文档应该按行号命名");
+            assertEquals("客户200", DocxUtils.getBookmarkContentFromFile(lastLetter, "labelA"), "labelA应该填入最后一行的值");
+            assertEquals("2000", DocxUtils.getBookmarkContentFromFile(lastLetter, "bookmark1"), "数字值应该按文本填入");
+            System.out.println("✅ JSON合并到压缩包测试通过: " + result);
+
+        } catch (Exception e) {
+            fail("JSON合并到压缩包测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testDuplicateFileNames() {
+        try {
+            String templatePath = template("merge_template_duplicates.docx");
+            String csv = "id,labelA\n"
+                + "x,甲\n"
+                + "X,乙\n"
+                + "x,丙\n";
+
+            // 写入目录：重复的文件名追加行号，不会互相覆盖
+            Path resultDir = outputDir.resolve("duplicates");
+            DocxMailMerge.MergeResult result;
+            try (MergeRowReader rows = MergeRowReader.csv(new StringReader(csv))) {
+                result = new DocxMailMerge(2).fileNameField("id").mergeToDirectory(templatePath, rows, resultDir);
+            }
+            assertEquals(3, result.getSuccessCount(), "所有数据行都应该合并成功");
+            assertEquals("甲", DocxUtils.getBookmarkContentFromFile(resultDir.resolve("x.docx").toString(), "labelA"));
+            assertEquals("乙", DocxUtils.getBookmarkContentFromFile(resultDir.resolve("X_000002.docx").toString(), "labelA"),
+                "只有大小写不同的文件名也应该追加行号");
+            assertEquals("丙", DocxUtils.getBookmarkContentFromFile(resultDir.resolve("x_000003.docx").toString(), "labelA"),
+                "重复的文件名应该追加行号");
+
+            // 写入压缩包：文件名与写入目录相同，不会因为重复的条目失败
+            ByteArrayOutputStream zip = new ByteArrayOutputStream();
+            try (MergeRowReader rows = MergeRowReader.csv(new StringReader(csv))) {
+                result = new DocxMailMerge(2).fileNameField("id").mergeToZip(templatePath, rows, zip);
+            }
+            assertEquals(3, result.getSuccessCount(), "压缩包中所有数据行都应该合并成功");
+            Set<String> entryNames = new HashSet<>();
+            try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+                ZipEntry entry;
+                while ((entry = zipInputStream.getNextEntry()) != null) {
+                    entryNames.add(entry.getName());
+                }
+            }
+            assertEquals(new HashSet<>(Arrays.asList("x.docx", "X_000002.docx", "x_000003.docx")), entryNames,
+                "压缩包条目名称应该与写入目录的文件名相同");
+            System.out.println("✅ 重复文件名合并测试通过");
+
+        } catch (Exception e) {
+            fail("重复文件名合并测试失败: " + e.getMessage());
+        }
+    }
+
+    private String template(String fileName) throws Exception {
+        return new DocxTestDocumentCreator(11)
+            .paragraphs(40)
+            .bookmarks(2)
+            .bookmarkParagraphs(1, 1)
+            .create(outputDir.resolve(fileName))
+            .toString();
+    }
+}
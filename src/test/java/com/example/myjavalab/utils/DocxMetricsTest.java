@@ -0,0 +1,91 @@
+package com.example.myjavalab.utils;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxMetricsTest {
+
+    private static final String DOCUMENT_PATH = "src/main/resources/doc/debug_introduction_2.docx";
+
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void bindRegistry() {
+        registry = new SimpleMeterRegistry();
+        new DocxMetrics().bindTo(registry);
+    }
+
+    @AfterEach
+    void restoreGlobalRegistry() {
+        new DocxMetrics().bindTo(Metrics.globalRegistry);
+        registry.close();
+    }
+
+    @Test
+    void testRecordsOperationAndPhases() {
+        try {
+            byte[] document = Files.readAllBytes(Paths.get(DOCUMENT_PATH));
+            DocxUtils.insertBookmarkBefore(document, "labelA", "labelB");
+
+            // 字节数组版本内部调用输入流版本和会话，只记录为一次操作
+            Timer operation = registry.find("docx.operation")
+                .tags("operation", "insertBookmarkBefore", "outcome", "success").timer();
+            assertNotNull(operation, "应该记录insertBookmarkBefore操作的耗时");
+            assertEquals(1, operation.count(), "嵌套调用应该只记录一次");
+            assertNull(registry.find("docx.operation").tags("operation", "open").timer(), "打开会话应该并入外层操作");
+
+            long phaseNanos = 0;
+            for (OperationPhase phase : OperationPhase.values()) {
+                Timer phaseTimer = registry.find("docx.operation.phase")
+                    .tags("operation", "insertBookmarkBefore", "phase", phase.tagValue()).timer();
+                assertNotNull(phaseTimer, "应该记录阶段耗时: " + phase);
+                phaseNanos += (long) phaseTimer.totalTime(TimeUnit.NANOSECONDS);
+            }
+            assertTrue(phaseNanos <= (long) operation.totalTime(TimeUnit.NANOSECONDS),
+                "各阶段耗时之和不应该超过操作总耗时");
+
+            assertEquals(document.length, registry.get("docx.document.last.size").gauge().value(), "应该记录文档大小");
+            assertTrue(registry.get("docx.document.last.bookmarks").gauge().value() >= 2, "应该记录书签数");
+            assertTrue(registry.get("docx.document.last.paragraphs").gauge().value() > 0, "应该记录段落数");
+            assertEquals(1, registry.get("docx.document.size").summary().count(), "应该记录一次文档大小分布");
+            System.out.println("✅ 操作和阶段指标测试通过");
+
+        } catch (Exception e) {
+            fail("操作和阶段指标测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testRecordsFailedOperationAndOpenSessions() {
+        try {
+            byte[] document = Files.readAllBytes(Paths.get(DOCUMENT_PATH));
+            assertThrows(IllegalArgumentException.class,
+                () -> DocxUtils.copyBookmarkContent(document, "notExistBookmark", "labelB"));
+            Timer failed = registry.find("docx.operation")
+                .tags("operation", "copyBookmarkContent", "outcome", "error").timer();
+            assertNotNull(failed, "失败的操作应该记录为error");
+            assertEquals(1, failed.count());
+
+            double before = registry.get("docx.sessions.open").gauge().value();
+            DocxSession session = DocxSession.open(DOCUMENT_PATH);
+            assertEquals(before + 1, registry.get("docx.sessions.open").gauge().value(), "打开会话后会话数应该加1");
+            session.close();
+            session.close();
+            assertEquals(before, registry.get("docx.sessions.open").gauge().value(), "重复关闭会话不应该重复计数");
+            System.out.println("✅ 失败操作和会话数指标测试通过");
+
+        } catch (Exception e) {
+            fail("失败操作和会话数指标测试失败: " + e.getMessage());
+        }
+    }
+}
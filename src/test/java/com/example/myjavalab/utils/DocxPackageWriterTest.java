@@ -0,0 +1,127 @@
+package com.example.myjavalab.utils;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.wp.usermodel.HeaderFooterType;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxPackageWriterTest {
+
+    @Test
+    void testUnchangedPartsCopiedWithoutRecompression() {
+        try {
+            ByteArrayOutputStream source = new ByteArrayOutputStream();
+            new DocxTestDocumentCreator(3).paragraphs(200).bookmarks(5).imageEvery(20).create(source);
+            String bookmarkName = DocxTestDocumentCreator.bookmarkName(2);
+
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            try (DocxSession session = DocxSession.open(new ByteArrayInputStream(source.toByteArray()))) {
+                session.setBookmarkText(bookmarkName, "增量保存的新内容");
+                session.save(saved);
+            }
+
+            Map<String, byte[]> sourceEntries = rawEntries(source.toByteArray());
+            Map<String, byte[]> savedEntries = rawEntries(saved.toByteArray());
+            assertEquals(sourceEntries.keySet(), savedEntries.keySet(), "保存后的压缩包条目应该与源文档相同且顺序一致");
+            int images = 0;
+            for (Map.Entry<String, byte[]> entry : sourceEntries.entrySet()) {
+                if (entry.getKey().equals("word/document.xml")) {
+                    assertFalse(Arrays.equals(entry.getValue(), savedEntries.get(entry.getKey())), "主文档部件应该重新序列化");
+                } else {
+                    assertArrayEquals(entry.getValue(), savedEntries.get(entry.getKey()),
+                        "未修改的部件应该原样复制压缩数据: " + entry.getKey());
+                    if (entry.getKey().startsWith("word/media/")) {
+                        images++;
+                    }
+                }
+            }
+            assertTrue(images > 0, "测试文档应该包含图片");
+
+            try (DocxSession session = DocxSession.open(new ByteArrayInputStream(saved.toByteArray()))) {
+                assertEquals("增量保存的新内容", session.getBookmarkContent(bookmarkName), "书签内容应该已更新");
+            }
+            System.out.println("✅ 增量保存测试通过，原样复制图片 " + images + " 张");
+
+        } catch (Exception e) {
+            fail("增量保存测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testModifiedHeaderSavedToSourceFile() {
+        try {
+            Path outputDir = Paths.get("target", "test-output");
+            Files.createDirectories(outputDir);
+            Path documentPath = outputDir.resolve("package_writer_header.docx");
+            try (XWPFDocument document = new XWPFDocument()) {
+                DocxTestFixtures.addBookmarkedParagraph(document.createParagraph(), "bodyMark", "正文内容", 1);
+                DocxTestFixtures.addBookmarkedParagraph(document.createHeader(HeaderFooterType.DEFAULT).createParagraph(), "headerMark", "页眉内容", 2);
+                try (OutputStream out = Files.newOutputStream(documentPath)) {
+                    document.write(out);
+                }
+            }
+            Map<String, byte[]> sourceEntries = rawEntries(Files.readAllBytes(documentPath));
+
+            // 修改页眉中的书签，保存到打开的文件
+            try (DocxSession session = DocxSession.open(documentPath.toString())) {
+                session.setBookmarkText("headerMark", "新的页眉内容");
+                session.save(documentPath.toString());
+            }
+            Map<String, byte[]> savedEntries = rawEntries(Files.readAllBytes(documentPath));
+            assertFalse(Arrays.equals(sourceEntries.get("word/header1.xml"), savedEntries.get("word/header1.xml")),
+                "修改过的页眉部件应该重新序列化");
+            assertArrayEquals(sourceEntries.get("word/settings.xml"), savedEntries.get("word/settings.xml"), "设置部件应该原样复制");
+            try (DocxSession session = DocxSession.open(documentPath.toString())) {
+                assertEquals("新的页眉内容", session.getBookmarkContent("headerMark"), "页眉书签内容应该已更新");
+                assertEquals("正文内容", session.getBookmarkContent("bodyMark"), "正文书签内容不应该变化");
+            }
+
+            // 直接访问文档对象后回退为完整保存，结果同样有效
+            ByteArrayOutputStream saved = new ByteArrayOutputStream();
+            try (DocxSession session = DocxSession.open(documentPath.toString())) {
+                session.getDocument();
+                session.setBookmarkText("bodyMark", "完整保存的正文");
+                session.save(saved);
+            }
+            assertEquals("完整保存的正文", DocxUtils.getBookmarkContentFromFile(saved.toByteArray(), "bodyMark"), "完整保存的内容应该已更新");
+            System.out.println("✅ 页眉部件增量保存测试通过");
+
+        } catch (Exception e) {
+            fail("页眉部件增量保存测试失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 读取压缩包中每个条目的原始压缩数据（按条目顺序）
+     */
+    private static Map<String, byte[]> rawEntries(byte[] content) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipFile zipFile = new ZipFile(new SeekableInMemoryByteChannel(content))) {
+            Enumeration<ZipArchiveEntry> zipEntries = zipFile.getEntries();
+            while (zipEntries.hasMoreElements()) {
+                ZipArchiveEntry entry = zipEntries.nextElement();
+                try (InputStream rawStream = zipFile.getRawInputStream(entry)) {
+                    entries.put(entry.getName(), IOUtils.toByteArray(rawStream));
+                }
+            }
+        }
+        return entries;
+    }
+}
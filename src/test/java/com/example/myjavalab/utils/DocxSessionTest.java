@@ -0,0 +1,215 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.xmlbeans.XmlCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxSessionTest {
+
+    private String testDir;
+    private String originalDocPath;
+    private String sessionResultDocPath;
+
+    @BeforeEach
+    void setUp() {
+        testDir = "src/test/resources/test-output";
+        originalDocPath = "src/main/resources/doc/debug_introduction_2.docx";
+        sessionResultDocPath = testDir + "/session_result_introduction.docx";
+
+        try {
+            Files.createDirectories(Paths.get(testDir));
+        } catch (IOException e) {
+            fail("无法创建测试目录: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testInsertThenCopyInOneSession() {
+        try {
+            String originalLabelAContent = DocxUtils.getBookmarkContentFromFile(originalDocPath, "labelA");
+            int originalLabelAPosition = DocxUtils.getBookmarkPositionFromFile(originalDocPath, "labelA");
+
+            // 一次解析，插入和复制后一次保存
+            try (DocxSession session = DocxSession.open(originalDocPath)) {
+                session.insertBookmarkBefore("labelA", "labelB");
+                assertEquals(originalLabelAPosition, session.getBookmarkPosition("labelB"),
+                    "会话内插入后labelB应该位于原来labelA的位置");
+                assertEquals(originalLabelAPosition + 7, session.getBookmarkPosition("labelA"),
+                    "会话内插入后labelA的位置应该向后移动7位");
+
+                session.copyBookmarkContent("labelA", "labelB");
+                session.save(sessionResultDocPath);
+            }
+
+            assertTrue(Files.exists(Paths.get(sessionResultDocPath)), "结果文档应该被创建");
+
+            String resultLabelAContent = DocxUtils.getBookmarkContentFromFile(sessionResultDocPath, "labelA");
+            String resultLabelBContent = DocxUtils.getBookmarkContentFromFile(sessionResultDocPath, "labelB");
+            System.out.println("📝 会话结果labelA内容: '" + resultLabelAContent + "'");
+            System.out.println("📝 会话结果labelB内容: '" + resultLabelBContent + "'");
+
+            assertEquals(originalLabelAContent, resultLabelAContent, "labelA内容应该保持不变");
+            assertEquals(originalLabelAContent, resultLabelBContent, "labelB内容应该与labelA一致");
+            assertEquals(
+                DocxUtils.getBookmarkParagraphCountFromFile(sessionResultDocPath, "labelA"),
+                DocxUtils.getBookmarkParagraphCountFromFile(sessionResultDocPath, "labelB"),
+                "labelB应该包含与labelA相同数量的段落"
+            );
+            assertTrue(DocxUtils.compareBookmarkParagraphStyles(sessionResultDocPath, "labelA", "labelB"),
+                "labelA和labelB中对应段落的样式应该一致");
+            assertTrue(DocxUtils.isBookmarkUsingNumberingStyle(sessionResultDocPath, "labelB"),
+                "labelB应该使用Word编号样式");
+
+            System.out.println("✅ 会话测试通过: 插入和复制共用一次解析和一次保存");
+
+        } catch (Exception e) {
+            fail("会话测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testSaveToOutputStream() {
+        try (DocxSession session = DocxSession.open(originalDocPath)) {
+            session.insertBookmarkBefore("labelA", "labelB");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            session.save(out);
+            assertTrue(out.size() > 0, "输出流不应该为空");
+
+            try (DocxSession reopened = DocxSession.open(new ByteArrayInputStream(out.toByteArray()))) {
+                assertTrue(reopened.getBookmarkRange("labelB").isValid(), "重新打开后labelB书签范围应该有效");
+            }
+        } catch (Exception e) {
+            fail("输出流保存测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testOpenFromFileLeavesSourceUntouched() {
+        try {
+            String sourcePath = testDir + "/session_lazy_source.docx";
+            String fullSavePath = testDir + "/session_lazy_full.docx";
+            new DocxTestDocumentCreator(11).paragraphs(120).bookmarks(3).imageEvery(10).create(Paths.get(sourcePath));
+            byte[] sourceContent = Files.readAllBytes(Paths.get(sourcePath));
+            String bookmarkName = DocxTestDocumentCreator.bookmarkName(1);
+
+            // 按需读取部件的会话完整保存时，未解析的图片部件从源文件中读取
+            try (DocxSession session = DocxSession.open(sourcePath).saveMode(DocxSession.SaveMode.FULL)) {
+                session.setBookmarkText(bookmarkName, "按需读取后的新内容");
+                session.save(fullSavePath);
+            }
+            assertArrayEquals(sourceContent, Files.readAllBytes(Paths.get(sourcePath)), "关闭会话不应该写回源文件");
+
+            try (DocxSession saved = DocxSession.open(fullSavePath);
+                 DocxSession source = DocxSession.open(sourcePath)) {
+                assertEquals("按需读取后的新内容", saved.getBookmarkContent(bookmarkName), "书签内容应该已更新");
+                assertEquals(source.getDocument().getAllPictures().size(), saved.getDocument().getAllPictures().size(),
+                    "图片数量应该与源文档相同");
+                for (int i = 0; i < source.getDocument().getAllPictures().size(); i++) {
+                    assertArrayEquals(source.getDocument().getAllPictures().get(i).getData(),
+                        saved.getDocument().getAllPictures().get(i).getData(), "图片内容应该与源文档相同");
+                }
+            }
+            System.out.println("✅ 按需读取部件的会话测试通过");
+
+        } catch (Exception e) {
+            fail("按需读取部件的会话测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testDirectDocumentEditRebuildsIndex() {
+        try (DocxSession session = DocxSession.open(originalDocPath)) {
+            int position = session.getBookmarkPosition("labelA");
+            assertTrue(position >= 0, "labelA应该存在");
+
+            // 通过底层文档对象在书签之前插入段落，之后的查询应该使用重建的索引
+            XWPFDocument document = session.getDocument();
+            try (XmlCursor cursor = document.getParagraphs().get(0).getCTP().newCursor()) {
+                document.insertNewParagraph(cursor).createRun().setText("直接插入的段落");
+            }
+            assertEquals(position + 1, session.getBookmarkPosition("labelA"), "直接修改文档后书签位置应该更新");
+            System.out.println("✅ 直接修改文档后重建索引测试通过");
+
+        } catch (Exception e) {
+            fail("直接修改文档后重建索引测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testApplyBookmarkOpPlan() {
+        try {
+            String originalLabelAContent = DocxUtils.getBookmarkContentFromFile(originalDocPath, "labelA");
+
+            List<BookmarkOp> ops = BookmarkOp.parsePlan(
+                "[{\"type\":\"INSERT_BEFORE\",\"bookmarkA\":\"labelA\",\"bookmarkB\":\"labelB\"},"
+                + "{\"type\":\"INSERT_BEFORE\",\"bookmarkA\":\"labelB\",\"bookmarkB\":\"labelC\"},"
+                + "{\"type\":\"COPY\",\"bookmarkA\":\"labelA\",\"bookmarkB\":\"labelB\"},"
+                + "{\"type\":\"SET_TEXT\",\"bookmarkA\":\"labelC\",\"text\":\"计划文本\"}]");
+            assertEquals(BookmarkOp.insertBefore("labelA", "labelB"), ops.get(0), "JSON计划应该解析为插入操作");
+
+            try (DocxSession session = DocxSession.open(originalDocPath)) {
+                session.apply(ops);
+                assertEquals(originalLabelAContent, session.getBookmarkContent("labelB"), "labelB内容应该与labelA一致");
+                assertEquals("计划文本", session.getBookmarkContent("labelC"), "labelC内容应该被设置为文本");
+
+                session.apply(Collections.singletonList(BookmarkOp.delete("labelC")));
+                assertFalse(session.getBookmarkRange("labelC").isValid(), "删除后labelC不应该存在");
+                assertEquals(originalLabelAContent, session.getBookmarkContent("labelA"), "labelA内容应该保持不变");
+            }
+
+            System.out.println("✅ 书签操作计划测试通过");
+
+        } catch (Exception e) {
+            fail("书签操作计划测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testBookmarkIdsUniqueAcrossParallelSessions() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Collection<BigInteger>>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    try (DocxSession session = DocxSession.open(originalDocPath)) {
+                        session.insertBookmarkBefore("labelA", "labelB");
+                        session.insertBookmarkBefore("labelB", "labelC");
+                        Set<BigInteger> ids = new HashSet<>();
+                        for (BookmarkIndex.Entry entry : BookmarkIndex.build(session.getDocument()).getEntries().values()) {
+                            assertTrue(ids.add(entry.getId()), "同一文档中的书签ID不应该重复: " + entry.getName());
+                        }
+                        return ids;
+                    }
+                }));
+            }
+            Collection<BigInteger> first = futures.get(0).get();
+            for (Future<Collection<BigInteger>> future : futures) {
+                // 每个文档独立分配ID，相同输入得到相同的ID
+                assertEquals(first, future.get(), "相同文档并行处理时应该分配相同的书签ID");
+            }
+            System.out.println("✅ 并行会话书签ID测试通过: " + first);
+        } catch (Exception e) {
+            fail("并行会话书签ID测试失败: " + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxTemplateCacheTest {
+
+    private final String templatePath = "src/main/resources/doc/debug_introduction_2.docx";
+
+    @Test
+    void testCachedTemplateMatchesParsedDocument() {
+        try {
+            DocxTemplateCache cache = new DocxTemplateCache(4, 64L * 1024 * 1024);
+
+            byte[] expected;
+            try (DocxSession session = DocxSession.open(templatePath)) {
+                session.insertBookmarkBefore("labelA", "labelB");
+                session.copyBookmarkContent("labelA", "labelB");
+                expected = save(session);
+            }
+
+            byte[] actual;
+            try (DocxSession session = cache.open(templatePath)) {
+                session.insertBookmarkBefore("labelA", "labelB");
+                session.copyBookmarkContent("labelA", "labelB");
+                actual = save(session);
+            }
+            assertEquals(DocxTestFixtures.bodyXml(expected), DocxTestFixtures.bodyXml(actual), "缓存模板的处理结果应该与直接解析一致");
+
+            // 上一个会话的修改不应该影响模板
+            try (DocxSession session = cache.open(templatePath)) {
+                assertFalse(session.getBookmarkRange("labelB").isValid(), "新会话中不应该存在上一个会话插入的labelB");
+                assertEquals(DocxUtils.getBookmarkContentFromFile(templatePath, "labelA"),
+                    session.getBookmarkContent("labelA"), "新会话中labelA内容应该与模板一致");
+            }
+            assertEquals(DocxUtils.getBookmarkRangeFromFile(templatePath, "labelA"),
+                cache.getBookmarkRange(templatePath, "labelA"), "缓存的书签范围应该与模板一致");
+
+            // 会话按模板的书签位置建立索引，不扫描段落内容
+            List<DocxTraceEvent> events = Collections.synchronizedList(new ArrayList<>());
+            DocxTrace.setListener(events::add);
+            try (DocxSession session = cache.open(templatePath)) {
+                session.setBookmarkText("labelA", "模板文本");
+                assertEquals("模板文本", session.getBookmarkContent("labelA"), "按位置建立的索引应该可以修改书签");
+            } finally {
+                DocxTrace.setListener(null);
+            }
+            DocxTraceEvent buildIndex = events.stream().filter(event -> event.getEvent().equals("buildIndex"))
+                .findFirst().orElse(null);
+            assertNotNull(buildIndex, "应该发送建立索引事件");
+            assertEquals("fromTemplate", buildIndex.getDetail(), "从模板打开的会话应该按模板的书签位置建立索引");
+
+            assertEquals(1, cache.getMissCount(), "模板只应该加载一次");
+            assertEquals(3, cache.getHitCount(), "后续请求应该命中缓存");
+            System.out.println("✅ 模板缓存测试通过");
+
+        } catch (Exception e) {
+            fail("模板缓存测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedTemplateIsEvicted() {
+        try {
+            DocxTemplateCache cache = new DocxTemplateCache(2, 64L * 1024 * 1024);
+            String[] templates = {
+                "src/main/resources/doc/debug_introduction.docx",
+                "src/main/resources/doc/debug_introduction_2.docx",
+                "src/main/resources/doc/demo_introduction.docx"
+            };
+            for (String template : templates) {
+                cache.open(template).close();
+            }
+            assertEquals(2, cache.size(), "缓存的模板数量不应该超过上限");
+
+            cache.open(templates[2]).close();
+            assertEquals(1, cache.getHitCount(), "最近使用的模板应该仍在缓存中");
+            cache.open(templates[0]).close();
+            assertEquals(4, cache.getMissCount(), "最久未使用的模板应该已被淘汰");
+            System.out.println("✅ 模板缓存淘汰测试通过");
+
+        } catch (Exception e) {
+            fail("模板缓存淘汰测试失败: " + e.getMessage());
+        }
+    }
+
+    private static byte[] save(DocxSession session) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.save(out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxTestDocumentCreatorTest {
+
+    private final Path outputDir = Paths.get("src/test/resources/test-output/generated");
+
+    @Test
+    void testGeneratedDocumentStructure() {
+        try {
+            String documentPath = creator(7).create(outputDir.resolve("generated_7.docx")).toString();
+
+            try (FileInputStream fis = new FileInputStream(documentPath);
+                 XWPFDocument document = new XWPFDocument(fis)) {
+                assertEquals(300, document.getParagraphs().size(), "正文段落数应该与配置一致");
+                assertEquals(6, document.getTables().size(), "每50个段落应该插入一个表格");
+                assertFalse(document.getAllPictures().isEmpty(), "文档应该包含嵌入图片");
+            }
+
+            for (int i = 0; i < 5; i++) {
+                String name = DocxTestDocumentCreator.bookmarkName(i);
+                int paragraphCount = DocxUtils.getBookmarkParagraphCountFromFile(documentPath, name);
+                assertTrue(paragraphCount >= 2 && paragraphCount <= 4, "书签 " + name + " 应该包含2到4个段落: " + paragraphCount);
+                assertEquals(1, DocxUtils.getBookmarkParagraphCountFromFile(documentPath,
+                    name + DocxTestDocumentCreator.NESTED_BOOKMARK_SUFFIX), "嵌套书签应该只包含1个段落");
+                assertTrue(DocxUtils.isBookmarkUsingNumberingStyle(documentPath, name), "书签 " + name + " 应该使用Word编号样式");
+            }
+            System.out.println("✅ 生成文档结构测试通过: " + documentPath);
+
+        } catch (Exception e) {
+            fail("生成文档结构测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testSameSeedGeneratesSameContent() {
+        try {
+            assertEquals(bodyXml(creator(42)), bodyXml(creator(42)), "相同种子应该生成相同的正文");
+            assertNotEquals(bodyXml(creator(42)), bodyXml(creator(43)), "不同种子应该生成不同的正文");
+            System.out.println("✅ 生成文档确定性测试通过");
+
+        } catch (Exception e) {
+            fail("生成文档确定性测试失败: " + e.getMessage());
+        }
+    }
+
+    private static DocxTestDocumentCreator creator(long seed) {
+        return new DocxTestDocumentCreator(seed)
+            .paragraphs(300)
+            .bookmarks(5)
+            .bookmarkParagraphs(2, 4)
+            .nestedBookmarks(true)
+            .tableEvery(50)
+            .imageEvery(100);
+    }
+
+    private static String bodyXml(DocxTestDocumentCreator creator) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        creator.create(out);
+        return DocxTestFixtures.bodyXml(out.toByteArray());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * 测试共用的文档构造和读取方法
+ */
+final class DocxTestFixtures {
+
+    private DocxTestFixtures() {
+    }
+
+    /**
+     * 在段落中添加书签，书签只包含一个内容为text的文本
+     */
+    static void addBookmarkedParagraph(XWPFParagraph paragraph, String bookmarkName, String text, long id) {
+        CTBookmark bookmarkStart = paragraph.getCTP().addNewBookmarkStart();
+        bookmarkStart.setId(BigInteger.valueOf(id));
+        bookmarkStart.setName(bookmarkName);
+        paragraph.createRun().setText(text);
+        paragraph.getCTP().addNewBookmarkEnd().setId(BigInteger.valueOf(id));
+    }
+
+    /**
+     * 读取文档正文的XML，用于比较两个文档的内容是否一致
+     */
+    static String bodyXml(byte[] document) throws IOException {
+        try (XWPFDocument reopened = new XWPFDocument(new ByteArrayInputStream(document))) {
+            return reopened.getDocument().getBody().xmlText();
+        }
+    }
+
+    static String bodyXml(String documentPath) throws IOException {
+        return bodyXml(Files.readAllBytes(Paths.get(documentPath)));
+    }
+}
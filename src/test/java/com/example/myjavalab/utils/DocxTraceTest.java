@@ -0,0 +1,88 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxTraceTest {
+
+    private static final String DOCUMENT_PATH = "src/main/resources/doc/debug_introduction_2.docx";
+
+    @AfterEach
+    void removeListener() {
+        DocxTrace.setListener(null);
+    }
+
+    @Test
+    void testEmitsStructuredEvents() {
+        List<DocxTraceEvent> events = Collections.synchronizedList(new ArrayList<>());
+        DocxTrace.setListener(events::add);
+        try {
+            DocxUtils.compareBookmarkParagraphStyles(DOCUMENT_PATH, "labelA", "labelA");
+
+            DocxTraceEvent index = findEvent(events, "buildIndex");
+            assertNotNull(index, "应该发送建立索引事件");
+            assertEquals("compareBookmarkParagraphStyles", index.getOperation(), "事件应该属于外层操作");
+            assertTrue(index.getVisitedNodes() > 0, "建立索引事件应该包含访问的节点数");
+            assertTrue(index.getDurationNanos() > 0, "建立索引事件应该包含耗时");
+
+            DocxTraceEvent range = findEvent(events, "bookmarkRange");
+            assertNotNull(range, "应该发送书签范围事件");
+            assertEquals("labelA", range.getBookmark());
+            assertTrue(range.getDetail().startsWith("start="), "书签范围事件应该包含起止段落");
+
+            DocxTraceEvent compare = findEvent(events, "compareStyles");
+            assertNotNull(compare, "应该发送样式比较事件");
+            assertTrue(compare.getVisitedNodes() > 0, "样式比较事件应该包含比较的段落数");
+            assertTrue(compare.toString().contains("operation=compareBookmarkParagraphStyles"), "事件应该输出为key=value形式");
+
+            try (DocxSession session = DocxSession.open(DOCUMENT_PATH)) {
+                events.clear();
+                session.getBookmarkContent("labelA");
+            }
+            DocxTraceEvent locate = findEvent(events, "locateBookmark");
+            assertNotNull(locate, "读取书签内容应该发送定位事件");
+            assertEquals("getBookmarkContent", locate.getOperation());
+            System.out.println("✅ 结构化跟踪事件测试通过");
+
+        } catch (Exception e) {
+            fail("结构化跟踪事件测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testDisabledAndFailingListeners() {
+        try {
+            assertFalse(DocxTrace.isEnabled(), "默认不应该开启跟踪");
+            assertEquals(0L, DocxTrace.startNanos(), "关闭跟踪时不应该计时");
+            assertTrue(DocxUtils.compareBookmarkParagraphStyles(DOCUMENT_PATH, "labelA", "labelA"));
+
+            // 监听器抛出的异常不影响书签操作
+            DocxTrace.setListener(event -> {
+                throw new IllegalStateException("listener failure");
+            });
+            assertTrue(DocxUtils.compareBookmarkParagraphStyles(DOCUMENT_PATH, "labelA", "labelA"),
+                "监听器失败时书签操作应该正常完成");
+            System.out.println("✅ 关闭跟踪和监听器失败测试通过");
+
+        } catch (Exception e) {
+            fail("关闭跟踪和监听器失败测试失败: " + e.getMessage());
+        }
+    }
+
+    private static DocxTraceEvent findEvent(List<DocxTraceEvent> events, String name) {
+        synchronized (events) {
+            for (DocxTraceEvent event : events) {
+                if (name.equals(event.getEvent())) {
+                    return event;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DocxUtilsInMemoryTest {
+
+    private final String originalDocPath = "src/main/resources/doc/debug_introduction_2.docx";
+
+    @Test
+    void testInMemoryOperationsMatchFileOperations() {
+        try {
+            String testDir = "src/test/resources/test-output";
+            Files.createDirectories(Paths.get(testDir));
+            String insertedDocPath = testDir + "/memory_inserted_introduction.docx";
+            String resultDocPath = testDir + "/memory_result_introduction.docx";
+            DocxUtils.insertBookmarkBefore(originalDocPath, insertedDocPath, "labelA", "labelB");
+            DocxUtils.copyBookmarkContent(insertedDocPath, resultDocPath, "labelA", "labelB");
+
+            // 整个流程不经过文件系统
+            byte[] original = Files.readAllBytes(Paths.get(originalDocPath));
+            byte[] inserted = DocxUtils.insertBookmarkBefore(original, "labelA", "labelB");
+            byte[] result = DocxUtils.copyBookmarkContent(inserted, "labelA", "labelB");
+
+            for (String name : new String[]{"labelA", "labelB"}) {
+                assertEquals(DocxUtils.getBookmarkContentFromFile(resultDocPath, name),
+                    DocxUtils.getBookmarkContentFromFile(result, name), "内存处理的 " + name + " 内容应该与文件处理一致");
+                assertEquals(DocxUtils.getBookmarkRangeFromFile(resultDocPath, name),
+                    DocxUtils.getBookmarkRangeFromFile(result, name), "内存处理的 " + name + " 范围应该与文件处理一致");
+                assertEquals(DocxUtils.getBookmarkPositionFromFile(resultDocPath, name),
+                    DocxUtils.getBookmarkPositionFromFile(result, name), "内存处理的 " + name + " 位置应该与文件处理一致");
+                assertEquals(DocxUtils.getBookmarkParagraphCountFromFile(resultDocPath, name),
+                    DocxUtils.getBookmarkParagraphCountFromFile(result, name), "内存处理的 " + name + " 段落数应该与文件处理一致");
+            }
+            assertTrue(DocxUtils.compareBookmarkParagraphStyles(result, "labelA", "labelB"), "labelA和labelB的段落样式应该一致");
+            assertTrue(DocxUtils.isBookmarkUsingNumberingStyle(result, "labelB"), "labelB应该使用Word编号样式");
+            System.out.println("✅ 内存处理与文件处理结果一致");
+
+        } catch (Exception e) {
+            fail("内存处理测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testStreamingCopyFromByteArray() {
+        try {
+            byte[] inserted = DocxUtils.insertBookmarkBefore(Files.readAllBytes(Paths.get(originalDocPath)), "labelA", "labelB");
+            byte[] domResult = DocxUtils.copyBookmarkContent(inserted, "labelA", "labelB");
+            byte[] streamResult = DocxUtils.copyBookmarkContentStreaming(inserted, "labelA", "labelB");
+
+            assertEquals(DocxUtils.getBookmarkContentFromFile(domResult, "labelB"),
+                DocxUtils.getBookmarkContentFromFile(streamResult, "labelB"), "流式复制结果应该与DOM实现一致");
+            assertEquals(DocxUtils.getBookmarkParagraphCountFromFile(domResult, "labelB"),
+                DocxUtils.getBookmarkParagraphCountFromFile(streamResult, "labelB"), "流式复制的段落数应该与DOM实现一致");
+            System.out.println("✅ 字节数组流式复制测试通过");
+
+        } catch (Exception e) {
+            fail("字节数组流式复制测试失败: " + e.getMessage());
+        }
+    }
+}
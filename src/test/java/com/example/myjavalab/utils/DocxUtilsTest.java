@@ -4,9 +4,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
 
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
+
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -306,4 +314,52 @@ public class DocxUtilsTest {
             fail("插入后编号样式测试失败: " + e.getMessage());
         }
     }
+
+    @Test
+    void testCopyBookmarkContentMultipleTimes() {
+        try {
+            String multipleDocPath = testDir + "/multiple_introduction.docx";
+            
+            // 测试用例4: 多次复制labelA的内容（创建labelA1, labelA2, labelA3）
+            DocxUtils.copyBookmarkContentMultipleTimes(originalDocPath, multipleDocPath, "labelA", 3);
+            
+            String labelAContent = DocxUtils.getBookmarkContentFromFile(multipleDocPath, "labelA");
+            int labelAParagraphCount = DocxUtils.getBookmarkParagraphCountFromFile(multipleDocPath, "labelA");
+            int previousEnd = DocxUtils.getBookmarkRangeFromFile(multipleDocPath, "labelA").getEnd();
+            for (int i = 1; i <= 3; i++) {
+                String name = "labelA" + i;
+                BookmarkRange range = DocxUtils.getBookmarkRangeFromFile(multipleDocPath, name);
+                System.out.println("📝 " + name + "范围: " + range);
+                
+                assertEquals(labelAContent, DocxUtils.getBookmarkContentFromFile(multipleDocPath, name), name + "的内容应该与labelA一致");
+                assertEquals(labelAParagraphCount, range.getEnd() - range.getStart() + 1, name + "的段落数应该与labelA一致");
+                assertEquals(previousEnd + 1, range.getStart(), name + "应该紧接在前一个书签之后");
+                assertTrue(DocxUtils.compareBookmarkParagraphStyles(multipleDocPath, "labelA", name), name + "的段落样式应该与labelA一致");
+                assertTrue(DocxUtils.isBookmarkUsingNumberingStyle(multipleDocPath, name), name + "应该使用Word编号样式");
+                previousEnd = range.getEnd();
+            }
+            
+            // 大量复制：书签ID不重复，所有副本都能被找到
+            byte[] copied = DocxUtils.copyBookmarkContentMultipleTimes(Files.readAllBytes(Paths.get(originalDocPath)), "labelA", 2000);
+            Map<String, BookmarkStreamReader.Result> ranges = BookmarkStreamReader.read(new ByteArrayInputStream(copied),
+                Arrays.asList("labelA1", "labelA1000", "labelA2000"));
+            assertEquals(labelAParagraphCount, ranges.get("labelA2000").getParagraphCount(), "labelA2000的段落数应该与labelA一致");
+            assertEquals(ranges.get("labelA1").getPosition() + 1999 * labelAParagraphCount, ranges.get("labelA2000").getPosition(),
+                "副本应该按顺序依次排列");
+            try (XWPFDocument document = new XWPFDocument(new ByteArrayInputStream(copied))) {
+                Set<String> ids = new HashSet<>();
+                for (XWPFParagraph paragraph : document.getParagraphs()) {
+                    for (CTBookmark bookmark : paragraph.getCTP().getBookmarkStartList()) {
+                        assertTrue(ids.add(bookmark.getId().toString()), "书签ID应该唯一: " + bookmark.getName());
+                    }
+                }
+                assertTrue(ids.size() > 2000, "文档应该包含全部副本书签");
+            }
+            
+            System.out.println("✅ 多次复制书签内容测试通过");
+            
+        } catch (Exception e) {
+            fail("多次复制书签内容测试失败: " + e.getMessage());
+        }
+    }
 }
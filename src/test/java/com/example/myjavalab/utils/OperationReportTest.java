@@ -0,0 +1,70 @@
+package com.example.myjavalab.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OperationReportTest {
+
+    private static final String DOCUMENT_PATH = "src/main/resources/doc/debug_introduction_2.docx";
+
+    @Test
+    void testReportForDomOperation() {
+        try {
+            Path outputDir = Paths.get("src/test/resources/test-output");
+            Files.createDirectories(outputDir);
+            String outputPath = outputDir.resolve("report_introduction.docx").toString();
+            DocxUtils.insertBookmarkBefore(DOCUMENT_PATH, outputPath, "labelA", "labelB");
+
+            OperationReport report = OperationReport.last();
+            assertNotNull(report, "操作结束后应该生成报告");
+            assertEquals("insertBookmarkBefore", report.getOperation());
+            assertTrue(report.isSucceeded());
+            long phaseNanos = 0;
+            for (OperationPhase phase : OperationPhase.values()) {
+                assertTrue(report.getPhaseNanos(phase) > 0, "应该记录阶段耗时: " + phase);
+                phaseNanos += report.getPhaseNanos(phase);
+            }
+            assertTrue(phaseNanos <= report.getTotalNanos(), "各阶段耗时之和不应该超过操作总耗时");
+            assertTrue(report.getParagraphsScanned() > 0, "建立索引时应该统计扫描的段落数");
+            assertTrue(report.getNodesVisited() >= report.getParagraphsScanned(), "访问的节点数应该不少于段落数");
+            System.out.println("✅ " + report);
+
+            // 失败的操作同样生成报告
+            byte[] document = Files.readAllBytes(Paths.get(DOCUMENT_PATH));
+            assertThrows(IllegalArgumentException.class,
+                () -> DocxUtils.copyBookmarkContent(document, "notExistBookmark", "labelB"));
+            OperationReport failed = OperationReport.last();
+            assertNotSame(report, failed, "每次操作都应该生成新的报告");
+            assertEquals("copyBookmarkContent", failed.getOperation());
+            assertFalse(failed.isSucceeded(), "失败的操作报告应该标记为失败");
+            System.out.println("✅ DOM操作耗时报告测试通过");
+
+        } catch (Exception e) {
+            fail("DOM操作耗时报告测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testReportForStreamingOperation() {
+        try {
+            byte[] document = Files.readAllBytes(Paths.get(DOCUMENT_PATH));
+            DocxUtils.copyBookmarkContentStreaming(document, "labelA", "labelA");
+
+            OperationReport report = OperationReport.last();
+            assertEquals("copyBookmarkContentStreaming", report.getOperation());
+            assertTrue(report.isSucceeded());
+            assertTrue(report.getParagraphsScanned() > 0, "流式复制应该统计扫描的段落数");
+            assertTrue(report.getNodesVisited() > 0, "流式复制应该统计访问的XML元素数");
+            assertEquals(0, report.getPhaseNanos(OperationPhase.MUTATE), "流式复制不修改DOM");
+            System.out.println("✅ 流式操作耗时报告测试通过: " + report);
+
+        } catch (Exception e) {
+            fail("流式操作耗时报告测试失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.myjavalab.utils;
+
+import org.apache.poi.xwpf.usermodel.ParagraphAlignment;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.junit.jupiter.api.Test;
+import org.openxmlformats.schemas.wordprocessingml.x2006.main.CTBookmark;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParagraphStyleFingerprintTest {
+
+    private static final String[] DOCUMENTS = {
+        "src/main/resources/doc/debug_introduction.docx",
+        "src/main/resources/doc/debug_introduction_2.docx",
+        "src/main/resources/doc/demo_introduction.docx",
+        "src/main/resources/doc/introduction.docx"
+    };
+
+    @Test
+    void testFingerprintMatchesStyleProperties() {
+        try {
+            for (String documentPath : DOCUMENTS) {
+                try (DocxSession session = DocxSession.open(documentPath)) {
+                    BookmarkIndex index = BookmarkIndex.build(session.getDocument());
+                    // 指纹相同当且仅当逐项比较的样式属性全部相同
+                    Map<Long, String> keysByFingerprint = new HashMap<>();
+                    Map<String, Long> fingerprintsByKey = new HashMap<>();
+                    for (XWPFParagraph paragraph : index.getParagraphs()) {
+                        long fingerprint = index.getStyleFingerprint(paragraph);
+                        assertEquals(ParagraphStyleFingerprint.of(paragraph), fingerprint, "缓存的指纹应该与重新计算的一致");
+                        String key = styleKey(paragraph);
+                        assertEquals(key, keysByFingerprint.computeIfAbsent(fingerprint, f -> key),
+                            documentPath + " 指纹相同的段落样式应该相同");
+                        assertEquals(fingerprint, (long) fingerprintsByKey.computeIfAbsent(key, k -> fingerprint),
+                            documentPath + " 样式相同的段落指纹应该相同");
+                    }
+                    System.out.println("✅ 样式指纹与样式属性一致: " + documentPath + "，不同样式数: " + keysByFingerprint.size());
+                }
+            }
+        } catch (Exception e) {
+            fail("段落样式指纹测试失败: " + e.getMessage());
+        }
+    }
+
+    @Test
+    void testFindBookmarksWithSameParagraphStyles() {
+        try {
+            byte[] content;
+            try (XWPFDocument document = new XWPFDocument()) {
+                addBookmarkedParagraph(document, "centerA", ParagraphAlignment.CENTER, 1);
+                addBookmarkedParagraph(document, "leftA", ParagraphAlignment.LEFT, 2);
+                addBookmarkedParagraph(document, "centerB", ParagraphAlignment.CENTER, 3);
+                addBookmarkedParagraph(document, "right", ParagraphAlignment.RIGHT, 4);
+                addTwoParagraphBookmark(document, "twoA", 5);
+                addTwoParagraphBookmark(document, "twoB", 6);
+                addBookmarkedParagraph(document, "leftB", ParagraphAlignment.LEFT, 7);
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                document.write(out);
+                content = out.toByteArray();
+            }
+
+            List<List<String>> groups = DocxUtils.findBookmarksWithSameParagraphStyles(content);
+            assertEquals(Arrays.asList(
+                    Arrays.asList("centerA", "centerB"),
+                    Arrays.asList("leftA", "leftB"),
+                    Arrays.asList("twoA", "twoB")),
+                groups, "应该按段落样式对书签分组");
+
+            // 分组结果与两两比较的结果一致
+            assertTrue(DocxUtils.compareBookmarkParagraphStyles(content, "centerA", "centerB"), "同组书签的样式应该一致");
+            assertTrue(DocxUtils.compareBookmarkParagraphStyles(content, "twoA", "twoB"), "同组多段落书签的样式应该一致");
+            assertFalse(DocxUtils.compareBookmarkParagraphStyles(content, "centerA", "leftA"), "不同对齐方式的书签样式应该不同");
+            assertFalse(DocxUtils.compareBookmarkParagraphStyles(content, "leftA", "twoA"), "段落数量不同的书签样式应该不同");
+            System.out.println("✅ 样式相同的书签分组测试通过: " + groups);
+
+        } catch (Exception e) {
+            fail("样式相同的书签分组测试失败: " + e.getMessage());
+        }
+    }
+
+    private static void addBookmarkedParagraph(XWPFDocument document, String bookmarkName,
+                                               ParagraphAlignment alignment, long id) {
+        XWPFParagraph paragraph = document.createParagraph();
+        paragraph.setAlignment(alignment);
+        DocxTestFixtures.addBookmarkedParagraph(paragraph, bookmarkName, bookmarkName + "内容", id);
+    }
+
+    /**
+     * 书签跨越两个段落：首行缩进的段落和居中的段落
+     */
+    private static void addTwoParagraphBookmark(XWPFDocument document, String bookmarkName, long id) {
+        XWPFParagraph first = document.createParagraph();
+        first.setIndentationFirstLine(420);
+        CTBookmark bookmarkStart = first.getCTP().addNewBookmarkStart();
+        bookmarkStart.setId(BigInteger.valueOf(id));
+        bookmarkStart.setName(bookmarkName);
+        first.createRun().setText(bookmarkName + "第一段");
+
+        XWPFParagraph second = document.createParagraph();
+        second.setAlignment(ParagraphAlignment.CENTER);
+        second.createRun().setText(bookmarkName + "第二段");
+        second.getCTP().addNewBookmarkEnd().setId(BigInteger.valueOf(id));
+    }
+
+    /**
+     * 逐项列出样式比较用到的属性，作为指纹的参照
+     */
+    private static String styleKey(XWPFParagraph paragraph) {
+        return paragraph.getAlignment() + "|" + paragraph.getSpacingBefore() + "|" + paragraph.getSpacingAfter()
+            + "|" + paragraph.getSpacingBetween() + "|" + paragraph.getIndentationLeft()
+            + "|" + paragraph.getIndentationRight() + "|" + paragraph.getIndentationFirstLine()
+            + "|" + paragraph.getIndentationHanging() + "|" + paragraph.getNumID()
+            + "|" + paragraph.getNumIlvl() + "|" + paragraph.getStyle();
+    }
+}